@@ -0,0 +1,44 @@
+package com.example.sti.config;
+
+import com.example.sti.datasource.ConcurrencyLimitingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the application's datasource in a {@link ConcurrencyLimitingDataSource} sized to the
+ * connection pool (datasource.limiter.permits overrides it). With read replicas the limit follows
+ * the primary pool and counts routed reads too.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class ConnectionLimitConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimiter(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource ds)
+                        || bean instanceof ConcurrencyLimitingDataSource) {
+                    return bean;
+                }
+                int permits = env.getProperty("datasource.limiter.permits", Integer.class, 0);
+                if (permits <= 0) {
+                    permits = bean instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize()
+                            : env.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                }
+                Duration timeout = env.getProperty("datasource.limiter.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+                System.out.println("Connection limiter: " + permits + " concurrent connections, wait up to " + timeout
+                        + "; virtual threads " + (env.getProperty("spring.threads.virtual.enabled", Boolean.class, false) ? "on" : "off"));
+                return new ConcurrencyLimitingDataSource(ds, permits, timeout);
+            }
+        };
+    }
+}
@@ -18,9 +18,9 @@ public class CorsConfig implements WebMvcConfigurer {
                         "http://localhost:5173",
                         "http://127.0.0.1:5173"
                 )
-                .allowedMethods("GET","POST","PUT","PATCH","DELETE","OPTIONS")
+                .allowedMethods("GET","HEAD","POST","PUT","PATCH","DELETE","OPTIONS")
                 .allowedHeaders("*")
-                .exposedHeaders("Location","Content-Type")
+                .exposedHeaders("Location","Content-Type","Upload-Offset","Upload-Length","Upload-Expires")
                 .allowCredentials(true)
                 .maxAge(3600);
 
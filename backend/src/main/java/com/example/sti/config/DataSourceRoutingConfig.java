@@ -0,0 +1,86 @@
+package com.example.sti.config;
+
+import com.example.sti.datasource.ReadWriteRoutingDataSource;
+import com.example.sti.datasource.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled by datasource.replicas.urls (comma-separated JDBC URLs, same credentials
+ * as the primary unless datasource.replicas.username/password are set). Read-only transactions
+ * (@Transactional(readOnly = true) services, and Spring Data's finders that GET endpoints use) go
+ * to the replicas; writes, and reads shortly after a write by the same thread or client, go to
+ * spring.datasource. Without the property the single auto-configured datasource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.urls")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 DataSourceProperties properties,
+                                 @Value("${datasource.replicas.urls}") List<String> urls,
+                                 @Value("${datasource.replicas.username:}") String username,
+                                 @Value("${datasource.replicas.password:}") String password,
+                                 @Value("${datasource.replicas.pool-size:10}") int poolSize,
+                                 @Value("${datasource.routing.read-your-writes:PT5S}") Duration readYourWrites) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) continue;
+            HikariDataSource r = new HikariDataSource();
+            r.setPoolName("replica-" + (replicas.size() + 1));
+            r.setJdbcUrl(url.trim());
+            r.setUsername(username.isBlank() ? properties.determineUsername() : username);
+            r.setPassword(username.isBlank() ? properties.determinePassword() : password);
+            r.setMaximumPoolSize(poolSize);
+            r.setReadOnly(true);
+            replicas.add(r);
+        }
+        System.out.println("Datasource routing: " + replicas.size() + " read replica(s), read-your-writes " + readYourWrites);
+        // lazy: the routing key is only known once the transaction's read-only flag is set
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicas, readYourWrites));
+    }
+
+    /**
+     * Hibernate must take a fresh connection per transaction (not hold one for the whole
+     * open-in-view session) or a request's first transaction would decide the route for all of them.
+     */
+    @Bean
+    public static BeanPostProcessor releaseConnectionsAfterTransaction() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HibernateJpaVendorAdapter adapter) adapter.setPrepareConnection(false);
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${datasource.routing.read-your-writes:PT5S}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
@@ -1,22 +1,27 @@
 // src/main/java/com/example/sti/config/StaticResourceConfig.java
 package com.example.sti.config;
 
+import com.example.sti.storage.BlobStore;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.lang.NonNull;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
 @Configuration
 public class StaticResourceConfig implements WebMvcConfigurer {
+
+    private final BlobStore blobStore;
+
+    public StaticResourceConfig(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
     @Override
     public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
-        // Points /media/** URLs to the local ./media directory
-        Path mediaDir = Paths.get("media").toAbsolutePath().normalize();
-        registry.addResourceHandler("/media/**")
-                .addResourceLocations("file:" + mediaDir.toString() + "/");
+        // Local storage: point /media/** URLs straight at the media directory.
+        // Remote storage is served by MediaBlobController instead.
+        blobStore.localRoot().ifPresent(mediaDir ->
+                registry.addResourceHandler("/media/**")
+                        .addResourceLocations("file:" + mediaDir.toString() + "/"));
     }
 }
-
@@ -0,0 +1,75 @@
+package com.example.sti.config;
+
+import com.example.sti.storage.BlobStore;
+import com.example.sti.storage.LocalBlobStore;
+import com.example.sti.storage.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Picks the media BlobStore from storage.backend:
+ *   local (default) -> files under storage.local.media-base (./media)
+ *   s3              -> bucket storage.s3.bucket; set storage.s3.endpoint for MinIO and friends
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore(@Value("${storage.local.media-base:media}") String mediaBase) throws IOException {
+        return new LocalBlobStore(Paths.get(mediaBase));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public S3Client s3Client(@Value("${storage.s3.endpoint:}") String endpoint,
+                             @Value("${storage.s3.region:us-east-1}") String region,
+                             @Value("${storage.s3.access-key:}") String accessKey,
+                             @Value("${storage.s3.secret-key:}") String secretKey,
+                             @Value("${storage.s3.path-style:true}") boolean pathStyle,
+                             @Value("${storage.s3.max-connections:64}") int maxConnections,
+                             @Value("${storage.s3.connection-timeout:PT5S}") Duration connectionTimeout,
+                             @Value("${storage.s3.socket-timeout:PT60S}") Duration socketTimeout) {
+        S3ClientBuilder b = S3Client.builder()
+                .region(Region.of(region))
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(connectionTimeout)
+                        .socketTimeout(socketTimeout)
+                        .tcpKeepAlive(true))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build());
+        if (StringUtils.hasText(endpoint)) {
+            b.endpointOverride(URI.create(endpoint));
+        }
+        b.credentialsProvider(StringUtils.hasText(accessKey)
+                ? StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
+                : DefaultCredentialsProvider.create());
+        return b.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public BlobStore s3BlobStore(S3Client s3Client,
+                                 @Value("${storage.s3.bucket}") String bucket,
+                                 @Value("${storage.s3.prefix:}") String prefix,
+                                 @Value("${storage.s3.part-size:8MB}") DataSize partSize) {
+        return new S3BlobStore(s3Client, bucket, prefix, (int) partSize.toBytes());
+    }
+}
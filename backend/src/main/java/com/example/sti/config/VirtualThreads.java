@@ -0,0 +1,32 @@
+package com.example.sti.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking work: each task on its own virtual thread when
+ * spring.threads.virtual.enabled is set, a fixed pool of platform threads otherwise.
+ * A virtual-thread executor does not bound concurrency; callers keep their own limit (a semaphore,
+ * the DB connection limiter) around the scarce resource.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    /**
+     * A thread-per-task virtual executor named {@code name-N} when {@code virtual}, else a fixed pool
+     * of {@code platformThreads} daemon threads with the same names.
+     */
+    public static ExecutorService executor(String name, int platformThreads, boolean virtual) {
+        if (virtual) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        }
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
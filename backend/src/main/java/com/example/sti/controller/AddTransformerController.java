@@ -1,14 +1,18 @@
 package com.example.sti.controller;
 
 import com.example.sti.entity.Transformer;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.TransformerChangedEvent;
 import com.example.sti.repo.TransformerRepository;
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 // import java.util.Optional;
 
@@ -17,9 +21,11 @@ import java.util.Map;
 public class AddTransformerController {
 
     private final TransformerRepository repo;
+    private final ApplicationEventPublisher events;
 
-    public AddTransformerController(TransformerRepository repo) {
+    public AddTransformerController(TransformerRepository repo, ApplicationEventPublisher events) {
         this.repo = repo;
+        this.events = events;
     }
 
     /**
@@ -36,7 +42,7 @@ public class AddTransformerController {
         if (transformerNo == null || transformerNo.isBlank()) {
             return ResponseEntity.badRequest().body(Map.of("error", "transformerNo is required"));
         }
-        if (repo.findByTransformerNo(transformerNo).isPresent()) {
+        if (!repo.findTakenTransformerNos(List.of(transformerNo)).isEmpty()) { // soft-deleted ones included
             return ResponseEntity.badRequest().body(Map.of("error", "TransformerNo already exists"));
         }
 
@@ -55,6 +61,7 @@ public class AddTransformerController {
         }
 
         Transformer saved = repo.save(t);
+        events.publishEvent(new TransformerChangedEvent(saved.getId(), saved.getTransformerNo(), ChangeType.CREATED));
         return ResponseEntity.created(URI.create("/api/transformers/" + saved.getId())).body(saved);
     }
 
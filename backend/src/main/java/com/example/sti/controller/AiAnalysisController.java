@@ -1,18 +1,40 @@
 package com.example.sti.controller;
 
+import com.example.sti.dto.AnomalyCounts;
 import com.example.sti.entity.Inspection;
 import com.example.sti.entity.InspectionAnnotation;
 import com.example.sti.repo.InspectionRepository;
+import com.example.sti.event.AnalysisFinishedEvent;
+import com.example.sti.event.AnnotationsChangedEvent;
 import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.entity.Job;
+import com.example.sti.job.AnalysisJobHandler;
+import com.example.sti.inference.InferenceGateway;
+import com.example.sti.inference.InferenceRejectedException;
+import com.example.sti.job.JobQueue;
+import com.example.sti.process.ProcessTimeoutException;
+import com.example.sti.service.AnomalyDetectionService;
+import com.example.sti.service.EntityTagService;
+import com.example.sti.service.TransformerSummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.multipart.MultipartFile;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
 import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.io.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 
 @RestController
 @RequestMapping("/api")
@@ -24,6 +46,24 @@ public class AiAnalysisController {
     @Autowired
     private InspectionAnnotationRepository annotationRepository;
 
+    @Autowired
+    private TransformerSummaryService transformerSummaries;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    private EntityTagService tags;
+
+    @Autowired
+    private AnomalyDetectionService detector;
+
+    @Autowired
+    private JobQueue jobs;
+
+    @Autowired
+    private InferenceGateway inference;
+
     @PostMapping("/test-python-model")
     public ResponseEntity<Map<String, Object>> testPythonModel() {
         Map<String, Object> response = new HashMap<>();
@@ -31,13 +71,15 @@ public class AiAnalysisController {
         try {
             // Test Python model with backend test image
             String testImagePath = "test_image.png";
-            List<Map<String, Object>> detections = callPythonModel(testImagePath);
+            List<Map<String, Object>> detections = detector.analyze(testImagePath);
             
             response.put("success", true);
             response.put("message", "Python model test completed");
             response.put("detections", detections);
             response.put("detectionCount", detections.size());
             
+        } catch (InferenceRejectedException e) {
+            throw e;
         } catch (Exception e) {
             response.put("success", false);
             response.put("error", e.getMessage());
@@ -47,47 +89,142 @@ public class AiAnalysisController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Admitted (or rejected with 429/503) by the inference gateway on the request thread, then run
+     * on the gateway's executor. When the client disconnects or spring.mvc.async.request-timeout
+     * passes, Spring interrupts that thread and the model process is killed with it. The rate-limit
+     * key is uploaderName, or the client address without one.
+     */
     @PostMapping("/analyze-thermal-image")
-    public ResponseEntity<Map<String, Object>> analyzeThermalImage(
+    public WebAsyncTask<ResponseEntity<Map<String, Object>>> analyzeThermalImage(
             @RequestParam("thermalImage") MultipartFile imageFile,
             @RequestParam("transformerId") String transformerId,
-            @RequestParam("inspectionId") String inspectionId) {
+            @RequestParam("inspectionId") String inspectionId,
+            @RequestParam(value = "uploaderName", required = false) String uploaderName,
+            HttpServletRequest request) throws IOException {
         
         System.out.println("Starting AI analysis for transformer: " + transformerId + ", inspection: " + inspectionId);
         System.out.println("Image file: " + imageFile.getOriginalFilename() + " (" + imageFile.getSize() + " bytes)");
-        
-        List<Map<String, Object>> detections;
-        
+        String caller = uploaderName != null && !uploaderName.isBlank() ? "uploader:" + uploaderName.trim()
+                : "addr:" + request.getRemoteAddr();
+        InferenceGateway.Ticket ticket = inference.admit(caller);
+        Path staged;
         try {
-            // Process image with Python model (primary and only method)
-            detections = processImageWithPythonModel(imageFile, transformerId);
-            
-            if (detections.isEmpty()) {
-                System.out.println("Python model returned no detections - this is a valid result");
-            } else {
-                System.out.println("Successfully processed image with " + detections.size() + " detections");
+            staged = detector.stageUpload(imageFile);
+        } catch (IOException | RuntimeException e) {
+            ticket.abandon();
+            throw e;
+        }
+        String imageFileName = imageFile.getOriginalFilename();
+
+        Callable<ResponseEntity<Map<String, Object>>> analysis = () -> {
+            AnomalyDetectionService.ModelRun run;
+            try {
+                // Process image with Python model (primary and only method)
+                run = detector.analyzeStaged(staged, ticket);
+
+                if (run.detections().isEmpty()) {
+                    System.out.println("Python model returned no detections - this is a valid result");
+                } else {
+                    System.out.println("Successfully processed image with " + run.detections().size() + " detections");
+                }
+            } catch (CancellationException | InferenceRejectedException e) {
+                throw e; // the client is gone / answered by inferenceRejected
+            } catch (Exception error) {
+                System.err.println("Python model failed: " + error.getMessage());
+
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("error", "AI analysis failed: " + error.getMessage());
+                errorResponse.put("detections", new ArrayList<>());
+                events.publishEvent(new AnalysisFinishedEvent(transformerId, parseLongOrNull(inspectionId), false, 0));
+                int status = error instanceof ProcessTimeoutException ? 504 : 500;
+                return ResponseEntity.status(status).body(errorResponse);
             }
-        } catch (Exception error) {
-            System.err.println("Python model failed: " + error.getMessage());
-            
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("success", false);
-            errorResponse.put("error", "AI analysis failed: " + error.getMessage());
-            errorResponse.put("detections", new ArrayList<>());
-            return ResponseEntity.status(500).body(errorResponse);
+            events.publishEvent(new AnalysisFinishedEvent(transformerId, parseLongOrNull(inspectionId), true, run.detections().size()));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("detections", run.detections());
+            response.put("transformerId", transformerId);
+            response.put("inspectionId", inspectionId);
+            response.put("analysisTimestamp", new Date().getTime());
+            response.put("imageFileName", imageFileName);
+            response.put("timing", run.timing());
+
+            System.out.println("AI analysis completed successfully with " + run.detections().size() + " detections");
+
+            return ResponseEntity.ok(response);
+        };
+        WebAsyncTask<ResponseEntity<Map<String, Object>>> task = new WebAsyncTask<>(null, inference.executor(), analysis);
+        task.onCompletion(() -> {
+            ticket.abandon(); // request over before the analysis started
+            try {
+                Files.deleteIfExists(staged);
+            } catch (IOException ignored) {
+                // temp dir cleanup will get it
+            }
+        });
+        return task;
+    }
+
+    /** 429 when the caller is over its rate, 503 when the breaker is open or every slot and queue place is taken. */
+    @ExceptionHandler(InferenceRejectedException.class)
+    public ResponseEntity<Map<String, Object>> inferenceRejected(InferenceRejectedException e) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("error", e.getMessage());
+        body.put("reason", e.getReason());
+        body.put("retryAfterSeconds", e.getRetryAfterSeconds());
+        body.put("detections", new ArrayList<>());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /** Breaker state, running and queued inferences, and rejections by reason. */
+    @GetMapping("/inference/stats")
+    public Map<String, Object> inferenceStats() {
+        return inference.stats();
+    }
+
+    /**
+     * Analyze the stored thermal image of an inspection in the background, on whichever node picks
+     * the job up. 202 with the job; poll GET /api/jobs/{id} for the detections. An Idempotency-Key
+     * header makes a retried request return the same job.
+     */
+    @PostMapping("/inspections/{id}/analysis")
+    public ResponseEntity<?> analyzeStoredImage(@PathVariable Long id,
+                                                @RequestHeader(value = "Idempotency-Key", required = false) String key) {
+        Optional<Inspection> inspection = inspectionRepository.findById(id);
+        if (inspection.isEmpty()) return ResponseEntity.notFound().build();
+        if (inspection.get().getThermalImagePath() == null || inspection.get().getThermalImagePath().isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Inspection has no thermal image"));
         }
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("detections", detections);
-        response.put("transformerId", transformerId);
-        response.put("inspectionId", inspectionId);
-        response.put("analysisTimestamp", new Date().getTime());
-        response.put("imageFileName", imageFile.getOriginalFilename());
-        
-        System.out.println("AI analysis completed successfully with " + detections.size() + " detections");
-        
-        return ResponseEntity.ok(response);
+        Job job = jobs.enqueue(AnalysisJobHandler.ANALYSIS, Map.of("inspectionId", id),
+                JobQueue.PRIORITY_INTERACTIVE, key);
+        return JobController.accepted(job);
+    }
+
+    /**
+     * Analyze many inspections in the background. Body: {"inspectionIds": [..]}. One job fans out
+     * into a low-priority analysis job per inspection, so interactive analyses still go first.
+     */
+    @PostMapping("/analysis/batch")
+    public ResponseEntity<?> analyzeBatch(@RequestBody Map<String, Object> body,
+                                          @RequestHeader(value = "Idempotency-Key", required = false) String key) {
+        if (!(body.get("inspectionIds") instanceof List<?> ids) || ids.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "inspectionIds must be a non-empty array"));
+        }
+        List<Long> inspectionIds = new ArrayList<>();
+        for (Object o : ids) {
+            Long v = o == null ? null : parseLongOrNull(String.valueOf(o));
+            if (v == null) return ResponseEntity.badRequest().body(Map.of("error", "Invalid inspection id: " + o));
+            inspectionIds.add(v);
+        }
+        Job job = jobs.enqueue(AnalysisJobHandler.BATCH, Map.of("inspectionIds", inspectionIds),
+                JobQueue.PRIORITY_DEFAULT, key);
+        return JobController.accepted(job);
     }
 
     @PostMapping("/save-annotations")
@@ -128,6 +265,7 @@ public class AiAnalysisController {
             Inspection inspection = inspectionOpt.get();
             
             // Clear existing annotations for this inspection (replace all)
+            AnomalyCounts before = transformerSummaries.currentAnomalies(inspectionId);
             annotationRepository.deleteByInspectionId(inspectionId);
             System.out.println("Cleared existing annotations for inspection: " + inspectionId);
             
@@ -166,6 +304,10 @@ public class AiAnalysisController {
             }
             
             System.out.println("Successfully saved " + savedAnnotations.size() + " annotations to database");
+
+            Long transformerIdOfInspection = inspection.getTransformer() != null ? inspection.getTransformer().getId() : null;
+            events.publishEvent(new AnnotationsChangedEvent(transformerIdOfInspection, inspectionId,
+                    before, AnomalyCounts.of(savedAnnotations)));
             
             response.put("success", true);
             response.put("message", "Annotations saved successfully to database");
@@ -186,7 +328,12 @@ public class AiAnalysisController {
     }
     
     @GetMapping("/get-annotations/{inspectionId}")
-    public ResponseEntity<Map<String, Object>> getAnnotations(@PathVariable Long inspectionId) {
+    public ResponseEntity<Map<String, Object>> getAnnotations(@PathVariable Long inspectionId, WebRequest request) {
+        // Unchanged annotation set: 304 after one version lookup, nothing else is loaded
+        Optional<String> tag = tags.annotations(inspectionId);
+        if (tag.isEmpty()) return ResponseEntity.notFound().build();
+        if (request.checkNotModified(tag.get())) return null;
+
         System.out.println("Retrieving annotations for inspection: " + inspectionId);
         
         Map<String, Object> response = new HashMap<>();
@@ -226,7 +373,7 @@ public class AiAnalysisController {
             
             System.out.println("Retrieved " + annotations.size() + " annotations for inspection " + inspectionId);
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(tag.get()).cacheControl(CacheControl.noCache()).body(response);
             
         } catch (Exception e) {
             System.err.println("Error retrieving annotations: " + e.getMessage());
@@ -238,147 +385,8 @@ public class AiAnalysisController {
         }
     }
     
-    private List<Map<String, Object>> processImageWithPythonModel(MultipartFile imageFile, String transformerId) {
-        try {
-            // Save uploaded file to temporary location
-            String tempDir = System.getProperty("java.io.tmpdir");
-            String fileName = "temp_" + System.currentTimeMillis() + "_" + imageFile.getOriginalFilename();
-            File tempFile = new File(tempDir, fileName);
-            imageFile.transferTo(tempFile);
-            
-            System.out.println("=== IMAGE PROCESSING DEBUG ===");
-            System.out.println("Original filename: " + imageFile.getOriginalFilename());
-            System.out.println("File size: " + imageFile.getSize() + " bytes");
-            System.out.println("Temp file path: " + tempFile.getAbsolutePath());
-            System.out.println("Temp file exists: " + tempFile.exists());
-            System.out.println("Temp file size: " + tempFile.length() + " bytes");
-            
-            // Call Python model
-            List<Map<String, Object>> detections = callPythonModel(tempFile.getAbsolutePath());
-            
-            System.out.println("Analysis completed with " + detections.size() + " detections");
-            System.out.println("=== END IMAGE PROCESSING DEBUG ===");
-            
-            // Clean up temporary file
-            boolean deleted = tempFile.delete();
-            if (!deleted) {
-                System.out.println("Warning: Could not delete temporary file: " + tempFile.getAbsolutePath());
-            }
-            
-            return detections;
-            
-        } catch (Exception e) {
-            System.err.println("Error processing image with Python model: " + e.getMessage());
-            e.printStackTrace();
-            // Return empty list if model fails
-            return new ArrayList<>();
-        }
-    }
-    
-    private List<Map<String, Object>> callPythonModel(String imagePath) {
-        try {
-            // Build command to execute Python script
-            String projectRoot = System.getProperty("user.dir");
-            String pythonScript = projectRoot + "\\Transformer anomaly\\model_api.py";
-            
-            System.out.println("=== PYTHON MODEL DEBUG ===");
-            System.out.println("Calling Python model with image: " + imagePath);
-            System.out.println("Python script path: " + pythonScript);
-            System.out.println("Current working directory: " + projectRoot);
-            
-            // Check if the Python script exists
-            File scriptFile = new File(pythonScript);
-            if (!scriptFile.exists()) {
-                System.err.println("Python script not found at: " + pythonScript);
-                throw new RuntimeException("Python script not found");
-            }
-            
-            // Check if image exists
-            File imageFile = new File(imagePath);
-            if (!imageFile.exists()) {
-                System.err.println("Image file not found at: " + imagePath);
-                // Try relative path from backend directory
-                String relativePath = projectRoot + "\\" + imagePath;
-                imageFile = new File(relativePath);
-                if (imageFile.exists()) {
-                    imagePath = relativePath;
-                    System.out.println("Found image at relative path: " + imagePath);
-                } else {
-                    System.err.println("Image not found at relative path either: " + relativePath);
-                    throw new RuntimeException("Image file not found");
-                }
-            }
-            
-            ProcessBuilder pb = new ProcessBuilder("python", pythonScript, imagePath);
-            pb.directory(new File(projectRoot));
-            
-            System.out.println("Executing command: python " + pythonScript + " " + imagePath);
-            Process process = pb.start();
-            
-            // Read the output from Python script
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-            
-            // Read any errors
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            StringBuilder errorOutput = new StringBuilder();
-            while ((line = errorReader.readLine()) != null) {
-                errorOutput.append(line).append("\n");
-            }
-            
-            int exitCode = process.waitFor();
-            
-            if (exitCode != 0) {
-                System.err.println("Python script failed with exit code: " + exitCode);
-                System.err.println("Error output: " + errorOutput.toString());
-                throw new RuntimeException("Python script execution failed");
-            }
-            
-            // Extract JSON from Python output - filter out debug messages
-            String fullOutput = output.toString().trim();
-            System.out.println("Raw Python output: '" + fullOutput + "'");
-            
-            // Find the JSON array in the output (starts with '[' and ends with ']')
-            String jsonResponse = extractJsonFromOutput(fullOutput);
-            
-            if (jsonResponse == null || jsonResponse.isEmpty() || jsonResponse.equals("[]")) {
-                System.out.println("No valid JSON found in Python output");
-                throw new RuntimeException("Python model returned no valid detections");
-            }
-            
-            // Convert JSON string to List<Map<String, Object>>
-            ObjectMapper mapper = new ObjectMapper();
-            List<Map<String, Object>> detections = mapper.readValue(jsonResponse, 
-                new TypeReference<List<Map<String, Object>>>() {});
-            
-            System.out.println("Python model returned " + detections.size() + " detections");
-            System.out.println("=== END PYTHON MODEL DEBUG ===");
-            return detections;
-            
-        } catch (Exception e) {
-            System.err.println("Error calling Python model: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Python model execution failed: " + e.getMessage(), e);
-        }
-    }
-    
-    private String extractJsonFromOutput(String output) {
-        // Find the first '[' and last ']' to extract the JSON array
-        int jsonStart = output.indexOf('[');
-        int jsonEnd = output.lastIndexOf(']');
-        
-        if (jsonStart != -1 && jsonEnd != -1 && jsonEnd > jsonStart) {
-            String jsonPart = output.substring(jsonStart, jsonEnd + 1);
-            System.out.println("Extracted JSON: " + jsonPart);
-            return jsonPart;
-        }
-        
-        System.err.println("Could not find valid JSON array in output");
-        return null;
+    private static Long parseLongOrNull(String s) {
+        try { return Long.parseLong(s.trim()); } catch (Exception e) { return null; }
     }
 
 }
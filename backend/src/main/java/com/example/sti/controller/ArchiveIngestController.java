@@ -0,0 +1,44 @@
+package com.example.sti.controller;
+
+import com.example.sti.service.ArchiveIngestService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class ArchiveIngestController {
+
+    private final ArchiveIngestService ingest;
+
+    public ArchiveIngestController(ArchiveIngestService ingest) {
+        this.ingest = ingest;
+    }
+
+    /**
+     * POST /api/ingest/archive?uploaderName=...&weatherCondition=...
+     * Body: the raw ZIP (Content-Type: application/zip). Returns a per-entry report.
+     */
+    @PostMapping(
+        value = "/ingest/archive",
+        consumes = {"application/zip", "application/x-zip-compressed", MediaType.APPLICATION_OCTET_STREAM_VALUE},
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<?> ingestArchive(
+            @RequestParam(value = "uploaderName", required = false) String uploaderName,
+            @RequestParam(value = "weatherCondition", required = false) String weatherCondition,
+            InputStream body) {
+        try {
+            return ResponseEntity.ok(ingest.ingest(body, uploaderName, weatherCondition));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "ok", false,
+                "error", "Archive ingest failed",
+                "details", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+}
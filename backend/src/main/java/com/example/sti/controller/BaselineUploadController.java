@@ -1,13 +1,13 @@
 package com.example.sti.controller;
 
 import com.example.sti.service.BaselineService;
+import com.example.sti.storage.BlobStore;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Map;
 
 @RestController
@@ -46,8 +46,7 @@ public class BaselineUploadController {
             // Use provided uploader name or default to "admin"
             String finalUploaderName = (uploaderName != null && !uploaderName.isBlank()) ? uploaderName : "admin";
             
-            Path savedAbs = baseline.saveBaseline(transformerNo, file, finalUploaderName);
-            String savedRel = baseline.relativeFromMediaRoot(savedAbs);
+            String savedRel = baseline.saveBaseline(transformerNo, file, finalUploaderName);
 
             return ResponseEntity.ok(Map.of(
                     "ok", true,
@@ -74,33 +73,16 @@ public class BaselineUploadController {
             if (transformerNo == null || transformerNo.isBlank()) {
                 return ResponseEntity.badRequest().body(Map.of("ok", false, "error", "transformer number is required"));
             }
-            return baseline.findBaselineFile(transformerNo)
-                    .map(path -> {
-                        // Guess content type
-                        String mime = "application/octet-stream";
-                        try {
-                            String p = Files.probeContentType(path);
-                            if (p != null) mime = p;
-                        } catch (Exception ignore) {
-                            // fallback by extension
-                            String name = path.getFileName().toString().toLowerCase();
-                            if (name.endsWith(".png"))  mime = "image/png";
-                            else if (name.endsWith(".jpg") || name.endsWith(".jpeg")) mime = "image/jpeg";
-                            else if (name.endsWith(".webp")) mime = "image/webp";
-                            else if (name.endsWith(".gif"))  mime = "image/gif";
-                            else if (name.endsWith(".bmp"))  mime = "image/bmp";
-                            else if (name.endsWith(".tif") || name.endsWith(".tiff")) mime = "image/tiff";
-                            else if (name.endsWith(".heic")) mime = "image/heic";
-                            else if (name.endsWith(".heif")) mime = "image/heif";
-                        }
-
-                        return ResponseEntity
-                                .ok()
-                                .header("Cache-Control", "no-cache")
-                                .contentType(org.springframework.http.MediaType.parseMediaType(mime))
-                                .body(new org.springframework.core.io.FileSystemResource(path));
-                    })
-                    .orElseGet(() -> ResponseEntity.notFound().build());
+            var entry = baseline.findBaselineFile(transformerNo).orElse(null);
+            if (entry == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity
+                    .ok()
+                    .header("Cache-Control", "no-cache")
+                    .contentType(MediaType.parseMediaType(BlobStore.contentTypeFor(entry.key())))
+                    .contentLength(entry.size())
+                    .body(new InputStreamResource(baseline.openBaseline(entry)));
         } catch (Exception ex) {
             return ResponseEntity.internalServerError()
                     .body(java.util.Map.of("ok", false, "error", ex.getMessage()));
@@ -0,0 +1,52 @@
+package com.example.sti.controller;
+
+import com.example.sti.service.BulkImportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class BulkImportController {
+
+    private final BulkImportService imports;
+
+    public BulkImportController(BulkImportService imports) {
+        this.imports = imports;
+    }
+
+    /**
+     * POST /api/import/transformers or /api/import/inspections
+     * Body: CSV with a header row (Content-Type: text/csv) or one JSON object per line
+     * (Content-Type: application/x-ndjson). Returns counts and the rejected rows.
+     */
+    @PostMapping(
+        value = "/import/{kind}",
+        consumes = {"text/csv", "application/x-ndjson", MediaType.TEXT_PLAIN_VALUE},
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<?> importRows(@PathVariable String kind,
+                                        @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                        InputStream body) {
+        BulkImportService.Kind k;
+        try {
+            k = BulkImportService.Kind.valueOf(kind.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "kind must be 'transformers' or 'inspections'"));
+        }
+        try {
+            return ResponseEntity.ok(imports.importRows(k, body, contentType.toLowerCase(Locale.ROOT).contains("ndjson")));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "ok", false,
+                "error", "Import failed",
+                "details", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.sti.controller;
+
+import com.example.sti.entity.Transformer;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.service.ChangeFeedService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class ChangeFeedController {
+
+    private final ChangeFeedService feed;
+    private final TransformerRepository transformers;
+
+    public ChangeFeedController(ChangeFeedService feed, TransformerRepository transformers) {
+        this.feed = feed;
+        this.transformers = transformers;
+    }
+
+    /**
+     * GET /api/changes[?transformerNo=AZ-1] (text/event-stream)
+     * Events: inspection.created|updated|deleted, thermal.uploaded, annotations.saved, analysis.finished,
+     * transformer.created|updated|deleted; "reset" means events were lost and the client should refetch.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> subscribe(@RequestParam(required = false) String transformerNo) {
+        Long transformerId = null;
+        String no = null;
+        if (transformerNo != null && !transformerNo.isBlank()) {
+            Transformer t = transformers.findByTransformerNo(transformerNo.trim()).orElse(null);
+            if (t == null) return ResponseEntity.notFound().build();
+            transformerId = t.getId();
+            no = t.getTransformerNo();
+        }
+        try {
+            return ResponseEntity.ok(feed.subscribe(transformerId, no));
+        } catch (IllegalStateException full) {
+            return ResponseEntity.status(503).header("Retry-After", "30").build();
+        }
+    }
+
+    @GetMapping("/changes/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(feed.stats());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.sti.controller;
+
+import com.example.sti.entity.Transformer;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.service.FleetRollupService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private final FleetRollupService rollups;
+    private final TransformerRepository transformers;
+
+    public DashboardController(FleetRollupService rollups, TransformerRepository transformers) {
+        this.rollups = rollups;
+        this.transformers = transformers;
+    }
+
+    /**
+     * GET /api/dashboard/aggregates?region=&transformerNo=&from=2025-01&to=2025-12
+     * Inspections by status, open anomalies by class/severity, per-region totals and a monthly trend,
+     * all read from the in-memory rollups.
+     */
+    @GetMapping("/aggregates")
+    public ResponseEntity<?> aggregates(@RequestParam(required = false) String region,
+                                        @RequestParam(required = false) String transformerNo,
+                                        @RequestParam(required = false) String from,
+                                        @RequestParam(required = false) String to) {
+        YearMonth fromMonth, toMonth;
+        try {
+            fromMonth = from == null || from.isBlank() ? null : YearMonth.parse(from.trim());
+            toMonth = to == null || to.isBlank() ? null : YearMonth.parse(to.trim());
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from/to must be YYYY-MM"));
+        }
+
+        Long transformerId = null;
+        if (transformerNo != null && !transformerNo.isBlank()) {
+            Transformer t = transformers.findByTransformerNo(transformerNo.trim()).orElse(null);
+            if (t == null) return ResponseEntity.notFound().build();
+            transformerId = t.getId();
+        }
+
+        long started = System.nanoTime();
+        Map<String, Object> out = rollups.aggregates(
+                region == null || region.isBlank() || region.equalsIgnoreCase("all") ? null : region.trim(),
+                transformerId, fromMonth, toMonth);
+        out.put("tookMicros", (System.nanoTime() - started) / 1_000);
+        return ResponseEntity.ok(out);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.sti.controller;
+
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+
+/** No connection in time (connection limiter or pool): 503 with Retry-After instead of a 500. */
+@RestControllerAdvice
+public class DatabaseBusyAdvice {
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<?> databaseBusy(RuntimeException e) {
+        if (!(NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLTransientConnectionException)) {
+            throw e; // a real database failure; leave it to the default handling
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Database busy, retry shortly"));
+    }
+}
@@ -1,19 +1,28 @@
 package com.example.sti.controller;
 
+import com.example.sti.dto.AnomalyCounts;
 import com.example.sti.dto.InspectionReq;
 import com.example.sti.entity.Inspection;
 import com.example.sti.entity.InspectionStatus;
 import com.example.sti.entity.Transformer;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.InspectionChangedEvent;
 import com.example.sti.repo.InspectionRepository;
-import com.example.sti.repo.ImageAssetRepository;
 import com.example.sti.repo.InspectionAnnotationRepository;
 import com.example.sti.repo.TransformerRepository;
+import com.example.sti.service.InspectionViewService;
+import com.example.sti.service.JsonStreamService;
+import com.example.sti.service.MediaGarbageService;
+import com.example.sti.service.TransformerSummaryService;
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 // import java.nio.file.Path;
@@ -22,24 +31,35 @@ import java.util.Objects;
 @RequestMapping("/api")
 public class InspectionController {
 
-    private static final java.nio.file.Path MEDIA_ROOT = java.nio.file.Path.of("media").toAbsolutePath().normalize();
-
     private final TransformerRepository transformers;
     private final InspectionRepository inspections;
-    private final ImageAssetRepository imageAssets;
     private final InspectionAnnotationRepository annotations;
+    private final MediaGarbageService mediaGarbage;
+    private final TransformerSummaryService summaries;
+    private final ApplicationEventPublisher events;
+    private final InspectionViewService views;
+    private final JsonStreamService jsonStreams;
 
     public InspectionController(TransformerRepository transformers,
                                 InspectionRepository inspections,
-                                ImageAssetRepository imageAssets,
-                                InspectionAnnotationRepository annotations) {
+                                InspectionAnnotationRepository annotations,
+                                MediaGarbageService mediaGarbage,
+                                TransformerSummaryService summaries,
+                                ApplicationEventPublisher events,
+                                InspectionViewService views,
+                                JsonStreamService jsonStreams) {
         this.transformers = transformers;
         this.inspections = inspections;
-        this.imageAssets = imageAssets;
         this.annotations = annotations;
+        this.mediaGarbage = mediaGarbage;
+        this.summaries = summaries;
+        this.events = events;
+        this.views = views;
+        this.jsonStreams = jsonStreams;
     }
 
     /** Create a new inspection for a transformer (by transformerNo). */
+    @org.springframework.transaction.annotation.Transactional
     @PostMapping("/transformers/{no}/inspections")
     public ResponseEntity<?> create(@PathVariable String no,
                                     @Valid @RequestBody InspectionReq req) {
@@ -63,17 +83,21 @@ public class InspectionController {
         i.setStarred(Boolean.TRUE.equals(req.starred));
 
         Inspection saved = inspections.save(i);
+        events.publishEvent(new InspectionChangedEvent(t.getId(), saved.getId(), ChangeType.CREATED,
+                null, saved.getInspectedAt()));
         return ResponseEntity.ok(saved);
     }
 
-    /** List inspections for a transformer (newest first). */
+    /** List inspections for a transformer (newest first), streamed from a cursor. */
     @GetMapping("/transformers/{no}/inspections")
-    public ResponseEntity<?> list(@PathVariable String no) {
+    public ResponseEntity<StreamingResponseBody> list(@PathVariable String no,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         Transformer t = transformers.findByTransformerNo(no).orElse(null);
         if (t == null) return ResponseEntity.notFound().build();
 
-        List<Inspection> list = inspections.findByTransformerOrderByInspectedAtDesc(t);
-        return ResponseEntity.ok(list);
+        Long transformerId = t.getId();
+        return jsonStreams.stream(() -> inspections.streamByTransformerId(transformerId), i -> i,
+                JsonStreamService.wantsNdjson(accept));
     }
 
     /** Get single inspection by id. */
@@ -84,12 +108,22 @@ public class InspectionController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /** Detail page in one round-trip: inspection, transformer summary, image URLs and annotations. */
+    @GetMapping("/inspections/{id}/view")
+    public ResponseEntity<?> view(@PathVariable Long id) {
+        return views.view(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /** Partial update (PATCH) of an inspection. */
+    @org.springframework.transaction.annotation.Transactional
     @PatchMapping("/inspections/{id}")
     public ResponseEntity<?> patch(@PathVariable Long id,
                                    @RequestBody Map<String, Object> body) {
         Inspection i = inspections.findById(id).orElse(null);
         if (i == null) return ResponseEntity.notFound().build();
+        Instant previousInspectedAt = i.getInspectedAt();
 
         // status (case-insensitive)
         if (body.containsKey("status")) {
@@ -121,62 +155,52 @@ public class InspectionController {
             }
         }
 
-        return ResponseEntity.ok(inspections.save(i));
+        Inspection saved = inspections.save(i);
+        events.publishEvent(new InspectionChangedEvent(transformerIdOf(saved), saved.getId(), ChangeType.UPDATED,
+                previousInspectedAt, saved.getInspectedAt()));
+        return ResponseEntity.ok(saved);
     }
 
-    /** Delete an inspection with all related data and files. */
+    /**
+     * Soft delete: one row update hides the inspection; its annotations, assets and files stay until
+     * the purger removes them after the retention window, so the delete can be undone until then.
+     */
     @org.springframework.transaction.annotation.Transactional
     @DeleteMapping("/inspections/{id}")
     public ResponseEntity<?> delete(@PathVariable Long id) {
         Inspection inspection = inspections.findById(id).orElse(null);
         if (inspection == null) return ResponseEntity.notFound().build();
 
-        // 1) Delete thermal image file if present
-        try {
-            String pathStr = inspection.getThermalImagePath();
-            if (pathStr != null && !pathStr.isBlank()) {
-                java.nio.file.Path absolute = resolveMediaAbsolute(pathStr);
-                if (java.nio.file.Files.exists(absolute)) {
-                    java.nio.file.Files.delete(absolute);
-                }
-                // try to delete parent dir if empty
-                cleanupEmptyParent(absolute);
-            }
-        } catch (Exception e) {
-            System.err.println("Warning: failed to delete thermal image for inspection " + id + ": " + e.getMessage());
-        }
+        Long transformerId = transformerIdOf(inspection);
+        AnomalyCounts before = summaries.currentAnomalies(id);
+        inspection.setDeletedAt(Instant.now().truncatedTo(java.time.temporal.ChronoUnit.MICROS));
+        inspections.save(inspection);
 
-        // 2) Delete image assets (and their physical files)
-        try {
-            java.util.List<com.example.sti.entity.ImageAsset> assets = imageAssets.findByInspectionOrderByCapturedAtDesc(inspection);
-            for (com.example.sti.entity.ImageAsset a : assets) {
-                try {
-                    String p = a.getPath();
-                    if (p != null && !p.isBlank()) {
-                        java.nio.file.Path ap = java.nio.file.Paths.get(p);
-                        if (java.nio.file.Files.exists(ap)) {
-                            java.nio.file.Files.delete(ap);
-                        }
-                        cleanupEmptyParent(ap);
-                    }
-                } catch (Exception ignoreFile) { /* ignore file errors */ }
-            }
-            // Remove DB rows
-            imageAssets.deleteAll(assets);
-        } catch (Exception e) {
-            System.err.println("Warning: failed to delete image assets for inspection " + id + ": " + e.getMessage());
-        }
+        // its anomalies and the inspection itself leave the summaries, rollups and caches
+        events.publishEvent(new AnnotationsChangedEvent(transformerId, id, before, AnomalyCounts.NONE));
+        events.publishEvent(new InspectionChangedEvent(transformerId, id, ChangeType.DELETED,
+                inspection.getInspectedAt(), null));
+        return ResponseEntity.noContent().build();
+    }
 
-        // 3) Delete annotations for this inspection
-        try {
-            annotations.deleteByInspectionId(id);
-        } catch (Exception e) {
-            System.err.println("Warning: failed to delete annotations for inspection " + id + ": " + e.getMessage());
+    /** Undo a delete that has not been purged yet; refused while the transformer itself is deleted. */
+    @org.springframework.transaction.annotation.Transactional
+    @PostMapping("/inspections/{id}/restore")
+    public ResponseEntity<?> restore(@PathVariable Long id) {
+        Inspection deleted = inspections.findDeletedById(id).orElse(null);
+        if (deleted == null) return ResponseEntity.notFound().build();
+        Long transformerId = transformerIdOf(deleted);
+        if (!transformers.existsById(transformerId)) {
+            return ResponseEntity.status(409).body(Map.of("error", "Transformer is deleted; restore the transformer first"));
         }
 
-        // 4) Finally delete inspection row
-        inspections.delete(inspection);
-        return ResponseEntity.noContent().build();
+        inspections.restoreById(id);
+        Inspection restored = inspections.findById(id).orElseThrow();
+        events.publishEvent(new InspectionChangedEvent(transformerId, id, ChangeType.CREATED,
+                null, restored.getInspectedAt()));
+        events.publishEvent(new AnnotationsChangedEvent(transformerId, id, AnomalyCounts.NONE,
+                summaries.currentAnomalies(id)));
+        return ResponseEntity.ok(restored);
     }
 
     /** Delete thermal image for an inspection. Also clears related annotations. */
@@ -195,36 +219,9 @@ public class InspectionController {
         // Get the thermal image path before clearing it
         String thermalImagePath = inspection.getThermalImagePath();
         
-        // Delete the physical file if it exists
+        // Mark the file as garbage; the media GC deletes it once this transaction commits
         if (thermalImagePath != null && !thermalImagePath.trim().isEmpty()) {
-            try {
-                java.nio.file.Path absoluteFilePath = resolveMediaAbsolute(thermalImagePath);
-                
-                System.out.println("Attempting to delete thermal image from: " + absoluteFilePath.toString());
-                
-                if (java.nio.file.Files.exists(absoluteFilePath)) {
-                    java.nio.file.Files.delete(absoluteFilePath);
-                    System.out.println("Successfully deleted thermal image file: " + absoluteFilePath.toString());
-                    cleanupEmptyParent(absoluteFilePath);
-                } else {
-                    System.out.println("Thermal image file not found at: " + absoluteFilePath.toString());
-                    
-                    // Debug: List the parent directory contents to help troubleshooting
-                    java.nio.file.Path parentDir = absoluteFilePath.getParent();
-                    if (parentDir != null && java.nio.file.Files.exists(parentDir)) {
-                        System.out.println("Parent directory exists. Contents:");
-                        try (var stream = java.nio.file.Files.list(parentDir)) {
-                            stream.forEach(path -> System.out.println("  - " + path.getFileName()));
-                        }
-                    } else {
-                        System.out.println("Parent directory does not exist: " + parentDir);
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to delete thermal image file: " + thermalImagePath + " - " + e.getMessage());
-                e.printStackTrace();
-                // Continue with database update even if file deletion fails
-            }
+            mediaGarbage.enqueue(java.util.List.of(thermalImagePath));
         }
         
         // Clear the thermal image path
@@ -237,9 +234,15 @@ public class InspectionController {
         inspection.setMaintenanceAt(null);
         
         // 4) Clear all annotations for this inspection since the source image is gone
-        try { annotations.deleteByInspectionId(id); } catch (Exception ignore) {}
+        try {
+            AnomalyCounts before = summaries.currentAnomalies(id);
+            annotations.deleteByInspectionId(id);
+            events.publishEvent(new AnnotationsChangedEvent(transformerIdOf(inspection), id, before, AnomalyCounts.NONE));
+        } catch (Exception ignore) {}
 
         inspections.save(inspection);
+        events.publishEvent(new InspectionChangedEvent(transformerIdOf(inspection), id, ChangeType.UPDATED,
+                inspection.getInspectedAt(), inspection.getInspectedAt()));
         
         return ResponseEntity.ok(Map.of(
             "message", "Thermal image and related annotations deleted. Status updated to IN_PROGRESS and maintenance date removed.",
@@ -250,6 +253,10 @@ public class InspectionController {
 
     // -------- helpers --------
 
+    private static Long transformerIdOf(Inspection i) {
+        return i.getTransformer() != null ? i.getTransformer().getId() : null; // id only: no proxy load
+    }
+
     private static Instant parseInstant(Object v) {
         try {
             if (v == null) return null;
@@ -269,31 +276,4 @@ public class InspectionController {
             return null;
         }
     }
-
-    // --- path helpers ---
-    private static java.nio.file.Path resolveMediaAbsolute(String thermalImagePath) {
-        if (thermalImagePath == null) return null;
-        java.nio.file.Path absoluteFilePath;
-        if (thermalImagePath.startsWith("media/")) {
-            String relativePart = thermalImagePath.substring(6); // Remove "media/" prefix
-            absoluteFilePath = MEDIA_ROOT.resolve(relativePart).normalize();
-        } else {
-            absoluteFilePath = MEDIA_ROOT.resolve(thermalImagePath).normalize();
-        }
-        return absoluteFilePath;
-    }
-
-    private static void cleanupEmptyParent(java.nio.file.Path file) {
-        try {
-            if (file == null) return;
-            java.nio.file.Path dir = file.getParent();
-            if (dir != null && java.nio.file.Files.isDirectory(dir)) {
-                try (java.util.stream.Stream<java.nio.file.Path> s = java.nio.file.Files.list(dir)) {
-                    if (s.findAny().isEmpty()) {
-                        java.nio.file.Files.delete(dir);
-                    }
-                }
-            }
-        } catch (Exception ignore) { /* ignore cleanup issues */ }
-    }
 }
@@ -1,116 +1,153 @@
 // src/main/java/com/example/sti/controller/InspectionTableController.java
 package com.example.sti.controller;
 
+import com.example.sti.dto.InspectionTableQuery;
 import com.example.sti.dto.InspectionTableRow;
-import com.example.sti.entity.Inspection;
 import com.example.sti.entity.InspectionStatus;
 import com.example.sti.repo.InspectionRepository;
-import org.springframework.data.domain.Sort;
+import com.example.sti.service.InspectionTableService;
+import com.example.sti.service.JsonStreamService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.lang.reflect.Method;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
 public class InspectionTableController {
 
     private final InspectionRepository inspections;
+    private final InspectionTableService tableService;
+    private final JsonStreamService jsonStreams;
 
-    public InspectionTableController(InspectionRepository inspections) {
+    @Value("${inspections.table.max-page-size:200}")
+    private int maxPageSize;
+
+    public InspectionTableController(InspectionRepository inspections, InspectionTableService tableService,
+                                     JsonStreamService jsonStreams) {
         this.inspections = inspections;
+        this.tableService = tableService;
+        this.jsonStreams = jsonStreams;
     }
 
     /** GET /api/get-inspection-table */
     @GetMapping("/get-inspection-table")
-    public ResponseEntity<List<InspectionTableRow>> getInspectionTable(
-            @RequestParam(value = "tz", required = false, defaultValue = "Asia/Colombo") String tz
+    public ResponseEntity<StreamingResponseBody> getInspectionTable(
+            @RequestParam(value = "tz", required = false, defaultValue = "Asia/Colombo") String tz,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
     ) {
-        // Fetch all inspections, newest first
-        List<Inspection> all = inspections.findAll(Sort.by(Sort.Direction.DESC, "inspectedAt"));
-
         // Display format for dates
         DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd MMM, yyyy HH:mm", Locale.ENGLISH)
                 .withZone(ZoneId.of(tz));
 
-        List<InspectionTableRow> rows = new ArrayList<>(all.size());
-        for (Inspection i : all) {
-            InspectionTableRow r = new InspectionTableRow();
-
-            // Transformer number (may be null if not loaded/linked)
-            r.transformerNo = (i.getTransformer() != null) ? i.getTransformer().getTransformerNo() : null;
+        // All rows, newest first, streamed from a single projection query (transformer number joined in)
+        return jsonStreams.stream(inspections::streamTableRows, r -> {
+            r.formatDates(fmt);
+            return r;
+        }, JsonStreamService.wantsNdjson(accept));
+    }
 
-            // 9-digit display id (use the entity primary key only)
-            if (i.getId() != null) {
-                r.inspectionNo = pad9(i.getId());
-            } else {
-                r.inspectionNo = null;
+    /**
+     * GET /api/inspection-table?limit=50&cursor=...&status=COMPLETED,NEEDS_REVIEW&transformerNo=&region=
+     *     &starred=true&from=2025-01-01&to=2025-02-01&q=AZ-1&sort=inspectedAt|transformerNo|id&order=desc
+     *     &starredFirst=false&includeTotal=false
+     * Paged, server-filtered version of get-inspection-table. Keyset pagination: pass back
+     * nextCursor to get the following page; hasMore=false on the last one.
+     */
+    @GetMapping("/inspection-table")
+    public ResponseEntity<?> getInspectionTablePage(
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "status", required = false) List<String> status,
+            @RequestParam(value = "transformerNo", required = false) String transformerNo,
+            @RequestParam(value = "region", required = false) String region,
+            @RequestParam(value = "starred", required = false) Boolean starred,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "q", required = false) String search,
+            @RequestParam(value = "sort", defaultValue = "inspectedAt") String sort,
+            @RequestParam(value = "order", defaultValue = "desc") String order,
+            @RequestParam(value = "starredFirst", defaultValue = "false") boolean starredFirst,
+            @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal,
+            @RequestParam(value = "tz", required = false, defaultValue = "Asia/Colombo") String tz
+    ) {
+        try {
+            ZoneId zone = ZoneId.of(tz);
+            InspectionTableQuery q = new InspectionTableQuery();
+            q.limit = Math.max(1, Math.min(limit, maxPageSize));
+            q.statuses = parseStatuses(status);
+            q.transformerNo = blankToNull(transformerNo);
+            q.region = blankToNull(region);
+            q.starred = starred;
+            q.from = parseBound(from, zone, false);
+            q.to = parseBound(to, zone, true);
+            q.search = blankToNull(search);
+            q.sort = switch (sort.trim().toLowerCase(Locale.ROOT)) {
+                case "inspectedat", "inspected_at", "date" -> InspectionTableQuery.SortField.INSPECTED_AT;
+                case "transformerno", "transformer_no", "transformer" -> InspectionTableQuery.SortField.TRANSFORMER_NO;
+                case "id", "inspectionno" -> InspectionTableQuery.SortField.ID;
+                default -> throw new IllegalArgumentException("Unsupported sort: " + sort);
+            };
+            q.descending = !"asc".equalsIgnoreCase(order.trim());
+            q.starredFirst = starredFirst;
+
+            InspectionTableService.Page page = tableService.page(q, cursor, includeTotal);
+
+            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd MMM, yyyy HH:mm", Locale.ENGLISH).withZone(zone);
+            page.items().forEach(r -> r.formatDates(fmt));
+
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("items", page.items());
+            out.put("limit", q.limit);
+            out.put("hasMore", page.nextCursor() != null);
+            out.put("nextCursor", page.nextCursor());
+            if (includeTotal) {
+                out.put("total", page.total());
+                out.put("totalExact", page.totalExact());
             }
-
-            // Timestamps + formatted strings
-            Instant inspected = i.getInspectedAt();
-            r.inspectedAtIso = inspected != null ? inspected.toString() : null;
-            r.inspectedDate  = inspected != null ? fmt.format(inspected) : "-";
-
-            Instant maint = i.getMaintenanceAt();
-            r.maintenanceAtIso = maint != null ? maint.toString() : null;
-            r.maintenanceDate  = maint != null ? fmt.format(maint) : "-";
-
-            // Status pretty text
-            r.status = prettyStatusCompat(i.getStatus());
-
-            // Starred flag (supports getStarred() or isStarred())
-            r.starred = starredBool(i);
-
-            rows.add(r);
+            return ResponseEntity.ok(out);
+        } catch (IllegalArgumentException | java.time.DateTimeException bad) {
+            return ResponseEntity.badRequest().body(Map.of("error", bad.getMessage()));
         }
-
-        return ResponseEntity.ok(rows);
     }
 
-    // Left-pad with zeros to 9 characters. Accepts numeric or string.
-    private String pad9(Object n) {
-        if (n == null) return null;
-        try {
-            long v = (n instanceof Number) ? ((Number) n).longValue() : Long.parseLong(String.valueOf(n));
-            return String.format("%09d", v);
-        } catch (Exception e) {
-            String s = String.valueOf(n);
-            return s.length() >= 9 ? s : String.format("%9s", s).replace(' ', '0');
+    /** "COMPLETED,NEEDS_REVIEW" or display names ("In Progress"); repeated params are fine too. */
+    private static List<InspectionStatus> parseStatuses(List<String> raw) {
+        if (raw == null) return null;
+        List<InspectionStatus> out = new ArrayList<>();
+        for (String item : raw) {
+            for (String s : item.split(",")) {
+                String v = s.trim();
+                if (v.isEmpty() || v.equalsIgnoreCase("all")) continue;
+                out.add(InspectionStatus.valueOf(v.toUpperCase(Locale.ROOT).replace(' ', '_')));
+            }
         }
+        return out.isEmpty() ? null : out;
     }
 
-    // Java 8 compatible pretty status
-    private String prettyStatusCompat(InspectionStatus st) {
-        if (st == null) return "Pending";
-        switch (st) {
-            case IN_PROGRESS: return "In Progress";
-            case COMPLETED:   return "Completed";
-            case NEEDS_REVIEW:return "Needs Review";
-            default:          return st.name();
+    /** ISO instant, or a yyyy-MM-dd date in the caller's zone ("to" dates are inclusive). */
+    private static Instant parseBound(String v, ZoneId zone, boolean upper) {
+        if (v == null || v.isBlank()) return null;
+        String s = v.trim();
+        if (s.length() == 10) {
+            LocalDate d = LocalDate.parse(s);
+            return (upper ? d.plusDays(1) : d).atStartOfDay(zone).toInstant();
         }
+        return Instant.parse(s);
     }
 
-    // Try getStarred() first, then isStarred(); fallback false
-    private boolean starredBool(Inspection i) {
-        try {
-            Method m = i.getClass().getMethod("getStarred");
-            Object v = m.invoke(i);
-            return v instanceof Boolean && (Boolean) v;
-        } catch (Exception ignore) {
-            try {
-                Method m = i.getClass().getMethod("isStarred");
-                Object v = m.invoke(i);
-                return v instanceof Boolean && (Boolean) v;
-            } catch (Exception ignore2) {
-                return false;
-            }
-        }
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
     }
 }
@@ -0,0 +1,44 @@
+package com.example.sti.controller;
+
+import com.example.sti.entity.Job;
+import com.example.sti.job.JobQueue;
+import com.example.sti.job.JobWorker;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobQueue jobs;
+    private final JobWorker worker;
+
+    public JobController(JobQueue jobs, JobWorker worker) {
+        this.jobs = jobs;
+        this.worker = worker;
+    }
+
+    /** Status of a background job; its result once SUCCEEDED, lastError when FAILED or retrying. */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable Long id) {
+        return jobs.find(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Jobs by type and status across all nodes, plus this node's worker. */
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return Map.of("jobs", jobs.counts(), "worker", worker.stats());
+    }
+
+    /** 202 pointing at the job, for endpoints that hand their work to the queue. */
+    static ResponseEntity<?> accepted(Job job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.getId()))
+                .body(Map.of("jobId", job.getId(), "type", job.getType(), "status", job.getStatus()));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.sti.controller;
+
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Serves /media/** from a non-local BlobStore (storage.backend=s3), with single-range
+ * requests (206) so large images can be fetched in pieces. The local backend keeps the
+ * plain resource handler from StaticResourceConfig.
+ */
+@RestController
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+public class MediaBlobController {
+
+    private final BlobStore blobStore;
+
+    public MediaBlobController(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @GetMapping("/media/**")
+    public ResponseEntity<?> get(HttpServletRequest request,
+                                 @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String key = request.getRequestURI().substring(request.getContextPath().length() + "/media/".length());
+        key = java.net.URLDecoder.decode(key, java.nio.charset.StandardCharsets.UTF_8);
+        try {
+            BlobInfo info = blobStore.head(key).orElse(null);
+            if (info == null) return ResponseEntity.notFound().build();
+
+            String etag = info.etag() != null ? "\"" + info.etag() + "\"" : null;
+            if (etag != null && etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            MediaType type = MediaType.parseMediaType(info.contentType() != null ? info.contentType() : BlobStore.contentTypeFor(key));
+
+            if (range != null) {
+                List<HttpRange> ranges;
+                try {
+                    ranges = HttpRange.parseRanges(range);
+                } catch (IllegalArgumentException bad) {
+                    ranges = List.of();
+                }
+                if (ranges.size() != 1) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + info.size()).build();
+                }
+                HttpRange r = ranges.get(0);
+                long start, end;
+                try {
+                    start = r.getRangeStart(info.size());
+                    end = r.getRangeEnd(info.size());
+                } catch (IllegalArgumentException unsatisfiable) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + info.size()).build();
+                }
+                long length = end - start + 1;
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + info.size())
+                        .eTag(etag)
+                        .contentType(type)
+                        .contentLength(length)
+                        .body(new InputStreamResource(blobStore.getRange(key, start, length)));
+            }
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .eTag(etag)
+                    .contentType(type)
+                    .contentLength(info.size())
+                    .body(new InputStreamResource(blobStore.get(key)));
+        } catch (Exception ex) {
+            return ResponseEntity.internalServerError()
+                    .body(java.util.Map.of("ok", false, "error", ex.getMessage()));
+        }
+    }
+}
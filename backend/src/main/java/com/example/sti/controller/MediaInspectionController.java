@@ -1,19 +1,25 @@
 // src/main/java/com/example/sti/controller/MediaInspectionController.java
 package com.example.sti.controller;
 
+import com.example.sti.service.MediaIndexService;
+import com.example.sti.service.MediaIndexService.MediaEntry;
+import com.example.sti.storage.MediaKeys;
+import com.example.sti.service.ThermalImageService;
 import org.springframework.http.ResponseEntity;
 // import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
-import java.nio.file.*;
-import java.time.Instant;
 import java.util.*;
 
 @RestController
 @RequestMapping("/api")
 public class MediaInspectionController {
 
-    private static final List<String> EXTS = List.of("jpg", "jpeg", "png", "webp");
+    private final MediaIndexService mediaIndex;
+
+    public MediaInspectionController(MediaIndexService mediaIndex) {
+        this.mediaIndex = mediaIndex;
+    }
 
     @GetMapping("/get-inspection")
     public ResponseEntity<?> getInspection(
@@ -22,15 +28,15 @@ public class MediaInspectionController {
 
         Map<String, Object> out = new HashMap<>();
 
-        // Resolve baseline: media/baseline/{no}.{ext}
-        Path baseline = resolveFirstExisting(Path.of("media", "baseline"), transformerNo, EXTS);
+        // Resolve baseline: media/baseline/{no}.{ext} (from the media index, no disk probing)
+        MediaEntry baseline = mediaIndex.findBaseline(transformerNo).orElse(null);
         out.put("baselineImage", baseline != null ? toPublicUrl(baseline) : null);
-        out.put("baselineTimestamp", baseline != null ? lastModified(baseline) : null);
+        out.put("baselineTimestamp", baseline != null ? baseline.lastModified() : null);
 
         // Resolve current: media/inspections/{no}/{inspectionId}.{ext}
-        Path current = resolveFirstExisting(Path.of("media", "inspections", transformerNo), inspectionId, EXTS);
+        MediaEntry current = mediaIndex.findThermal(ThermalImageService.safeName(transformerNo), inspectionId).orElse(null);
         out.put("currentImage", current != null ? toPublicUrl(current) : null);
-        out.put("currentTimestamp", current != null ? lastModified(current) : null);
+        out.put("currentTimestamp", current != null ? current.lastModified() : null);
 
         // Optional extras for your UI
         out.put("inspectionNo", tryParseLong(inspectionId));
@@ -40,32 +46,8 @@ public class MediaInspectionController {
         return ResponseEntity.ok(out);
     }
 
-    // Finds the first file matching {name}.{ext} under dir
-    private Path resolveFirstExisting(Path dir, String name, List<String> exts) {
-        try {
-            for (String ext : exts) {
-                Path p = dir.resolve(name + "." + ext).toAbsolutePath().normalize();
-                if (Files.exists(p) && Files.isRegularFile(p)) return p;
-            }
-        } catch (Exception ignored) {}
-        return null;
-    }
-
-    private String toPublicUrl(Path absolutePath) {
-        // Convert absolute ".../media/..." back to "/media/..."
-        String norm = absolutePath.toString().replace('\\', '/');
-        int idx = norm.lastIndexOf("/media/");
-        String tail = (idx >= 0) ? norm.substring(idx + "/media".length()) : null;
-        if (tail == null) return null;
-        return "/media" + tail;
-    }
-
-    private Instant lastModified(Path p) {
-        try {
-            return Files.getLastModifiedTime(p).toInstant();
-        } catch (Exception e) {
-            return null;
-        }
+    private String toPublicUrl(MediaEntry entry) {
+        return MediaKeys.publicUrl(entry.key());
     }
 
     private Long tryParseLong(String s) {
@@ -1,8 +1,7 @@
 // src/main/java/com/example/sti/controller/MediaUploadController.java
 package com.example.sti.controller;
 
-import com.example.sti.repo.InspectionRepository;
-import com.example.sti.entity.InspectionStatus;
+import com.example.sti.service.ThermalImageService;
 // import org.apache.commons.io.FilenameUtils;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,10 +10,8 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.nio.file.*;
-import java.time.Instant;
+import java.io.InputStream;
 import java.util.Map;
-import java.util.Set;
 
 
 
@@ -23,13 +20,10 @@ import java.util.Set;
 @CrossOrigin // adjust origins if needed
 public class MediaUploadController {
 
-    private static final Path MEDIA_ROOT = Path.of("media").toAbsolutePath().normalize();
-    private static final Set<String> ALLOWED_EXTS = Set.of("jpg", "jpeg", "png", "webp");
+    private final ThermalImageService thermalImages;
 
-    private final InspectionRepository inspectionRepository;
-
-    public MediaUploadController(InspectionRepository inspectionRepository) {
-        this.inspectionRepository = inspectionRepository;
+    public MediaUploadController(ThermalImageService thermalImages) {
+        this.thermalImages = thermalImages;
     }
 
     /**
@@ -82,70 +76,29 @@ public class MediaUploadController {
             }
 
             // Derive extension from filename or content-type
-            String ext = safeExt(file);
-            if (!ALLOWED_EXTS.contains(ext.toLowerCase())) {
+            String ext = ThermalImageService.extensionOf(file.getOriginalFilename());
+            if (!ThermalImageService.isAllowedExtension(ext)) {
                 return ResponseEntity.badRequest().body(Map.of(
                     "error", "Unsupported file type",
-                    "allowed", ALLOWED_EXTS
+                    "allowed", ThermalImageService.ALLOWED_EXTS
                 ));
             }
 
-            // Ensure directory exists: media/inspections/{transformerNo}
-            Path dir = MEDIA_ROOT.resolve(Path.of("inspections", safeName(transformerNo))).normalize();
-            Files.createDirectories(dir);
-
-            // Save as media/inspections/{transformerNo}/{inspectionId}.{ext}
-            String fname = safeName(inspectionId) + "." + ext;
-            Path target = dir.resolve(fname).normalize();
-
-            // Overwrite if exists
-            Files.write(target, file.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-
-            // Create relative path for database storage
-            String relativePath = "media/inspections/" + safeName(transformerNo) + "/" + fname;
-
-            // Update inspection record with all new fields
-            try {
-                Long inspectionIdLong = Long.parseLong(inspectionId);
-                inspectionRepository.findById(inspectionIdLong).ifPresent(inspection -> {
-                    // Set thermal uploader name
-                    if (StringUtils.hasText(uploaderName)) {
-                        inspection.setThermalUploaderName(uploaderName);
-                    }
-                    
-                    // Set weather condition
-                    if (StringUtils.hasText(weatherCondition)) {
-                        inspection.setWeatherCondition(weatherCondition);
-                    }
-                    
-                    // Set thermal image path
-                    inspection.setThermalImagePath(relativePath);
-                    
-                    // Update status to COMPLETED when thermal image is uploaded
-                    inspection.setStatus(InspectionStatus.COMPLETED);
-                    
-                    // Set maintenance date to current timestamp (when thermal image was uploaded)
-                    inspection.setMaintenanceAt(Instant.now());
-                    
-                    inspectionRepository.save(inspection);
-                });
-            } catch (NumberFormatException e) {
-                // Log but don't fail the upload if inspection ID parsing fails
-                System.err.println("Could not parse inspection ID for inspection update: " + inspectionId);
+            // Store as blob inspections/{transformerNo}/{inspectionId}.{ext} and update the inspection
+            ThermalImageService.ThermalUpload saved;
+            try (InputStream in = file.getInputStream()) {
+                saved = thermalImages.saveThermalImage(transformerNo, inspectionId, uploaderName, weatherCondition, ext, in, file.getSize());
             }
 
-            String publicUrl = "/media/inspections/" + safeName(transformerNo) + "/" + fname;
-            Instant uploadTimestamp = Instant.now();
-
             return ResponseEntity.ok(Map.of(
                 "ok", true,
-                "currentImage", publicUrl,
-                "currentTimestamp", uploadTimestamp.toString(),
+                "currentImage", saved.publicUrl(),
+                "currentTimestamp", saved.uploadedAt().toString(),
                 "uploaderName", uploaderName != null ? uploaderName : "unknown",
                 "weatherCondition", weatherCondition != null ? weatherCondition : "unknown",
-                "thermalImagePath", relativePath,
+                "thermalImagePath", saved.relativePath(),
                 "status", "COMPLETED",
-                "maintenanceDate", uploadTimestamp.toString()
+                "maintenanceDate", saved.uploadedAt().toString()
             ));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
@@ -154,23 +107,4 @@ public class MediaUploadController {
             ));
         }
     }
-
-    /**
-     * Pick a safe extension using filename first, then content-type.
-     */
-    private String safeExt(MultipartFile file) {
-        String name = file.getOriginalFilename();
-        if (name != null && name.contains(".")) {
-            return name.substring(name.lastIndexOf('.') + 1).toLowerCase();
-        }
-        return "jpg"; // default
-    }
-
-
-    /**
-     * Basic filename safety: keep letters, digits, dash, underscore.
-     */
-    private String safeName(String s) {
-        return s.replaceAll("[^A-Za-z0-9._-]", "_");
-    }
 }
@@ -0,0 +1,128 @@
+package com.example.sti.controller;
+
+import com.example.sti.dto.ResumableUploadReq;
+import com.example.sti.service.ResumableUploadService;
+import com.example.sti.service.ResumableUploadService.Upload;
+import com.example.sti.service.ResumableUploadService.UploadException;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resumable (tus-like) uploads for thermal and baseline images:
+ *   POST   /api/uploads                 -> create, returns Location + Upload-Offset: 0
+ *   HEAD   /api/uploads/{id}            -> current Upload-Offset / Upload-Length
+ *   PATCH  /api/uploads/{id}            -> append a chunk at Upload-Offset (body = raw bytes)
+ *   POST   /api/uploads/{id}/finalize   -> verify and store like /upload-thermal-image or /upload_baseline_transformer
+ *   DELETE /api/uploads/{id}            -> abandon
+ */
+@RestController
+@RequestMapping("/api/uploads")
+public class ResumableUploadController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String UPLOAD_EXPIRES = "Upload-Expires";
+
+    private final ResumableUploadService uploads;
+
+    public ResumableUploadController(ResumableUploadService uploads) {
+        this.uploads = uploads;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> create(@Valid @RequestBody ResumableUploadReq req) {
+        try {
+            Upload u = uploads.create(req);
+            return ResponseEntity.created(URI.create("/api/uploads/" + u.getId()))
+                    .header(UPLOAD_OFFSET, "0")
+                    .header(UPLOAD_LENGTH, String.valueOf(u.getLength()))
+                    .header(UPLOAD_EXPIRES, u.getExpiresAt().toString())
+                    .body(describe(u));
+        } catch (UploadException e) {
+            return error(e);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Could not create upload", "details", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> offset(@PathVariable String id) {
+        return uploads.find(id)
+                .map(u -> ResponseEntity.ok()
+                        .header(UPLOAD_OFFSET, String.valueOf(u.getOffset()))
+                        .header(UPLOAD_LENGTH, String.valueOf(u.getLength()))
+                        .header(UPLOAD_EXPIRES, u.getExpiresAt().toString())
+                        .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                        .<Void>build())
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@PathVariable String id) {
+        return uploads.find(id)
+                .<ResponseEntity<?>>map(u -> ResponseEntity.ok()
+                        .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                        .body(describe(u)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {"application/offset+octet-stream", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> append(@PathVariable String id,
+                                    @RequestHeader(UPLOAD_OFFSET) long offset,
+                                    @RequestHeader(value = "Upload-Checksum", required = false) String checksum,
+                                    InputStream body) {
+        try {
+            long newOffset = uploads.append(id, offset, body, checksum);
+            return ResponseEntity.noContent()
+                    .header(UPLOAD_OFFSET, String.valueOf(newOffset))
+                    .build();
+        } catch (UploadException e) {
+            return error(e);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Chunk write failed", "details", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @PostMapping("/{id}/finalize")
+    public ResponseEntity<?> finalizeUpload(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(uploads.complete(id));
+        } catch (UploadException e) {
+            return error(e);
+        } catch (IllegalArgumentException bad) {
+            return ResponseEntity.badRequest().body(Map.of("ok", false, "error", bad.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "ok", false, "error", "Upload failed", "details", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancel(@PathVariable String id) {
+        return uploads.cancel(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    // -------- helpers --------
+
+    private static Map<String, Object> describe(Upload u) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("uploadId", u.getId());
+        m.put("kind", u.getKind().name().toLowerCase());
+        m.put("offset", u.getOffset());
+        m.put("length", u.getLength());
+        m.put("expiresAt", u.getExpiresAt().toString());
+        return m;
+    }
+
+    private static ResponseEntity<?> error(UploadException e) {
+        return ResponseEntity.status(e.getStatus()).body(Map.of("ok", false, "error", e.getMessage()));
+    }
+}
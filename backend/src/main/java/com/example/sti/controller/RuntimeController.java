@@ -0,0 +1,37 @@
+package com.example.sti.controller;
+
+import com.example.sti.datasource.ConcurrencyLimitingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/runtime")
+public class RuntimeController {
+
+    private final DataSource dataSource;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    public RuntimeController(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /** Whether requests and jobs run on virtual threads, and the connection limiter's queue. */
+    @GetMapping("/threads")
+    public Map<String, Object> threads() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("java", Runtime.version().toString());
+        m.put("virtualThreads", virtualThreads);
+        m.put("handlerThread", Thread.currentThread().toString());
+        m.put("handlerThreadVirtual", Thread.currentThread().isVirtual());
+        if (dataSource instanceof ConcurrencyLimitingDataSource limited) m.put("connectionLimiter", limited.stats());
+        return m;
+    }
+}
@@ -2,12 +2,28 @@ package com.example.sti.controller;
 
 import com.example.sti.dto.TransformerReq;
 import com.example.sti.entity.Transformer;
+import com.example.sti.entity.TransformerSummary;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.TransformerChangedEvent;
 import com.example.sti.repo.TransformerRepository;
+import com.example.sti.repo.TransformerSummaryRepository;
+import com.example.sti.service.EntityTagService;
+import com.example.sti.service.JsonStreamService;
+import com.example.sti.service.TransformerDeletionService;
+import com.example.sti.service.TransformerSearchIndex;
+import com.example.sti.service.TransformerSummaryService;
 import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -17,14 +33,110 @@ import java.util.Objects;
 public class TransformerController {
 
     private final TransformerRepository repo;
+    private final TransformerDeletionService deletion;
+    private final TransformerSearchIndex searchIndex;
+    private final TransformerSummaryService summaries;
+    private final TransformerSummaryRepository summaryRows;
+    private final ApplicationEventPublisher events;
+    private final JsonStreamService jsonStreams;
+    private final EntityTagService tags;
 
-    public TransformerController(TransformerRepository repo) {
+    public TransformerController(TransformerRepository repo, TransformerDeletionService deletion,
+                                 TransformerSearchIndex searchIndex, TransformerSummaryService summaries,
+                                 TransformerSummaryRepository summaryRows, ApplicationEventPublisher events,
+                                 JsonStreamService jsonStreams, EntityTagService tags) {
         this.repo = repo;
+        this.deletion = deletion;
+        this.searchIndex = searchIndex;
+        this.summaries = summaries;
+        this.summaryRows = summaryRows;
+        this.events = events;
+        this.jsonStreams = jsonStreams;
+        this.tags = tags;
     }
 
+    /**
+     * All transformers, streamed from a cursor (JSON array, or NDJSON for Accept: application/x-ndjson).
+     * Carries a weak ETag; a matching If-None-Match is answered 304 without running the list query.
+     */
     @GetMapping
-    public List<Transformer> list() {
-        return repo.findAll();
+    public ResponseEntity<StreamingResponseBody> list(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                      WebRequest request) {
+        String tag = tags.transformers();
+        if (request.checkNotModified(tag)) return null;
+        return jsonStreams.stream(repo::streamAll, t -> t, JsonStreamService.wantsNdjson(accept), tag);
+    }
+
+    /**
+     * GET /api/transformers/overview?limit=50&cursor=...
+     * Transformers by number with last inspection date, inspection count and open anomalies by
+     * severity, read from the maintained summary table in one query. Keyset paged via nextCursor.
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<?> overview(@RequestParam(value = "limit", defaultValue = "50") int limit,
+                                      @RequestParam(value = "cursor", required = false) String cursor) {
+        int lim = Math.max(1, Math.min(limit, 200));
+        try {
+            TransformerSummaryService.Page page = summaries.overview(lim, cursor);
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("items", page.items());
+            out.put("limit", lim);
+            out.put("hasMore", page.nextCursor() != null);
+            out.put("nextCursor", page.nextCursor());
+            return ResponseEntity.ok(out);
+        } catch (IllegalArgumentException bad) {
+            return ResponseEntity.badRequest().body(Map.of("error", bad.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/transformers/search?q=az-12&limit=20&offset=0&region=&type=&starred=&fuzzy=true
+     * Ranked matches on transformer/pole number (exact, prefix, fuzzy) and region/location words,
+     * served from the in-memory index. Each item carries its summary aggregates (one lookup per page).
+     */
+    @GetMapping("/search")
+    public Map<String, Object> search(@RequestParam(value = "q", required = false) String q,
+                                      @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                      @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                      @RequestParam(value = "region", required = false) String region,
+                                      @RequestParam(value = "type", required = false) String type,
+                                      @RequestParam(value = "starred", required = false) Boolean starred,
+                                      @RequestParam(value = "fuzzy", defaultValue = "true") boolean fuzzy) {
+        int lim = Math.max(1, Math.min(limit, 200));
+        int off = Math.max(0, offset);
+        long t0 = System.nanoTime();
+        TransformerSearchIndex.Result r = searchIndex.search(q,
+                new TransformerSearchIndex.Filter(blankToNull(region), blankToNull(type), starred), off, lim, fuzzy);
+        long tookMicros = (System.nanoTime() - t0) / 1_000; // index time only
+
+        Map<Long, TransformerSummary> byId = new HashMap<>();
+        summaryRows.findAllById(r.items().stream().map(TransformerSearchIndex.Doc::id).toList())
+                .forEach(s -> byId.put(s.getTransformerId(), s));
+        List<Map<String, Object>> items = r.items().stream().map(d -> {
+            TransformerSummary s = byId.get(d.id());
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", d.id());
+            m.put("transformerNo", d.transformerNo());
+            m.put("poleNo", d.poleNo());
+            m.put("region", d.region());
+            m.put("type", d.type());
+            m.put("capacity", d.capacity());
+            m.put("locationDetails", d.locationDetails());
+            m.put("starred", d.starred());
+            m.put("lastInspectedAt", s != null ? s.getLastInspectedAt() : null);
+            m.put("inspectionCount", s != null ? s.getInspectionCount() : 0);
+            m.put("criticalAnomalies", s != null ? s.getCriticalAnomalies() : 0);
+            m.put("potentialAnomalies", s != null ? s.getPotentialAnomalies() : 0);
+            return m;
+        }).toList();
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("items", items);
+        out.put("offset", off);
+        out.put("limit", lim);
+        out.put("hasMore", r.hasMore());
+        out.put("tookMicros", tookMicros);
+        return out;
     }
 
     @GetMapping("/{id}")
@@ -41,7 +153,8 @@ public class TransformerController {
 
     @PostMapping
     public ResponseEntity<?> create(@Valid @RequestBody TransformerReq req) {
-        if (repo.findByTransformerNo(req.getTransformerNo()).isPresent()) {
+        if (!repo.findTakenTransformerNos(List.of(req.getTransformerNo())).isEmpty()) {
+            // a soft-deleted transformer keeps its number until it is purged
             return ResponseEntity.badRequest().body(Map.of("error", "TransformerNo already exists"));
         }
         Transformer t = new Transformer();
@@ -53,6 +166,7 @@ public class TransformerController {
         t.setStarred(Boolean.TRUE.equals(req.getStarred()));
         t.setLocationDetails(req.getLocationDetails()); // NEW
         Transformer saved = repo.save(t);
+        events.publishEvent(new TransformerChangedEvent(saved.getId(), saved.getTransformerNo(), ChangeType.CREATED));
         return ResponseEntity.created(URI.create("/api/transformers/" + saved.getId())).body(saved);
     }
 
@@ -73,14 +187,29 @@ public class TransformerController {
         if (body.containsKey("starred")) t.setStarred(Boolean.parseBoolean(String.valueOf(body.get("starred"))));
         if (body.containsKey("locationDetails")) t.setLocationDetails(Objects.toString(body.get("locationDetails"), null));
 
-        return ResponseEntity.ok(repo.save(t));
+        Transformer saved = repo.save(t);
+        events.publishEvent(new TransformerChangedEvent(saved.getId(), saved.getTransformerNo(), ChangeType.UPDATED));
+        return ResponseEntity.ok(saved);
     }
 
+    // Soft delete: the transformer and its inspections are hidden at once and purged after the retention window
     @DeleteMapping("/{no}")
     public ResponseEntity<?> delete(@PathVariable String no) {
         return repo.findByTransformerNo(no).map(t -> {
-            repo.delete(t);
+            deletion.delete(t);
             return ResponseEntity.noContent().build();
         }).orElse(ResponseEntity.notFound().build());
     }
+
+    /** Undo a delete that has not been purged yet; inspections deleted along with it come back too. */
+    @PostMapping("/{no}/restore")
+    public ResponseEntity<?> restore(@PathVariable String no) {
+        return deletion.restore(no)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() || s.equalsIgnoreCase("all") ? null : s.trim();
+    }
 }
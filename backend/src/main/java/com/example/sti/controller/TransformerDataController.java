@@ -1,8 +1,10 @@
 package com.example.sti.controller;
 
 import com.example.sti.service.TransformerDataService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api")
@@ -16,11 +18,21 @@ public class TransformerDataController {
 
     // NOTE: make sure NO OTHER controller maps GET /api/get-transformer-data
     @GetMapping("/get-transformer-data")
-    public ResponseEntity<?> getTransformerData(@RequestParam("id") String idOrNo) {
+    public ResponseEntity<?> getTransformerData(@RequestParam("id") String idOrNo, WebRequest request) {
         try {
-            return ResponseEntity.ok(dataService.getTransformerData(idOrNo));
+            String tag = dataService.currentTag(idOrNo);
+            if (request.checkNotModified(tag)) return null; // 304 after the version lookup only
+
+            TransformerDataService.Tagged d = dataService.getTagged(idOrNo, tag);
+            return ResponseEntity.ok().eTag(d.tag()).cacheControl(CacheControl.noCache()).body(d.body());
         } catch (RuntimeException ex) {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /** Hit ratio / eviction counters of the transformer data cache. */
+    @GetMapping("/cache/transformer-data")
+    public ResponseEntity<?> cacheStats() {
+        return ResponseEntity.ok(dataService.cacheStats());
+    }
 }
@@ -0,0 +1,135 @@
+package com.example.sti.datasource;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the threads holding a connection at the pool size. With virtual threads there is no
+ * request-thread limit any more, so thousands of requests can queue for a handful of connections;
+ * here they wait in a fair FIFO queue for a bounded time and then fail with
+ * SQLTransientConnectionException (answered with 503 + Retry-After) instead of piling into the
+ * pool's own 30 s wait. A thread that already holds a connection gets further ones without a new
+ * permit, so nested transactions (REQUIRES_NEW, TransactionTemplate inside a service) cannot
+ * deadlock against the limiter.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int limit;
+    private final Duration acquireTimeout;
+    private final ThreadLocal<AtomicInteger> held = ThreadLocal.withInitial(AtomicInteger::new);
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConcurrencyLimitingDataSource(DataSource target, int limit, Duration acquireTimeout) {
+        super(target);
+        this.limit = Math.max(1, limit);
+        this.permits = new Semaphore(this.limit, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        AtomicInteger mine = acquire();
+        try {
+            return limited(super.getConnection(), mine);
+        } catch (SQLException | RuntimeException e) {
+            release(mine);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        AtomicInteger mine = acquire();
+        try {
+            return limited(super.getConnection(username, password), mine);
+        } catch (SQLException | RuntimeException e) {
+            release(mine);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("limit", limit);
+        m.put("inUse", limit - permits.availablePermits());
+        m.put("queued", permits.getQueueLength());
+        m.put("waited", waited.get());
+        m.put("rejected", rejected.get());
+        return m;
+    }
+
+    private AtomicInteger acquire() throws SQLException {
+        AtomicInteger mine = held.get();
+        if (mine.getAndIncrement() > 0) return mine; // nested: this thread already has a permit
+        boolean granted;
+        try {
+            granted = permits.tryAcquire() || waitForPermit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            granted = false;
+        }
+        if (!granted) {
+            mine.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new SQLTransientConnectionException("Database busy: no connection within " + acquireTimeout
+                    + " (" + limit + " in use, " + permits.getQueueLength() + " waiting)");
+        }
+        return mine;
+    }
+
+    private boolean waitForPermit() throws InterruptedException {
+        waited.incrementAndGet();
+        return permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** mine is the opening thread's counter, so a connection closed on another thread settles the right one. */
+    private void release(AtomicInteger mine) {
+        if (mine.decrementAndGet() == 0) permits.release();
+    }
+
+    private Connection limited(Connection target, AtomicInteger mine) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getTargetConnection":
+                            return target;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (!closed.compareAndSet(false, true)) return null;
+                            try {
+                                target.close();
+                            } finally {
+                                release(mine);
+                            }
+                            return null;
+                        default:
+                            try {
+                                return method.invoke(target, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                    }
+                });
+    }
+}
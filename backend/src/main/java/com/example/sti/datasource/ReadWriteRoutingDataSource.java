@@ -0,0 +1,55 @@
+package com.example.sti.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only transactions go to the replicas (round robin), everything else to the primary. A
+ * connection for a read-write transaction also pins the thread to the primary for the
+ * read-your-writes window, so reads right after a write see it even when the replicas lag.
+ * The key is read when the connection is first used, so this must sit behind a
+ * LazyConnectionDataSourceProxy (the transaction's read-only flag is set after it begins).
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long readYourWritesMillis;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration readYourWrites) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + (i + 1);
+            targets.put(key, replicas.get(i));
+            replicaKeys.add(key);
+        }
+        this.readYourWritesMillis = readYourWrites.toMillis();
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWrites.pinUntil(System.currentTimeMillis() + readYourWritesMillis);
+            }
+            return PRIMARY;
+        }
+        if (replicaKeys.isEmpty() || ReadYourWrites.pinned()) return PRIMARY;
+        return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+    }
+}
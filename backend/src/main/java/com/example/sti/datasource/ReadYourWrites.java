@@ -0,0 +1,56 @@
+package com.example.sti.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread "read from the primary until" mark. Replicas apply writes with some lag, so a thread
+ * that just wrote (or a request from a client that just wrote) keeps reading from the primary for
+ * a short window. Work handed to another thread takes the mark along via {@link #propagate}.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Long> primaryUntil = new ThreadLocal<>();
+
+    private ReadYourWrites() {}
+
+    /** Read from the primary until {@code epochMillis} (an earlier existing mark is extended). */
+    public static void pinUntil(long epochMillis) {
+        Long current = primaryUntil.get();
+        if (current == null || current < epochMillis) primaryUntil.set(epochMillis);
+    }
+
+    public static boolean pinned() {
+        Long until = primaryUntil.get();
+        if (until == null) return false;
+        if (until > System.currentTimeMillis()) return true;
+        primaryUntil.remove();
+        return false;
+    }
+
+    public static void clear() {
+        primaryUntil.remove();
+    }
+
+    /** The calling thread's mark (null for none), for {@link #callWith} on another thread. */
+    public static Long current() {
+        return primaryUntil.get();
+    }
+
+    /** Run {@code task} on this thread under a mark taken with {@link #current}. */
+    public static <T> T callWith(Long until, Supplier<T> task) {
+        if (until == null) return task.get();
+        Long previous = primaryUntil.get();
+        primaryUntil.set(until);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) primaryUntil.remove(); else primaryUntil.set(previous);
+        }
+    }
+
+    /** {@code task} to be run elsewhere with the caller's mark. */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Long until = current();
+        return until == null ? task : () -> callWith(until, task);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.sti.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes across requests: a write request (anything but GET/HEAD/OPTIONS) sets a
+ * short-lived cookie, and requests carrying it read from the primary until it runs out. The
+ * write request itself reads from the primary throughout.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "sti-primary-until";
+    private static final Set<String> SAFE = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        long limit = now + window.toMillis();
+        ReadYourWrites.clear();
+        Long until = cookieValue(request);
+        if (until != null) ReadYourWrites.pinUntil(Math.min(until, limit)); // never trust a far-future value
+
+        if (!SAFE.contains(request.getMethod())) {
+            ReadYourWrites.pinUntil(limit);
+            Cookie c = new Cookie(COOKIE, String.valueOf(limit));
+            c.setPath("/");
+            c.setHttpOnly(true);
+            c.setMaxAge((int) Math.max(1, window.toSeconds() + 1));
+            response.addCookie(c); // before the chain: streamed responses commit their headers early
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+
+    private static Long cookieValue(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie c : cookies) {
+            if (!COOKIE.equals(c.getName())) continue;
+            try {
+                return Long.parseLong(c.getValue());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
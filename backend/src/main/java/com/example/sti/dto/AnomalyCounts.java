@@ -0,0 +1,46 @@
+package com.example.sti.dto;
+
+import com.example.sti.entity.InspectionAnnotation;
+
+import java.util.Collection;
+
+/**
+ * Open (not "Deleted") anomalies by severity. Severity follows the model's class names, as the
+ * UI does: *_red classes are critical (faulty), everything else potential (*_yellow).
+ */
+public record AnomalyCounts(int critical, int potential) {
+
+    public static final AnomalyCounts NONE = new AnomalyCounts(0, 0);
+
+    public static boolean isOpen(String annotationType) {
+        return annotationType == null || !annotationType.equalsIgnoreCase("Deleted");
+    }
+
+    public static boolean isCritical(String className) {
+        return className != null && className.contains("_red");
+    }
+
+    public static AnomalyCounts of(Collection<InspectionAnnotation> annotations) {
+        int critical = 0, potential = 0;
+        for (InspectionAnnotation a : annotations) {
+            if (!isOpen(a.getAnnotationType())) continue;
+            if (isCritical(a.getClassName())) critical++; else potential++;
+        }
+        return new AnomalyCounts(critical, potential);
+    }
+
+    /** From a {critical, total} aggregate row; nulls (no rows) count as zero. */
+    public static AnomalyCounts fromCriticalAndTotal(Object critical, Object total) {
+        int c = critical instanceof Number n ? n.intValue() : 0;
+        int t = total instanceof Number n ? n.intValue() : 0;
+        return new AnomalyCounts(c, t - c);
+    }
+
+    public AnomalyCounts minus(AnomalyCounts o) {
+        return new AnomalyCounts(critical - o.critical, potential - o.potential);
+    }
+
+    public boolean isZero() {
+        return critical == 0 && potential == 0;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.sti.dto;
+
+import com.example.sti.entity.InspectionStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Filters, ordering and keyset position for the paged inspection table.
+ * Rows are always ordered by [starred desc,] sort, id so the position is unique.
+ */
+public class InspectionTableQuery {
+
+    public enum SortField { INSPECTED_AT, TRANSFORMER_NO, ID }
+
+    // Filters (null = no filter)
+    public List<InspectionStatus> statuses;
+    public String transformerNo;
+    public String region;
+    public Boolean starred;
+    public Instant from;          // inspectedAt >= from
+    public Instant to;            // inspectedAt <  to
+    public String search;         // substring of transformer number or inspection id
+
+    // Ordering
+    public SortField sort = SortField.INSPECTED_AT;
+    public boolean descending = true;
+    public boolean starredFirst = false;
+
+    /** Sort-key values of the last row already returned (null for the first page), in ORDER BY order. */
+    public List<Object> after;
+
+    public int limit = 50;
+}
@@ -1,6 +1,12 @@
 // src/main/java/com/example/sti/dto/InspectionTableRow.java
 package com.example.sti.dto;
 
+import com.example.sti.entity.InspectionStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
 public class InspectionTableRow {
     public String transformerNo;
     public String inspectionNo;
@@ -11,4 +17,45 @@ public class InspectionTableRow {
 
     public String inspectedAtIso;
     public String maintenanceAtIso;
+
+    // Raw values from the projection (keyset position, date formatting)
+    @JsonIgnore public Long id;
+    @JsonIgnore public Instant inspectedAt;
+    @JsonIgnore public Instant maintenanceAt;
+
+    public InspectionTableRow() {}
+
+    /**
+     * JPQL constructor expression target, e.g.
+     *   SELECT new com.example.sti.dto.InspectionTableRow(i.id, t.transformerNo, i.inspectedAt,
+     *          i.maintenanceAt, i.status, i.starred) FROM Inspection i JOIN i.transformer t
+     * Display dates depend on the caller's time zone; fill them with {@link #formatDates}.
+     */
+    public InspectionTableRow(Long id, String transformerNo, Instant inspectedAt, Instant maintenanceAt,
+                              InspectionStatus status, boolean starred) {
+        this.id = id;
+        this.transformerNo = transformerNo;
+        this.inspectionNo = id != null ? String.format("%09d", id) : null; // 9-digit display id
+        this.inspectedAt = inspectedAt;
+        this.maintenanceAt = maintenanceAt;
+        this.inspectedAtIso = inspectedAt != null ? inspectedAt.toString() : null;
+        this.maintenanceAtIso = maintenanceAt != null ? maintenanceAt.toString() : null;
+        this.status = prettyStatus(status);
+        this.starred = starred;
+    }
+
+    public InspectionTableRow formatDates(DateTimeFormatter fmt) {
+        inspectedDate = inspectedAt != null ? fmt.format(inspectedAt) : "-";
+        maintenanceDate = maintenanceAt != null ? fmt.format(maintenanceAt) : "-";
+        return this;
+    }
+
+    private static String prettyStatus(InspectionStatus st) {
+        if (st == null) return "Pending";
+        return switch (st) {
+            case IN_PROGRESS -> "In Progress";
+            case COMPLETED -> "Completed";
+            case NEEDS_REVIEW -> "Needs Review";
+        };
+    }
 }
@@ -0,0 +1,31 @@
+package com.example.sti.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/** Body of POST /api/uploads (creates a resumable upload). */
+public class ResumableUploadReq {
+    // "thermal" (current image of an inspection) or "baseline"
+    @NotBlank
+    public String kind;
+
+    @NotBlank
+    public String transformerNo;
+
+    // Required for thermal uploads
+    public String inspectionId;
+
+    // Total size in bytes
+    @Positive
+    public long length;
+
+    // Original filename / MIME, used to pick the stored extension
+    public String filename;
+    public String contentType;
+
+    // Optional hex SHA-256 of the whole file, verified on finalize
+    public String sha256;
+
+    public String uploaderName;
+    public String weatherCondition;
+}
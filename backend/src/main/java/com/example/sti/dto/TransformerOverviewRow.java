@@ -0,0 +1,40 @@
+package com.example.sti.dto;
+
+import java.time.Instant;
+
+/** One transformer in the paged overview, with its denormalized inspection/anomaly aggregates. */
+public class TransformerOverviewRow {
+    public Long id;
+    public String transformerNo;
+    public String poleNo;
+    public String region;
+    public String type;
+    public String capacity;
+    public boolean starred;
+
+    public Instant lastInspectedAt;
+    public int inspectionCount;
+    public int criticalAnomalies;
+    public int potentialAnomalies;
+    public int openAnomalies;
+
+    public TransformerOverviewRow() {}
+
+    /** JPQL constructor expression target; summary columns are null when no summary row exists yet. */
+    public TransformerOverviewRow(Long id, String transformerNo, String poleNo, String region, String type,
+                                  String capacity, boolean starred, Instant lastInspectedAt,
+                                  Integer inspectionCount, Integer criticalAnomalies, Integer potentialAnomalies) {
+        this.id = id;
+        this.transformerNo = transformerNo;
+        this.poleNo = poleNo;
+        this.region = region;
+        this.type = type;
+        this.capacity = capacity;
+        this.starred = starred;
+        this.lastInspectedAt = lastInspectedAt;
+        this.inspectionCount = inspectionCount != null ? inspectionCount : 0;
+        this.criticalAnomalies = criticalAnomalies != null ? criticalAnomalies : 0;
+        this.potentialAnomalies = potentialAnomalies != null ? potentialAnomalies : 0;
+        this.openAnomalies = this.criticalAnomalies + this.potentialAnomalies;
+    }
+}
@@ -5,7 +5,7 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "image_assets")
+@Table(name = "image_assets", indexes = @Index(name = "idx_image_assets_inspection_id", columnList = "inspection_id"))
 public class ImageAsset {
 
     @Id
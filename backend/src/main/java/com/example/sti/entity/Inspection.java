@@ -2,11 +2,20 @@ package com.example.sti.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.SQLRestriction;
+
 import java.time.Instant;
 // import java.time.Instant;
 
 @Entity
-@Table(name = "inspections")
+@Table(name = "inspections", indexes = {
+        // keyset pagination of the inspection table: ORDER BY inspected_at, id
+        @Index(name = "idx_inspections_inspected_at_id", columnList = "inspected_at, id"),
+        // one transformer's inspections, newest first
+        @Index(name = "idx_inspections_transformer_inspected", columnList = "transformer_id, inspected_at DESC"),
+        @Index(name = "idx_inspections_deleted_at", columnList = "deleted_at")
+})
+@SQLRestriction("deleted_at IS NULL") // soft-deleted rows are invisible to JPQL; tombstone queries are native
 public class Inspection {
 
     @Id
@@ -43,7 +52,23 @@ public class Inspection {
     @Column(name = "thermal_image_path", length = 500)
     private String thermalImagePath;
 
+    // optimistic lock; also feeds the weak ETags of the read APIs (default 0 so existing rows migrate)
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private long version;
+
+    // tombstone: set by DELETE, cleared by restore, row purged after the retention window
+    @Column(name = "deleted_at")
+    @JsonIgnore
+    private Instant deletedAt;
+
     // getters/setters
+    public long getVersion() { return version; }
+
+    public Instant getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(Instant deletedAt) { this.deletedAt = deletedAt; }
+
     public Instant getMaintenanceAt() { return maintenanceAt; }
     public void setMaintenanceAt(Instant maintenanceAt) { this.maintenanceAt = maintenanceAt; }
 
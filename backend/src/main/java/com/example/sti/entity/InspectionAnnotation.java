@@ -10,7 +10,10 @@ import java.time.Instant;
 import java.util.Map;
 
 @Entity
-@Table(name = "inspection_annotations")
+@Table(name = "inspection_annotations", indexes = {
+        @Index(name = "idx_annotations_inspection_created", columnList = "inspection_id, created_at DESC"),
+        @Index(name = "idx_annotations_inspection_type", columnList = "inspection_id, annotation_type")
+})
 public class InspectionAnnotation {
 
     @Id
@@ -51,6 +54,12 @@ public class InspectionAnnotation {
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
 
+    // optimistic lock; also feeds the weak ETags of the read APIs (default 0 so existing rows migrate)
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private long version;
+
     @PrePersist
     public void onCreate() {
         if (createdAt == null) createdAt = Instant.now();
@@ -100,6 +109,8 @@ public class InspectionAnnotation {
     // Getters and setters
     public Long getId() { return id; }
 
+    public long getVersion() { return version; }
+
     public Inspection getInspection() { return inspection; }
     public void setInspection(Inspection inspection) { this.inspection = inspection; }
 
@@ -0,0 +1,8 @@
+package com.example.sti.entity;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,54 @@
+package com.example.sti.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Outbox row for a media blob that is no longer referenced. Written in the same transaction
+ * as the delete that orphaned it; MediaGarbageService removes the blob later and then the row.
+ */
+@Entity
+@Table(name = "media_garbage", indexes = @Index(name = "idx_media_garbage_due", columnList = "not_before"))
+public class MediaGarbage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** BlobStore key, or an absolute path for legacy image assets. */
+    @Column(name = "blob_key", nullable = false, length = 1000)
+    private String blobKey;
+
+    @Column(name = "enqueued_at", nullable = false)
+    private Instant enqueuedAt;
+
+    /** Not swept before this time (grows with each failed attempt). */
+    @Column(name = "not_before", nullable = false)
+    private Instant notBefore;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public MediaGarbage() {}
+
+    public MediaGarbage(String blobKey, Instant enqueuedAt) {
+        this.blobKey = blobKey;
+        this.enqueuedAt = enqueuedAt;
+        this.notBefore = enqueuedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getBlobKey() { return blobKey; }
+    public void setBlobKey(String blobKey) { this.blobKey = blobKey; }
+    public Instant getEnqueuedAt() { return enqueuedAt; }
+    public void setEnqueuedAt(Instant enqueuedAt) { this.enqueuedAt = enqueuedAt; }
+    public Instant getNotBefore() { return notBefore; }
+    public void setNotBefore(Instant notBefore) { this.notBefore = notBefore; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
@@ -2,6 +2,8 @@ package com.example.sti.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.SQLRestriction;
+
 import java.time.Instant;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -11,7 +13,8 @@ import java.util.List;
 
 @JsonIgnoreProperties({"hibernateLazyInitializer","handler"})
 @Entity
-@Table(name = "transformers")
+@Table(name = "transformers", indexes = @Index(name = "idx_transformers_deleted_at", columnList = "deleted_at"))
+@SQLRestriction("deleted_at IS NULL") // soft-deleted rows are invisible to JPQL; tombstone queries are native
 public class Transformer {
 
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -51,6 +54,17 @@ public class Transformer {
     @Column(name = "location_details", length = 2000)
     private String locationDetails;
 
+    // optimistic lock; also feeds the weak ETags of the read APIs (default 0 so existing rows migrate)
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private long version;
+
+    // tombstone: set by DELETE, cleared by restore, row purged after the retention window
+    @Column(name = "deleted_at")
+    @JsonIgnore
+    private Instant deletedAt;
+
     @PrePersist
     public void onCreate() {
         if (createdAt == null) createdAt = Instant.now();
@@ -64,6 +78,11 @@ public class Transformer {
 
     public Long getId() { return id; }
 
+    public long getVersion() { return version; }
+
+    public Instant getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(Instant deletedAt) { this.deletedAt = deletedAt; }
+
     public String getTransformerNo() { return transformerNo; }
     public void setTransformerNo(String transformerNo) { this.transformerNo = transformerNo; }
 
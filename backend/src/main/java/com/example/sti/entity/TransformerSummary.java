@@ -0,0 +1,57 @@
+package com.example.sti.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Per-transformer aggregates for listings, kept current by TransformerSummaryService from
+ * inspection/annotation change events (delta updates, not recounts).
+ */
+@Entity
+@Table(name = "transformer_summaries")
+public class TransformerSummary {
+
+    @Id
+    @Column(name = "transformer_id")
+    private Long transformerId;
+
+    @Column(name = "last_inspected_at")
+    private Instant lastInspectedAt;
+
+    @Column(name = "inspection_count", nullable = false)
+    private int inspectionCount;
+
+    @Column(name = "critical_anomalies", nullable = false)
+    private int criticalAnomalies;
+
+    @Column(name = "potential_anomalies", nullable = false)
+    private int potentialAnomalies;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    protected TransformerSummary() {}
+
+    public TransformerSummary(Long transformerId) {
+        this.transformerId = transformerId;
+        this.updatedAt = Instant.now();
+    }
+
+    public Long getTransformerId() { return transformerId; }
+
+    public Instant getLastInspectedAt() { return lastInspectedAt; }
+    public void setLastInspectedAt(Instant lastInspectedAt) { this.lastInspectedAt = lastInspectedAt; }
+
+    public int getInspectionCount() { return inspectionCount; }
+    public void setInspectionCount(int inspectionCount) { this.inspectionCount = inspectionCount; }
+
+    public int getCriticalAnomalies() { return criticalAnomalies; }
+    public void setCriticalAnomalies(int criticalAnomalies) { this.criticalAnomalies = criticalAnomalies; }
+
+    public int getPotentialAnomalies() { return potentialAnomalies; }
+    public void setPotentialAnomalies(int potentialAnomalies) { this.potentialAnomalies = potentialAnomalies; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
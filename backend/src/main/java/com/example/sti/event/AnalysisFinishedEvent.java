@@ -0,0 +1,4 @@
+package com.example.sti.event;
+
+/** An AI analysis run ended; transformerNo/inspectionId are as the client sent them. */
+public record AnalysisFinishedEvent(String transformerNo, Long inspectionId, boolean success, int detections) {}
@@ -0,0 +1,6 @@
+package com.example.sti.event;
+
+import com.example.sti.dto.AnomalyCounts;
+
+/** The annotations of one inspection were replaced or cleared; open anomaly counts before and after. */
+public record AnnotationsChangedEvent(Long transformerId, Long inspectionId, AnomalyCounts before, AnomalyCounts after) {}
@@ -0,0 +1,11 @@
+package com.example.sti.event;
+
+import java.util.Collection;
+
+/**
+ * One chunk of a bulk import was written (published inside its transaction). Stands in for the
+ * per-row Transformer/InspectionChanged events, which would cost a listener round-trip per row.
+ */
+public record BulkImportedEvent(Collection<Long> createdTransformerIds,
+                                Collection<Long> createdInspectionIds,
+                                Collection<Long> touchedTransformerIds) {}
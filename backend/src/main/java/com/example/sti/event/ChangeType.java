@@ -0,0 +1,3 @@
+package com.example.sti.event;
+
+public enum ChangeType { CREATED, UPDATED, DELETED }
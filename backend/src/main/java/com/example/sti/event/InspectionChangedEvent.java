@@ -0,0 +1,10 @@
+package com.example.sti.event;
+
+import java.time.Instant;
+
+/**
+ * An inspection was created, edited or deleted. Carries the inspectedAt before and after the
+ * change so listeners can maintain aggregates without reloading (null where not applicable).
+ */
+public record InspectionChangedEvent(Long transformerId, Long inspectionId, ChangeType change,
+                                     Instant previousInspectedAt, Instant inspectedAt) {}
@@ -0,0 +1,4 @@
+package com.example.sti.event;
+
+/** A thermal image was stored for an inspection (multipart, resumable or archive upload). */
+public record ThermalImageUploadedEvent(Long transformerId, Long inspectionId, String path) {}
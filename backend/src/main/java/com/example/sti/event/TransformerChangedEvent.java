@@ -0,0 +1,4 @@
+package com.example.sti.event;
+
+/** A transformer row was created, edited or deleted (published inside the writing transaction, if any). */
+public record TransformerChangedEvent(Long transformerId, String transformerNo, ChangeType change) {}
@@ -0,0 +1,284 @@
+package com.example.sti.inference;
+
+import com.example.sti.config.VirtualThreads;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Everything that runs the anomaly model goes through here, so a slow or broken model cannot take
+ * the rest of the API down with it:
+ * - per-caller token buckets (inference.rate-limit.*) answer 429 to a caller over its rate;
+ * - a circuit breaker opens after inference.breaker.failure-threshold consecutive failures and
+ *   answers 503 until inference.breaker.open-duration has passed, then lets one probe through;
+ * - a bulkhead runs at most inference.max-concurrent models, with inference.max-queue more
+ *   admitted and waiting up to inference.max-wait; beyond that, 503.
+ * Requests are admitted (or turned away) on the request thread before any work starts, and
+ * admitted ones run on the gateway's own executor rather than the shared MVC async pool.
+ */
+@Component
+public class InferenceGateway {
+
+    public static final String RATE_LIMITED = "rate-limited";
+    public static final String CIRCUIT_OPEN = "circuit-open";
+    public static final String BUSY = "busy";
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final Semaphore slots;
+    private final AtomicInteger admitted = new AtomicInteger(); // running + waiting for a slot
+    private final Breaker breaker;
+    private final int burst;
+    private final double tokensPerNano;
+    private final Cache<String, TokenBucket> buckets;
+    private final ExecutorService pool;
+    private final AsyncTaskExecutor executor;
+    private final Map<String, AtomicLong> rejected = new ConcurrentHashMap<>();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public InferenceGateway(@Value("${inference.max-concurrent:2}") int maxConcurrent,
+                            @Value("${inference.max-queue:8}") int maxQueue,
+                            @Value("${inference.max-wait:PT30S}") Duration maxWait,
+                            @Value("${inference.breaker.failure-threshold:5}") int failureThreshold,
+                            @Value("${inference.breaker.open-duration:PT30S}") Duration openDuration,
+                            @Value("${inference.rate-limit.burst:5}") int burst,
+                            @Value("${inference.rate-limit.per-minute:30}") int perMinute,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWait = maxWait;
+        this.slots = new Semaphore(this.maxConcurrent, true);
+        this.breaker = new Breaker(Math.max(1, failureThreshold), openDuration.toNanos());
+        this.burst = Math.max(1, burst);
+        this.tokensPerNano = Math.max(1, perMinute) / (double) TimeUnit.MINUTES.toNanos(1);
+        this.buckets = Caffeine.newBuilder().maximumSize(100_000).expireAfterAccess(Duration.ofMinutes(10)).build();
+        // one thread per admitted request; the admission count keeps the queue bounded
+        this.pool = VirtualThreads.executor("inference", this.maxConcurrent + this.maxQueue, virtualThreads);
+        this.executor = new TaskExecutorAdapter(pool);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Runs admitted inferences; hand it to WebAsyncTask so they stay off the MVC async pool. */
+    public AsyncTaskExecutor executor() {
+        return executor;
+    }
+
+    /**
+     * Admit an inference or throw {@link InferenceRejectedException}. caller is the rate-limit key
+     * (null for internal callers such as jobs, which are only subject to the breaker and bulkhead).
+     * The ticket must be passed to {@link #run} or, if the inference never starts, abandoned.
+     */
+    public Ticket admit(String caller) {
+        long now = System.nanoTime();
+        long blocked = breaker.blockedFor(now);
+        if (blocked > 0) throw reject(503, CIRCUIT_OPEN, blocked, "Inference is failing; not accepting requests for now");
+        if (caller != null) {
+            long wait = buckets.get(caller, k -> new TokenBucket(burst, now)).take(now, burst, tokensPerNano);
+            if (wait > 0) throw reject(429, RATE_LIMITED, wait, "Too many analyses for " + caller);
+        }
+        if (admitted.incrementAndGet() > maxConcurrent + maxQueue) {
+            admitted.decrementAndGet();
+            throw reject(503, BUSY, maxWait.toNanos(), "All " + maxConcurrent + " inference slots and " + maxQueue + " queue places are taken");
+        }
+        int pass = breaker.enter(now);
+        if (pass == Breaker.REJECT) {
+            admitted.decrementAndGet();
+            throw reject(503, CIRCUIT_OPEN, breaker.blockedFor(now), "Inference is failing; a probe is already running");
+        }
+        return new Ticket(pass == Breaker.PROBE);
+    }
+
+    /**
+     * Wait for a slot (up to inference.max-wait), run the inference and record its outcome with the
+     * breaker. Cancellation and rejections do not count as failures.
+     */
+    public <T> T run(Ticket ticket, Callable<T> inference) throws Exception {
+        if (!ticket.state.compareAndSet(Ticket.NEW, Ticket.RUNNING)) throw new CancellationException("Inference abandoned");
+        boolean slot = false;
+        boolean settled = false;
+        try {
+            slot = slots.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            if (!slot) throw reject(503, BUSY, maxWait.toNanos(), "No inference slot within " + maxWait);
+            T result = inference.call();
+            breaker.success(ticket.probe);
+            succeeded.incrementAndGet();
+            settled = true;
+            return result;
+        } catch (InferenceRejectedException | CancellationException | InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            breaker.failure(ticket.probe, System.nanoTime());
+            failed.incrementAndGet();
+            settled = true;
+            throw e;
+        } finally {
+            if (!settled) breaker.abandon(ticket.probe);
+            if (slot) slots.release();
+            admitted.decrementAndGet();
+            ticket.state.set(Ticket.DONE);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("breaker", breaker.state());
+        m.put("consecutiveFailures", breaker.consecutiveFailures());
+        int running = maxConcurrent - slots.availablePermits();
+        m.put("running", running);
+        m.put("queued", Math.max(0, admitted.get() - running));
+        m.put("maxConcurrent", maxConcurrent);
+        m.put("maxQueue", maxQueue);
+        m.put("succeeded", succeeded.get());
+        m.put("failed", failed.get());
+        Map<String, Long> r = new LinkedHashMap<>();
+        rejected.forEach((k, v) -> r.put(k, v.get()));
+        m.put("rejected", r);
+        m.put("trackedCallers", buckets.estimatedSize()); // callers with a token bucket
+        return m;
+    }
+
+    private InferenceRejectedException reject(int status, String reason, long retryAfterNanos, String message) {
+        rejected.computeIfAbsent(reason, k -> new AtomicLong()).incrementAndGet();
+        long seconds = (long) Math.ceil(retryAfterNanos / 1e9);
+        return new InferenceRejectedException(status, reason, seconds, message);
+    }
+
+    /** An admitted inference. */
+    public final class Ticket {
+        static final int NEW = 0;
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+
+        private final boolean probe;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+
+        private Ticket(boolean probe) {
+            this.probe = probe;
+        }
+
+        /** Give the place back if the inference never started (the request ended first); no-op otherwise. */
+        public void abandon() {
+            if (state.compareAndSet(NEW, DONE)) {
+                admitted.decrementAndGet();
+                breaker.abandon(probe);
+            }
+        }
+    }
+
+    /** Closed -> open after consecutive failures -> half-open (one probe) after the open period. */
+    static final class Breaker {
+        static final int REJECT = -1;
+        static final int PASS = 0;
+        static final int PROBE = 1;
+
+        enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final int threshold;
+        private final long openNanos;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean probing;
+
+        Breaker(int threshold, long openNanos) {
+            this.threshold = threshold;
+            this.openNanos = openNanos;
+        }
+
+        /** 0 when a call may pass, else roughly how long until one can. */
+        synchronized long blockedFor(long now) {
+            if (state == State.OPEN) {
+                long left = openedAt + openNanos - now;
+                if (left > 0) return left;
+                state = State.HALF_OPEN;
+            }
+            return state == State.HALF_OPEN && probing ? TimeUnit.SECONDS.toNanos(1) : 0;
+        }
+
+        synchronized int enter(long now) {
+            if (blockedFor(now) > 0) return REJECT;
+            if (state == State.HALF_OPEN) {
+                probing = true;
+                return PROBE;
+            }
+            return PASS;
+        }
+
+        synchronized void success(boolean probe) {
+            if (state == State.CLOSED) {
+                consecutiveFailures = 0;
+            } else if (probe && state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                probing = false;
+                System.out.println("Inference breaker closed: probe succeeded");
+            }
+        }
+
+        synchronized void failure(boolean probe, long now) {
+            if (state == State.CLOSED && ++consecutiveFailures < threshold) return;
+            if (state == State.OPEN || (state == State.HALF_OPEN && !probe)) return;
+            state = State.OPEN;
+            openedAt = now;
+            probing = false;
+            System.err.println("Inference breaker open for " + Duration.ofNanos(openNanos) + " after "
+                    + (probe ? "a failed probe" : consecutiveFailures + " consecutive failures"));
+        }
+
+        synchronized void abandon(boolean probe) {
+            if (probe && state == State.HALF_OPEN) probing = false;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized int consecutiveFailures() {
+            return consecutiveFailures;
+        }
+    }
+
+    /** Holds up to burst tokens, refilled continuously at tokensPerNano. */
+    static final class TokenBucket {
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int burst, long now) {
+            this.tokens = burst;
+            this.refilledAt = now;
+        }
+
+        /** Take a token: 0 when one was available, else nanos until the next one is. */
+        synchronized long take(long now, int burst, double tokensPerNano) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
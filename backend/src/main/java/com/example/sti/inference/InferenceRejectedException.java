@@ -0,0 +1,29 @@
+package com.example.sti.inference;
+
+/** The gateway turned an inference away; status is 429 or 503 and the caller may retry after the given delay. */
+public class InferenceRejectedException extends RuntimeException {
+
+    private final int status;
+    private final String reason;
+    private final long retryAfterSeconds;
+
+    public InferenceRejectedException(int status, String reason, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.reason = reason;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /** rate-limited, circuit-open or busy. */
+    public String getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.Job;
+import com.example.sti.event.AnalysisFinishedEvent;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.service.AnomalyDetectionService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * "analysis": run the model on one inspection's stored thermal image; the detections are the job
+ * result. "analysis.batch": fan out into one background-priority analysis job per inspection.
+ */
+@Component
+public class AnalysisJobHandler implements JobHandler {
+
+    public static final String ANALYSIS = "analysis";
+    public static final String BATCH = "analysis.batch";
+
+    private final InspectionRepository inspections;
+    private final AnomalyDetectionService detector;
+    private final JobQueue jobs;
+    private final ApplicationEventPublisher events;
+
+    public AnalysisJobHandler(InspectionRepository inspections,
+                              AnomalyDetectionService detector,
+                              JobQueue jobs,
+                              ApplicationEventPublisher events) {
+        this.inspections = inspections;
+        this.detector = detector;
+        this.jobs = jobs;
+        this.events = events;
+    }
+
+    @Override
+    public Set<String> types() {
+        return Set.of(ANALYSIS, BATCH);
+    }
+
+    @Override
+    public Map<String, Object> run(Job job) throws Exception {
+        return BATCH.equals(job.getType()) ? fanOut(job) : analyze(job);
+    }
+
+    private Map<String, Object> analyze(Job job) throws Exception {
+        Long inspectionId = ((Number) job.getPayload().get("inspectionId")).longValue();
+        List<Inspection> found = inspections.findAllWithTransformerByIdIn(List.of(inspectionId));
+        if (found.isEmpty()) throw new JobFailedException("Inspection " + inspectionId + " not found");
+        Inspection inspection = found.get(0);
+        String transformerNo = inspection.getTransformer().getTransformerNo();
+        String thermalPath = inspection.getThermalImagePath();
+        if (thermalPath == null || thermalPath.isBlank()) {
+            throw new JobFailedException("Inspection " + inspectionId + " has no thermal image");
+        }
+
+        AnomalyDetectionService.ModelRun run;
+        try {
+            run = detector.analyzeStored(thermalPath);
+        } catch (Exception e) {
+            if (job.getAttempts() >= job.getMaxAttempts()) {
+                events.publishEvent(new AnalysisFinishedEvent(transformerNo, inspectionId, false, 0));
+            }
+            throw e;
+        }
+        List<Map<String, Object>> detections = run.detections();
+        events.publishEvent(new AnalysisFinishedEvent(transformerNo, inspectionId, true, detections.size()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("inspectionId", inspectionId);
+        result.put("transformerNo", transformerNo);
+        result.put("thermalImagePath", thermalPath);
+        result.put("detectionCount", detections.size());
+        result.put("detections", detections);
+        result.put("timing", run.timing());
+        return result;
+    }
+
+    private Map<String, Object> fanOut(Job job) {
+        List<?> ids = (List<?>) job.getPayload().get("inspectionIds");
+        int enqueued = 0;
+        for (Object id : ids) {
+            // keyed by batch and inspection, so a batch job that ran again does not queue duplicates
+            jobs.enqueue(ANALYSIS, Map.of("inspectionId", id), JobQueue.PRIORITY_BACKGROUND,
+                    BATCH + ":" + job.getId() + ":" + id);
+            enqueued++;
+        }
+        return Map.of("enqueued", enqueued);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Job;
+import com.example.sti.service.DatasetExportService;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/** "dataset-export": the re-training export, queued by POST /api/retrain/export-dataset with Prefer: respond-async. */
+@Component
+public class DatasetExportJobHandler implements JobHandler {
+
+    public static final String TYPE = "dataset-export";
+
+    private final DatasetExportService exports;
+
+    public DatasetExportJobHandler(DatasetExportService exports) {
+        this.exports = exports;
+    }
+
+    @Override
+    public Set<String> types() {
+        return Set.of(TYPE);
+    }
+
+    @Override
+    public Map<String, Object> run(Job job) throws Exception {
+        return exports.export();
+    }
+}
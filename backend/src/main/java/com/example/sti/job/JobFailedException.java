@@ -0,0 +1,9 @@
+package com.example.sti.job;
+
+/** Thrown by a handler when retrying cannot help (e.g. the inspection it was queued for is gone). */
+public class JobFailedException extends RuntimeException {
+
+    public JobFailedException(String message) {
+        super(message);
+    }
+}
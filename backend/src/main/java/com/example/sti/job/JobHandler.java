@@ -0,0 +1,19 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Job;
+
+import java.util.Map;
+import java.util.Set;
+
+/** Runs the jobs of some types; every handler bean is picked up by the {@link JobWorker} of each node. */
+public interface JobHandler {
+
+    Set<String> types();
+
+    /**
+     * Run one job; the returned map becomes its result. Any exception is a failed attempt that is
+     * retried with backoff, except {@link JobFailedException}, which fails the job at once.
+     * The same job can run again after a crash, so handlers must be safe to repeat.
+     */
+    Map<String, Object> run(Job job) throws Exception;
+}
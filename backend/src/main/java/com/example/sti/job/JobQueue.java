@@ -0,0 +1,171 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Job;
+import com.example.sti.entity.JobStatus;
+import com.example.sti.repo.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The jobs table as a queue shared by every node. enqueue(...) joins the caller's transaction, so a
+ * job exists only if the work that asked for it committed. The other operations are what a
+ * {@link JobWorker} does with it; each is one short transaction and, except claim, only touches
+ * jobs the calling node holds.
+ */
+@Service
+public class JobQueue {
+
+    public static final int PRIORITY_INTERACTIVE = 10;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_BACKGROUND = -10;
+
+    private final JobRepository jobs;
+    private final TransactionTemplate tx;
+
+    @Value("${jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${jobs.retry-backoff:PT10S}")
+    private Duration retryBackoff;
+
+    @Value("${jobs.max-backoff:PT30M}")
+    private Duration maxBackoff;
+
+    public JobQueue(JobRepository jobs, PlatformTransactionManager txManager) {
+        this.jobs = jobs;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    public Job enqueue(String type, Map<String, Object> payload) {
+        return enqueue(type, payload, PRIORITY_DEFAULT, null);
+    }
+
+    /**
+     * Queue a job. With an idempotency key, a job enqueued earlier under the same key is returned
+     * instead (whatever its status); two concurrent enqueues of a new key are kept apart by the
+     * unique constraint, and the losing transaction fails.
+     */
+    @Transactional
+    public Job enqueue(String type, Map<String, Object> payload, int priority, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<Job> existing = jobs.findByIdempotencyKey(idempotencyKey);
+            if (existing.isPresent()) return existing.get();
+        }
+        Instant now = now();
+        Job job = new Job();
+        job.setType(type);
+        job.setPayload(payload);
+        job.setPriority(priority);
+        job.setStatus(JobStatus.QUEUED);
+        job.setIdempotencyKey(idempotencyKey);
+        job.setMaxAttempts(maxAttempts);
+        job.setRunAfter(now);
+        job.setCreatedAt(now);
+        return jobs.save(job);
+    }
+
+    /**
+     * Queue a payload-less background job for the current {@code interval}-long time slot. Every
+     * node's scheduler may call this; the slot's idempotency key leaves one job per slot in the cluster.
+     */
+    public void enqueueOncePerSlot(String type, Duration interval) {
+        long slot = Instant.now().getEpochSecond() / Math.max(1, interval.toSeconds());
+        try {
+            tx.executeWithoutResult(s -> enqueue(type, Map.of(), PRIORITY_BACKGROUND, type + "@" + slot));
+        } catch (DataIntegrityViolationException raced) {
+            // another node enqueued this slot at the same moment
+        }
+    }
+
+    public Optional<Job> find(Long id) {
+        return jobs.findById(id);
+    }
+
+    // -------- worker side --------
+
+    /** Claim up to {@code limit} due jobs of the given types for {@code node}, highest priority first. */
+    public List<Job> claim(Collection<String> types, String node, int limit, Duration lease) {
+        if (types.isEmpty() || limit <= 0) return List.of();
+        return tx.execute(s -> {
+            Instant now = now();
+            List<Long> ids = jobs.lockDueIds(types, now, limit);
+            if (ids.isEmpty()) return List.<Job>of();
+            jobs.markRunning(ids, node, now, now.plus(lease));
+            return jobs.findAllById(ids);
+        });
+    }
+
+    public int renewLeases(Collection<Long> ids, String node, Duration lease) {
+        if (ids.isEmpty()) return 0;
+        Instant now = now();
+        return tx.execute(s -> jobs.renewLeases(ids, node, now, now.plus(lease)));
+    }
+
+    /** False when the lease was lost meanwhile: another node has the job now and its result wins. */
+    public boolean succeed(Job job, String node, Map<String, Object> result) {
+        return tx.execute(s -> jobs.markSucceeded(job.getId(), node, result, now())) == 1;
+    }
+
+    /** Back to the queue after a backoff that doubles per attempt, or FAILED after the last attempt. */
+    public boolean retryOrFail(Job job, String node, String error) {
+        if (job.getAttempts() >= job.getMaxAttempts()) return fail(job, node, error);
+        Instant runAfter = now().plus(backoff(job.getAttempts()));
+        return tx.execute(s -> jobs.markForRetry(job.getId(), node, runAfter, truncate(error))) == 1;
+    }
+
+    public boolean fail(Job job, String node, String error) {
+        return tx.execute(s -> jobs.markFailed(job.getId(), node, truncate(error), now())) == 1;
+    }
+
+    public int release(Collection<Long> ids, String node) {
+        if (ids.isEmpty()) return 0;
+        return tx.execute(s -> jobs.release(ids, node));
+    }
+
+    /** Recover jobs of nodes that died or stalled; any node may run this. Returns {requeued, failed}. */
+    public int[] reapExpiredLeases() {
+        Instant now = now();
+        return tx.execute(s -> new int[]{jobs.requeueExpired(now), jobs.failExpired(now)});
+    }
+
+    public int deleteFinishedBefore(Instant cutoff, int limit) {
+        return tx.execute(s -> jobs.deleteFinishedBefore(cutoff, limit));
+    }
+
+    /** type -> status -> count */
+    public Map<String, Map<String, Long>> counts() {
+        Map<String, Map<String, Long>> out = new LinkedHashMap<>();
+        for (Object[] row : jobs.countByTypeAndStatus()) {
+            out.computeIfAbsent((String) row[0], k -> new LinkedHashMap<>())
+                    .put(((JobStatus) row[1]).name(), ((Number) row[2]).longValue());
+        }
+        return out;
+    }
+
+    private Duration backoff(int attempts) {
+        long factor = 1L << Math.min(Math.max(attempts - 1, 0), 20);
+        Duration d = retryBackoff.multipliedBy(factor);
+        return d.compareTo(maxBackoff) > 0 ? maxBackoff : d;
+    }
+
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static String truncate(String s) {
+        return s == null || s.length() <= 2000 ? s : s.substring(0, 2000);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.sti.job;
+
+import com.example.sti.config.VirtualThreads;
+import com.example.sti.entity.Job;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs queued jobs on this node. Each poll claims as many due jobs as there are free slots (other
+ * nodes skip what this one locked), a heartbeat keeps their leases alive while they run, and a
+ * reaper requeues the jobs of nodes whose leases ran out. Adding nodes adds slots; the only shared
+ * state is the jobs table, so throughput grows with the number of nodes until the handlers' own
+ * resources (the model, storage, the DB) saturate.
+ */
+@Component
+public class JobWorker {
+
+    private final JobQueue queue;
+    private final Map<String, JobHandler> handlers = new HashMap<>();
+    private final ExecutorService pool;
+    private final Semaphore slots;
+    private final int concurrency;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final String node;
+    private volatile boolean stopping;
+
+    @Value("${jobs.worker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jobs.lease:PT2M}")
+    private Duration lease;
+
+    @Value("${jobs.retention:P7D}")
+    private Duration retention;
+
+    @Value("${jobs.shutdown-grace:PT20S}")
+    private Duration shutdownGrace;
+
+    public JobWorker(JobQueue queue,
+                     List<JobHandler> handlers,
+                     @Value("${jobs.worker.concurrency:4}") int concurrency,
+                     @Value("${jobs.node-id:}") String nodeId,
+                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.queue = queue;
+        for (JobHandler h : handlers) {
+            for (String type : h.types()) {
+                if (this.handlers.putIfAbsent(type, h) != null) {
+                    throw new IllegalStateException("Two handlers for job type " + type);
+                }
+            }
+        }
+        this.concurrency = Math.max(1, concurrency);
+        this.slots = new Semaphore(this.concurrency);
+        // pid@host, unique per running instance
+        this.node = nodeId == null || nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        // the slots bound concurrency, so a virtual thread per job is enough
+        this.pool = VirtualThreads.executor("job-worker", this.concurrency, virtualThreads);
+    }
+
+    public String node() {
+        return node;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("node", node);
+        m.put("enabled", enabled);
+        m.put("concurrency", concurrency);
+        m.put("running", running.size());
+        m.put("completed", completed.get());
+        m.put("failed", failed.get());
+        m.put("types", handlers.keySet());
+        return m;
+    }
+
+    /** Fill the free slots; busy slots pick up their next job themselves. */
+    @Scheduled(fixedDelayString = "${jobs.poll-interval:PT1S}")
+    public void poll() {
+        if (!enabled || stopping) return;
+        while (true) {
+            int free = slots.availablePermits();
+            if (free == 0) return;
+            List<Job> claimed;
+            try {
+                claimed = queue.claim(handlers.keySet(), node, free, lease);
+            } catch (RuntimeException e) {
+                System.err.println("Job worker: claim failed: " + e.getMessage());
+                return;
+            }
+            for (Job job : claimed) {
+                slots.acquireUninterruptibly(); // permits are only taken here, so this never waits
+                running.add(job.getId());
+                pool.execute(() -> runWhileBusy(job));
+            }
+            if (claimed.size() < free) return;
+        }
+    }
+
+    /** Run the job, then keep the slot and claim the next one directly while the queue has work. */
+    private void runWhileBusy(Job first) {
+        try {
+            Job job = first;
+            while (job != null) {
+                execute(job);
+                job = stopping ? null : claimOne();
+            }
+        } finally {
+            slots.release();
+        }
+    }
+
+    private Job claimOne() {
+        try {
+            List<Job> next = queue.claim(handlers.keySet(), node, 1, lease);
+            if (next.isEmpty()) return null;
+            running.add(next.get(0).getId());
+            return next.get(0);
+        } catch (RuntimeException e) {
+            return null; // the next poll tries again
+        }
+    }
+
+    private void execute(Job job) {
+        try {
+            Map<String, Object> result = handlers.get(job.getType()).run(job);
+            if (queue.succeed(job, node, result)) {
+                completed.incrementAndGet();
+            } else {
+                System.err.println("Job " + job.getId() + " finished after its lease was lost; result dropped");
+            }
+        } catch (JobFailedException e) {
+            failed.incrementAndGet();
+            queue.fail(job, node, e.getMessage());
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            System.err.println("Job " + job.getId() + " (" + job.getType() + ") attempt " + job.getAttempts()
+                    + "/" + job.getMaxAttempts() + " failed: " + error);
+            if (job.getAttempts() >= job.getMaxAttempts()) failed.incrementAndGet();
+            queue.retryOrFail(job, node, error);
+        } finally {
+            running.remove(job.getId());
+        }
+    }
+
+    /** Renew the leases of running jobs, then recover jobs whose nodes went quiet. */
+    @Scheduled(fixedDelayString = "${jobs.heartbeat:PT30S}")
+    public void heartbeat() {
+        if (!enabled) return;
+        try {
+            Set<Long> ids = Set.copyOf(running);
+            int held = queue.renewLeases(ids, node, lease);
+            if (held < ids.size()) {
+                System.err.println("Job worker: lost " + (ids.size() - held) + " lease(s); those jobs run elsewhere now");
+            }
+            int[] reaped = queue.reapExpiredLeases();
+            if (reaped[0] + reaped[1] > 0) {
+                System.out.println("Job worker: requeued " + reaped[0] + " and failed " + reaped[1] + " job(s) with expired leases");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Job worker: heartbeat failed: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.cleanup-interval:PT1H}", initialDelayString = "${jobs.cleanup-interval:PT1H}")
+    public void cleanup() {
+        Instant cutoff = Instant.now().minus(retention);
+        while (queue.deleteFinishedBefore(cutoff, 1000) == 1000) {
+            // next chunk, each its own short transaction
+        }
+    }
+
+    /** Let running jobs finish for a while, then hand back what is left so another node starts it at once. */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stopping = true;
+        pool.shutdown();
+        if (!pool.awaitTermination(shutdownGrace.toMillis(), TimeUnit.MILLISECONDS)) {
+            int released = queue.release(Set.copyOf(running), node);
+            System.out.println("Job worker: released " + released + " unfinished job(s) on shutdown");
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Job;
+import com.example.sti.service.MediaGarbageService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Media GC sweeps and reconciliations as jobs. Every node's scheduler enqueues them, keyed by the
+ * time slot, so each slot yields one job in the cluster and whichever node is free runs it.
+ */
+@Component
+public class MediaGcJobHandler implements JobHandler {
+
+    public static final String SWEEP = "media-gc.sweep";
+    public static final String RECONCILE = "media-gc.reconcile";
+
+    private final MediaGarbageService mediaGarbage;
+    private final JobQueue jobs;
+
+    @Value("${media.gc.sweep-interval:PT15S}")
+    private Duration sweepInterval;
+
+    @Value("${media.gc.reconcile-interval:PT6H}")
+    private Duration reconcileInterval;
+
+    @Value("${media.gc.reconcile-enabled:true}")
+    private boolean reconcileEnabled;
+
+    public MediaGcJobHandler(MediaGarbageService mediaGarbage, JobQueue jobs) {
+        this.mediaGarbage = mediaGarbage;
+        this.jobs = jobs;
+    }
+
+    @Override
+    public Set<String> types() {
+        return Set.of(SWEEP, RECONCILE);
+    }
+
+    @Override
+    public Map<String, Object> run(Job job) {
+        if (RECONCILE.equals(job.getType())) return Map.of("enqueued", mediaGarbage.reconcile());
+        return Map.of("settled", mediaGarbage.sweep());
+    }
+
+    @Scheduled(fixedDelayString = "${media.gc.sweep-interval:PT15S}", initialDelayString = "${media.gc.sweep-interval:PT15S}")
+    public void scheduleSweep() {
+        jobs.enqueueOncePerSlot(SWEEP, sweepInterval);
+    }
+
+    @Scheduled(fixedDelayString = "${media.gc.reconcile-interval:PT6H}", initialDelayString = "${media.gc.reconcile-initial-delay:PT5M}")
+    public void scheduleReconcile() {
+        if (reconcileEnabled) jobs.enqueueOncePerSlot(RECONCILE, reconcileInterval);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Job;
+import com.example.sti.service.TombstonePurgeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tombstone purge passes as jobs. Every node's scheduler enqueues one per purge.interval slot; the
+ * idempotency key leaves a single job per slot, so exactly one node runs each pass.
+ */
+@Component
+public class TombstonePurgeJobHandler implements JobHandler {
+
+    public static final String PURGE = "tombstone-purge";
+
+    private final TombstonePurgeService purger;
+    private final JobQueue jobs;
+
+    @Value("${purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${purge.interval:PT15M}")
+    private Duration interval;
+
+    public TombstonePurgeJobHandler(TombstonePurgeService purger, JobQueue jobs) {
+        this.purger = purger;
+        this.jobs = jobs;
+    }
+
+    @Override
+    public Set<String> types() {
+        return Set.of(PURGE);
+    }
+
+    @Override
+    public Map<String, Object> run(Job job) {
+        return Map.copyOf(purger.purgeExpired());
+    }
+
+    @Scheduled(fixedDelayString = "${purge.interval:PT15M}", initialDelayString = "${purge.initial-delay:PT10M}")
+    public void schedulePurge() {
+        if (enabled) jobs.enqueueOncePerSlot(PURGE, interval);
+    }
+}
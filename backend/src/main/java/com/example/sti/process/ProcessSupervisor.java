@@ -0,0 +1,195 @@
+package com.example.sti.process;
+
+import com.example.sti.config.VirtualThreads;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs external commands safely. stdout and stderr are drained concurrently into bounded buffers
+ * (the last maxOutput bytes of each are kept), so a chatty child can never block on a full pipe.
+ * A child that outlives its timeout, or whose caller is interrupted (a cancelled job, a request
+ * whose client went away), is killed together with its descendants. At most model.max-running
+ * children run at once; further callers wait for a slot.
+ */
+@Component
+public class ProcessSupervisor {
+
+    private final Semaphore running;
+    private final ExecutorService drains;
+
+    public ProcessSupervisor(@Value("${model.max-running:4}") int maxRunning,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.running = new Semaphore(Math.max(1, maxRunning), true);
+        // two drains per running child: with children capped by the permits a fixed pool never stalls one
+        this.drains = VirtualThreads.executor("process-drain", 2 * Math.max(1, maxRunning), virtualThreads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        drains.shutdown();
+    }
+
+    /** What to run and how long to let it. */
+    public record Spec(List<String> command, File directory, Duration timeout, int maxOutput, Duration killGrace) {}
+
+    /** Exit code, the kept tail of each stream and how many bytes were dropped ahead of it, and timings. */
+    public record Result(int exitCode, String stdout, String stderr, long stdoutDropped, long stderrDropped,
+                         long spawnMillis, long runMillis) {}
+
+    /**
+     * Run the command to completion. Throws {@link ProcessTimeoutException} when it exceeds the
+     * timeout and InterruptedException when the calling thread is interrupted; in both cases the
+     * process tree has been killed.
+     */
+    public Result run(Spec spec) throws IOException, InterruptedException {
+        running.acquire();
+        try {
+            return runAdmitted(spec);
+        } finally {
+            running.release();
+        }
+    }
+
+    private Result runAdmitted(Spec spec) throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        Process process = new ProcessBuilder(spec.command()).directory(spec.directory()).start();
+        long spawned = System.nanoTime();
+        process.getOutputStream().close(); // the child gets no stdin
+
+        TailBuffer out = new TailBuffer(spec.maxOutput());
+        TailBuffer err = new TailBuffer(spec.maxOutput());
+        Future<?> outDrain = drains.submit(() -> drain(process.getInputStream(), out));
+        Future<?> errDrain = drains.submit(() -> drain(process.getErrorStream(), err));
+        try {
+            if (!process.waitFor(spec.timeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                killTree(process, spec.killGrace());
+                throw new ProcessTimeoutException("Timed out after " + spec.timeout() + ": " + String.join(" ", spec.command())
+                        + (err.size() > 0 ? "; stderr: " + err : ""));
+            }
+            // a grandchild still holding the pipes must not keep us here
+            awaitDrain(outDrain, spec.killGrace());
+            awaitDrain(errDrain, spec.killGrace());
+        } catch (InterruptedException e) {
+            killTree(process, spec.killGrace());
+            throw e;
+        } finally {
+            closeQuietly(process);
+        }
+        long done = System.nanoTime();
+        return new Result(process.exitValue(), out.toString(), err.toString(), out.dropped(), err.dropped(),
+                (spawned - t0) / 1_000_000, (done - spawned) / 1_000_000);
+    }
+
+    private static void drain(InputStream in, TailBuffer into) {
+        byte[] chunk = new byte[8192];
+        try (in) {
+            int n;
+            while ((n = in.read(chunk)) != -1) into.write(chunk, n);
+        } catch (IOException e) {
+            // stream closed under us after a kill or a drain timeout
+        }
+    }
+
+    private static void awaitDrain(Future<?> drain, Duration grace) throws InterruptedException {
+        try {
+            drain.get(grace.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            drain.cancel(true);
+        }
+    }
+
+    /** Ask the process and its descendants to stop, then force whatever is still alive after the grace period. */
+    private static void killTree(Process process, Duration grace) {
+        List<ProcessHandle> tree = process.descendants().toList(); // before the parent dies and they are re-parented
+        tree.forEach(ProcessHandle::destroy);
+        process.destroy();
+        boolean interrupted = Thread.interrupted();
+        try {
+            process.waitFor(grace.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        if (process.isAlive()) process.destroyForcibly();
+        try {
+            process.waitFor(grace.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static void closeQuietly(Process process) {
+        try {
+            process.getInputStream().close();
+            process.getErrorStream().close();
+        } catch (IOException ignored) {
+            // nothing left to read
+        }
+    }
+
+    /** Keeps the last {@code capacity} bytes written; earlier ones are only counted. */
+    static final class TailBuffer {
+        private final byte[] buf;
+        private int start;
+        private int size;
+        private long total;
+
+        TailBuffer(int capacity) {
+            this.buf = new byte[Math.max(1, capacity)];
+        }
+
+        synchronized void write(byte[] b, int len) {
+            total += len;
+            int cap = buf.length;
+            if (len >= cap) {
+                System.arraycopy(b, len - cap, buf, 0, cap);
+                start = 0;
+                size = cap;
+                return;
+            }
+            int end = (start + size) % cap;
+            int first = Math.min(len, cap - end);
+            System.arraycopy(b, 0, buf, end, first);
+            System.arraycopy(b, first, buf, 0, len - first);
+            int overflow = size + len - cap;
+            if (overflow > 0) {
+                start = (start + overflow) % cap;
+                size = cap;
+            } else {
+                size += len;
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long dropped() {
+            return total - size;
+        }
+
+        @Override
+        public synchronized String toString() {
+            byte[] out = new byte[size];
+            int first = Math.min(size, buf.length - start);
+            System.arraycopy(buf, start, out, 0, first);
+            System.arraycopy(buf, 0, out, first, size - first);
+            return new String(out, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.sti.process;
+
+import java.io.IOException;
+
+/** A supervised process ran past its timeout and was killed. */
+public class ProcessTimeoutException extends IOException {
+
+    public ProcessTimeoutException(String message) {
+        super(message);
+    }
+}
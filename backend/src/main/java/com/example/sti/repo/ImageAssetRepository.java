@@ -3,9 +3,27 @@ package com.example.sti.repo;
 import com.example.sti.entity.ImageAsset;
 import com.example.sti.entity.Inspection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ImageAssetRepository extends JpaRepository<ImageAsset, Long> {
     List<ImageAsset> findByInspectionOrderByCapturedAtDesc(Inspection inspection);
+
+    @Query("SELECT a.path FROM ImageAsset a")
+    List<String> findAllPaths();
+
+    @Query("SELECT a.path FROM ImageAsset a WHERE a.inspection.id IN :inspectionIds")
+    List<String> findPathsByInspectionIdIn(@Param("inspectionIds") Collection<Long> inspectionIds);
+
+    /** Set-based delete of the assets of purged inspections. */
+    @Modifying
+    @Query("DELETE FROM ImageAsset a WHERE a.inspection.id IN :inspectionIds")
+    int deleteByInspectionIdIn(@Param("inspectionIds") Collection<Long> inspectionIds);
+
+    @Query("SELECT a.path FROM ImageAsset a WHERE a.path IN :paths")
+    List<String> findReferencedPaths(@Param("paths") Collection<String> paths);
 }
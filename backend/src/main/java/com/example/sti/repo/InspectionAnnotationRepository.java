@@ -8,11 +8,16 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface InspectionAnnotationRepository extends JpaRepository<InspectionAnnotation, Long> {
-    
+
+    /** One row: count, sum of versions and max id of all annotations (FleetRollupService sync check). */
+    @Query("select count(a), coalesce(sum(a.version), 0), coalesce(max(a.id), 0) from InspectionAnnotation a")
+    List<Object[]> rollupFingerprint();
+
     /**
      * Find all annotations for a specific inspection, ordered by creation time
      */
@@ -42,11 +47,48 @@ public interface InspectionAnnotationRepository extends JpaRepository<Inspection
     @Query("SELECT COUNT(a) FROM InspectionAnnotation a WHERE a.inspection.id = :inspectionId AND a.annotationType = :type")
     long countByInspectionIdAndAnnotationType(@Param("inspectionId") Long inspectionId, @Param("type") String annotationType);
     
+    /**
+     * {critical, total} open anomalies of an inspection (see AnomalyCounts for the rules)
+     */
+    @Query("SELECT SUM(CASE WHEN LOCATE('_red', a.className) > 0 THEN 1 ELSE 0 END), COUNT(a) "
+            + "FROM InspectionAnnotation a WHERE a.inspection.id = :inspectionId AND LOWER(a.annotationType) <> 'deleted'")
+    List<Object[]> countOpenAnomalies(@Param("inspectionId") Long inspectionId);
+
+    /**
+     * (transformerId, critical, total) open anomalies per transformer
+     */
+    @Query("SELECT a.inspection.transformer.id, SUM(CASE WHEN LOCATE('_red', a.className) > 0 THEN 1 ELSE 0 END), COUNT(a) "
+            + "FROM InspectionAnnotation a WHERE a.inspection.transformer.id IN :transformerIds "
+            + "AND LOWER(a.annotationType) <> 'deleted' GROUP BY a.inspection.transformer.id")
+    List<Object[]> countOpenAnomaliesByTransformer(@Param("transformerIds") Collection<Long> transformerIds);
+
+    /**
+     * (inspectionId, className, count) of open annotations, for all inspections or the given ones
+     */
+    @Query("SELECT a.inspection.id, a.className, COUNT(a) FROM InspectionAnnotation a "
+            + "WHERE LOWER(a.annotationType) <> 'deleted' GROUP BY a.inspection.id, a.className")
+    List<Object[]> countOpenByInspectionAndClass();
+
+    @Query("SELECT a.inspection.id, a.className, COUNT(a) FROM InspectionAnnotation a "
+            + "WHERE a.inspection.id IN :inspectionIds AND LOWER(a.annotationType) <> 'deleted' "
+            + "GROUP BY a.inspection.id, a.className")
+    List<Object[]> countOpenByInspectionAndClass(@Param("inspectionIds") Collection<Long> inspectionIds);
+
     /**
      * Delete all annotations for a specific inspection (used when replacing all annotations)
      */
     void deleteByInspection(Inspection inspection);
     
+    /** (count, max id, sum of versions) of one inspection's annotation set; empty when the inspection is unknown. */
+    @Query("SELECT COUNT(a), MAX(a.id), COALESCE(SUM(a.version), 0) FROM Inspection i "
+            + "LEFT JOIN InspectionAnnotation a ON a.inspection.id = i.id WHERE i.id = :inspectionId GROUP BY i.id")
+    List<Object[]> findSetFingerprint(@Param("inspectionId") Long inspectionId);
+
+    /** Set-based delete of the annotations of purged inspections. */
+    @Modifying
+    @Query("DELETE FROM InspectionAnnotation a WHERE a.inspection.id IN :inspectionIds")
+    int deleteByInspectionIdIn(@Param("inspectionIds") Collection<Long> inspectionIds);
+
     /**
      * Delete all annotations for a specific inspection by ID
      */
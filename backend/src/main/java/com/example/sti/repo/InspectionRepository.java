@@ -1,14 +1,112 @@
 package com.example.sti.repo;
 
+import com.example.sti.dto.InspectionTableRow;
 import com.example.sti.entity.Inspection;
 import com.example.sti.entity.Transformer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface InspectionRepository extends JpaRepository<Inspection, Long> {
+public interface InspectionRepository extends JpaRepository<Inspection, Long>, InspectionRepositoryCustom {
     List<Inspection> findByTransformerOrderByInspectedAtDesc(Transformer transformer);
 
-    
-    
+    /** One row: count, sum of versions and max id of live inspections (FleetRollupService sync check). */
+    @Query("select count(i), coalesce(sum(i.version), 0), coalesce(max(i.id), 0) from Inspection i")
+    List<Object[]> rollupFingerprint();
+
+    /**
+     * Soft-delete a transformer's live inspections with the transformer's own timestamp, so its
+     * restore brings back exactly these and not the ones deleted earlier on their own.
+     */
+    @Modifying
+    @Query("UPDATE Inspection i SET i.deletedAt = :at, i.version = i.version + 1 "
+            + "WHERE i.transformer.id = :transformerId AND i.deletedAt IS NULL")
+    int softDeleteByTransformerId(@Param("transformerId") Long transformerId, @Param("at") Instant at);
+
+    /** Inspections with their transformer in one query (bulk operations). */
+    @Query("SELECT i FROM Inspection i JOIN FETCH i.transformer WHERE i.id IN :ids")
+    List<Inspection> findAllWithTransformerByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** Full inspection table, newest first, in one query (transformer number joined, no entities loaded). */
+    @Query("SELECT new com.example.sti.dto.InspectionTableRow(i.id, t.transformerNo, i.inspectedAt, i.maintenanceAt, i.status, i.starred) "
+            + "FROM Inspection i JOIN i.transformer t ORDER BY i.inspectedAt DESC")
+    List<InspectionTableRow> findTableRows();
+
+    /** Streaming variants (cursor with fetch size; caller holds a transaction and closes the stream). */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.sti.dto.InspectionTableRow(i.id, t.transformerNo, i.inspectedAt, i.maintenanceAt, i.status, i.starred) "
+            + "FROM Inspection i JOIN i.transformer t ORDER BY i.inspectedAt DESC")
+    Stream<InspectionTableRow> streamTableRows();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT i FROM Inspection i WHERE i.transformer.id = :transformerId ORDER BY i.inspectedAt DESC")
+    Stream<Inspection> streamByTransformerId(@Param("transformerId") Long transformerId);
+
+    /** (inspection, transformer, summary or null) for the inspection view, in one query. */
+    @Query("SELECT i, t, s FROM Inspection i JOIN i.transformer t "
+            + "LEFT JOIN TransformerSummary s ON s.transformerId = t.id WHERE i.id = :id")
+    List<Object[]> findViewHeader(@Param("id") Long id);
+
+    @Query("SELECT MAX(i.inspectedAt) FROM Inspection i WHERE i.transformer.id = :transformerId")
+    Instant findLastInspectedAt(@Param("transformerId") Long transformerId);
+
+    /** (transformerId, inspection count, max inspectedAt) for the given transformers. */
+    @Query("SELECT i.transformer.id, COUNT(i), MAX(i.inspectedAt) FROM Inspection i "
+            + "WHERE i.transformer.id IN :transformerIds GROUP BY i.transformer.id")
+    List<Object[]> summarizeByTransformer(@Param("transformerIds") Collection<Long> transformerIds);
+
+    /** (id, transformerId, region, inspectedAt, status) rollup facts: every inspection, the given ones, one transformer's. */
+    @Query("SELECT i.id, t.id, t.region, i.inspectedAt, i.status FROM Inspection i JOIN i.transformer t")
+    List<Object[]> findRollupFacts();
+
+    @Query("SELECT i.id, t.id, t.region, i.inspectedAt, i.status FROM Inspection i JOIN i.transformer t WHERE i.id IN :ids")
+    List<Object[]> findRollupFactsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT i.id, t.id, t.region, i.inspectedAt, i.status FROM Inspection i JOIN i.transformer t WHERE t.id = :transformerId")
+    List<Object[]> findRollupFactsByTransformer(@Param("transformerId") Long transformerId);
+
+    // -------- tombstones: native, because @SQLRestriction hides soft-deleted rows from JPQL --------
+
+    @Query(value = "SELECT * FROM inspections WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    Optional<Inspection> findDeletedById(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE inspections SET deleted_at = NULL, version = version + 1 "
+            + "WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    int restoreById(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE inspections SET deleted_at = NULL, version = version + 1 "
+            + "WHERE transformer_id = :transformerId AND deleted_at = :at", nativeQuery = true)
+    int restoreByTransformerId(@Param("transformerId") Long transformerId, @Param("at") Instant at);
+
+    /** Oldest tombstones past the cutoff. */
+    @Query(value = "SELECT id FROM inspections WHERE deleted_at < :cutoff ORDER BY deleted_at LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findPurgeableIds(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Query(value = "SELECT thermal_image_path FROM inspections WHERE id IN :ids AND thermal_image_path IS NOT NULL",
+            nativeQuery = true)
+    List<String> findThermalPathsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM inspections WHERE id IN :ids", nativeQuery = true)
+    int purgeByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** (id, thermalImagePath) for every inspection, tombstones included; used by the media orphan sweep. */
+    @Query(value = "SELECT id, thermal_image_path FROM inspections", nativeQuery = true)
+    List<Object[]> findAllThermalRefs();
+
+    @Query(value = "SELECT thermal_image_path FROM inspections WHERE thermal_image_path IN :paths", nativeQuery = true)
+    List<String> findReferencedThermalPaths(@Param("paths") Collection<String> paths);
 }
@@ -0,0 +1,23 @@
+package com.example.sti.repo;
+
+import com.example.sti.dto.InspectionTableQuery;
+import com.example.sti.dto.InspectionTableRow;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/** Dynamic queries for the paged inspection table (implemented in InspectionRepositoryImpl). */
+public interface InspectionRepositoryCustom {
+
+    /** Up to {@code query.limit} table rows (single projection query) after the keyset position. */
+    List<InspectionTableRow> findTablePage(InspectionTableQuery query);
+
+    /** Sort-key values of a row, in the same order {@link #findTablePage} expects for {@code after}. */
+    List<Object> keysetOf(InspectionTableRow row, InspectionTableQuery query);
+
+    /** Exact number of rows matching the filters (ignores the keyset position). */
+    long countTable(InspectionTableQuery query);
+
+    /** Planner statistics row count for the whole table, if the database keeps one. */
+    OptionalLong estimateTotal();
+}
@@ -0,0 +1,153 @@
+package com.example.sti.repo;
+
+import com.example.sti.dto.InspectionTableQuery;
+import com.example.sti.dto.InspectionTableQuery.SortField;
+import com.example.sti.dto.InspectionTableRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Keyset pagination for the inspection table. The ORDER BY is a list of sort keys ending in i.id,
+ * and "after" is the tuple of the last row's key values, so each page is
+ *   WHERE filters AND (k1 > v1 OR (k1 = v1 AND k2 > v2) OR ...) ORDER BY k1, k2, ... LIMIT n
+ * (with < for descending keys). Cost is bounded by the page size however deep the client pages.
+ */
+class InspectionRepositoryImpl implements InspectionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** One ORDER BY key: JPQL expression and direction. */
+    private record SortKey(String expr, boolean descending) {}
+
+    @Override
+    public List<InspectionTableRow> findTablePage(InspectionTableQuery q) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT new com.example.sti.dto.InspectionTableRow(")
+                .append("i.id, t.transformerNo, i.inspectedAt, i.maintenanceAt, i.status, i.starred)")
+                .append(" FROM Inspection i JOIN i.transformer t WHERE 1 = 1");
+        appendFilters(q, jpql, params);
+
+        List<SortKey> keys = sortKeys(q);
+        if (q.after != null) {
+            if (q.after.size() != keys.size()) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            jpql.append(" AND (");
+            for (int j = 0; j < keys.size(); j++) {
+                if (j > 0) jpql.append(" OR ");
+                jpql.append('(');
+                for (int k = 0; k < j; k++) {
+                    jpql.append(keys.get(k).expr()).append(" = :k").append(k).append(" AND ");
+                }
+                SortKey key = keys.get(j);
+                jpql.append(key.expr()).append(key.descending() ? " < :k" : " > :k").append(j).append(')');
+            }
+            jpql.append(')');
+            for (int k = 0; k < keys.size(); k++) params.put("k" + k, q.after.get(k));
+        }
+
+        jpql.append(" ORDER BY ");
+        for (int k = 0; k < keys.size(); k++) {
+            if (k > 0) jpql.append(", ");
+            jpql.append(keys.get(k).expr()).append(keys.get(k).descending() ? " DESC" : " ASC");
+        }
+
+        TypedQuery<InspectionTableRow> query = em.createQuery(jpql.toString(), InspectionTableRow.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(q.limit);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Object> keysetOf(InspectionTableRow r, InspectionTableQuery q) {
+        List<Object> values = new ArrayList<>(3);
+        if (q.starredFirst) values.add(r.starred ? 1 : 0);
+        if (q.sort == SortField.INSPECTED_AT) values.add(r.inspectedAt);
+        if (q.sort == SortField.TRANSFORMER_NO) values.add(r.transformerNo != null ? r.transformerNo : "");
+        values.add(r.id);
+        return values;
+    }
+
+    @Override
+    public long countTable(InspectionTableQuery q) {
+        Map<String, Object> params = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(i) FROM Inspection i JOIN i.transformer t WHERE 1 = 1");
+        appendFilters(q, jpql, params);
+        TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    @Override
+    public OptionalLong estimateTotal() {
+        var dialect = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (!(dialect instanceof PostgreSQLDialect)) return OptionalLong.empty();
+        Object v = em.createNativeQuery("SELECT reltuples FROM pg_class WHERE relname = 'inspections'")
+                .getResultList().stream().findFirst().orElse(null);
+        // -1 (or 0 on old servers) means the table was never analyzed
+        if (!(v instanceof Number n) || n.doubleValue() <= 0) return OptionalLong.empty();
+        return OptionalLong.of(Math.round(n.doubleValue()));
+    }
+
+    // -------- helpers --------
+
+    private static List<SortKey> sortKeys(InspectionTableQuery q) {
+        List<SortKey> keys = new ArrayList<>(3);
+        if (q.starredFirst) keys.add(new SortKey("CASE WHEN i.starred = true THEN 1 ELSE 0 END", true));
+        switch (q.sort) {
+            case INSPECTED_AT -> keys.add(new SortKey("i.inspectedAt", q.descending));
+            case TRANSFORMER_NO -> keys.add(new SortKey("COALESCE(t.transformerNo, '')", q.descending));
+            case ID -> { /* id below */ }
+        }
+        keys.add(new SortKey("i.id", q.descending));
+        return keys;
+    }
+
+    private static void appendFilters(InspectionTableQuery q, StringBuilder jpql, Map<String, Object> params) {
+        if (q.statuses != null && !q.statuses.isEmpty()) {
+            jpql.append(" AND i.status IN :statuses");
+            params.put("statuses", q.statuses);
+        }
+        if (q.transformerNo != null) {
+            jpql.append(" AND t.transformerNo = :transformerNo");
+            params.put("transformerNo", q.transformerNo);
+        }
+        if (q.region != null) {
+            jpql.append(" AND LOWER(t.region) = :region");
+            params.put("region", q.region.toLowerCase(Locale.ROOT));
+        }
+        if (q.starred != null) {
+            jpql.append(" AND i.starred = :starred");
+            params.put("starred", q.starred);
+        }
+        if (q.from != null) {
+            jpql.append(" AND i.inspectedAt >= :from");
+            params.put("from", q.from);
+        }
+        if (q.to != null) {
+            jpql.append(" AND i.inspectedAt < :to");
+            params.put("to", q.to);
+        }
+        if (q.search != null) {
+            jpql.append(" AND (LOWER(t.transformerNo) LIKE :search ESCAPE '\\' OR CAST(i.id AS String) LIKE :searchId ESCAPE '\\')");
+            params.put("search", "%" + escapeLike(q.search.toLowerCase(Locale.ROOT)) + "%");
+            // the table shows zero-padded ids, so "000000012" should find id 12
+            params.put("searchId", "%" + escapeLike(q.search.replaceFirst("^0+(?=\\d)", "")) + "%");
+        }
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
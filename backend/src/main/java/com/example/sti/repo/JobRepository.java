@@ -0,0 +1,91 @@
+package com.example.sti.repo;
+
+import com.example.sti.entity.Job;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface JobRepository extends JpaRepository<Job, Long> {
+
+    Optional<Job> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Lock up to {@code limit} due jobs for the caller's transaction. Rows another node has locked
+     * are skipped rather than waited for, so concurrent claimers never block or claim the same job.
+     */
+    @Query(value = "SELECT id FROM jobs WHERE status = 'QUEUED' AND run_after <= :now AND type IN (:types) "
+            + "ORDER BY priority DESC, run_after, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockDueIds(@Param("types") Collection<String> types, @Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Job j SET j.status = com.example.sti.entity.JobStatus.RUNNING, j.lockedBy = :node, "
+            + "j.leaseUntil = :leaseUntil, j.heartbeatAt = :now, j.startedAt = :now, j.attempts = j.attempts + 1 "
+            + "WHERE j.id IN :ids")
+    int markRunning(@Param("ids") Collection<Long> ids, @Param("node") String node,
+                    @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil);
+
+    /** Extend the leases this node still holds; returns how many it still holds. */
+    @Modifying
+    @Query("UPDATE Job j SET j.leaseUntil = :leaseUntil, j.heartbeatAt = :now "
+            + "WHERE j.id IN :ids AND j.lockedBy = :node AND j.status = com.example.sti.entity.JobStatus.RUNNING")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("node") String node,
+                    @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil);
+
+    /** Settle a job this node still holds; 0 means its lease was lost and another node owns it now. */
+    @Modifying
+    @Query("UPDATE Job j SET j.status = com.example.sti.entity.JobStatus.SUCCEEDED, j.result = :result, "
+            + "j.finishedAt = :now, j.lockedBy = NULL, j.leaseUntil = NULL "
+            + "WHERE j.id = :id AND j.lockedBy = :node AND j.status = com.example.sti.entity.JobStatus.RUNNING")
+    int markSucceeded(@Param("id") Long id, @Param("node") String node,
+                      @Param("result") Map<String, Object> result, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE Job j SET j.status = com.example.sti.entity.JobStatus.QUEUED, j.runAfter = :runAfter, "
+            + "j.lastError = :error, j.lockedBy = NULL, j.leaseUntil = NULL "
+            + "WHERE j.id = :id AND j.lockedBy = :node AND j.status = com.example.sti.entity.JobStatus.RUNNING")
+    int markForRetry(@Param("id") Long id, @Param("node") String node,
+                     @Param("runAfter") Instant runAfter, @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE Job j SET j.status = com.example.sti.entity.JobStatus.FAILED, j.lastError = :error, "
+            + "j.finishedAt = :now, j.lockedBy = NULL, j.leaseUntil = NULL "
+            + "WHERE j.id = :id AND j.lockedBy = :node AND j.status = com.example.sti.entity.JobStatus.RUNNING")
+    int markFailed(@Param("id") Long id, @Param("node") String node,
+                   @Param("error") String error, @Param("now") Instant now);
+
+    /** Hand back jobs this node claimed but will not run (shutdown); the attempt is not counted. */
+    @Modifying
+    @Query("UPDATE Job j SET j.status = com.example.sti.entity.JobStatus.QUEUED, j.attempts = j.attempts - 1, "
+            + "j.lockedBy = NULL, j.leaseUntil = NULL "
+            + "WHERE j.id IN :ids AND j.lockedBy = :node AND j.status = com.example.sti.entity.JobStatus.RUNNING")
+    int release(@Param("ids") Collection<Long> ids, @Param("node") String node);
+
+    /** Jobs whose node stopped heartbeating go back to the queue, or fail once out of attempts. */
+    @Modifying
+    @Query("UPDATE Job j SET j.status = com.example.sti.entity.JobStatus.QUEUED, j.runAfter = :now, "
+            + "j.lastError = CONCAT('lease expired on ', j.lockedBy), j.lockedBy = NULL, j.leaseUntil = NULL "
+            + "WHERE j.status = com.example.sti.entity.JobStatus.RUNNING AND j.leaseUntil < :now AND j.attempts < j.maxAttempts")
+    int requeueExpired(@Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE Job j SET j.status = com.example.sti.entity.JobStatus.FAILED, j.finishedAt = :now, "
+            + "j.lastError = CONCAT('lease expired on ', j.lockedBy), j.lockedBy = NULL, j.leaseUntil = NULL "
+            + "WHERE j.status = com.example.sti.entity.JobStatus.RUNNING AND j.leaseUntil < :now AND j.attempts >= j.maxAttempts")
+    int failExpired(@Param("now") Instant now);
+
+    @Modifying
+    @Query(value = "DELETE FROM jobs WHERE id IN (SELECT id FROM jobs WHERE finished_at < :cutoff LIMIT :limit)",
+            nativeQuery = true)
+    int deleteFinishedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    /** [type, status, count] rows. */
+    @Query("SELECT j.type, j.status, COUNT(j) FROM Job j GROUP BY j.type, j.status")
+    List<Object[]> countByTypeAndStatus();
+}
@@ -0,0 +1,20 @@
+package com.example.sti.repo;
+
+import com.example.sti.entity.MediaGarbage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface MediaGarbageRepository extends JpaRepository<MediaGarbage, Long> {
+
+    /** Oldest due rows first. */
+    @Query("SELECT g FROM MediaGarbage g WHERE g.notBefore <= :now ORDER BY g.notBefore, g.id")
+    List<MediaGarbage> findDue(@Param("now") Instant now, Pageable page);
+
+    @Query("SELECT g.blobKey FROM MediaGarbage g")
+    List<String> findAllKeys();
+}
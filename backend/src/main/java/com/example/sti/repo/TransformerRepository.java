@@ -2,9 +2,92 @@ package com.example.sti.repo;
 
 import com.example.sti.entity.Transformer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TransformerRepository extends JpaRepository<Transformer, Long> {
     Optional<Transformer> findByTransformerNo(String transformerNo);
+
+    List<Transformer> findByTransformerNoIn(Collection<String> transformerNos);
+
+    /** One row: count, sum of versions and max id of live transformers (TransformerSearchIndex and FleetRollupService sync checks). */
+    @Query("select count(t), coalesce(sum(t.version), 0), coalesce(max(t.id), 0) from Transformer t")
+    List<Object[]> searchIndexFingerprint();
+
+    /** (transformerNo, id) of the given numbers that exist; one IN query per bulk import chunk. */
+    @Query("SELECT t.transformerNo, t.id FROM Transformer t WHERE t.transformerNo IN :nos")
+    List<Object[]> findIdsByTransformerNoIn(@Param("nos") Collection<String> transformerNos);
+
+    /** Numbers already taken, soft-deleted transformers included (the unique constraint still covers them). */
+    @Query(value = "SELECT transformer_no FROM transformers WHERE transformer_no IN :nos", nativeQuery = true)
+    List<String> findTakenTransformerNos(@Param("nos") Collection<String> transformerNos);
+
+    /** All transformers as a cursor (caller holds a transaction and closes the stream). */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT t FROM Transformer t ORDER BY t.id")
+    Stream<Transformer> streamAll();
+
+    /**
+     * (count, max id, sum of versions) over all transformers. Any insert raises the max id, any
+     * delete without an insert lowers the count, any update bumps a version: one row that changes
+     * whenever the list does.
+     */
+    @Query("SELECT COUNT(t), MAX(t.id), COALESCE(SUM(t.version), 0) FROM Transformer t")
+    List<Object[]> findListFingerprint();
+
+    /**
+     * (version, inspection count, max inspection id, sum of inspection versions, summary updatedAt)
+     * of one transformer: everything the transformer data page is built from. Empty when unknown.
+     */
+    @Query("SELECT t.version, COUNT(i), MAX(i.id), COALESCE(SUM(i.version), 0), s.updatedAt FROM Transformer t "
+            + "LEFT JOIN Inspection i ON i.transformer.id = t.id "
+            + "LEFT JOIN TransformerSummary s ON s.transformerId = t.id "
+            + "WHERE t.id = :id GROUP BY t.version, s.updatedAt")
+    List<Object[]> findDataFingerprint(@Param("id") Long id);
+
+    /** Soft delete without loading (or merging) the entity and its inspections collection. */
+    @Modifying
+    @Query("UPDATE Transformer t SET t.deletedAt = :at, t.version = t.version + 1 WHERE t.id = :id")
+    int softDeleteById(@Param("id") Long id, @Param("at") Instant at);
+
+    // -------- tombstones: native, because @SQLRestriction hides soft-deleted rows from JPQL --------
+
+    @Query(value = "SELECT * FROM transformers WHERE transformer_no = :no AND deleted_at IS NOT NULL", nativeQuery = true)
+    Optional<Transformer> findDeletedByTransformerNo(@Param("no") String transformerNo);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE transformers SET deleted_at = NULL, version = version + 1 "
+            + "WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    int restoreById(@Param("id") Long id);
+
+    /** Oldest tombstones past the cutoff whose inspections are all purged already. */
+    @Query(value = "SELECT t.id FROM transformers t WHERE t.deleted_at < :cutoff "
+            + "AND NOT EXISTS (SELECT 1 FROM inspections i WHERE i.transformer_id = t.id) "
+            + "ORDER BY t.deleted_at LIMIT :limit", nativeQuery = true)
+    List<Long> findPurgeableIds(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Query(value = "SELECT baseline_image_path FROM transformers WHERE id IN :ids AND baseline_image_path IS NOT NULL",
+            nativeQuery = true)
+    List<String> findBaselinePathsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM transformers WHERE id IN :ids", nativeQuery = true)
+    int purgeByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** (transformerNo, baselineImagePath) for every transformer, tombstones included; used by the media orphan sweep. */
+    @Query(value = "SELECT transformer_no, baseline_image_path FROM transformers", nativeQuery = true)
+    List<Object[]> findAllBaselineRefs();
+
+    @Query(value = "SELECT baseline_image_path FROM transformers WHERE baseline_image_path IN :paths", nativeQuery = true)
+    List<String> findReferencedBaselinePaths(@Param("paths") Collection<String> paths);
 }
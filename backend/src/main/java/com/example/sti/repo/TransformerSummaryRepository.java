@@ -0,0 +1,74 @@
+package com.example.sti.repo;
+
+import com.example.sti.dto.TransformerOverviewRow;
+import com.example.sti.entity.TransformerSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface TransformerSummaryRepository extends JpaRepository<TransformerSummary, Long> {
+
+    // Delta updates are single atomic statements, so concurrent writers never lose increments.
+    // Each returns the number of rows touched (0 = no summary row yet).
+
+    @Modifying
+    @Query("UPDATE TransformerSummary s SET s.inspectionCount = s.inspectionCount + :delta, s.updatedAt = :now "
+            + "WHERE s.transformerId = :id")
+    int addInspections(@Param("id") Long transformerId, @Param("delta") int delta, @Param("now") Instant now);
+
+    /** Moves lastInspectedAt forward only. */
+    @Modifying
+    @Query("UPDATE TransformerSummary s SET s.lastInspectedAt = :at, s.updatedAt = :now "
+            + "WHERE s.transformerId = :id AND (s.lastInspectedAt IS NULL OR s.lastInspectedAt < :at)")
+    int advanceLastInspected(@Param("id") Long transformerId, @Param("at") Instant at, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE TransformerSummary s SET s.lastInspectedAt = :at, s.updatedAt = :now WHERE s.transformerId = :id")
+    int setLastInspected(@Param("id") Long transformerId, @Param("at") Instant at, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE TransformerSummary s SET s.criticalAnomalies = s.criticalAnomalies + :critical, "
+            + "s.potentialAnomalies = s.potentialAnomalies + :potential, s.updatedAt = :now WHERE s.transformerId = :id")
+    int addAnomalies(@Param("id") Long transformerId, @Param("critical") int critical,
+                     @Param("potential") int potential, @Param("now") Instant now);
+
+    // Set-based maintenance for bulk imports: one statement per chunk instead of one per row.
+
+    /** Empty summary rows for the given transformers that have none yet. */
+    @Modifying
+    @Query("INSERT INTO TransformerSummary (transformerId, inspectionCount, criticalAnomalies, potentialAnomalies, updatedAt) "
+            + "SELECT t.id, 0, 0, 0, :now FROM Transformer t WHERE t.id IN :ids "
+            + "AND NOT EXISTS (SELECT 1 FROM TransformerSummary s WHERE s.transformerId = t.id)")
+    int insertMissing(@Param("ids") Collection<Long> transformerIds, @Param("now") Instant now);
+
+    /** Inspection count and lastInspectedAt recounted from the inspections table. */
+    @Modifying
+    @Query("UPDATE TransformerSummary s SET "
+            + "s.inspectionCount = (SELECT COUNT(i) FROM Inspection i WHERE i.transformer.id = s.transformerId), "
+            + "s.lastInspectedAt = (SELECT MAX(i.inspectedAt) FROM Inspection i WHERE i.transformer.id = s.transformerId), "
+            + "s.updatedAt = :now WHERE s.transformerId IN :ids")
+    int recountInspections(@Param("ids") Collection<Long> transformerIds, @Param("now") Instant now);
+
+    @Query("SELECT t.id FROM Transformer t WHERE NOT EXISTS (SELECT 1 FROM TransformerSummary s WHERE s.transformerId = t.id)")
+    List<Long> findTransformerIdsWithoutSummary();
+
+    // -------- overview listing: one query, keyset on (transformerNo, id) --------
+
+    String OVERVIEW_SELECT = "SELECT new com.example.sti.dto.TransformerOverviewRow(t.id, t.transformerNo, t.poleNo, "
+            + "t.region, t.type, t.capacity, t.starred, s.lastInspectedAt, s.inspectionCount, s.criticalAnomalies, "
+            + "s.potentialAnomalies) FROM Transformer t LEFT JOIN TransformerSummary s ON s.transformerId = t.id ";
+    String OVERVIEW_ORDER = " ORDER BY COALESCE(t.transformerNo, ''), t.id";
+
+    @Query(OVERVIEW_SELECT + OVERVIEW_ORDER)
+    List<TransformerOverviewRow> findOverview(Pageable limit);
+
+    @Query(OVERVIEW_SELECT + "WHERE COALESCE(t.transformerNo, '') > :no "
+            + "OR (COALESCE(t.transformerNo, '') = :no AND t.id > :id)" + OVERVIEW_ORDER)
+    List<TransformerOverviewRow> findOverviewAfter(@Param("no") String afterNo, @Param("id") Long afterId, Pageable limit);
+}
@@ -0,0 +1,216 @@
+package com.example.sti.service;
+
+import com.example.sti.inference.InferenceGateway;
+import com.example.sti.inference.InferenceRejectedException;
+import com.example.sti.process.ProcessSupervisor;
+import com.example.sti.process.ProcessTimeoutException;
+import com.example.sti.storage.BlobStore;
+import com.example.sti.storage.MediaKeys;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs the Python anomaly model on one image and returns its detections. Used directly by the
+ * upload-and-analyze endpoint and by analysis jobs, which read the stored thermal image. The model
+ * runs under the {@link ProcessSupervisor}: bounded output, a wall-clock timeout, and a killed
+ * process tree when the caller is cancelled. Every run is admitted by the {@link InferenceGateway}.
+ */
+@Service
+public class AnomalyDetectionService {
+
+    /** Detections plus how long spawning the model, running it and parsing its output took. */
+    public record ModelRun(List<Map<String, Object>> detections, long spawnMillis, long runMillis, long parseMillis) {
+        public Map<String, Object> timing() {
+            return Map.of("spawnMs", spawnMillis, "runMs", runMillis, "parseMs", parseMillis);
+        }
+    }
+
+    private final BlobStore blobStore;
+    private final ProcessSupervisor supervisor;
+    private final InferenceGateway gateway;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${model.python:python}")
+    private String python;
+
+    @Value("${model.script:Transformer anomaly/model_api.py}")
+    private String script;
+
+    @Value("${model.timeout:PT2M}")
+    private Duration timeout;
+
+    @Value("${model.kill-grace:PT2S}")
+    private Duration killGrace;
+
+    @Value("${model.max-output:1MB}")
+    private DataSize maxOutput;
+
+    public AnomalyDetectionService(BlobStore blobStore, ProcessSupervisor supervisor, InferenceGateway gateway) {
+        this.blobStore = blobStore;
+        this.supervisor = supervisor;
+        this.gateway = gateway;
+    }
+
+    /**
+     * Copy an upload to a temp file. Done on the request thread: once the request goes async its
+     * multipart parts may already be cleaned up.
+     */
+    public Path stageUpload(MultipartFile imageFile) throws IOException {
+        String name = Paths.get(String.valueOf(imageFile.getOriginalFilename())).getFileName().toString();
+        Path tempFile = Files.createTempFile("upload_", "_" + name);
+        imageFile.transferTo(tempFile);
+        System.out.println("Staged upload " + imageFile.getOriginalFilename() + " (" + imageFile.getSize() + " bytes) at " + tempFile);
+        return tempFile;
+    }
+
+    /**
+     * Analyze a staged upload admitted by the gateway, then delete it. A model that fails yields no
+     * detections rather than an error (the gateway still counts the failure); a timeout, a
+     * rejection and cancellation (the model process is killed) throw.
+     */
+    public ModelRun analyzeStaged(Path tempFile, InferenceGateway.Ticket ticket) throws ProcessTimeoutException {
+        try {
+            ModelRun run = gateway.run(ticket, () -> runModel(tempFile.toString()));
+            System.out.println("Analysis completed with " + run.detections().size() + " detections");
+            return run;
+        } catch (ProcessTimeoutException | CancellationException | InferenceRejectedException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Inference cancelled while waiting for a slot");
+        } catch (Exception e) {
+            System.err.println("Error processing image with Python model: " + e.getMessage());
+            // Return empty list if model fails
+            return new ModelRun(new ArrayList<>(), 0, 0, 0);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                System.out.println("Warning: Could not delete temporary file: " + tempFile);
+            }
+        }
+    }
+
+    /**
+     * Analyze a stored image (a DB path such as an inspection's thermal image path). Unlike the
+     * upload variant a model failure throws, and so does a gateway rejection, so a job can retry it.
+     */
+    public ModelRun analyzeStored(String dbPath) throws Exception {
+        String name = Paths.get(dbPath).getFileName().toString();
+        Path tempFile = Files.createTempFile("analysis_", "_" + name);
+        try {
+            try (InputStream in = openMedia(dbPath)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return gateway.run(gateway.admit(null), () -> runModel(tempFile.toString()));
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private InputStream openMedia(String dbPath) throws IOException {
+        // "media/inspections/NO/ID.png", "inspections/NO/ID.png" or an old absolute path
+        if (MediaKeys.isLegacyAbsolute(dbPath) && !dbPath.startsWith("/media/")) {
+            return Files.newInputStream(Paths.get(dbPath));
+        }
+        return blobStore.get(MediaKeys.fromDbPath(dbPath));
+    }
+
+    /** Run the model on an image file; throws when the model fails or returns nothing usable. */
+    public List<Map<String, Object>> analyze(String imagePath) throws Exception {
+        return gateway.run(gateway.admit(null), () -> runModel(imagePath)).detections();
+    }
+
+    /**
+     * Run the model under the supervisor. Throws ProcessTimeoutException when it runs too long and
+     * CancellationException (interrupt flag kept) when the calling thread is interrupted.
+     */
+    public ModelRun runModel(String imagePath) throws Exception {
+        Path projectRoot = Paths.get(System.getProperty("user.dir")).toAbsolutePath();
+        Path pythonScript = projectRoot.resolve(script);
+        if (!Files.exists(pythonScript)) {
+            System.err.println("Python script not found at: " + pythonScript);
+            throw new IllegalStateException("Python script not found");
+        }
+
+        Path image = Paths.get(imagePath);
+        if (!Files.exists(image)) {
+            // Try relative path from backend directory
+            Path relative = projectRoot.resolve(imagePath);
+            if (!Files.exists(relative)) {
+                System.err.println("Image not found at " + imagePath + " or " + relative);
+                throw new IllegalStateException("Image file not found");
+            }
+            image = relative;
+        }
+
+        ProcessSupervisor.Result result;
+        try {
+            result = supervisor.run(new ProcessSupervisor.Spec(
+                    List.of(python, pythonScript.toString(), image.toString()), projectRoot.toFile(),
+                    timeout, (int) Math.min(Integer.MAX_VALUE, maxOutput.toBytes()), killGrace));
+        } catch (ProcessTimeoutException e) {
+            System.err.println("Python model killed: " + e.getMessage());
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Python model cancelled for " + image.getFileName());
+            throw new CancellationException("Model run cancelled");
+        }
+
+        if (result.exitCode() != 0) {
+            System.err.println("Python script failed with exit code: " + result.exitCode());
+            System.err.println("Error output: " + result.stderr());
+            throw new IllegalStateException("Python script execution failed (exit " + result.exitCode() + ")");
+        }
+        if (result.stdoutDropped() > 0) {
+            System.err.println("Python model output truncated: kept the last " + maxOutput + ", dropped " + result.stdoutDropped() + " bytes");
+        }
+
+        long parseStarted = System.nanoTime();
+        // Find the JSON array in the output (starts with '[' and ends with ']'), skipping debug messages
+        String jsonResponse = extractJsonFromOutput(result.stdout().trim());
+        // "[]" is a clean image, not a failure (and must not trip the inference breaker)
+        if (jsonResponse == null || jsonResponse.isEmpty()) {
+            System.out.println("No valid JSON found in Python output");
+            throw new IllegalStateException("Python model returned no valid detections");
+        }
+        List<Map<String, Object>> detections = mapper.readValue(jsonResponse,
+                new TypeReference<List<Map<String, Object>>>() {});
+        ModelRun run = new ModelRun(detections, result.spawnMillis(), result.runMillis(),
+                (System.nanoTime() - parseStarted) / 1_000_000);
+
+        System.out.println("Python model on " + image.getFileName() + ": " + detections.size() + " detections, spawn "
+                + run.spawnMillis() + " ms, run " + run.runMillis() + " ms, parse " + run.parseMillis() + " ms");
+        return run;
+    }
+
+    private String extractJsonFromOutput(String output) {
+        // Find the first '[' and last ']' to extract the JSON array
+        int jsonStart = output.indexOf('[');
+        int jsonEnd = output.lastIndexOf(']');
+
+        if (jsonStart != -1 && jsonEnd != -1 && jsonEnd > jsonStart) {
+            String jsonPart = output.substring(jsonStart, jsonEnd + 1);
+            System.out.println("Extracted JSON: " + jsonPart);
+            return jsonPart;
+        }
+
+        System.err.println("Could not find valid JSON array in output");
+        return null;
+    }
+}
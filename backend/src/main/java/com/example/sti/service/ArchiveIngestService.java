@@ -0,0 +1,440 @@
+package com.example.sti.service;
+
+import com.example.sti.config.VirtualThreads;
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.Transformer;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Bulk ingest of a ZIP of baseline and thermal images.
+ *
+ * Entries are read straight off the request stream (nothing is extracted to a temp dir) and mapped
+ * either by a manifest (first entry named manifest.csv / manifest.json) or by path convention:
+ *   baseline/{transformerNo}.{ext}            -> baseline
+ *   {transformerNo}/baseline.{ext}            -> baseline
+ *   [inspections/]{transformerNo}/{id}.{ext}  -> thermal image of inspection {id}
+ * Entries are buffered in batches (bounded by count and bytes), validated with one read-only query
+ * per kind, written in parallel on a bounded pool, and the DB rows of a batch are updated in one
+ * transaction. Several entries for the same image: the last one in the archive wins. A file whose
+ * DB update does not happen (its inspection or transformer was deleted meanwhile, or the batch
+ * transaction failed) is put back to what it was before the ingest.
+ */
+@Service
+public class ArchiveIngestService {
+
+    enum Kind { THERMAL, BASELINE }
+
+    record Target(Kind kind, String transformerNo, String inspectionId) {}
+
+    private static final class Entry {
+        final Map<String, Object> row;
+        final Target target;
+        final String ext;
+        final byte[] data;
+        final String key;
+        volatile byte[] previous; // blob at key before this ingest overwrote it, null if there was none
+        volatile String relativePath;
+
+        Entry(Map<String, Object> row, Target target, String ext, byte[] data) {
+            this.row = row;
+            this.target = target;
+            this.ext = ext;
+            this.data = data;
+            this.key = target.kind() == Kind.THERMAL
+                    ? ThermalImageService.thermalKey(target.transformerNo(), target.inspectionId(), ext)
+                    : BaselineService.baselineKey(target.transformerNo(), ext);
+        }
+    }
+
+    private final InspectionRepository inspections;
+    private final TransformerRepository transformers;
+    private final ThermalImageService thermalImages;
+    private final BaselineService baseline;
+    private final BlobStore blobStore;
+    private final MediaIndexService mediaIndex;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readTx;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExecutorService writers;
+    private final Semaphore writeSlots;
+
+    @Value("${ingest.archive.batch-size:200}")
+    private int batchSize;
+
+    @Value("${ingest.archive.max-buffered:128MB}")
+    private DataSize maxBuffered;
+
+    @Value("${ingest.archive.max-entry-size:50MB}")
+    private DataSize maxEntrySize;
+
+    @Value("${ingest.archive.max-entries:20000}")
+    private int maxEntries;
+
+    public ArchiveIngestService(InspectionRepository inspections,
+                                TransformerRepository transformers,
+                                ThermalImageService thermalImages,
+                                BaselineService baseline,
+                                BlobStore blobStore,
+                                MediaIndexService mediaIndex,
+                                PlatformTransactionManager txManager,
+                                @Value("${ingest.archive.parallelism:4}") int parallelism,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.inspections = inspections;
+        this.transformers = transformers;
+        this.thermalImages = thermalImages;
+        this.baseline = baseline;
+        this.blobStore = blobStore;
+        this.mediaIndex = mediaIndex;
+        this.tx = new TransactionTemplate(txManager);
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true); // validation only reads, so it can go to a replica
+        // the permits bound concurrent writes across all archives, whatever the executor
+        this.writeSlots = new Semaphore(Math.max(1, parallelism));
+        this.writers = VirtualThreads.executor("archive-ingest", Math.max(1, parallelism), virtualThreads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writers.shutdown();
+    }
+
+    public Map<String, Object> ingest(InputStream body, String uploaderName, String weatherCondition) throws IOException {
+        List<Map<String, Object>> items = new ArrayList<>();
+        Map<String, Target> manifest = null;
+        List<Entry> batch = new ArrayList<>();
+        long batchBytes = 0;
+        int seen = 0;
+        boolean truncated = false;
+
+        try (ZipInputStream zin = new ZipInputStream(new BufferedInputStream(body))) {
+            ZipEntry ze;
+            while ((ze = zin.getNextEntry()) != null) {
+                String name = ze.getName().replace('\\', '/');
+                if (ze.isDirectory() || isIgnorable(name)) continue;
+
+                if (manifest == null && items.isEmpty() && isManifest(name)) {
+                    manifest = parseManifest(name, zin.readNBytes((int) maxEntrySize.toBytes()));
+                    continue;
+                }
+                if (++seen > maxEntries) {
+                    truncated = true;
+                    break;
+                }
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("entry", name);
+                items.add(row);
+
+                Target target = manifest != null ? manifest.get(name) : fromConvention(name);
+                if (target == null) {
+                    skip(row, manifest != null ? "not-in-manifest" : "unrecognized-path");
+                    continue;
+                }
+                row.put("kind", target.kind().name().toLowerCase(Locale.ROOT));
+                row.put("transformerNo", target.transformerNo());
+                if (target.inspectionId() != null) row.put("inspectionId", target.inspectionId());
+
+                String ext = extensionOf(name);
+                if (ext.isEmpty() || (target.kind() == Kind.THERMAL && !ThermalImageService.isAllowedExtension(ext))) {
+                    skip(row, "unsupported-file-type");
+                    continue;
+                }
+
+                byte[] data = zin.readNBytes((int) maxEntrySize.toBytes() + 1);
+                if (data.length > maxEntrySize.toBytes()) {
+                    skip(row, "too-large");
+                    continue;
+                }
+
+                batch.add(new Entry(row, target, ext, data));
+                batchBytes += data.length;
+                if (batch.size() >= batchSize || batchBytes >= maxBuffered.toBytes()) {
+                    flush(batch, uploaderName, weatherCondition);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+        }
+        flush(batch, uploaderName, weatherCondition);
+
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map<String, Object> row : items) {
+            counts.merge(String.valueOf(row.get("status")), 1, Integer::sum);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ok", true);
+        out.put("entries", items.size());
+        out.put("stored", counts.getOrDefault("stored", 0));
+        out.put("counts", counts);
+        out.put("truncated", truncated);
+        out.put("manifest", manifest != null);
+        out.put("items", items);
+        return out;
+    }
+
+    /** Validate, write in parallel, then update the DB rows of one batch in a single transaction. */
+    private void flush(List<Entry> batch, String uploaderName, String weatherCondition) {
+        if (batch.isEmpty()) return;
+
+        // 1) Validate against the DB: one read-only query per kind
+        Set<Long> thermalIds = new HashSet<>();
+        Set<String> baselineNos = new HashSet<>();
+        for (Entry e : batch) {
+            if (e.target.kind() == Kind.THERMAL) {
+                Long id = parseLong(e.target.inspectionId());
+                if (id != null) thermalIds.add(id);
+            } else {
+                baselineNos.add(e.target.transformerNo());
+            }
+        }
+        Map<Long, String> ownerOf = new HashMap<>();
+        Set<String> knownNos = new HashSet<>();
+        readTx.executeWithoutResult(status -> {
+            if (!thermalIds.isEmpty()) {
+                for (Inspection i : inspections.findAllWithTransformerByIdIn(thermalIds)) {
+                    ownerOf.put(i.getId(), i.getTransformer().getTransformerNo());
+                }
+            }
+            if (!baselineNos.isEmpty()) {
+                for (Transformer t : transformers.findByTransformerNoIn(baselineNos)) knownNos.add(t.getTransformerNo());
+            }
+        });
+
+        Map<Target, Entry> latest = new LinkedHashMap<>();
+        for (Entry e : batch) {
+            if (e.target.kind() == Kind.THERMAL) {
+                Long id = parseLong(e.target.inspectionId());
+                String owner = id == null ? null : ownerOf.get(id);
+                if (owner == null) { skip(e.row, "unknown-inspection"); continue; }
+                if (!owner.equals(e.target.transformerNo())) { skip(e.row, "transformer-mismatch"); continue; }
+            } else if (!knownNos.contains(e.target.transformerNo())) {
+                skip(e.row, "unknown-transformer");
+                continue;
+            }
+            // the parallel writes must not race for one file; the later entry replaces the earlier
+            Entry earlier = latest.remove(e.target);
+            if (earlier != null) skip(earlier.row, "superseded");
+            latest.put(e.target, e);
+        }
+        List<Entry> valid = new ArrayList<>(latest.values());
+
+        // 2) Write files in parallel (writeSlots bounds concurrency), keeping what each one replaces
+        List<Callable<Void>> writes = new ArrayList<>(valid.size());
+        for (Entry e : valid) {
+            writes.add(() -> {
+                writeSlots.acquire();
+                try (InputStream in = new ByteArrayInputStream(e.data)) {
+                    if (blobStore.head(e.key).isPresent()) {
+                        try (InputStream old = blobStore.get(e.key)) {
+                            e.previous = old.readAllBytes();
+                        }
+                    }
+                    e.relativePath = e.target.kind() == Kind.THERMAL
+                            ? thermalImages.writeThermalFile(e.target.transformerNo(), e.target.inspectionId(), e.ext, in, e.data.length)
+                            : baseline.writeBaselineFile(e.target.transformerNo(), e.ext, in, e.data.length);
+                } catch (Exception ex) {
+                    e.row.put("status", "failed");
+                    e.row.put("error", ex.getMessage());
+                } finally {
+                    writeSlots.release();
+                }
+                return null;
+            });
+        }
+        try {
+            writers.invokeAll(writes);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Archive ingest interrupted", ie);
+        }
+
+        List<Entry> written = valid.stream().filter(e -> e.relativePath != null).toList();
+        if (written.isEmpty()) return;
+
+        // 3) Batched DB update for everything that made it to disk; owners deleted since step 1 are skipped
+        Instant now = Instant.now();
+        List<Entry> orphaned = new ArrayList<>();
+        try {
+            tx.executeWithoutResult(status -> {
+                orphaned.clear();
+                Map<Long, Inspection> byId = new HashMap<>();
+                Set<Long> ids = new HashSet<>();
+                Set<String> nos = new HashSet<>();
+                for (Entry e : written) {
+                    if (e.target.kind() == Kind.THERMAL) ids.add(parseLong(e.target.inspectionId()));
+                    else nos.add(e.target.transformerNo());
+                }
+                if (!ids.isEmpty()) inspections.findAllById(ids).forEach(i -> byId.put(i.getId(), i));
+                Map<String, Transformer> byNo = new HashMap<>();
+                if (!nos.isEmpty()) transformers.findByTransformerNoIn(nos).forEach(t -> byNo.put(t.getTransformerNo(), t));
+
+                for (Entry e : written) {
+                    if (e.target.kind() == Kind.THERMAL) {
+                        Inspection i = byId.get(parseLong(e.target.inspectionId()));
+                        if (i == null) orphaned.add(e);
+                        else thermalImages.applyThermalUpload(i, e.relativePath, uploaderName, weatherCondition, now);
+                    } else {
+                        Transformer t = byNo.get(e.target.transformerNo());
+                        if (t == null) orphaned.add(e);
+                        else baseline.applyBaseline(t, e.relativePath, uploaderName, now);
+                    }
+                }
+                inspections.saveAll(byId.values());
+                transformers.saveAll(byNo.values());
+                byId.values().forEach(thermalImages::publishUpdated);
+                byNo.values().forEach(baseline::publishUpdated);
+            });
+            for (Entry e : written) {
+                if (orphaned.contains(e)) {
+                    skip(e.row, e.target.kind() == Kind.THERMAL ? "inspection-deleted" : "transformer-deleted");
+                    restore(e);
+                } else {
+                    e.row.put("status", "stored");
+                    e.row.put("path", e.relativePath);
+                }
+            }
+        } catch (RuntimeException ex) {
+            for (Entry e : written) {
+                e.row.put("status", "failed");
+                e.row.put("error", "DB update failed: " + ex.getMessage());
+                restore(e);
+            }
+        }
+    }
+
+    /** Put back the blob an entry overwrote (or remove the one it created) when its DB update did not happen. */
+    private void restore(Entry e) {
+        try {
+            if (e.previous != null) {
+                BlobInfo info = blobStore.put(e.key, new ByteArrayInputStream(e.previous), e.previous.length,
+                        BlobStore.contentTypeFor(e.key));
+                mediaIndex.recordWrite(info);
+            } else {
+                blobStore.delete(e.key);
+                mediaIndex.recordDelete(e.key);
+            }
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Warning: archive ingest could not restore " + e.key + ": " + ex.getMessage());
+            e.row.put("restoreError", ex.getMessage());
+        }
+    }
+
+    // -------- mapping helpers --------
+
+    static Target fromConvention(String name) {
+        String[] parts = Arrays.stream(name.split("/")).filter(s -> !s.isBlank()).toArray(String[]::new);
+        if (parts.length < 2) return null;
+        String dir = parts[parts.length - 2];
+        String base = stripExtension(parts[parts.length - 1]);
+        if (base == null) return null;
+
+        if (dir.equalsIgnoreCase("baseline")) return new Target(Kind.BASELINE, base, null);
+        if (base.equalsIgnoreCase("baseline")) return new Target(Kind.BASELINE, dir, null);
+        if (base.chars().allMatch(Character::isDigit)) return new Target(Kind.THERMAL, dir, base);
+        return null;
+    }
+
+    private Map<String, Target> parseManifest(String name, byte[] raw) throws IOException {
+        Map<String, Target> out = new HashMap<>();
+        if (name.toLowerCase(Locale.ROOT).endsWith(".json")) {
+            List<Map<String, String>> rows = mapper.readValue(raw, new TypeReference<List<Map<String, String>>>() {});
+            for (Map<String, String> r : rows) {
+                putManifestRow(out, r.get("entry"), r.get("kind"), r.get("transformerNo"), r.get("inspectionId"));
+            }
+            return out;
+        }
+        for (String line : new String(raw, StandardCharsets.UTF_8).split("\\r?\\n")) {
+            if (line.isBlank()) continue;
+            List<String> cols = splitCsvLine(line);
+            if (cols.get(0).equalsIgnoreCase("entry")) continue; // header
+            putManifestRow(out,
+                    cols.get(0),
+                    cols.size() > 1 ? cols.get(1) : null,
+                    cols.size() > 2 ? cols.get(2) : null,
+                    cols.size() > 3 ? cols.get(3) : null);
+        }
+        return out;
+    }
+
+    private static void putManifestRow(Map<String, Target> out, String entry, String kind, String no, String inspectionId) {
+        if (entry == null || kind == null || no == null || no.isBlank()) return;
+        Kind k = kind.trim().equalsIgnoreCase("baseline") ? Kind.BASELINE : Kind.THERMAL;
+        if (k == Kind.THERMAL && (inspectionId == null || inspectionId.isBlank())) return;
+        out.put(entry.trim(), new Target(k, no.trim(), k == Kind.THERMAL ? inspectionId.trim() : null));
+    }
+
+    /** Minimal CSV split: commas, double-quoted fields, "" escapes. */
+    static List<String> splitCsvLine(String line) {
+        List<String> cols = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') { cur.append('"'); i++; }
+                else if (c == '"') quoted = false;
+                else cur.append(c);
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cols.add(cur.toString().trim());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        cols.add(cur.toString().trim());
+        return cols;
+    }
+
+    private static boolean isManifest(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        return n.equals("manifest.csv") || n.equals("manifest.json");
+    }
+
+    private static boolean isIgnorable(String name) {
+        String file = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith("__MACOSX/") || file.startsWith(".") || file.isBlank();
+    }
+
+    private static String stripExtension(String file) {
+        int dot = file.lastIndexOf('.');
+        return dot <= 0 ? null : file.substring(0, dot);
+    }
+
+    private static String extensionOf(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static void skip(Map<String, Object> row, String reason) {
+        row.put("status", "skipped");
+        row.put("reason", reason);
+    }
+
+    private static Long parseLong(String s) {
+        try { return Long.parseLong(s); } catch (Exception e) { return null; }
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.sti.service;
 
 import com.example.sti.entity.Transformer;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.TransformerChangedEvent;
 import com.example.sti.repo.TransformerRepository;
-import org.springframework.beans.factory.annotation.Value;
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
-import java.nio.file.*;
+import java.nio.file.Paths;
 import java.util.Locale;
 import java.util.Optional;
 
@@ -15,95 +19,121 @@ import java.util.Optional;
 public class BaselineService {
 
     private final TransformerRepository transformers;
+    private final MediaIndexService mediaIndex;
 
     /**
-     * Root folder to serve at /media/**
-     * Final file path: <mediaBase>/baseline/<TransformerNo>.<ext>
-     * Example: media/baseline/AZ-9990.jpg
+     * Baselines are stored as blob baseline/<TransformerNo>.<ext>, served at /media/**
+     * Example: baseline/AZ-9990.jpg -> /media/baseline/AZ-9990.jpg
      */
-    @Value("${storage.local.media-base:media}")
-    private String mediaBase;
+    private final BlobStore blobStore;
+    private final ApplicationEventPublisher events;
 
-    public BaselineService(TransformerRepository transformers) {
+    public BaselineService(TransformerRepository transformers, MediaIndexService mediaIndex, BlobStore blobStore,
+                           ApplicationEventPublisher events) {
         this.transformers = transformers;
+        this.mediaIndex = mediaIndex;
+        this.blobStore = blobStore;
+        this.events = events;
     }
 
     /**
-     * Save a baseline image as <mediaBase>/baseline/<TransformerNo>.<ext>
-     * - Creates directories if missing
+     * Save a baseline image as blob baseline/<TransformerNo>.<ext>
      * - Determines extension from filename or MIME (defaults to "bin")
      * - If a Transformer row exists, stores the relative path into its baselinePath (if that field exists)
-     * Returns the absolute Path of the saved file.
+     * Returns the blob key, e.g. "baseline/AZ-9990.jpg" (public URL is "/media/" + key).
      */
-    public Path saveBaseline(String transformerNo, MultipartFile file) throws Exception {
+    public String saveBaseline(String transformerNo, MultipartFile file) throws Exception {
         return saveBaseline(transformerNo, file, "admin"); // Default uploader
     }
 
     /**
      * Save a baseline image with custom uploader name
      */
-    public Path saveBaseline(String transformerNo, MultipartFile file, String uploaderName) throws Exception {
+    public String saveBaseline(String transformerNo, MultipartFile file, String uploaderName) throws Exception {
         if (transformerNo == null || transformerNo.isBlank()) {
             throw new IllegalArgumentException("transformerNo is required");
         }
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("file is required");
         }
+        String ext = extensionOf(file.getOriginalFilename(), file.getContentType());
+        try (InputStream in = file.getInputStream()) {
+            return saveBaseline(transformerNo, ext, in, file.getSize(), uploaderName);
+        }
+    }
+
+    /**
+     * Save a baseline image from a stream with a known extension (resumable uploads, archive ingest).
+     */
+    public String saveBaseline(String transformerNo, String ext, InputStream in, long length, String uploaderName) throws Exception {
+        if (transformerNo == null || transformerNo.isBlank()) {
+            throw new IllegalArgumentException("transformerNo is required");
+        }
 
         // Look up transformer if present (DO NOT fail if not found)
         Optional<Transformer> maybe = transformers.findByTransformerNo(transformerNo);
         System.out.println("DEBUG: Looking for transformer: " + transformerNo);
         System.out.println("DEBUG: Transformer found: " + maybe.isPresent());
 
-        // Build destination path
-        Path base = Paths.get(mediaBase).toAbsolutePath();   // <project>/media
-        Path dir  = base.resolve("baseline");                // <project>/media/baseline
-        Files.createDirectories(dir);
-
-        String ext = extensionFromFilename(file.getOriginalFilename())
-                .or(() -> extensionFromMime(file.getContentType()))
-                .orElse("bin");
+        String rel = writeBaselineFile(transformerNo, ext, in, length);
 
-        String safeNo = transformerNo;
-        // remove everything after ","
-        int commaIndex = safeNo.indexOf(',');
-        if (commaIndex != -1) {
-            safeNo = safeNo.substring(0, commaIndex);
-        }
-        Path dest = dir.resolve(safeNo + "." + ext);         // media/baseline/<no>.<ext>
-
-        // Write (overwrite if exists)
-        try (InputStream in = file.getInputStream()) {
-            Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
-        }
-
-        // If we have a DB row AND the entity has baselinePath, store relative path there
+        // If we have a DB row, store relative path and metadata there
         if (maybe.isPresent()) {
-            String rel = "baseline/" + safeNo + "." + ext;   // relative path under /media/**
             Transformer t = maybe.get();
-            
+
             System.out.println("DEBUG: Updating transformer metadata:");
             System.out.println("DEBUG: - baseline_path: " + rel);
             System.out.println("DEBUG: - baseline_uploader_name: " + uploaderName);
-            
-            // Set baseline path and metadata
-            t.setBaselineImagePath(rel);
-            t.setBaselineUploadedAt(java.time.Instant.now());
-            t.setUploaderName(uploaderName != null && !uploaderName.isBlank() ? uploaderName : "admin");
-            
+
+            applyBaseline(t, rel, uploaderName, java.time.Instant.now());
+
             Transformer saved = transformers.save(t);
             System.out.println("DEBUG: Saved transformer with baseline_image_path: " + saved.getBaselineImagePath());
+            publishUpdated(saved);
         } else {
             System.out.println("DEBUG: Transformer not found in database, skipping metadata update");
         }
 
-        return dest; // controller can turn this into "/media/" + relativeFromMediaRoot(dest)
+        return rel;
     }
 
-    /** Convert an absolute path under <mediaBase> to a relative like "baseline/<file>" for use with /media/** */
-    public String relativeFromMediaRoot(Path absolute) {
-        Path base = Paths.get(mediaBase).toAbsolutePath();
-        return base.relativize(absolute).toString().replace('\\', '/');
+    /**
+     * Store blob baseline/<TransformerNo>.<ext> (overwrite if exists) and
+     * return its key, which is also the path under /media/**, e.g. "baseline/AZ-9990.jpg".
+     */
+    public String writeBaselineFile(String transformerNo, String ext, InputStream in, long length) throws Exception {
+        String key = baselineKey(transformerNo, ext);
+        BlobInfo info = blobStore.put(key, in, length, BlobStore.contentTypeFor(key));
+        mediaIndex.recordWrite(info);
+        return key;
+    }
+
+    /** Blob key of a transformer's baseline image, e.g. "baseline/AZ-9990.jpg". */
+    public static String baselineKey(String transformerNo, String ext) {
+        return "baseline/" + normalizeNo(transformerNo) + "." + ext;
+    }
+
+    /** Baseline metadata updates; caller persists. */
+    public void applyBaseline(Transformer t, String rel, String uploaderName, java.time.Instant uploadedAt) {
+        t.setBaselineImagePath(rel);
+        t.setBaselineUploadedAt(uploadedAt);
+        t.setUploaderName(uploaderName != null && !uploaderName.isBlank() ? uploaderName : "admin");
+    }
+
+    /** Tell listeners (caches) the transformer's baseline changed. */
+    public void publishUpdated(Transformer t) {
+        events.publishEvent(new TransformerChangedEvent(t.getId(), t.getTransformerNo(), ChangeType.UPDATED));
+    }
+
+    /** Baseline files are keyed by the transformer number cut at the first comma. */
+    private static String normalizeNo(String transformerNo) {
+        int commaIndex = transformerNo.indexOf(',');
+        return commaIndex != -1 ? transformerNo.substring(0, commaIndex) : transformerNo;
+    }
+
+    /** Extension from an uploaded filename or MIME type (defaults to "bin"). */
+    public static String extensionOf(String filename, String mime) {
+        return extensionFromFilename(filename).or(() -> extensionFromMime(mime)).orElse("bin");
     }
 
     private static Optional<String> extensionFromFilename(String name) {
@@ -129,53 +159,29 @@ public class BaselineService {
         };
     }
 
-    public java.util.Optional<java.nio.file.Path> findBaselineFile(String transformerNo) {
-        if (transformerNo == null || transformerNo.isBlank()) return java.util.Optional.empty();
-
-        // Same normalization you used when saving: cut at the first comma
-        String no = transformerNo;
-        int comma = no.indexOf(',');
-        if (comma != -1) no = no.substring(0, comma);
-
-        java.nio.file.Path base = java.nio.file.Paths.get(mediaBase).toAbsolutePath();
-        java.nio.file.Path baselineDir = base.resolve("baseline");
-
-        // 1) If the DB has baselinePath, prefer that
-        try {
-            var maybe = transformers.findByTransformerNo(no);
-            if (maybe.isPresent()) {
-                var t = maybe.get();
-                try {
-                    // try getter first
-                    String rel = null;
-                    try {
-                        var getter = t.getClass().getMethod("getBaselineImagePath");
-                        Object val = getter.invoke(t);
-                        if (val instanceof String s && !s.isBlank()) rel = s;
-                    } catch (NoSuchMethodException ignored) {
-                        var f = t.getClass().getDeclaredField("baselineImagePath");
-                        f.setAccessible(true);
-                        Object val = f.get(t);
-                        if (val instanceof String s && !s.isBlank()) rel = s;
-                    }
-                    if (rel != null) {
-                        var p = base.resolve(rel).normalize();
-                        if (java.nio.file.Files.exists(p)) return java.util.Optional.of(p);
-                    }
-                } catch (ReflectiveOperationException ignored) {
-                    // entity doesn't have baselineImagePath -> fall through
-                }
-            }
-        } catch (Exception ignored) { }
-
-        // 2) Otherwise, probe common image extensions for <no>.<ext>
-        String[] exts = {"jpg","jpeg","png","webp","gif","bmp","tiff","tif","heic","heif"};
-        for (String ext : exts) {
-            var p = baselineDir.resolve(no + "." + ext);
-            if (java.nio.file.Files.exists(p)) return java.util.Optional.of(p);
-        }
+    /**
+     * Resolve the baseline blob from the media index (no storage probing):
+     * the DB's baselineImagePath wins if that blob is indexed, otherwise the first
+     * <no>.<ext> in the usual extension order.
+     */
+    public Optional<MediaIndexService.MediaEntry> findBaselineFile(String transformerNo) {
+        if (transformerNo == null || transformerNo.isBlank()) return Optional.empty();
+
+        // Same normalization used when saving: cut at the first comma
+        String no = normalizeNo(transformerNo);
+
+        Optional<MediaIndexService.MediaEntry> fromDb = transformers.findByTransformerNo(no)
+                .map(Transformer::getBaselineImagePath)
+                .filter(rel -> !rel.isBlank())
+                .flatMap(mediaIndex::findByRelativePath);
+        if (fromDb.isPresent()) return fromDb;
+
+        return mediaIndex.findBaseline(no);
+    }
 
-        return java.util.Optional.empty();
+    /** Open a baseline blob for streaming. */
+    public InputStream openBaseline(MediaIndexService.MediaEntry entry) throws java.io.IOException {
+        return blobStore.get(entry.key());
     }
 
 }
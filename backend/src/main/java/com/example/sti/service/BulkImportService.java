@@ -0,0 +1,399 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.InspectionStatus;
+import com.example.sti.event.BulkImportedEvent;
+import com.example.sti.repo.TransformerRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Bulk import of transformers or inspections from a CSV (header row; quoted fields may span lines)
+ * or NDJSON body, read as a stream. Rows are handled in chunks: transformer numbers are checked with one IN
+ * query per chunk, valid rows are inserted with one JDBC batch in the chunk's own transaction, and
+ * the derived views (summaries, rollups, caches, search index) are updated once per chunk through
+ * BulkImportedEvent. A failing chunk does not undo earlier ones; the report lists every rejected row.
+ * Timestamps without an offset are taken as UTC.
+ */
+@Service
+public class BulkImportService {
+
+    public enum Kind { TRANSFORMERS, INSPECTIONS }
+
+    /** One input record: its line number and fields keyed by normalized column name (lowercase, no '_'). */
+    record Row(long line, Map<String, String> fields) {
+        String get(String key) {
+            String v = fields.get(key);
+            return v == null || v.isBlank() ? null : v.trim();
+        }
+    }
+
+    /** A validated row and the values bound to its INSERT, in column order. */
+    private record Pending(Row row, String transformerNo, Object[] values) {}
+
+    private static final class Report {
+        final int maxErrors;
+        long rows;
+        long imported;
+        long failed;
+        final List<Map<String, Object>> errors = new ArrayList<>();
+
+        Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void error(long line, String transformerNo, String error) {
+            failed++;
+            if (errors.size() >= maxErrors) return;
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("line", line);
+            if (transformerNo != null) e.put("transformerNo", transformerNo);
+            e.put("error", error);
+            errors.add(e);
+        }
+    }
+
+    private static final String INSERT_TRANSFORMER =
+            "INSERT INTO transformers (transformer_no, pole_no, region, type, capacity, location_details, starred, created_at, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final int[] TRANSFORMER_TYPES = {
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.BOOLEAN, Types.TIMESTAMP_WITH_TIMEZONE};
+
+    private static final String INSERT_INSPECTION =
+            "INSERT INTO inspections (transformer_id, inspected_at, status, notes, starred, maintenance_at, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 0)";
+    private static final int[] INSPECTION_TYPES = {
+            Types.BIGINT, Types.TIMESTAMP_WITH_TIMEZONE, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN,
+            Types.TIMESTAMP_WITH_TIMEZONE};
+
+    private static final TypeReference<Map<String, Object>> JSON_ROW = new TypeReference<>() {};
+
+    // a CSV record still inside quotes after this many characters is taken as an unterminated quote
+    private static final int MAX_RECORD_CHARS = 1 << 20;
+
+    private final TransformerRepository transformers;
+    private final ApplicationEventPublisher events;
+    private final JdbcTemplate jdbc;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${import.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${import.bulk.max-rows:500000}")
+    private long maxRows;
+
+    @Value("${import.bulk.max-errors:1000}")
+    private int maxErrors;
+
+    public BulkImportService(TransformerRepository transformers,
+                             ApplicationEventPublisher events,
+                             JdbcTemplate jdbc,
+                             EntityManager em,
+                             PlatformTransactionManager txManager) {
+        this.transformers = transformers;
+        this.events = events;
+        this.jdbc = jdbc;
+        this.em = em;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    public Map<String, Object> importRows(Kind kind, InputStream body, boolean ndjson) throws IOException {
+        long started = System.nanoTime();
+        Report report = new Report(maxErrors);
+        Set<String> seenNos = new HashSet<>(); // transformer numbers already taken by earlier rows of this body
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        boolean truncated = false;
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<String> header = null;
+            String line;
+            long lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                long recordLine = ++lineNo;
+                if (line.isBlank()) continue;
+                boolean unterminated = false;
+                if (!ndjson) {
+                    // a quoted field with line breaks (notes, locationDetails) continues on the next lines
+                    StringBuilder record = null;
+                    int quotes = quotes(line);
+                    while (quotes % 2 == 1) {
+                        String next = record == null || record.length() <= MAX_RECORD_CHARS ? in.readLine() : null;
+                        if (next == null) {
+                            unterminated = true;
+                            break;
+                        }
+                        if (record == null) record = new StringBuilder(line);
+                        record.append('\n').append(next);
+                        quotes += quotes(next);
+                        lineNo++;
+                    }
+                    if (record != null) line = record.toString();
+                }
+                if (!ndjson && header == null) {
+                    header = ArchiveIngestService.splitCsvLine(line).stream().map(BulkImportService::normalizeKey).toList();
+                    continue;
+                }
+                if (report.rows >= maxRows) {
+                    truncated = true;
+                    break;
+                }
+                report.rows++;
+
+                Map<String, String> fields = new HashMap<>();
+                if (unterminated) {
+                    report.error(recordLine, null, "unterminated quoted field");
+                    continue;
+                }
+                if (ndjson) {
+                    try {
+                        mapper.readValue(line, JSON_ROW).forEach((k, v) -> {
+                            if (v != null) fields.put(normalizeKey(k), String.valueOf(v));
+                        });
+                    } catch (IOException e) {
+                        report.error(recordLine, null, "malformed JSON");
+                        continue;
+                    }
+                } else {
+                    List<String> cols = ArchiveIngestService.splitCsvLine(line);
+                    for (int i = 0; i < header.size() && i < cols.size(); i++) fields.put(header.get(i), cols.get(i));
+                }
+
+                chunk.add(new Row(recordLine, fields));
+                if (chunk.size() >= chunkSize) {
+                    flush(kind, chunk, seenNos, report);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+        flush(kind, chunk, seenNos, report);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ok", true);
+        out.put("kind", kind.name().toLowerCase(Locale.ROOT));
+        out.put("rows", report.rows);
+        out.put("imported", report.imported);
+        out.put("failed", report.failed);
+        out.put("truncated", truncated);
+        out.put("tookMillis", (System.nanoTime() - started) / 1_000_000);
+        out.put("errors", report.errors);
+        out.put("errorsTruncated", report.failed > report.errors.size());
+        return out;
+    }
+
+    private void flush(Kind kind, List<Row> chunk, Set<String> seenNos, Report report) {
+        if (chunk.isEmpty()) return;
+        if (kind == Kind.TRANSFORMERS) flushTransformers(chunk, seenNos, report);
+        else flushInspections(chunk, report);
+    }
+
+    // -------- transformers --------
+
+    private void flushTransformers(List<Row> chunk, Set<String> seenNos, Report report) {
+        Map<String, Row> candidates = new LinkedHashMap<>();
+        for (Row r : chunk) {
+            String no = r.get("transformerno");
+            String err = no == null ? "transformerNo is required" : checkTransformer(r);
+            if (err == null && !seenNos.add(no)) err = "duplicate transformerNo in this import";
+            if (err != null) {
+                report.error(r.line(), no, err);
+                continue;
+            }
+            candidates.put(no, r);
+        }
+        if (candidates.isEmpty()) return;
+
+        // uniqueness against the DB (soft-deleted transformers included): one IN query for the whole chunk
+        for (String existing : transformers.findTakenTransformerNos(candidates.keySet())) {
+            Row r = candidates.remove(existing);
+            report.error(r.line(), existing, "TransformerNo already exists");
+        }
+
+        OffsetDateTime now = Instant.now().atOffset(ZoneOffset.UTC);
+        List<Pending> pending = new ArrayList<>(candidates.size());
+        candidates.forEach((no, r) -> pending.add(new Pending(r, no, new Object[]{
+                no, r.get("poleno"), r.get("region"), r.get("type"), r.get("capacity"), r.get("locationdetails"),
+                parseBoolean(r.get("starred")), now})));
+
+        insert(pending, INSERT_TRANSFORMER, TRANSFORMER_TYPES, report,
+                ids -> events.publishEvent(new BulkImportedEvent(ids, List.of(), ids)));
+    }
+
+    private static String checkTransformer(Row r) {
+        for (String key : List.of("transformerno", "poleno", "region", "type", "capacity")) {
+            String v = r.get(key);
+            if (v != null && v.length() > 255) return key + " is longer than 255 characters";
+        }
+        String location = r.get("locationdetails");
+        if (location != null && location.length() > 2000) return "locationDetails is longer than 2000 characters";
+        if (parseBoolean(r.get("starred")) == null) return "starred must be true or false";
+        return null;
+    }
+
+    // -------- inspections --------
+
+    private void flushInspections(List<Row> chunk, Report report) {
+        Set<String> nos = new HashSet<>();
+        for (Row r : chunk) {
+            String no = r.get("transformerno");
+            if (no != null) nos.add(no);
+        }
+        Map<String, Long> idOf = new HashMap<>();
+        if (!nos.isEmpty()) {
+            for (Object[] t : transformers.findIdsByTransformerNoIn(nos)) idOf.put((String) t[0], (Long) t[1]);
+        }
+
+        List<Pending> pending = new ArrayList<>(chunk.size());
+        for (Row r : chunk) {
+            String no = r.get("transformerno");
+            Long transformerId = no == null ? null : idOf.get(no);
+            Instant inspectedAt = parseInstant(r.get("inspectedat"));
+            InspectionStatus status = parseStatus(r.get("status"));
+            String maintenance = r.get("maintenanceat") != null ? r.get("maintenanceat") : r.get("maintenancedate");
+            Instant maintenanceAt = parseInstant(maintenance);
+            String notes = r.get("notes");
+
+            String err = null;
+            if (no == null) err = "transformerNo is required";
+            else if (transformerId == null) err = "unknown transformerNo";
+            else if (inspectedAt == null) err = r.get("inspectedat") == null ? "inspectedAt is required" : "inspectedAt is not a valid date";
+            else if (status == null) err = "status must be one of " + Arrays.toString(InspectionStatus.values());
+            else if (maintenance != null && maintenanceAt == null) err = "maintenanceAt is not a valid date";
+            else if (notes != null && notes.length() > 2000) err = "notes is longer than 2000 characters";
+            else if (parseBoolean(r.get("starred")) == null) err = "starred must be true or false";
+            if (err != null) {
+                report.error(r.line(), no, err);
+                continue;
+            }
+            pending.add(new Pending(r, no, new Object[]{
+                    transformerId, inspectedAt.atOffset(ZoneOffset.UTC), status.name(), notes,
+                    parseBoolean(r.get("starred")), maintenanceAt == null ? null : maintenanceAt.atOffset(ZoneOffset.UTC)}));
+        }
+
+        insert(pending, INSERT_INSPECTION, INSPECTION_TYPES, report, ids -> {
+            Set<Long> touched = new HashSet<>();
+            for (Pending p : pending) touched.add((Long) p.values()[0]);
+            events.publishEvent(new BulkImportedEvent(List.of(), ids, touched));
+        });
+    }
+
+    // -------- JDBC --------
+
+    private interface AfterInsert {
+        void accept(List<Long> generatedIds);
+    }
+
+    /** One batched INSERT for the chunk plus its follow-up, in one transaction; a failure rejects the whole chunk. */
+    private void insert(List<Pending> pending, String sql, int[] types, Report report, AfterInsert after) {
+        if (pending.isEmpty()) return;
+        try {
+            tx.executeWithoutResult(status -> {
+                GeneratedKeyHolder keys = new GeneratedKeyHolder();
+                jdbc.batchUpdate(con -> con.prepareStatement(sql, new String[]{"id"}), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] values = pending.get(i).values();
+                        for (int c = 0; c < values.length; c++) {
+                            if (values[c] == null) ps.setNull(c + 1, types[c]);
+                            else ps.setObject(c + 1, values[c]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return pending.size();
+                    }
+                }, keys);
+                List<Long> ids = keys.getKeyList().stream()
+                        .map(k -> ((Number) k.values().iterator().next()).longValue())
+                        .toList();
+                after.accept(ids);
+            });
+            report.imported += pending.size();
+        } catch (DataAccessException e) {
+            String reason = "insert failed: " + e.getMostSpecificCause().getMessage();
+            for (Pending p : pending) report.error(p.row().line(), p.transformerNo(), reason);
+        }
+        // after-commit listeners load the chunk into the request's persistence context (open-in-view);
+        // let it go, or every later flush dirty-checks all rows imported so far
+        em.clear();
+    }
+
+    // -------- parsing --------
+
+    /** Count of '"' in a line; an odd total so far means a quoted field is still open ("" escapes add two). */
+    private static int quotes(String line) {
+        int n = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') n++;
+        }
+        return n;
+    }
+
+    /** "Transformer_No", "transformerNo" and "transformer no" all become "transformerno". */
+    static String normalizeKey(String key) {
+        return key.replace("_", "").replace(" ", "").replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Blank = false; null for anything that is not a recognizable boolean. */
+    private static Boolean parseBoolean(String v) {
+        if (v == null) return false;
+        return switch (v.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "y" -> true;
+            case "false", "0", "no", "n" -> false;
+            default -> null;
+        };
+    }
+
+    /** Missing status defaults to IN_PROGRESS like the create endpoint; "In Progress" is accepted too. */
+    private static InspectionStatus parseStatus(String v) {
+        if (v == null) return InspectionStatus.IN_PROGRESS;
+        try {
+            return InspectionStatus.valueOf(v.trim().replace(' ', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** ISO instant, offset date-time, local date-time or date (the last two as UTC); null if unparseable. */
+    private static Instant parseInstant(String v) {
+        if (v == null) return null;
+        // pick the one parser that fits the shape instead of letting each miss throw (hot on large imports)
+        try {
+            if (v.length() <= 10) return LocalDate.parse(v).atStartOfDay(ZoneOffset.UTC).toInstant();
+            int t = v.indexOf('T');
+            boolean zoned = v.endsWith("Z") || v.endsWith("z") || t > 0 && (v.indexOf('+', t) > 0 || v.indexOf('-', t) > 0);
+            if (zoned) return OffsetDateTime.parse(v).toInstant();
+            return LocalDateTime.parse(v).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.sti.service;
+
+import com.example.sti.config.VirtualThreads;
+import com.example.sti.event.AnalysisFinishedEvent;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.BulkImportedEvent;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.event.ThermalImageUploadedEvent;
+import com.example.sti.event.TransformerChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events change feed. Committed change events become compact feed events that are
+ * offered to every matching subscriber's pending queue; sender threads (one virtual thread per busy
+ * subscriber when spring.threads.virtual.enabled) write them out, so publishers never wait on a
+ * socket. Pending events coalesce by (type, inspection), so a burst of edits to one inspection
+ * reaches a slow client once. A subscriber whose queue still overflows is sent "reset" (refetch
+ * everything) and dropped; one stuck in a single write longer than changes.feed.write-timeout is
+ * dropped by the next heartbeat. EventSource reconnects on its own.
+ */
+@Service
+public class ChangeFeedService {
+
+    /** One pushed event; transformerNo/transformerId may be null depending on the source. */
+    public record FeedEvent(long seq, String type, Long transformerId, String transformerNo, Long inspectionId,
+                            Instant at, Map<String, Object> data) {
+
+        String coalesceKey() {
+            return type + ":" + inspectionId + ":" + transformerId;
+        }
+
+        Map<String, Object> payload() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("type", type);
+            if (transformerId != null) m.put("transformerId", transformerId);
+            if (transformerNo != null) m.put("transformerNo", transformerNo);
+            if (inspectionId != null) m.put("inspectionId", inspectionId);
+            m.put("at", at.toString());
+            if (data != null) m.putAll(data);
+            return m;
+        }
+    }
+
+    private static final String HEARTBEAT = "heartbeat";
+    private static final String RESET = "reset";
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Long transformerId;      // null = global
+        final String transformerNo;
+        final LinkedHashMap<String, FeedEvent> pending = new LinkedHashMap<>(); // guarded by this
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closing;
+        volatile long sendingSince; // System.nanoTime() when the write in progress started, 0 when idle
+
+        Subscriber(SseEmitter emitter, Long transformerId, String transformerNo) {
+            this.emitter = emitter;
+            this.transformerId = transformerId;
+            this.transformerNo = transformerNo;
+        }
+
+        boolean wants(FeedEvent e) {
+            if (transformerId == null || HEARTBEAT.equals(e.type())) return true;
+            if (e.transformerId() != null) return transformerId.equals(e.transformerId());
+            return transformerNo.equalsIgnoreCase(e.transformerNo());
+        }
+
+        void offer(FeedEvent e) {
+            synchronized (this) {
+                if (closing) return;
+                pending.remove(e.coalesceKey()); // re-insert so the newest version keeps its place at the end
+                pending.put(e.coalesceKey(), e);
+                if (pending.size() > maxPending) {
+                    pending.clear();
+                    FeedEvent reset = new FeedEvent(e.seq(), RESET, null, null, null, e.at(), null);
+                    pending.put(reset.coalesceKey(), reset);
+                    closing = true;
+                    dropped.incrementAndGet();
+                }
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) senders.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    List<FeedEvent> batch;
+                    synchronized (this) {
+                        if (pending.isEmpty()) break;
+                        batch = new ArrayList<>(pending.values());
+                        pending.clear();
+                    }
+                    for (FeedEvent e : batch) {
+                        if (!subscribers.contains(this)) return; // dropped meanwhile
+                        sendingSince = System.nanoTime();
+                        try {
+                            send(e);
+                        } finally {
+                            sendingSince = 0;
+                        }
+                    }
+                }
+                if (closing) close();
+            } catch (Exception e) {
+                close(); // client went away (broken pipe, completed emitter)
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+            }
+            schedule(); // something arrived after the last check
+        }
+
+        private void send(FeedEvent e) throws Exception {
+            if (HEARTBEAT.equals(e.type())) {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } else {
+                emitter.send(SseEmitter.event().id(String.valueOf(e.seq())).name(e.type()).data(e.payload()));
+            }
+        }
+
+        /** True when a write has been blocked (full TCP window) longer than the write timeout. */
+        boolean stalled(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > writeTimeout.toNanos();
+        }
+
+        /** Forget a stalled subscriber; the emitter is completed off this thread, its writer holds the response. */
+        void drop() {
+            closing = true;
+            if (subscribers.remove(this)) {
+                dropped.incrementAndGet();
+                Thread.startVirtualThread(this::close);
+            }
+        }
+
+        void close() {
+            closing = true;
+            subscribers.remove(this);
+            try {
+                emitter.complete();
+            } catch (Exception ignore) {
+                // already completed
+            }
+        }
+    }
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @Value("${changes.feed.max-subscribers:500}")
+    private int maxSubscribers;
+
+    @Value("${changes.feed.max-pending:256}")
+    private int maxPending;
+
+    @Value("${changes.feed.emitter-timeout:PT30M}")
+    private Duration emitterTimeout;
+
+    @Value("${changes.feed.write-timeout:PT10S}")
+    private Duration writeTimeout;
+
+    public ChangeFeedService(@Value("${changes.feed.senders:4}") int senders,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.senders = VirtualThreads.executor("change-feed", Math.max(1, senders), virtualThreads);
+    }
+
+    /** Open streams would hold up graceful shutdown; end them before the web server stops. */
+    @EventListener(ContextClosedEvent.class)
+    void closeSubscribers() {
+        subscribers.forEach(Subscriber::close);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdown();
+    }
+
+    /**
+     * Open a stream for one transformer (both id and number given) or all changes (both null).
+     * Throws IllegalStateException when the subscriber limit is reached.
+     */
+    public SseEmitter subscribe(Long transformerId, String transformerNo) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many change feed subscribers");
+        }
+        return subscribe(new SseEmitter(emitterTimeout.toMillis()), transformerId, transformerNo);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long transformerId, String transformerNo) {
+        Subscriber s = new Subscriber(emitter, transformerId, transformerNo);
+        emitter.onCompletion(() -> subscribers.remove(s));
+        emitter.onTimeout(s::close);
+        emitter.onError(err -> s.close());
+        subscribers.add(s);
+        // first event flushes the response headers and tells the client where the feed starts
+        s.offer(new FeedEvent(seq.get(), "ready", transformerId, transformerNo, null, Instant.now(), null));
+        return emitter;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("subscribers", subscribers.size(), "lastSeq", seq.get(), "dropped", dropped.get());
+    }
+
+    /** Fan out to matching subscribers; only queues, never writes. */
+    public void publish(String type, Long transformerId, String transformerNo, Long inspectionId, Map<String, Object> data) {
+        if (subscribers.isEmpty()) return;
+        FeedEvent e = new FeedEvent(seq.incrementAndGet(), type, transformerId, transformerNo, inspectionId, Instant.now(), data);
+        for (Subscriber s : subscribers) {
+            if (s.wants(e)) s.offer(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${changes.feed.heartbeat:PT20S}")
+    void heartbeat() {
+        if (subscribers.isEmpty()) return;
+        FeedEvent ping = new FeedEvent(seq.get(), HEARTBEAT, null, null, null, Instant.now(), null);
+        long now = System.nanoTime();
+        for (Subscriber s : subscribers) {
+            if (s.stalled(now)) s.drop();
+            else s.offer(ping); // also finds dead connections
+        }
+    }
+
+    // -------- sources (after commit, so clients refetch committed state) --------
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInspectionChanged(InspectionChangedEvent e) {
+        publish("inspection." + e.change().name().toLowerCase(Locale.ROOT), e.transformerId(), null, e.inspectionId(), null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onThermalImageUploaded(ThermalImageUploadedEvent e) {
+        publish("thermal.uploaded", e.transformerId(), null, e.inspectionId(), null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnnotationsChanged(AnnotationsChangedEvent e) {
+        Map<String, Object> data = e.after() == null ? null
+                : Map.of("criticalAnomalies", e.after().critical(), "potentialAnomalies", e.after().potential());
+        publish("annotations.saved", e.transformerId(), null, e.inspectionId(), data);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnalysisFinished(AnalysisFinishedEvent e) {
+        publish("analysis.finished", null, e.transformerNo(), e.inspectionId(),
+                Map.of("success", e.success(), "detections", e.detections()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransformerChanged(TransformerChangedEvent e) {
+        publish("transformer." + e.change().name().toLowerCase(Locale.ROOT), e.transformerId(), e.transformerNo(), null, null);
+    }
+
+    /** One event per affected transformer; a large chunk may overflow global subscribers, who then get "reset". */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkImported(BulkImportedEvent e) {
+        Set<Long> created = new HashSet<>(e.createdTransformerIds());
+        for (Long id : e.touchedTransformerIds()) {
+            publish(created.contains(id) ? "transformer.created" : "inspections.imported", id, null, null, null);
+        }
+    }
+}
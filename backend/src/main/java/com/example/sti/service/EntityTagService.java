@@ -0,0 +1,50 @@
+package com.example.sti.service;
+
+import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.repo.TransformerRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Weak ETags for the read APIs, derived from entity @Version columns with one aggregate query
+ * each. A request whose If-None-Match still matches is answered 304 after this lookup alone;
+ * the full query and serialization only run when something actually changed.
+ */
+@Service
+@Transactional(readOnly = true)
+public class EntityTagService {
+
+    private final TransformerRepository transformers;
+    private final InspectionAnnotationRepository annotations;
+
+    public EntityTagService(TransformerRepository transformers, InspectionAnnotationRepository annotations) {
+        this.transformers = transformers;
+        this.annotations = annotations;
+    }
+
+    /** GET /api/transformers */
+    public String transformers() {
+        return tag("transformers", transformers.findListFingerprint()).orElseThrow();
+    }
+
+    /** GET /api/get-transformer-data for one transformer id; empty when it does not exist. */
+    public Optional<String> transformerData(Long transformerId) {
+        return tag("transformer-" + transformerId, transformers.findDataFingerprint(transformerId));
+    }
+
+    /** GET /api/get-annotations/{id}; empty when the inspection does not exist. */
+    public Optional<String> annotations(Long inspectionId) {
+        return tag("annotations-" + inspectionId, annotations.findSetFingerprint(inspectionId));
+    }
+
+    private static Optional<String> tag(String prefix, List<Object[]> rows) {
+        if (rows.isEmpty()) return Optional.empty();
+        String parts = Arrays.stream(rows.get(0)).map(String::valueOf).collect(Collectors.joining("."));
+        return Optional.of("W/\"" + prefix + "." + parts + "\"");
+    }
+}
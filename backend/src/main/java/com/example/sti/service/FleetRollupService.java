@@ -0,0 +1,337 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.AnomalyCounts;
+import com.example.sti.entity.InspectionStatus;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.BulkImportedEvent;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory fleet rollups: inspections by status and open anomalies by class/severity, counted per
+ * (region, transformer, month). Built once at startup, then kept current per inspection from the
+ * change events: each event re-reads that one inspection (row + annotation class counts), and the
+ * difference to what it contributed before is applied to the cells. Queries only read cells, so
+ * their cost depends on regions x months x classes, not on how many inspections exist.
+ * Events only come from this node's writes, so a fingerprint of the inspections, annotations and
+ * transformers tables is compared every dashboard.rollups.sync-interval and a change made on
+ * another node triggers a rebuild.
+ */
+@Service
+public class FleetRollupService {
+
+    /** Inspection count of one status in one (region, month). */
+    public record StatusCell(String region, YearMonth month, InspectionStatus status) {}
+
+    /** Open anomaly count of one class in one (region, month). */
+    public record AnomalyCell(String region, YearMonth month, String className, boolean critical) {}
+
+    /** What one inspection contributes to the rollups. */
+    private record Fact(Long transformerId, String region, YearMonth month, InspectionStatus status,
+                        Map<String, Long> classes) {}
+
+    /** A set of counters; one for the whole fleet and one per transformer. */
+    private static final class Rollup {
+        final Map<StatusCell, Long> statuses = new HashMap<>();
+        final Map<AnomalyCell, Long> anomalies = new HashMap<>();
+
+        void add(Fact f, long sign) {
+            statuses.merge(new StatusCell(f.region(), f.month(), f.status()), sign, Rollup::sumOrRemove);
+            f.classes().forEach((cls, n) -> anomalies.merge(
+                    new AnomalyCell(f.region(), f.month(), cls, AnomalyCounts.isCritical(cls)), sign * n, Rollup::sumOrRemove));
+        }
+
+        boolean isEmpty() {
+            return statuses.isEmpty() && anomalies.isEmpty();
+        }
+
+        private static Long sumOrRemove(Long a, Long b) {
+            long v = a + b;
+            return v == 0 ? null : v;
+        }
+    }
+
+    private final InspectionRepository inspections;
+    private final InspectionAnnotationRepository annotations;
+    private final TransformerRepository transformers;
+    private final ZoneId zone;
+
+    // refreshLock serializes writers (DB read + apply) so per-inspection refreshes apply in order;
+    // the RW lock only guards the in-memory structures, so readers never wait on the DB
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // ids waiting for a refresh; the refreshLock holder reads all of them at once, so a burst of
+    // concurrent writes costs one DB read instead of one read per write queued behind the lock
+    private final Set<Long> pendingRefresh = ConcurrentHashMap.newKeySet();
+
+    private Map<Long, Fact> facts = new HashMap<>();                // inspectionId -> contribution
+    private Map<Long, Set<Long>> inspectionsByTransformer = new HashMap<>();
+    private Rollup fleet = new Rollup();
+    private Map<Long, Rollup> byTransformer = new HashMap<>();
+    private volatile List<Object> builtFrom; // table fingerprints the last rebuild started from
+
+    public FleetRollupService(InspectionRepository inspections,
+                              InspectionAnnotationRepository annotations,
+                              TransformerRepository transformers,
+                              @Value("${dashboard.rollups.zone:UTC}") String zone) {
+        this.inspections = inspections;
+        this.annotations = annotations;
+        this.transformers = transformers;
+        this.zone = ZoneId.of(zone);
+    }
+
+    // -------- build / maintenance --------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        refreshLock.lock();
+        try {
+            List<Object> fingerprint = fingerprint(); // before the read: a write in between forces another rebuild
+            Map<Long, Fact> built = new HashMap<>();
+            Map<Long, Map<String, Long>> classes = classCounts(annotations.countOpenByInspectionAndClass());
+            for (Object[] r : inspections.findRollupFacts()) {
+                Long id = (Long) r[0];
+                built.put(id, factOf(r, classes.getOrDefault(id, Map.of())));
+            }
+            lock.writeLock().lock();
+            try {
+                facts = new HashMap<>();
+                inspectionsByTransformer = new HashMap<>();
+                fleet = new Rollup();
+                byTransformer = new HashMap<>();
+                built.forEach(this::apply);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            builtFrom = fingerprint;
+            System.out.println("Fleet rollups built: " + built.size() + " inspections in "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /** Rebuild when the tables changed since the last build (e.g. written by another node). */
+    @Scheduled(fixedDelayString = "${dashboard.rollups.sync-interval:PT1M}", initialDelayString = "${dashboard.rollups.sync-interval:PT1M}")
+    public void syncWithDatabase() {
+        if (!fingerprint().equals(builtFrom)) rebuild();
+    }
+
+    private List<Object> fingerprint() {
+        List<Object> f = new ArrayList<>(Arrays.asList(inspections.rollupFingerprint().get(0)));
+        f.addAll(Arrays.asList(annotations.rollupFingerprint().get(0)));
+        f.addAll(Arrays.asList(transformers.searchIndexFingerprint().get(0)));
+        return f;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInspectionChanged(InspectionChangedEvent e) {
+        if (e.inspectionId() != null) refresh(List.of(e.inspectionId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnnotationsChanged(AnnotationsChangedEvent e) {
+        if (e.inspectionId() != null) refresh(List.of(e.inspectionId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkImported(BulkImportedEvent e) {
+        refresh(e.createdInspectionIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransformerChanged(TransformerChangedEvent e) {
+        if (e.transformerId() == null) return;
+        refreshLock.lock();
+        try {
+            // region may have changed (or the transformer and its inspections are gone, or back after a restore)
+            Set<Long> ids = new HashSet<>();
+            lock.readLock().lock();
+            try {
+                ids.addAll(inspectionsByTransformer.getOrDefault(e.transformerId(), Set.of()));
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (Object[] r : inspections.findRollupFactsByTransformer(e.transformerId())) ids.add((Long) r[0]);
+            refresh(ids);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /** Re-read the given inspections and apply the difference (absent rows are removed). */
+    public void refresh(Collection<Long> inspectionIds) {
+        if (inspectionIds.isEmpty()) return;
+        pendingRefresh.addAll(inspectionIds);
+        refreshLock.lock();
+        try {
+            if (pendingRefresh.isEmpty()) return; // an earlier holder applied ours with its own
+            List<Long> ids = new ArrayList<>(pendingRefresh);
+            ids.forEach(pendingRefresh::remove);
+            Map<Long, Fact> current = new HashMap<>();
+            for (int from = 0; from < ids.size(); from += 500) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + 500));
+                Map<Long, Map<String, Long>> classes = classCounts(annotations.countOpenByInspectionAndClass(chunk));
+                for (Object[] r : inspections.findRollupFactsByIdIn(chunk)) {
+                    Long id = (Long) r[0];
+                    current.put(id, factOf(r, classes.getOrDefault(id, Map.of())));
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long id : ids) {
+                    Fact before = facts.get(id);
+                    Fact after = current.get(id);
+                    if (Objects.equals(before, after)) continue;
+                    if (before != null) remove(id, before);
+                    if (after != null) apply(id, after);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // write lock held
+    private void apply(Long inspectionId, Fact f) {
+        facts.put(inspectionId, f);
+        inspectionsByTransformer.computeIfAbsent(f.transformerId(), k -> new HashSet<>()).add(inspectionId);
+        fleet.add(f, 1);
+        byTransformer.computeIfAbsent(f.transformerId(), k -> new Rollup()).add(f, 1);
+    }
+
+    // write lock held
+    private void remove(Long inspectionId, Fact f) {
+        facts.remove(inspectionId);
+        Set<Long> ids = inspectionsByTransformer.get(f.transformerId());
+        if (ids != null && ids.remove(inspectionId) && ids.isEmpty()) inspectionsByTransformer.remove(f.transformerId());
+        fleet.add(f, -1);
+        Rollup r = byTransformer.get(f.transformerId());
+        if (r != null) {
+            r.add(f, -1);
+            if (r.isEmpty()) byTransformer.remove(f.transformerId());
+        }
+    }
+
+    private Fact factOf(Object[] r, Map<String, Long> classes) {
+        String region = r[2] == null || ((String) r[2]).isBlank() ? "Unknown" : (String) r[2];
+        YearMonth month = r[3] == null ? null : YearMonth.from(((Instant) r[3]).atZone(zone));
+        return new Fact((Long) r[1], region, month, (InspectionStatus) r[4], classes);
+    }
+
+    private static Map<Long, Map<String, Long>> classCounts(List<Object[]> rows) {
+        Map<Long, Map<String, Long>> out = new HashMap<>();
+        for (Object[] r : rows) {
+            String cls = r[1] == null ? "unknown" : (String) r[1];
+            out.computeIfAbsent((Long) r[0], k -> new HashMap<>()).merge(cls, ((Number) r[2]).longValue(), Long::sum);
+        }
+        return out;
+    }
+
+    // -------- queries --------
+
+    /**
+     * Aggregates for the dashboard, optionally narrowed to one region, one transformer and a month range
+     * (inclusive; null = open). Reads only rollup cells.
+     */
+    public Map<String, Object> aggregates(String region, Long transformerId, YearMonth from, YearMonth to) {
+        Map<String, Long> byStatus = new TreeMap<>();
+        for (InspectionStatus s : InspectionStatus.values()) byStatus.put(s.name(), 0L);
+        Map<String, long[]> byClass = new TreeMap<>();                  // class -> {count, critical?1:0}
+        Map<String, Map<String, Long>> regionStatuses = new TreeMap<>();
+        Map<String, long[]> regionAnomalies = new TreeMap<>();          // region -> {critical, potential}
+        Map<YearMonth, long[]> trend = new TreeMap<>();                 // month -> {inspections, completed, critical, potential}
+
+        lock.readLock().lock();
+        try {
+            Rollup source = transformerId == null ? fleet : byTransformer.getOrDefault(transformerId, new Rollup());
+            source.statuses.forEach((cell, n) -> {
+                if (!matches(cell.region(), cell.month(), region, from, to)) return;
+                String status = cell.status() == null ? "UNKNOWN" : cell.status().name();
+                byStatus.merge(status, n, Long::sum);
+                regionStatuses.computeIfAbsent(cell.region(), k -> new TreeMap<>()).merge(status, n, Long::sum);
+                if (cell.month() != null) {
+                    long[] t = trend.computeIfAbsent(cell.month(), k -> new long[4]);
+                    t[0] += n;
+                    if (cell.status() == InspectionStatus.COMPLETED) t[1] += n;
+                }
+            });
+            source.anomalies.forEach((cell, n) -> {
+                if (!matches(cell.region(), cell.month(), region, from, to)) return;
+                long[] c = byClass.computeIfAbsent(cell.className(), k -> new long[2]);
+                c[0] += n;
+                c[1] = cell.critical() ? 1 : 0;
+                regionAnomalies.computeIfAbsent(cell.region(), k -> new long[2])[cell.critical() ? 0 : 1] += n;
+                if (cell.month() != null) trend.computeIfAbsent(cell.month(), k -> new long[4])[cell.critical() ? 2 : 3] += n;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map<String, Object>> classes = new ArrayList<>();
+        byClass.forEach((cls, c) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("className", cls);
+            m.put("severity", c[1] == 1 ? "critical" : "potential");
+            m.put("count", c[0]);
+            classes.add(m);
+        });
+
+        Set<String> regions = new TreeSet<>(regionStatuses.keySet());
+        regions.addAll(regionAnomalies.keySet());
+        List<Map<String, Object>> perRegion = new ArrayList<>();
+        for (String r : regions) {
+            long[] a = regionAnomalies.getOrDefault(r, new long[2]);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("region", r);
+            m.put("inspectionsByStatus", regionStatuses.getOrDefault(r, Map.of()));
+            m.put("criticalAnomalies", a[0]);
+            m.put("potentialAnomalies", a[1]);
+            perRegion.add(m);
+        }
+
+        List<Map<String, Object>> months = new ArrayList<>();
+        trend.forEach((month, t) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("month", month.toString());
+            m.put("inspections", t[0]);
+            m.put("completed", t[1]);
+            m.put("criticalAnomalies", t[2]);
+            m.put("potentialAnomalies", t[3]);
+            months.add(m);
+        });
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("inspectionsByStatus", byStatus);
+        out.put("anomaliesByClass", classes);
+        out.put("byRegion", perRegion);
+        out.put("trend", months);
+        return out;
+    }
+
+    private static boolean matches(String cellRegion, YearMonth cellMonth, String region, YearMonth from, YearMonth to) {
+        if (region != null && !region.equalsIgnoreCase(cellRegion)) return false;
+        if (from != null && (cellMonth == null || cellMonth.isBefore(from))) return false;
+        return to == null || (cellMonth != null && !cellMonth.isAfter(to));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.InspectionTableQuery;
+import com.example.sti.dto.InspectionTableRow;
+import com.example.sti.repo.InspectionRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Paged inspection table: runs the keyset query and encodes/decodes the opaque cursor.
+ * A cursor is base64url JSON of [sortSignature, key values...]; it is only valid for the
+ * ordering it was issued for (filters may change between pages, positions stay valid).
+ */
+@Service
+public class InspectionTableService {
+
+    private final InspectionRepository inspections;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public InspectionTableService(InspectionRepository inspections) {
+        this.inspections = inspections;
+    }
+
+    /** One page of table rows plus the cursor for the next one (null on the last page). */
+    public record Page(List<InspectionTableRow> items, String nextCursor, Long total, boolean totalExact) {}
+
+    @Transactional(readOnly = true)
+    public Page page(InspectionTableQuery q, String cursor, boolean includeTotal) {
+        q.after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor, q);
+
+        int limit = q.limit;
+        q.limit = limit + 1; // one extra row tells us whether another page exists
+        List<InspectionTableRow> rows;
+        try {
+            rows = inspections.findTablePage(q);
+        } finally {
+            q.limit = limit;
+        }
+
+        String next = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            next = encodeCursor(inspections.keysetOf(rows.get(limit - 1), q), q);
+        }
+
+        Long total = null;
+        boolean exact = false;
+        if (includeTotal) {
+            OptionalLong estimate = hasFilters(q) ? OptionalLong.empty() : inspections.estimateTotal();
+            if (estimate.isPresent()) {
+                total = estimate.getAsLong();
+            } else {
+                total = inspections.countTable(q);
+                exact = true;
+            }
+        }
+        return new Page(rows, next, total, exact);
+    }
+
+    private static boolean hasFilters(InspectionTableQuery q) {
+        return (q.statuses != null && !q.statuses.isEmpty()) || q.transformerNo != null || q.region != null
+                || q.starred != null || q.from != null || q.to != null || q.search != null;
+    }
+
+    // -------- cursor --------
+
+    private static String signature(InspectionTableQuery q) {
+        return q.sort + (q.descending ? ":desc" : ":asc") + (q.starredFirst ? ":starred" : "");
+    }
+
+    private String encodeCursor(List<Object> keys, InspectionTableQuery q) {
+        List<String> parts = new ArrayList<>(keys.size() + 1);
+        parts.add(signature(q));
+        for (Object k : keys) parts.add(String.valueOf(k));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mapper.writeValueAsBytes(parts));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    private List<Object> decodeCursor(String cursor, InspectionTableQuery q) {
+        List<String> parts;
+        try {
+            parts = mapper.readValue(Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII)),
+                    new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (parts.isEmpty() || !signature(q).equals(parts.get(0))) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+        List<Object> keys = new ArrayList<>(parts.size() - 1);
+        int idx = 1;
+        try {
+            if (q.starredFirst) keys.add(Integer.parseInt(parts.get(idx++)));
+            switch (q.sort) {
+                case INSPECTED_AT -> keys.add(Instant.parse(parts.get(idx++)));
+                case TRANSFORMER_NO -> keys.add(parts.get(idx++));
+                case ID -> { /* id below */ }
+            }
+            keys.add(Long.parseLong(parts.get(idx++)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (idx != parts.size()) throw new IllegalArgumentException("Malformed cursor");
+        return keys;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.sti.service;
+
+import com.example.sti.config.VirtualThreads;
+import com.example.sti.datasource.ReadYourWrites;
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.InspectionAnnotation;
+import com.example.sti.entity.Transformer;
+import com.example.sti.entity.TransformerSummary;
+import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.service.MediaIndexService.MediaEntry;
+import com.example.sti.storage.MediaKeys;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Everything the inspection detail page needs in one response: the inspection, its transformer
+ * with the maintained summary, baseline/current image URLs with their validators, and the
+ * annotations with statistics. Two queries (inspection+transformer+summary, annotations) run
+ * concurrently, the second on a reader (a virtual thread when enabled); images come from the
+ * in-memory media index and statistics from the fetched rows.
+ */
+@Service
+public class InspectionViewService {
+
+    private final InspectionRepository inspections;
+    private final InspectionAnnotationRepository annotations;
+    private final MediaIndexService mediaIndex;
+    private final ExecutorService readers;
+
+    public InspectionViewService(InspectionRepository inspections,
+                                 InspectionAnnotationRepository annotations,
+                                 MediaIndexService mediaIndex,
+                                 @Value("${inspections.view.parallelism:8}") int parallelism,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.inspections = inspections;
+        this.annotations = annotations;
+        this.mediaIndex = mediaIndex;
+        // the DB connection limiter bounds the queries, so on virtual threads nothing else caps the view
+        this.readers = VirtualThreads.executor("inspection-view", parallelism, virtualThreads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        readers.shutdown();
+    }
+
+    /** The assembled view, or empty when the inspection does not exist. */
+    public Optional<Map<String, Object>> view(Long inspectionId) {
+        // annotations on a reader, the header on the request thread: one pooled task per view, not two
+        CompletableFuture<List<InspectionAnnotation>> rows =
+                CompletableFuture.supplyAsync(ReadYourWrites.propagate(
+                        () -> annotations.findByInspectionIdOrderByCreatedAtDesc(inspectionId)), readers);
+
+        List<Object[]> found;
+        try {
+            found = inspections.findViewHeader(inspectionId);
+        } catch (RuntimeException e) {
+            rows.cancel(false);
+            throw e;
+        }
+        if (found.isEmpty()) {
+            rows.cancel(false);
+            return Optional.empty();
+        }
+        Inspection i = (Inspection) found.get(0)[0];
+        Transformer t = (Transformer) found.get(0)[1];
+        TransformerSummary s = (TransformerSummary) found.get(0)[2];
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("inspection", inspectionOf(i));
+        out.put("transformer", transformerOf(t, s));
+        out.put("baseline", imageOf(mediaIndex.findBaseline(t.getTransformerNo())));
+        out.put("current", imageOf(mediaIndex.findThermal(ThermalImageService.safeName(t.getTransformerNo()),
+                String.valueOf(i.getId()))));
+        out.put("annotations", annotationsOf(join(rows)));
+        return Optional.of(out);
+    }
+
+    private static Map<String, Object> inspectionOf(Inspection i) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", i.getId());
+        m.put("inspectionNo", String.format("%09d", i.getId()));
+        m.put("inspectedAt", i.getInspectedAt());
+        m.put("maintenanceAt", i.getMaintenanceAt());
+        m.put("status", i.getStatus() == null ? null : i.getStatus().name());
+        m.put("starred", i.isStarred());
+        m.put("notes", i.getNotes() == null ? "" : i.getNotes());
+        m.put("thermalUploaderName", i.getThermalUploaderName());
+        m.put("weatherCondition", i.getWeatherCondition());
+        return m;
+    }
+
+    private static Map<String, Object> transformerOf(Transformer t, TransformerSummary s) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", t.getId());
+        m.put("transformerNo", t.getTransformerNo());
+        m.put("poleNo", t.getPoleNo());
+        m.put("region", t.getRegion());
+        m.put("type", t.getType());
+        m.put("capacity", t.getCapacity());
+        m.put("starred", t.isStarred());
+        m.put("lastInspectedAt", s != null ? s.getLastInspectedAt() : null);
+        m.put("inspectionCount", s != null ? s.getInspectionCount() : 0);
+        m.put("criticalAnomalies", s != null ? s.getCriticalAnomalies() : 0);
+        m.put("potentialAnomalies", s != null ? s.getPotentialAnomalies() : 0);
+        return m;
+    }
+
+    /** URL plus what a client needs to revalidate it (If-Modified-Since / size check); null when absent. */
+    private static Map<String, Object> imageOf(Optional<MediaEntry> entry) {
+        if (entry.isEmpty()) return null;
+        MediaEntry e = entry.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("url", MediaKeys.publicUrl(e.key()));
+        m.put("lastModified", e.lastModified());
+        m.put("size", e.size());
+        return m;
+    }
+
+    /** Same shape as GET /api/get-annotations/{id}; statistics are counted from the rows already loaded. */
+    private static Map<String, Object> annotationsOf(List<InspectionAnnotation> rows) {
+        List<Map<String, Object>> detections = new ArrayList<>(rows.size());
+        long aiDetected = 0, edited = 0, manual = 0;
+        for (InspectionAnnotation a : rows) {
+            detections.add(a.getAnnotationData());
+            String type = a.getAnnotationType();
+            if ("Detected by AI".equals(type)) aiDetected++;
+            else if ("Edited".equals(type)) edited++;
+            else if ("Manual".equals(type)) manual++;
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("detections", detections);
+        m.put("annotationCount", rows.size());
+        m.put("statistics", Map.of("aiDetected", aiDetected, "edited", edited, "manual", manual));
+        return m;
+    }
+
+    private static <T> T join(CompletableFuture<T> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.sti.service;
+
+import com.example.sti.datasource.ReadYourWrites;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Streams a query result as a JSON array (or NDJSON when the client accepts application/x-ndjson)
+ * instead of building the whole list first. The query runs as a cursor (fetch-size hint on the
+ * repository method) inside a read-only transaction; each row is written through one Jackson
+ * generator, the output is flushed after the first row and then every batch, and the persistence
+ * context is cleared per batch so loaded entities do not pile up. Memory per request stays flat.
+ */
+@Service
+public class JsonStreamService {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectMapper mapper;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+
+    @Value("${streaming.batch-size:500}")
+    private int batchSize;
+
+    public JsonStreamService(ObjectMapper mapper, EntityManager em, PlatformTransactionManager txManager) {
+        this.mapper = mapper;
+        this.em = em;
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setReadOnly(true);
+    }
+
+    /** True when the Accept header asks for newline-delimited JSON. */
+    public static boolean wantsNdjson(String accept) {
+        return accept != null && accept.contains(NDJSON.toString());
+    }
+
+    /**
+     * Response streaming {@code source} row by row, each mapped through {@code view} (may mutate and
+     * return the row itself). The source is opened lazily on the response thread.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> source,
+                                                            Function<? super T, ?> view,
+                                                            boolean ndjson) {
+        return stream(source, view, ndjson, null);
+    }
+
+    /** As above, revalidated by the given weak ETag (null for none). */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> source,
+                                                            Function<? super T, ?> view,
+                                                            boolean ndjson,
+                                                            String etag) {
+        // written on an MVC async thread: carry over the request's read-your-writes mark
+        Long primaryUntil = ReadYourWrites.current();
+        StreamingResponseBody body = out -> ReadYourWrites.callWith(primaryUntil, () -> tx.execute(status -> {
+            try (Stream<T> rows = source.get();
+                 JsonGenerator g = mapper.getFactory().createGenerator(out)) {
+                g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (!ndjson) g.writeStartArray();
+                int n = 0;
+                for (var it = rows.iterator(); it.hasNext(); ) {
+                    g.writeObject(view.apply(it.next()));
+                    if (ndjson) g.writeRaw('\n');
+                    if (++n == 1 || n % batchSize == 0) {
+                        g.flush();  // first byte out early, then once per batch
+                        em.clear(); // rows of this batch are written; let them go
+                    }
+                }
+                if (!ndjson) g.writeEndArray();
+                g.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // typically the client disconnected
+            }
+            return null;
+        }));
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON);
+        if (etag != null) ok.eTag(etag).cacheControl(CacheControl.noCache());
+        return ok.body(body);
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.MediaGarbage;
+import com.example.sti.repo.ImageAssetRepository;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.MediaGarbageRepository;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import com.example.sti.storage.MediaKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Media deletion via a transactional outbox (media_garbage):
+ * - request paths only call enqueue(...) inside their own transaction, so a rollback keeps the files
+ *   and no file I/O happens while the transaction is open;
+ * - sweep() deletes due blobs in batches at a bounded rate, retrying failures with backoff;
+ * - reconcile() lists the store and enqueues blobs no DB row points at (older than a grace period).
+ * Both run as jobs (MediaGcJobHandler), so one node in the cluster does each run.
+ * A blob that was re-referenced or re-written after it was enqueued is left alone.
+ */
+@Service
+public class MediaGarbageService {
+
+    private final MediaGarbageRepository garbage;
+    private final InspectionRepository inspections;
+    private final TransformerRepository transformers;
+    private final ImageAssetRepository imageAssets;
+    private final BlobStore blobStore;
+    private final MediaIndexService mediaIndex;
+    private final TransactionTemplate tx;
+    private final JdbcTemplate jdbc;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    @Value("${media.gc.batch-size:200}")
+    private int batchSize;
+
+    @Value("${media.gc.max-deletes-per-second:50}")
+    private double maxDeletesPerSecond;
+
+    @Value("${media.gc.retry-backoff:PT1M}")
+    private Duration retryBackoff;
+
+    @Value("${media.gc.max-backoff:PT6H}")
+    private Duration maxBackoff;
+
+    @Value("${media.gc.orphan-grace:PT1H}")
+    private Duration orphanGrace;
+
+    public MediaGarbageService(MediaGarbageRepository garbage,
+                               InspectionRepository inspections,
+                               TransformerRepository transformers,
+                               ImageAssetRepository imageAssets,
+                               BlobStore blobStore,
+                               MediaIndexService mediaIndex,
+                               PlatformTransactionManager txManager,
+                               JdbcTemplate jdbc) {
+        this.garbage = garbage;
+        this.inspections = inspections;
+        this.transformers = transformers;
+        this.imageAssets = imageAssets;
+        this.blobStore = blobStore;
+        this.mediaIndex = mediaIndex;
+        this.tx = new TransactionTemplate(txManager);
+        this.jdbc = jdbc;
+    }
+
+    // -------- enqueue (request paths) --------
+
+    /**
+     * Mark blobs (DB paths, keys, or legacy absolute paths) as garbage in the caller's transaction.
+     * Once that commits they also drop out of the media index, so lookups stop returning them at once.
+     */
+    @Transactional
+    public void enqueue(Collection<String> paths) {
+        Instant now = Instant.now();
+        Set<String> keys = new LinkedHashSet<>();
+        for (String p : paths) {
+            String key = toGarbageKey(p);
+            if (key != null) keys.add(key);
+        }
+        if (keys.isEmpty()) return;
+        // one JDBC batch: IDENTITY ids keep Hibernate from batching, and a purge batch may bring thousands
+        OffsetDateTime at = now.atOffset(ZoneOffset.UTC);
+        jdbc.batchUpdate("INSERT INTO media_garbage (blob_key, enqueued_at, not_before, attempts) VALUES (?, ?, ?, 0)",
+                new ArrayList<>(keys), batchSize, (ps, key) -> {
+                    ps.setString(1, key);
+                    ps.setObject(2, at);
+                    ps.setObject(3, at);
+                });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keys.forEach(mediaIndex::recordDelete);
+                }
+            });
+        }
+    }
+
+    private static String toGarbageKey(String path) {
+        if (path == null || path.isBlank()) return null;
+        if (MediaKeys.isLegacyAbsolute(path) && !path.startsWith("/media/")) return path;
+        return MediaKeys.fromDbPath(path);
+    }
+
+    // -------- sweeper --------
+
+    /** Delete one batch of due garbage; returns how many rows were settled. */
+    public int sweep() {
+        if (!sweepLock.tryLock()) return 0;
+        try {
+            Instant now = Instant.now();
+            List<MediaGarbage> due = garbage.findDue(now, PageRequest.of(0, batchSize));
+            if (due.isEmpty()) return 0;
+
+            Set<String> referenced = referencedKeys(due.stream().map(MediaGarbage::getBlobKey).toList());
+            List<MediaGarbage> settled = new ArrayList<>();
+            List<MediaGarbage> retry = new ArrayList<>();
+            long intervalNanos = maxDeletesPerSecond > 0 ? (long) (1_000_000_000L / maxDeletesPerSecond) : 0;
+            long next = System.nanoTime();
+
+            for (MediaGarbage g : due) {
+                String key = g.getBlobKey();
+                if (referenced.contains(key)) {
+                    settled.add(g); // re-used before we got to it
+                    continue;
+                }
+                next = pace(next, intervalNanos);
+                try {
+                    deleteOne(g);
+                    settled.add(g);
+                } catch (Exception e) {
+                    int attempts = g.getAttempts() + 1;
+                    g.setAttempts(attempts);
+                    g.setLastError(truncate(e.getClass().getSimpleName() + ": " + e.getMessage()));
+                    g.setNotBefore(now.plus(backoff(attempts)));
+                    retry.add(g);
+                }
+            }
+
+            tx.executeWithoutResult(s -> {
+                if (!settled.isEmpty()) garbage.deleteAllInBatch(settled);
+                if (!retry.isEmpty()) garbage.saveAll(retry);
+            });
+            if (!retry.isEmpty()) {
+                System.err.println("Media GC: " + retry.size() + " blob(s) failed, will retry (e.g. "
+                        + retry.get(0).getBlobKey() + ": " + retry.get(0).getLastError() + ")");
+            }
+            return settled.size();
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private void deleteOne(MediaGarbage g) throws IOException {
+        String key = g.getBlobKey();
+        if (MediaKeys.isLegacyAbsolute(key)) {
+            Path p = Paths.get(key);
+            Files.deleteIfExists(p);
+            pruneEmptyParent(p);
+            return;
+        }
+        Optional<BlobInfo> info = blobStore.head(key);
+        if (info.isEmpty()) return;
+        if (info.get().lastModified() != null && info.get().lastModified().isAfter(g.getEnqueuedAt())) {
+            return; // written again after it was marked (e.g. a new upload to the same key)
+        }
+        blobStore.delete(key);
+        mediaIndex.recordDelete(key);
+    }
+
+    /** Keys among {@code keys} that a DB row references again. */
+    private Set<String> referencedKeys(List<String> keys) {
+        List<String> blobKeys = keys.stream().filter(k -> !MediaKeys.isLegacyAbsolute(k)).toList();
+        Set<String> out = new HashSet<>();
+        if (!blobKeys.isEmpty()) {
+            inspections.findReferencedThermalPaths(blobKeys.stream().map(MediaKeys::thermalDbPath).toList())
+                    .forEach(p -> out.add(MediaKeys.fromDbPath(p)));
+            out.addAll(transformers.findReferencedBaselinePaths(blobKeys));
+        }
+        out.addAll(imageAssets.findReferencedPaths(keys));
+        return out;
+    }
+
+    private Duration backoff(int attempts) {
+        long factor = 1L << Math.min(attempts - 1, 20);
+        Duration d = retryBackoff.multipliedBy(factor);
+        return d.compareTo(maxBackoff) > 0 ? maxBackoff : d;
+    }
+
+    /** Sleep until {@code next}; returns the slot after it. */
+    private static long pace(long next, long intervalNanos) {
+        if (intervalNanos <= 0) return next;
+        long wait = next - System.nanoTime();
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return Math.max(next, System.nanoTime()) + intervalNanos;
+    }
+
+    private static void pruneEmptyParent(Path file) {
+        Path dir = file.getParent();
+        if (dir == null || !Files.isDirectory(dir)) return;
+        try (Stream<Path> s = Files.list(dir)) {
+            if (s.findAny().isEmpty()) Files.delete(dir);
+        } catch (IOException ignore) { /* someone wrote into it meanwhile */ }
+    }
+
+    private static String truncate(String s) {
+        return s == null || s.length() <= 1000 ? s : s.substring(0, 1000);
+    }
+
+    // -------- orphan reconciliation --------
+
+    /**
+     * Enqueue stored blobs nothing points at any more: thermal images of missing inspections
+     * (or superseded by a different path), baselines of missing transformers (or superseded),
+     * and assets without an image_assets row. Blobs younger than the grace period are skipped
+     * so uploads that have not been linked to their row yet survive.
+     */
+    public int reconcile() {
+        long started = System.nanoTime();
+        Instant cutoff = Instant.now().minus(orphanGrace);
+
+        // Snapshot of DB references
+        Map<Long, String> thermalById = new HashMap<>();
+        for (Object[] row : inspections.findAllThermalRefs()) {
+            thermalById.put((Long) row[0], MediaKeys.fromDbPath((String) row[1]));
+        }
+        Map<String, Set<String>> baselineByNo = new HashMap<>();
+        for (Object[] row : transformers.findAllBaselineRefs()) {
+            String no = (String) row[0];
+            if (no == null) continue;
+            int comma = no.indexOf(',');
+            Set<String> refs = baselineByNo.computeIfAbsent(comma != -1 ? no.substring(0, comma) : no, k -> new HashSet<>());
+            String key = MediaKeys.fromDbPath((String) row[1]);
+            if (key != null) refs.add(key);
+        }
+        Set<String> assetKeys = new HashSet<>(imageAssets.findAllPaths());
+        Set<String> queued = new HashSet<>(garbage.findAllKeys());
+
+        List<String> orphans = new ArrayList<>();
+        for (String prefix : List.of("inspections/", "baseline/", "assets/")) {
+            try (Stream<BlobInfo> blobs = blobStore.list(prefix)) {
+                blobs.filter(b -> b.lastModified() == null || b.lastModified().isBefore(cutoff))
+                        .map(BlobInfo::key)
+                        .filter(k -> !queued.contains(k))
+                        .filter(k -> isOrphan(k, thermalById, baselineByNo, assetKeys))
+                        .forEach(orphans::add);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Media GC: could not list " + prefix + ": " + e.getMessage());
+                return 0; // never act on a partial listing
+            }
+        }
+
+        for (int i = 0; i < orphans.size(); i += batchSize) {
+            List<String> chunk = orphans.subList(i, Math.min(orphans.size(), i + batchSize));
+            tx.executeWithoutResult(s -> enqueue(chunk));
+        }
+        System.out.println("Media GC reconcile: " + orphans.size() + " orphan(s) enqueued in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms");
+        return orphans.size();
+    }
+
+    private static boolean isOrphan(String key, Map<Long, String> thermalById,
+                                    Map<String, Set<String>> baselineByNo, Set<String> assetKeys) {
+        String[] parts = key.split("/");
+        if (parts[0].equals("inspections") && parts.length == 3) {
+            Long id = parseId(parts[2]);
+            if (id == null || !thermalById.containsKey(id)) return true;
+            return !key.equals(thermalById.get(id));
+        }
+        if (parts[0].equals("baseline") && parts.length == 2) {
+            int dot = parts[1].lastIndexOf('.');
+            String no = dot > 0 ? parts[1].substring(0, dot) : parts[1];
+            Set<String> refs = baselineByNo.get(no);
+            // a transformer without a recorded path still finds its baseline by convention
+            return refs == null || (!refs.isEmpty() && !refs.contains(key));
+        }
+        if (parts[0].equals("assets")) {
+            return !assetKeys.contains(key);
+        }
+        return false;
+    }
+
+    private static Long parseId(String file) {
+        int dot = file.lastIndexOf('.');
+        try {
+            return Long.parseLong(dot > 0 ? file.substring(0, dot) : file);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.sti.service;
+
+import com.example.sti.config.VirtualThreads;
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import com.example.sti.storage.MediaKeys;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * In-memory index of the media blobs so lookups never touch storage:
+ *   baseline/{transformerNo}.{ext}                -> (BASELINE, transformerNo)
+ *   inspections/{transformerNo}/{inspectionId}.{ext} -> (THERMAL, transformerNo, inspectionId)
+ * Built at startup by listing the BlobStore, then kept current by our own write/delete paths
+ * (recordWrite / recordDelete). On the local backend a WatchService also catches changes made behind our back.
+ * A rebuild fills a fresh map and swaps it in; updates that arrive while it walks are replayed onto
+ * it first, so lookups never see a half-built index and no write is lost.
+ */
+@Service
+public class MediaIndexService {
+
+    public enum Kind { BASELINE, THERMAL }
+
+    /** Resolved blob: its BlobStore key (also the path under /media/**), size and mtime. */
+    public record MediaEntry(Kind kind, String transformerNo, String inspectionId, String ext,
+                             String key, long size, Instant lastModified) {}
+
+    private record Key(Kind kind, String transformerNo, String inspectionId) {}
+
+    // Extension preference, same order the old probing used
+    public static final List<String> BASELINE_EXTS = List.of("jpg", "jpeg", "png", "webp", "gif", "bmp", "tiff", "tif", "heic", "heif");
+    public static final List<String> THERMAL_EXTS = List.of("jpg", "jpeg", "png", "webp");
+
+    // key -> (ext -> entry); inner maps are immutable and swapped atomically, the whole map by rebuild()
+    private volatile Map<Key, Map<String, MediaEntry>> entries = new ConcurrentHashMap<>();
+
+    // updates applied while a rebuild walks, replayed onto its map before the swap; guarded by updateLock
+    private final Object updateLock = new Object();
+    private List<Consumer<Map<Key, Map<String, MediaEntry>>>> replay;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final BlobStore blobStore;
+
+    @Value("${media.index.watch:true}")
+    private boolean watchEnabled;
+
+    @Value("${media.index.rebuild-parallelism:8}")
+    private int rebuildParallelism;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private Path root; // only set for local storage
+    private volatile WatchService watcher;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    public MediaIndexService(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @PostConstruct
+    void start() {
+        root = blobStore.localRoot().map(r -> r.toAbsolutePath().normalize()).orElse(null);
+        if (root != null) {
+            try {
+                Files.createDirectories(root.resolve("baseline"));
+                Files.createDirectories(root.resolve("inspections"));
+            } catch (IOException e) {
+                System.err.println("Warning: could not create media directories under " + root + ": " + e.getMessage());
+            }
+            if (watchEnabled) startWatcher();
+        }
+        rebuild();
+    }
+
+    @PreDestroy
+    void stop() {
+        WatchService w = watcher;
+        watcher = null;
+        if (w != null) {
+            try { w.close(); } catch (IOException ignore) { }
+        }
+    }
+
+    // -------- lookups (memory only) --------
+
+    public Optional<MediaEntry> findBaseline(String transformerNo) {
+        return find(new Key(Kind.BASELINE, transformerNo, null), BASELINE_EXTS);
+    }
+
+    public Optional<MediaEntry> findThermal(String transformerNo, String inspectionId) {
+        return find(new Key(Kind.THERMAL, transformerNo, inspectionId), THERMAL_EXTS);
+    }
+
+    /** Look up by a key or DB path, e.g. "baseline/AZ-1.jpg" or "media/inspections/AZ-1/7.png". */
+    public Optional<MediaEntry> findByRelativePath(String relative) {
+        String key = MediaKeys.fromDbPath(relative);
+        if (key == null) return Optional.empty();
+        Parsed p = parse(key);
+        if (p == null) return Optional.empty();
+        Map<String, MediaEntry> byExt = entries.get(p.key);
+        return byExt == null ? Optional.empty() : Optional.ofNullable(byExt.get(p.ext));
+    }
+
+    public int size() {
+        return entries.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private Optional<MediaEntry> find(Key key, List<String> exts) {
+        Map<String, MediaEntry> byExt = entries.get(key);
+        if (byExt == null) return Optional.empty();
+        for (String ext : exts) {
+            MediaEntry e = byExt.get(ext);
+            if (e != null) return Optional.of(e);
+        }
+        return Optional.empty();
+    }
+
+    // -------- updates from our own write paths --------
+
+    /** Call after a BlobStore put with the returned info. */
+    public void recordWrite(BlobInfo info) {
+        Parsed p = parse(info.key());
+        if (p == null) return;
+        MediaEntry e = new MediaEntry(p.key.kind(), p.key.transformerNo(), p.key.inspectionId(), p.ext,
+                info.key(), info.size(), info.lastModified());
+        update(m -> m.compute(p.key, (k, byExt) -> {
+            Map<String, MediaEntry> copy = byExt == null ? new HashMap<>() : new HashMap<>(byExt);
+            copy.put(p.ext, e);
+            return Map.copyOf(copy);
+        }));
+    }
+
+    public void recordDelete(String key) {
+        Parsed p = key == null ? null : parse(key);
+        if (p == null) return;
+        update(m -> m.computeIfPresent(p.key, (k, byExt) -> {
+            if (!byExt.containsKey(p.ext)) return byExt;
+            Map<String, MediaEntry> copy = new HashMap<>(byExt);
+            copy.remove(p.ext);
+            return copy.isEmpty() ? null : Map.copyOf(copy);
+        }));
+    }
+
+    private void update(Consumer<Map<Key, Map<String, MediaEntry>>> op) {
+        synchronized (updateLock) {
+            op.accept(entries);
+            if (replay != null) replay.add(op);
+        }
+    }
+
+    // -------- startup walk --------
+
+    /**
+     * Full re-scan into a fresh map, listing baseline/ and each transformer folder under inspections/
+     * concurrently, then swapped in with the updates made meanwhile replayed onto it.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long started = System.nanoTime();
+            synchronized (updateLock) {
+                replay = new ArrayList<>();
+            }
+            Map<Key, Map<String, MediaEntry>> fresh = new ConcurrentHashMap<>();
+            boolean complete = false;
+            try {
+                complete = walk(fresh);
+            } finally {
+                synchronized (updateLock) {
+                    if (complete) {
+                        replay.forEach(op -> op.accept(fresh));
+                        entries = fresh;
+                    }
+                    replay = null; // a failed or interrupted walk leaves the current index in place
+                }
+            }
+            if (!complete) return;
+            System.out.println("Media index built: " + size() + " files in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /** @return false if any listing failed or was interrupted; the caller must not use a partial result */
+    private boolean walk(Map<Key, Map<String, MediaEntry>> into) {
+        if (root != null) {
+            try (Stream<Path> s = Files.list(root.resolve("inspections"))) {
+                s.filter(Files::isDirectory).forEach(this::registerWatch);
+            } catch (IOException ignore) { /* no inspections yet */ }
+            registerWatch(root.resolve("baseline"));
+        }
+
+        List<String> prefixes = new ArrayList<>();
+        prefixes.add("baseline/");
+        try (Stream<String> folders = blobStore.listFolders("inspections/")) {
+            folders.forEach(prefixes::add);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: media index could not list transformer folders: " + e.getMessage());
+            prefixes.add("inspections/");
+        }
+
+        int parallelism = Math.max(1, Math.min(rebuildParallelism, prefixes.size()));
+        Semaphore listings = new Semaphore(parallelism);
+        ExecutorService pool = VirtualThreads.executor("media-index", parallelism, virtualThreads);
+        try {
+            List<Future<Void>> done = pool.invokeAll(prefixes.stream().<Callable<Void>>map(prefix -> () -> {
+                listings.acquire();
+                try {
+                    list(prefix, into);
+                } finally {
+                    listings.release();
+                }
+                return null;
+            }).toList());
+            for (int i = 0; i < done.size(); i++) {
+                try {
+                    done.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Warning: media index could not list " + prefixes.get(i) + ", keeping the current index: "
+                            + e.getCause().getMessage());
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void list(String prefix, Map<Key, Map<String, MediaEntry>> into) throws IOException {
+        try (Stream<BlobInfo> blobs = blobStore.list(prefix)) {
+            blobs.forEach(info -> {
+                Parsed p = parse(info.key());
+                if (p == null) return;
+                MediaEntry e = new MediaEntry(p.key.kind(), p.key.transformerNo(), p.key.inspectionId(), p.ext,
+                        info.key(), info.size(), info.lastModified());
+                into.merge(p.key, Map.of(p.ext, e), (a, b) -> {
+                    Map<String, MediaEntry> m = new HashMap<>(a);
+                    m.putAll(b);
+                    return Map.copyOf(m);
+                });
+            });
+        }
+    }
+
+    // -------- WatchService --------
+
+    private void startWatcher() {
+        try {
+            watcher = root.getFileSystem().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Warning: media index watch disabled: " + e.getMessage());
+            return;
+        }
+        registerWatch(root.resolve("inspections"));
+        Thread t = new Thread(this::watchLoop, "media-index-watch");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void registerWatch(Path dir) {
+        WatchService w = watcher;
+        if (w == null) return;
+        try {
+            WatchKey key = dir.register(w, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+        } catch (IOException | ClosedWatchServiceException ignore) { /* dir vanished or shutting down */ }
+    }
+
+    private void watchLoop() {
+        Path inspectionsDir = root.resolve("inspections");
+        while (true) {
+            WatchService w = watcher;
+            if (w == null) return;
+            WatchKey key;
+            try {
+                key = w.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> ev : key.pollEvents()) {
+                if (ev.kind() == OVERFLOW) {
+                    rebuild();
+                    continue;
+                }
+                if (dir == null) continue;
+                Path child = dir.resolve((Path) ev.context());
+                if (ev.kind() == ENTRY_DELETE) {
+                    recordDelete(keyOf(child));
+                } else if (dir.equals(inspectionsDir) && Files.isDirectory(child)) {
+                    // new transformer folder: watch it and pick up anything already inside
+                    registerWatch(child);
+                    try (Stream<Path> s = Files.list(child)) {
+                        s.forEach(this::recordLocalChange);
+                    } catch (IOException ignore) { }
+                } else {
+                    recordLocalChange(child);
+                }
+            }
+            if (!key.reset()) watchedDirs.remove(key);
+        }
+    }
+
+    private void recordLocalChange(Path file) {
+        String key = keyOf(file);
+        if (key == null) return;
+        try {
+            blobStore.head(key).ifPresentOrElse(this::recordWrite, () -> recordDelete(key));
+        } catch (IOException e) {
+            recordDelete(key);
+        }
+    }
+
+    private String keyOf(Path file) {
+        Path abs = file.toAbsolutePath().normalize();
+        if (root == null || !abs.startsWith(root)) return null;
+        return root.relativize(abs).toString().replace('\\', '/');
+    }
+
+    // -------- key parsing --------
+
+    private record Parsed(Key key, String ext) {}
+
+    private static Parsed parse(String rel) {
+        String[] parts = rel.split("/");
+        if (parts.length == 2 && parts[0].equals("baseline")) {
+            String[] nameExt = splitExt(parts[1]);
+            if (nameExt == null) return null;
+            return new Parsed(new Key(Kind.BASELINE, nameExt[0], null), nameExt[1]);
+        }
+        if (parts.length == 3 && parts[0].equals("inspections")) {
+            String[] nameExt = splitExt(parts[2]);
+            if (nameExt == null) return null;
+            return new Parsed(new Key(Kind.THERMAL, parts[1], nameExt[0]), nameExt[1]);
+        }
+        return null;
+    }
+
+    private static String[] splitExt(String file) {
+        if (file.startsWith(".")) return null; // hidden / in-flight temp files
+        int dot = file.lastIndexOf('.');
+        if (dot <= 0 || dot == file.length() - 1) return null;
+        return new String[] { file.substring(0, dot), file.substring(dot + 1).toLowerCase(Locale.ROOT) };
+    }
+}
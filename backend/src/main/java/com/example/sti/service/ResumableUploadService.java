@@ -0,0 +1,475 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.ResumableUploadReq;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * tus-like resumable uploads for thermal and baseline images.
+ * - create: reserves an id and an empty staging file (<staging-dir>/<id>.part)
+ * - append: writes a chunk at the current offset (positional channel write), optionally checksummed
+ * - finalize: verifies length + whole-file SHA-256 and hands the file to the normal thermal/baseline logic
+ * Incomplete uploads expire after the TTL (measured from the last chunk).
+ * Each upload's state lives in <id>.json next to its part file, so uploads survive a restart and can
+ * be continued on any node that shares the staging dir; memory only caches it (plus the running
+ * digest), and a file lock on the part file keeps two nodes from writing one upload at once.
+ */
+@Service
+public class ResumableUploadService {
+
+    public enum Kind { THERMAL, BASELINE }
+
+    /** Carries the HTTP status the controller should answer with. */
+    public static class UploadException extends RuntimeException {
+        private final int status;
+        public UploadException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+        public int getStatus() { return status; }
+    }
+
+    public static final class Upload {
+        private final String id;
+        private final Kind kind;
+        private final String transformerNo;
+        private final String inspectionId;
+        private final String ext;
+        private final long length;
+        private final String expectedSha256;
+        private final String uploaderName;
+        private final String weatherCondition;
+        private final Path part;
+        private final Path meta;
+        private final MessageDigest digest = newDigest("SHA-256");
+        private final ReentrantLock lock = new ReentrantLock();
+        private long digested; // bytes fed to digest; it is rebuilt from the part file when this lags the offset
+        private volatile long offset;
+        private volatile Instant expiresAt;
+        private volatile String sha256; // whole-file hash, computed once at finalize and kept for retries
+
+        private Upload(Meta m, Path part, Path meta) {
+            this.id = m.id;
+            this.kind = m.kind;
+            this.transformerNo = m.transformerNo;
+            this.inspectionId = m.inspectionId;
+            this.ext = m.ext;
+            this.length = m.length;
+            this.expectedSha256 = m.expectedSha256;
+            this.uploaderName = m.uploaderName;
+            this.weatherCondition = m.weatherCondition;
+            this.part = part;
+            this.meta = meta;
+            apply(m);
+        }
+
+        private void apply(Meta m) {
+            this.offset = m.offset;
+            this.expiresAt = Instant.parse(m.expiresAt);
+            this.sha256 = m.sha256;
+        }
+
+        private Meta toMeta() {
+            Meta m = new Meta();
+            m.id = id;
+            m.kind = kind;
+            m.transformerNo = transformerNo;
+            m.inspectionId = inspectionId;
+            m.ext = ext;
+            m.length = length;
+            m.expectedSha256 = expectedSha256;
+            m.uploaderName = uploaderName;
+            m.weatherCondition = weatherCondition;
+            m.offset = offset;
+            m.expiresAt = expiresAt.toString();
+            m.sha256 = sha256;
+            return m;
+        }
+
+        public String getId() { return id; }
+        public Kind getKind() { return kind; }
+        public long getOffset() { return offset; }
+        public long getLength() { return length; }
+        public Instant getExpiresAt() { return expiresAt; }
+    }
+
+    /** What <id>.json holds. */
+    static final class Meta {
+        public String id;
+        public Kind kind;
+        public String transformerNo;
+        public String inspectionId;
+        public String ext;
+        public long length;
+        public String expectedSha256;
+        public String uploaderName;
+        public String weatherCondition;
+        public long offset;
+        public String expiresAt;
+        public String sha256;
+    }
+
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{32}");
+
+    private final ThermalImageService thermalImages;
+    private final BaselineService baseline;
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${uploads.resumable.staging-dir:storage/uploads}")
+    private String stagingDir;
+
+    @Value("${uploads.resumable.ttl:PT24H}")
+    private Duration ttl;
+
+    @Value("${uploads.resumable.max-size:50MB}")
+    private DataSize maxSize;
+
+    @Value("${uploads.resumable.max-chunk-size:8MB}")
+    private DataSize maxChunkSize;
+
+    public ResumableUploadService(ThermalImageService thermalImages, BaselineService baseline) {
+        this.thermalImages = thermalImages;
+        this.baseline = baseline;
+    }
+
+    public Upload create(ResumableUploadReq req) throws IOException {
+        Kind kind = parseKind(req.kind);
+        if (req.transformerNo == null || req.transformerNo.isBlank()) {
+            throw new UploadException(400, "transformerNo is required");
+        }
+        if (req.length <= 0 || req.length > maxSize.toBytes()) {
+            throw new UploadException(413, "length must be between 1 and " + maxSize.toBytes() + " bytes");
+        }
+
+        String ext;
+        if (kind == Kind.THERMAL) {
+            if (req.inspectionId == null || req.inspectionId.isBlank()) {
+                throw new UploadException(400, "inspectionId is required for thermal uploads");
+            }
+            ext = ThermalImageService.extensionOf(req.filename);
+            if (!ThermalImageService.isAllowedExtension(ext)) {
+                throw new UploadException(400, "Unsupported file type: " + ext);
+            }
+        } else {
+            ext = BaselineService.extensionOf(req.filename, req.contentType);
+        }
+
+        String id = UUID.randomUUID().toString().replace("-", "");
+        Path dir = stagingRoot();
+        Files.createDirectories(dir);
+        Path part = dir.resolve(id + ".part");
+        Files.createFile(part);
+
+        Meta m = new Meta();
+        m.id = id;
+        m.kind = kind;
+        m.transformerNo = req.transformerNo;
+        m.inspectionId = req.inspectionId;
+        m.ext = ext;
+        m.length = req.length;
+        m.expectedSha256 = req.sha256 == null || req.sha256.isBlank() ? null : req.sha256.trim().toLowerCase(Locale.ROOT);
+        m.uploaderName = req.uploaderName;
+        m.weatherCondition = req.weatherCondition;
+        m.expiresAt = Instant.now().plus(ttl).toString();
+        Upload upload = new Upload(m, part, dir.resolve(id + ".json"));
+        save(upload);
+        uploads.put(id, upload);
+        return upload;
+    }
+
+    /** The upload as its metadata file has it now (another node may have moved it on). */
+    public Optional<Upload> find(String id) {
+        if (id == null || !ID.matcher(id).matches()) return Optional.empty();
+        Upload u = uploads.computeIfAbsent(id, this::load);
+        if (u == null) return Optional.empty();
+        if (!refresh(u) || u.expiresAt.isBefore(Instant.now())) {
+            uploads.remove(id, u);
+            return Optional.empty();
+        }
+        return Optional.of(u);
+    }
+
+    /**
+     * Append one chunk. The client must send the offset it believes the server has (tus semantics);
+     * a mismatch answers 409 so it can HEAD for the real offset and resume from there.
+     *
+     * @param checksumHeader optional "Upload-Checksum: <algo> <base64>" (sha1, sha256, md5)
+     * @return the new offset
+     */
+    public long append(String id, long clientOffset, InputStream body, String checksumHeader) throws IOException {
+        Upload u = find(id).orElseThrow(() -> new UploadException(404, "Upload not found or expired: " + id));
+        if (!u.lock.tryLock()) {
+            throw new UploadException(409, "Another chunk is being written for this upload");
+        }
+        try (FileChannel ch = FileChannel.open(u.part, StandardOpenOption.WRITE);
+             FileLock ignored = lockOrBusy(ch, "Another chunk is being written for this upload")) {
+            if (!refresh(u)) throw new UploadException(404, "Upload not found or expired: " + id);
+            if (clientOffset != u.offset) {
+                throw new UploadException(409, "Offset mismatch: expected " + u.offset + " but got " + clientOffset);
+            }
+
+            long remaining = u.length - u.offset;
+            int limit = (int) Math.min(maxChunkSize.toBytes(), remaining);
+            byte[] chunk = body.readNBytes(limit);
+            if (chunk.length == limit && body.read() != -1) {
+                throw new UploadException(413, "Chunk exceeds remaining length or max chunk size (" + limit + " bytes)");
+            }
+            if (chunk.length == 0) return u.offset;
+
+            verifyChunkChecksum(chunk, checksumHeader);
+
+            if (ch.size() > u.offset) ch.truncate(u.offset); // bytes of a write whose metadata never got saved
+            ByteBuffer buf = ByteBuffer.wrap(chunk);
+            long pos = u.offset;
+            while (buf.hasRemaining()) {
+                pos += ch.write(buf, pos);
+            }
+
+            // Only advance state once the bytes are on disk
+            if (u.digested == u.offset) {
+                u.digest.update(chunk);
+                u.digested += chunk.length;
+            }
+            u.offset += chunk.length;
+            u.expiresAt = Instant.now().plus(ttl);
+            save(u);
+            return u.offset;
+        } finally {
+            u.lock.unlock();
+        }
+    }
+
+    /**
+     * Verify and hand off a complete upload to the thermal/baseline logic. The staging file is
+     * removed afterwards regardless of outcome once the content itself is known to be good.
+     */
+    public Map<String, Object> complete(String id) throws Exception {
+        Upload u = find(id).orElseThrow(() -> new UploadException(404, "Upload not found or expired: " + id));
+        if (!u.lock.tryLock()) {
+            throw new UploadException(409, "Upload is busy");
+        }
+        try (FileChannel ch = FileChannel.open(u.part, StandardOpenOption.WRITE);
+             FileLock ignored = lockOrBusy(ch, "Upload is busy")) {
+            if (!refresh(u)) throw new UploadException(404, "Upload not found or expired: " + id);
+            if (u.offset != u.length) {
+                throw new UploadException(409, "Upload incomplete: " + u.offset + " of " + u.length + " bytes");
+            }
+            if (u.sha256 == null) {
+                u.sha256 = HexFormat.of().formatHex(u.digested == u.length ? u.digest.digest() : hashPart(u));
+                u.digested = -1; // digest() reset it; a retried finalize uses sha256
+                save(u);
+            }
+            String actual = u.sha256;
+            if (u.expectedSha256 != null && !u.expectedSha256.equals(actual)) {
+                discard(u);
+                throw new UploadException(460, "Checksum mismatch: expected " + u.expectedSha256 + " but got " + actual);
+            }
+
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("ok", true);
+            out.put("uploadId", u.id);
+            out.put("sha256", actual);
+            try (InputStream in = Files.newInputStream(u.part)) {
+                if (u.kind == Kind.THERMAL) {
+                    ThermalImageService.ThermalUpload saved = thermalImages.saveThermalImage(
+                            u.transformerNo, u.inspectionId, u.uploaderName, u.weatherCondition, u.ext, in, u.length);
+                    out.put("currentImage", saved.publicUrl());
+                    out.put("currentTimestamp", saved.uploadedAt().toString());
+                    out.put("thermalImagePath", saved.relativePath());
+                    out.put("status", "COMPLETED");
+                    out.put("maintenanceDate", saved.uploadedAt().toString());
+                } else {
+                    String uploader = (u.uploaderName != null && !u.uploaderName.isBlank()) ? u.uploaderName : "admin";
+                    String savedRel = baseline.saveBaseline(u.transformerNo, u.ext, in, u.length, uploader);
+                    out.put("transformerNo", u.transformerNo);
+                    out.put("savedPath", savedRel);
+                    out.put("baselineUrl", "/media/" + savedRel);
+                    out.put("uploaderName", uploader);
+                }
+            }
+            discard(u);
+            return out;
+        } finally {
+            u.lock.unlock();
+        }
+    }
+
+    public boolean cancel(String id) {
+        Optional<Upload> u = find(id);
+        u.ifPresent(this::discard);
+        return u.isPresent();
+    }
+
+    /**
+     * Drop expired uploads (whichever node created them) and staging files without metadata. Every
+     * node may run this; an upload another node is writing is skipped.
+     */
+    @Scheduled(fixedDelayString = "${uploads.resumable.sweep-interval:PT10M}")
+    public void expireStale() {
+        Instant now = Instant.now();
+        Path dir = stagingRoot();
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.{part,json}")) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                String id = name.substring(0, name.lastIndexOf('.'));
+                try {
+                    if (name.endsWith(".part")) {
+                        if (!Files.exists(dir.resolve(id + ".json"))
+                                && Files.getLastModifiedTime(p).toInstant().plus(ttl).isBefore(now)) {
+                            deleteQuietly(p);
+                        }
+                        continue;
+                    }
+                    Upload u = uploads.computeIfAbsent(id, this::load);
+                    if (u == null || !u.lock.tryLock()) continue;
+                    try (FileChannel ch = FileChannel.open(u.part, StandardOpenOption.WRITE);
+                         FileLock lock = ch.tryLock()) {
+                        if (lock != null && refresh(u) && u.expiresAt.isBefore(now)) discard(u);
+                    } catch (OverlappingFileLockException busy) {
+                        // being written through another instance of this upload
+                    } finally {
+                        u.lock.unlock();
+                    }
+                } catch (IOException ignore) { /* raced with another delete */ }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: failed to sweep resumable uploads: " + e.getMessage());
+        }
+        uploads.values().removeIf(u -> !Files.exists(u.meta));
+    }
+
+    // -------- helpers --------
+
+    private void discard(Upload u) {
+        uploads.remove(u.id);
+        deleteQuietly(u.meta); // first: without it the upload is gone even if the part delete fails
+        deleteQuietly(u.part);
+    }
+
+    /** Write the metadata file atomically (temp file + rename). */
+    private void save(Upload u) throws IOException {
+        Path tmp = u.meta.resolveSibling(u.id + ".json.tmp");
+        mapper.writeValue(tmp.toFile(), u.toMeta());
+        Files.move(tmp, u.meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** The upload from its metadata file, or null when there is none (finished, cancelled or expired). */
+    private Upload load(String id) {
+        Path dir = stagingRoot();
+        Path meta = dir.resolve(id + ".json");
+        try {
+            return new Upload(mapper.readValue(meta.toFile(), Meta.class), dir.resolve(id + ".part"), meta);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Re-read offset, expiry and hash from the metadata file; false when it is gone. */
+    private boolean refresh(Upload u) {
+        try {
+            u.apply(mapper.readValue(u.meta.toFile(), Meta.class));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static FileLock lockOrBusy(FileChannel ch, String busyMessage) throws IOException {
+        try {
+            FileLock lock = ch.tryLock();
+            if (lock != null) return lock;
+        } catch (OverlappingFileLockException e) {
+            // held through another instance of this upload in this JVM
+        }
+        throw new UploadException(409, busyMessage);
+    }
+
+    /** SHA-256 of the part file, for uploads resumed after a restart or on another node. */
+    private static byte[] hashPart(Upload u) throws IOException {
+        MessageDigest d = newDigest("SHA-256");
+        try (InputStream in = Files.newInputStream(u.part)) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) != -1) d.update(buf, 0, n);
+        }
+        return d.digest();
+    }
+
+    private Path stagingRoot() {
+        return Paths.get(stagingDir).toAbsolutePath().normalize();
+    }
+
+    private static Kind parseKind(String kind) {
+        if (kind == null) throw new UploadException(400, "kind is required (thermal or baseline)");
+        try {
+            return Kind.valueOf(kind.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new UploadException(400, "Unknown kind: " + kind + " (expected thermal or baseline)");
+        }
+    }
+
+    private static void verifyChunkChecksum(byte[] chunk, String header) {
+        if (header == null || header.isBlank()) return;
+        String[] parts = header.trim().split("\\s+", 2);
+        if (parts.length != 2) throw new UploadException(400, "Malformed Upload-Checksum header");
+        String algo = switch (parts[0].toLowerCase(Locale.ROOT)) {
+            case "sha1" -> "SHA-1";
+            case "sha256" -> "SHA-256";
+            case "md5" -> "MD5";
+            default -> throw new UploadException(400, "Unsupported checksum algorithm: " + parts[0]);
+        };
+        byte[] expected;
+        try {
+            expected = Base64.getDecoder().decode(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new UploadException(400, "Upload-Checksum value is not base64");
+        }
+        if (!MessageDigest.isEqual(expected, newDigest(algo).digest(chunk))) {
+            throw new UploadException(460, "Chunk checksum mismatch");
+        }
+    }
+
+    private static MessageDigest newDigest(String algo) {
+        try {
+            return MessageDigest.getInstance(algo);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algo + " not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        try { Files.deleteIfExists(p); } catch (IOException ignore) { /* swept later */ }
+    }
+}
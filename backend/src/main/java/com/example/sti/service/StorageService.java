@@ -4,14 +4,12 @@ import com.example.sti.entity.ImageAsset;
 import com.example.sti.entity.Inspection;
 import com.example.sti.repo.ImageAssetRepository;
 import com.example.sti.repo.InspectionRepository;
-import org.springframework.beans.factory.annotation.Value;
+import com.example.sti.storage.BlobStore;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 
@@ -20,38 +18,31 @@ public class StorageService {
 
     private final ImageAssetRepository images;
     private final InspectionRepository inspections;
+    private final BlobStore blobStore;
 
-    @Value("${storage.local.base-path:storage}")
-    private String baseDirProp;
-
-    public StorageService(ImageAssetRepository images, InspectionRepository inspections) {
+    public StorageService(ImageAssetRepository images, InspectionRepository inspections, BlobStore blobStore) {
         this.images = images;
         this.inspections = inspections;
+        this.blobStore = blobStore;
     }
 
     public ImageAsset storeInspectionImage(Long inspectionId, MultipartFile file) throws IOException {
         Inspection ins = inspections.findById(inspectionId)
                 .orElseThrow(() -> new IllegalArgumentException("Inspection not found: " + inspectionId));
 
-        // Use an ABSOLUTE base path to avoid Tomcat temp resolution issues
-        Path baseRoot = Paths.get(baseDirProp).toAbsolutePath();
-        Path dir = baseRoot.resolve(Paths.get("inspections", String.valueOf(inspectionId)));
-        Files.createDirectories(dir);
-
         String original = file.getOriginalFilename();              // may be null
         String safeName = sanitizeFilename(original);
 
-        Path dest = dir.resolve(safeName);
-
-        // Use NIO copy (not MultipartFile#transferTo) to avoid servlet-relative behavior
+        // Blob key assets/<inspectionId>/<name> (served at /media/assets/...)
+        String key = "assets/" + inspectionId + "/" + safeName;
         try (InputStream in = file.getInputStream()) {
-            Files.copy(in, dest, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            blobStore.put(key, in, file.getSize(), file.getContentType());
         }
 
         ImageAsset asset = new ImageAsset();
         asset.setInspection(ins);
         asset.setFilename(safeName);
-        asset.setPath(dest.toString());      // absolute path saved
+        asset.setPath(key);                  // blob key (older rows hold an absolute path)
         asset.setCapturedAt(Instant.now());
         return images.save(asset);
     }
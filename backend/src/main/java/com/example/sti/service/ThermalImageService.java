@@ -0,0 +1,128 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.InspectionStatus;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.event.ThermalImageUploadedEvent;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import com.example.sti.storage.MediaKeys;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Stores current (thermal) images as blob inspections/{transformerNo}/{inspectionId}.{ext}
+ * and applies the usual inspection updates (uploader, weather, path, COMPLETED, maintenance date).
+ * Shared by the multipart upload endpoints and the resumable upload finalizer.
+ */
+@Service
+public class ThermalImageService {
+
+    public static final Set<String> ALLOWED_EXTS = Set.of("jpg", "jpeg", "png", "webp");
+
+    private final InspectionRepository inspectionRepository;
+    private final MediaIndexService mediaIndex;
+    private final BlobStore blobStore;
+    private final ApplicationEventPublisher events;
+
+    public ThermalImageService(InspectionRepository inspectionRepository, MediaIndexService mediaIndex, BlobStore blobStore,
+                               ApplicationEventPublisher events) {
+        this.inspectionRepository = inspectionRepository;
+        this.mediaIndex = mediaIndex;
+        this.blobStore = blobStore;
+        this.events = events;
+    }
+
+    /** Result of a stored thermal image. */
+    public record ThermalUpload(String relativePath, String publicUrl, Instant uploadedAt) {}
+
+    public static boolean isAllowedExtension(String ext) {
+        return ext != null && ALLOWED_EXTS.contains(ext.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Write the file and update the inspection row (if the id parses and exists).
+     */
+    public ThermalUpload saveThermalImage(String transformerNo, String inspectionId,
+                                          String uploaderName, String weatherCondition,
+                                          String ext, InputStream in, long length) throws IOException {
+        String relativePath = writeThermalFile(transformerNo, inspectionId, ext, in, length);
+        Instant uploadedAt = Instant.now();
+
+        try {
+            Long inspectionIdLong = Long.parseLong(inspectionId);
+            inspectionRepository.findById(inspectionIdLong).ifPresent(inspection -> {
+                applyThermalUpload(inspection, relativePath, uploaderName, weatherCondition, uploadedAt);
+                inspectionRepository.save(inspection);
+                publishUpdated(inspection);
+            });
+        } catch (NumberFormatException e) {
+            // Log but don't fail the upload if inspection ID parsing fails
+            System.err.println("Could not parse inspection ID for inspection update: " + inspectionId);
+        }
+
+        return new ThermalUpload(relativePath, "/" + relativePath, uploadedAt);
+    }
+
+    /**
+     * Store blob inspections/{transformerNo}/{inspectionId}.{ext} (overwrites) and
+     * return the path stored in the DB, e.g. "media/inspections/AZ-1/5.jpg".
+     * {@code length} may be -1 when unknown.
+     */
+    public String writeThermalFile(String transformerNo, String inspectionId, String ext, InputStream in, long length) throws IOException {
+        String key = thermalKey(transformerNo, inspectionId, ext);
+        BlobInfo info = blobStore.put(key, in, length, BlobStore.contentTypeFor(key));
+        mediaIndex.recordWrite(info);
+        return MediaKeys.thermalDbPath(key);
+    }
+
+    /** Blob key of an inspection's thermal image, e.g. "inspections/AZ-1/5.jpg". */
+    public static String thermalKey(String transformerNo, String inspectionId, String ext) {
+        return "inspections/" + safeName(transformerNo) + "/" + safeName(inspectionId) + "." + ext.toLowerCase(Locale.ROOT);
+    }
+
+    /** Inspection updates that follow a thermal upload; caller persists. */
+    public void applyThermalUpload(Inspection inspection, String relativePath,
+                                   String uploaderName, String weatherCondition, Instant uploadedAt) {
+        if (StringUtils.hasText(uploaderName)) {
+            inspection.setThermalUploaderName(uploaderName);
+        }
+        if (StringUtils.hasText(weatherCondition)) {
+            inspection.setWeatherCondition(weatherCondition);
+        }
+        inspection.setThermalImagePath(relativePath);
+        // Thermal image uploaded -> inspection COMPLETED, maintenance date = upload time
+        inspection.setStatus(InspectionStatus.COMPLETED);
+        inspection.setMaintenanceAt(uploadedAt);
+    }
+
+    /** Tell listeners (caches, aggregates, change feed) an inspection changed through an upload; inspectedAt is untouched. */
+    public void publishUpdated(Inspection inspection) {
+        Long transformerId = inspection.getTransformer() != null ? inspection.getTransformer().getId() : null;
+        events.publishEvent(new InspectionChangedEvent(transformerId, inspection.getId(), ChangeType.UPDATED,
+                inspection.getInspectedAt(), inspection.getInspectedAt()));
+        events.publishEvent(new ThermalImageUploadedEvent(transformerId, inspection.getId(), inspection.getThermalImagePath()));
+    }
+
+    /** Extension from filename, defaulting to jpg (same rule the upload form always used). */
+    public static String extensionOf(String filename) {
+        if (filename != null && filename.contains(".")) {
+            return filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        }
+        return "jpg";
+    }
+
+    /** Basic filename safety: keep letters, digits, dash, underscore. */
+    public static String safeName(String s) {
+        return s.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.sti.service;
+
+import com.example.sti.repo.ImageAssetRepository;
+import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hard-deletes soft-deleted rows once they are older than the retention window. Inspections go
+ * first (annotations, image assets, then the rows), then transformers with no inspections left.
+ * Each batch is one short transaction of set-based statements, and their media is handed to the
+ * media GC in the same transaction. Batches are spaced out and capped per run so the purge adds a
+ * steady, predictable load instead of a spike. Passes run as jobs (TombstonePurgeJobHandler), so
+ * one node in the cluster does each.
+ */
+@Service
+public class TombstonePurgeService {
+
+    private final InspectionRepository inspections;
+    private final TransformerRepository transformers;
+    private final InspectionAnnotationRepository annotations;
+    private final ImageAssetRepository imageAssets;
+    private final MediaGarbageService mediaGarbage;
+    private final TransactionTemplate tx;
+
+    @Value("${purge.retention:P30D}")
+    private Duration retention;
+
+    @Value("${purge.batch-size:200}")
+    private int batchSize;
+
+    @Value("${purge.batch-pause:PT0.5S}")
+    private Duration batchPause;
+
+    @Value("${purge.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    public TombstonePurgeService(InspectionRepository inspections,
+                                 TransformerRepository transformers,
+                                 InspectionAnnotationRepository annotations,
+                                 ImageAssetRepository imageAssets,
+                                 MediaGarbageService mediaGarbage,
+                                 PlatformTransactionManager txManager) {
+        this.inspections = inspections;
+        this.transformers = transformers;
+        this.annotations = annotations;
+        this.imageAssets = imageAssets;
+        this.mediaGarbage = mediaGarbage;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /** Purge tombstones past the retention window. */
+    public Map<String, Integer> purgeExpired() {
+        return purge(Instant.now().minus(retention));
+    }
+
+    /** Purge tombstones older than {@code cutoff}; returns the rows removed per kind. */
+    public Map<String, Integer> purge(Instant cutoff) {
+        Map<String, Integer> purged = new LinkedHashMap<>();
+        purged.put("inspections", 0);
+        purged.put("transformers", 0);
+        long started = System.nanoTime();
+        int batches = 0;
+        while (batches < maxBatchesPerRun) {
+            Integer n = tx.execute(s -> purgeInspections(cutoff));
+            if (n == null || n == 0) break;
+            purged.merge("inspections", n, Integer::sum);
+            if (++batches < maxBatchesPerRun) pause();
+        }
+        while (batches < maxBatchesPerRun) {
+            Integer n = tx.execute(s -> purgeTransformers(cutoff));
+            if (n == null || n == 0) break;
+            purged.merge("transformers", n, Integer::sum);
+            if (++batches < maxBatchesPerRun) pause();
+        }
+        if (purged.get("inspections") > 0 || purged.get("transformers") > 0) {
+            System.out.println("Tombstone purge: " + purged + " in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        }
+        return purged;
+    }
+
+    private int purgeInspections(Instant cutoff) {
+        List<Long> ids = inspections.findPurgeableIds(cutoff, batchSize);
+        if (ids.isEmpty()) return 0;
+        List<String> media = new ArrayList<>(inspections.findThermalPathsByIdIn(ids));
+        media.addAll(imageAssets.findPathsByInspectionIdIn(ids));
+        mediaGarbage.enqueue(media);
+        annotations.deleteByInspectionIdIn(ids);
+        imageAssets.deleteByInspectionIdIn(ids);
+        return inspections.purgeByIdIn(ids);
+    }
+
+    private int purgeTransformers(Instant cutoff) {
+        List<Long> ids = transformers.findPurgeableIds(cutoff, batchSize);
+        if (ids.isEmpty()) return 0;
+        mediaGarbage.enqueue(transformers.findBaselinePathsByIdIn(ids));
+        return transformers.purgeByIdIn(ids);
+    }
+
+    private void pause() {
+        if (batchPause.isZero() || batchPause.isNegative()) return;
+        try {
+            Thread.sleep(batchPause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
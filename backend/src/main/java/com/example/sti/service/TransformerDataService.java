@@ -2,25 +2,64 @@ package com.example.sti.service;
 
 import com.example.sti.entity.Inspection;
 import com.example.sti.entity.Transformer;
+import com.example.sti.entity.TransformerSummary;
 import com.example.sti.repo.InspectionRepository;
 import com.example.sti.repo.TransformerRepository;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.BulkImportedEvent;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.TransformerSummaryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Data blob for the transformer/inspection pages, behind a bounded read-through cache:
+ *   aliases: "AZ-1" or "17" (what the page asked for) -> transformer id
+ *   data:    transformer id -> the built blob
+ * Both are size- and TTL-bounded. Entries are dropped after commit by the change events
+ * every write path publishes, so repeat views are served without touching the DB.
+ * Each blob is stored with the version tag read just before it was built; a request whose
+ * If-None-Match equals the current tag gets 304 without the blob being looked at at all.
+ */
 @Service
 public class TransformerDataService {
 
     private final TransformerRepository transformers;
     private final InspectionRepository inspections;
+    private final TransformerSummaryRepository summaries;
+    private final EntityTagService tags;
+
+    private final Cache<String, Long> aliases;
+    private final Cache<Long, Tagged> data;
+    private final AtomicLong invalidations = new AtomicLong();
 
     public TransformerDataService(TransformerRepository transformers,
-                                  InspectionRepository inspections) {
+                                  InspectionRepository inspections,
+                                  TransformerSummaryRepository summaries,
+                                  EntityTagService tags,
+                                  @Value("${transformer-data.cache.max-size:1000}") long maxSize,
+                                  @Value("${transformer-data.cache.ttl:PT10M}") Duration ttl) {
         this.transformers = transformers;
         this.inspections = inspections;
+        this.summaries = summaries;
+        this.tags = tags;
+        this.aliases = Caffeine.newBuilder().maximumSize(maxSize * 2).expireAfterWrite(ttl).recordStats().build();
+        this.data = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
     }
 
     /**
@@ -30,8 +69,109 @@ public class TransformerDataService {
      * - Each inspection now includes "maintenanceDate".
      */
     public Map<String, Object> getTransformerData(String idOrNo) {
-        Transformer t = transformers.findByTransformerNo(idOrNo)
+        return data.get(resolve(idOrNo), this::load).body();
+    }
+
+    /** Page data together with the weak ETag it was built at. */
+    public record Tagged(String tag, Map<String, Object> body) {}
+
+    /** Current weak ETag of a transformer's page data (one aggregate query). */
+    public String currentTag(String idOrNo) {
+        return tags.transformerData(resolve(idOrNo))
+                .orElseThrow(() -> new RuntimeException("Transformer not found"));
+    }
+
+    /**
+     * Page data for a tag just obtained from {@link #currentTag}. A cached blob built at another
+     * tag (a write that committed before its invalidation ran) is rebuilt rather than served under
+     * a tag it does not match.
+     */
+    public Tagged getTagged(String idOrNo, String currentTag) {
+        Long id = resolve(idOrNo);
+        Tagged d = data.get(id, this::load);
+        if (!d.tag().equals(currentTag)) {
+            data.invalidate(id);
+            d = data.get(id, this::load);
+        }
+        return d;
+    }
+
+    private Long resolve(String idOrNo) {
+        Long id = aliases.get(idOrNo, this::resolveId); // null (not cached) when unknown
+        if (id == null) throw new RuntimeException("Transformer not found");
+        return id;
+    }
+
+    /** Hit/miss/eviction counters of both caches. */
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("data", statsOf(data.stats(), data.estimatedSize()));
+        out.put("aliases", statsOf(aliases.stats(), aliases.estimatedSize()));
+        out.put("invalidations", invalidations.get());
+        return out;
+    }
+
+    private static Map<String, Object> statsOf(CacheStats st, long size) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("size", size);
+        m.put("requests", st.requestCount());
+        m.put("hits", st.hitCount());
+        m.put("misses", st.missCount());
+        m.put("hitRatio", st.hitRate());
+        m.put("evictions", st.evictionCount());
+        m.put("loadFailures", st.loadFailureCount());
+        m.put("averageLoadMillis", st.averageLoadPenalty() / 1_000_000.0);
+        return m;
+    }
+
+    // -------- invalidation (after commit, so a reload always sees the new state) --------
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransformerChanged(TransformerChangedEvent e) {
+        if (e.transformerNo() != null) aliases.invalidate(e.transformerNo());
+        if (e.change() != ChangeType.CREATED) evict(e.transformerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInspectionChanged(InspectionChangedEvent e) {
+        evict(e.transformerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnnotationsChanged(AnnotationsChangedEvent e) {
+        evict(e.transformerId()); // anomaly counts are part of the blob
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkImported(BulkImportedEvent e) {
+        Set<Long> ids = new HashSet<>(e.touchedTransformerIds());
+        if (ids.isEmpty()) return;
+        data.invalidateAll(ids);
+        aliases.asMap().values().removeIf(ids::contains); // one pass, not one per transformer
+        invalidations.addAndGet(ids.size());
+    }
+
+    private void evict(Long transformerId) {
+        if (transformerId == null) return;
+        data.invalidate(transformerId);
+        // the number may have changed or the row may be gone: drop every alias pointing at it
+        aliases.asMap().values().removeIf(transformerId::equals);
+        invalidations.incrementAndGet();
+    }
+
+    // -------- loading --------
+
+    private Long resolveId(String idOrNo) {
+        return transformers.findByTransformerNo(idOrNo)
                 .or(() -> parseLong(idOrNo).flatMap(transformers::findById))
+                .map(Transformer::getId)
+                .orElse(null);
+    }
+
+    private Tagged load(Long id) {
+        // tag first: a write landing in between makes the blob newer than its tag, never older
+        String tag = tags.transformerData(id).orElseThrow(() -> new RuntimeException("Transformer not found"));
+        Transformer t = transformers.findById(id)
                 .orElseThrow(() -> new RuntimeException("Transformer not found"));
 
         // newest first (repo method must exist)
@@ -53,9 +193,10 @@ public class TransformerDataService {
         // Optional baseline URL the UI can render directly
         String baselineUrl = t.getBaselineImagePath() == null ? null : "/media/" + t.getBaselineImagePath();
 
-        // For convenience, expose the latest inspectedAt (if any)
-        String lastInspectedAt = (!list.isEmpty() && list.get(0).getInspectedAt() != null)
-                ? list.get(0).getInspectedAt().toString()
+        // Latest inspectedAt and open anomaly counts come from the maintained summary row
+        TransformerSummary summary = summaries.findById(t.getId()).orElse(null);
+        String lastInspectedAt = summary != null && summary.getLastInspectedAt() != null
+                ? summary.getLastInspectedAt().toString()
                 : null;
 
         Map<String, Object> transformer = new LinkedHashMap<>();
@@ -68,8 +209,11 @@ public class TransformerDataService {
         transformer.put("createdAt", t.getCreatedAt() == null ? null : t.getCreatedAt().toString());
         transformer.put("baselineUrl", baselineUrl);
         transformer.put("lastInspectedAt", lastInspectedAt);
+        transformer.put("inspectionCount", summary != null ? summary.getInspectionCount() : list.size());
+        transformer.put("criticalAnomalies", summary != null ? summary.getCriticalAnomalies() : 0);
+        transformer.put("potentialAnomalies", summary != null ? summary.getPotentialAnomalies() : 0);
 
-        return Map.of("transformer", transformer, "inspections", mapped);
+        return new Tagged(tag, Map.of("transformer", transformer, "inspections", mapped));
     }
 
     private Optional<Long> parseLong(String s) {
@@ -0,0 +1,65 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.Transformer;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Soft delete and restore of a transformer. Deleting stamps the transformer row and its live
+ * inspections with one deleted_at value (two statements, nothing of the history is loaded);
+ * restoring clears exactly that stamp, so inspections deleted on their own beforehand stay deleted.
+ * Rows and media are removed for good by {@link TombstonePurgeService} after the retention window.
+ */
+@Service
+public class TransformerDeletionService {
+
+    private final TransformerRepository transformers;
+    private final InspectionRepository inspections;
+    private final ApplicationEventPublisher events;
+
+    public TransformerDeletionService(TransformerRepository transformers,
+                                      InspectionRepository inspections,
+                                      ApplicationEventPublisher events) {
+        this.transformers = transformers;
+        this.inspections = inspections;
+        this.events = events;
+    }
+
+    /** Number of inspections tombstoned along with the transformer. */
+    @Transactional
+    public int delete(Transformer t) {
+        // microseconds: the stamp is matched by equality on restore and Postgres keeps no more
+        Instant at = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        transformers.softDeleteById(t.getId(), at);
+        int tombstoned = inspections.softDeleteByTransformerId(t.getId(), at);
+
+        events.publishEvent(new TransformerChangedEvent(t.getId(), t.getTransformerNo(), ChangeType.DELETED));
+        return tombstoned;
+    }
+
+    /** Bring back a soft-deleted transformer with the inspections deleted along with it; empty when none. */
+    @Transactional
+    public Optional<Transformer> restore(String transformerNo) {
+        Transformer deleted = transformers.findDeletedByTransformerNo(transformerNo).orElse(null);
+        if (deleted == null) return Optional.empty();
+        Long id = deleted.getId();
+        Instant at = deleted.getDeletedAt();
+
+        inspections.restoreByTransformerId(id, at);
+        transformers.restoreById(id);
+        Transformer restored = transformers.findById(id).orElseThrow();
+
+        // listeners treat it like a new transformer: summary recounted, rollups refreshed, feed notified
+        events.publishEvent(new TransformerChangedEvent(id, restored.getTransformerNo(), ChangeType.CREATED));
+        return Optional.of(restored);
+    }
+}
@@ -0,0 +1,488 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.Transformer;
+import com.example.sti.event.BulkImportedEvent;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.TransformerRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory transformer search so the dashboard does not have to download every transformer.
+ *   - a trie over transformerNo and one over poleNo (normalized: lower case, letters/digits only,
+ *     so "az-1234", "AZ1234" and "Az 1234" are the same key) for exact / prefix / fuzzy lookups
+ *   - a token index over region and locationDetails words (prefix match per word, all words must hit)
+ * Results are ranked exact > prefix > region/location words > fuzzy (edit distance), then by key.
+ * Built on startup, then kept current from TransformerChangedEvent / BulkImportedEvent after commit
+ * (a rolled-back write never reaches it). Writes made on other nodes raise no event here, so the
+ * index also compares a cheap fingerprint of the table every search.index.sync-interval and
+ * rebuilds when it moved; another node's change is searchable here within that interval.
+ */
+@Service
+public class TransformerSearchIndex {
+
+    /** What the index keeps per transformer; also the search result payload. */
+    public record Doc(Long id, String transformerNo, String poleNo, String region, String type,
+                      String capacity, String locationDetails, boolean starred) {
+        public static Doc of(Transformer t) {
+            return new Doc(t.getId(), t.getTransformerNo(), t.getPoleNo(), t.getRegion(), t.getType(),
+                    t.getCapacity(), t.getLocationDetails(), t.isStarred());
+        }
+    }
+
+    /** Optional exact-match filters applied on top of the text match (null = any). */
+    public record Filter(String region, String type, Boolean starred) {
+        public static final Filter NONE = new Filter(null, null, null);
+
+        boolean test(Doc d) {
+            return (region == null || region.equalsIgnoreCase(d.region()))
+                    && (type == null || type.equalsIgnoreCase(d.type()))
+                    && (starred == null || starred == d.starred());
+        }
+    }
+
+    public record Result(List<Doc> items, boolean hasMore) {}
+
+    private final TransformerRepository repo;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final Trie numbers = new Trie();
+    private final Trie poles = new Trie();
+    private final TreeMap<String, Set<Long>> tokens = new TreeMap<>();
+    private final Map<Long, String[]> tokensByDoc = new HashMap<>();
+    private volatile List<Object> builtFrom; // table fingerprint the last rebuild started from
+
+    public TransformerSearchIndex(TransformerRepository repo) {
+        this.repo = repo;
+    }
+
+    /** Runs once the context is up (after any CommandLineRunner seeding), and on demand. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long t0 = System.nanoTime();
+        List<Object> fingerprint = fingerprint(); // before the read: a write in between forces another rebuild
+        List<Transformer> all = repo.findAll();
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            numbers.clear();
+            poles.clear();
+            tokens.clear();
+            tokensByDoc.clear();
+            for (Transformer t : all) {
+                if (t.getId() != null) index(Doc.of(t));
+            }
+            builtFrom = fingerprint;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Transformer search index built: " + all.size() + " transformers in "
+                + (System.nanoTime() - t0) / 1_000_000 + " ms");
+    }
+
+    /** Rebuild when the transformers table changed since the last build (e.g. written by another node). */
+    @Scheduled(fixedDelayString = "${search.index.sync-interval:PT30S}", initialDelayString = "${search.index.sync-interval:PT30S}")
+    public void syncWithDatabase() {
+        if (!fingerprint().equals(builtFrom)) rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransformerChanged(TransformerChangedEvent e) {
+        if (e.transformerId() == null) return;
+        if (e.change() == ChangeType.DELETED) {
+            remove(e.transformerId());
+            return;
+        }
+        // the committed row, not whatever the publisher held
+        repo.findById(e.transformerId()).ifPresentOrElse(t -> put(Doc.of(t)), () -> remove(e.transformerId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkImported(BulkImportedEvent e) {
+        if (e.createdTransformerIds().isEmpty()) return;
+        for (Transformer t : repo.findAllById(e.createdTransformerIds())) put(Doc.of(t));
+    }
+
+    /** Add or replace a transformer. */
+    public void put(Doc doc) {
+        lock.writeLock().lock();
+        try {
+            unindex(doc.id());
+            index(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Drop a transformer. */
+    public void remove(Long id) {
+        if (id == null) return;
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Page [offset, offset + limit) of the ranked matches. A blank query lists everything, starred
+     * first, by transformerNo. Fuzzy matching (1 edit up to 7 characters, 2 beyond) kicks in from 3 characters.
+     */
+    public Result search(String query, Filter filter, int offset, int limit, boolean fuzzy) {
+        Filter f = filter != null ? filter : Filter.NONE;
+        Hits hits = new Hits(offset + limit + 1, f);
+        String key = normalizeKey(query);
+        List<String> words = tokenize(query);
+
+        lock.readLock().lock();
+        try {
+            if (key.isEmpty()) {
+                // browsing: starred first (as the dashboard lists them), then by transformerNo
+                if (numbers.collect(numbers.root, hits, id -> docs.get(id).starred())) {
+                    numbers.collect(numbers.root, hits, id -> !docs.get(id).starred());
+                }
+            } else {
+                boolean more = hits.offer(numbers.exact(key)) && hits.offer(poles.exact(key))
+                        && numbers.collect(numbers.find(key), hits) && poles.collect(poles.find(key), hits)
+                        && tokenMatches(words, hits);
+                if (more && fuzzy && key.length() >= 3) {
+                    int maxEdits = key.length() <= 7 ? 1 : 2;
+                    List<long[]> near = new ArrayList<>();
+                    numbers.fuzzy(key, maxEdits, near);
+                    poles.fuzzy(key, maxEdits, near);
+                    near.sort(Comparator.comparingLong(m -> m[1])); // stable: trie order within a distance
+                    for (long[] m : near) {
+                        if (!hits.offer(m[0])) break;
+                    }
+                }
+            }
+            List<Doc> page = new ArrayList<>(limit);
+            for (int i = offset; i < Math.min(hits.ids.size(), offset + limit); i++) {
+                page.add(docs.get(hits.ids.get(i)));
+            }
+            return new Result(page, hits.ids.size() > offset + limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------- index maintenance (write lock held) --------
+
+    private void index(Doc d) {
+        docs.put(d.id(), d);
+        numbers.add(normalizeKey(d.transformerNo()), d.id());
+        poles.add(normalizeKey(d.poleNo()), d.id());
+        String[] toks = docTokens(d);
+        tokensByDoc.put(d.id(), toks);
+        for (String tok : toks) {
+            tokens.computeIfAbsent(tok, k -> new HashSet<>(2)).add(d.id());
+        }
+    }
+
+    private void unindex(Long id) {
+        Doc d = docs.remove(id);
+        if (d == null) return;
+        numbers.remove(normalizeKey(d.transformerNo()), id);
+        poles.remove(normalizeKey(d.poleNo()), id);
+        String[] toks = tokensByDoc.remove(id);
+        for (String tok : toks != null ? toks : new String[0]) {
+            Set<Long> ids = tokens.get(tok);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) tokens.remove(tok);
+        }
+    }
+
+    private static String[] docTokens(Doc d) {
+        Set<String> out = new LinkedHashSet<>(tokenize(d.region()));
+        out.addAll(tokenize(d.locationDetails()));
+        return out.toArray(new String[0]);
+    }
+
+    // -------- lookups (read lock held) --------
+
+    /** Above this many candidates it is cheaper to walk transformers in key order and test each one. */
+    private static final int TOKEN_SORT_LIMIT = 2_048;
+
+    /**
+     * Transformers where every query word is a prefix of one of their region/location words, in
+     * transformerNo order. Candidates come from the most selective word and are checked against the rest;
+     * when even that word is broad, walking the number trie lets the walk stop as soon as the page is full.
+     */
+    private boolean tokenMatches(List<String> words, Hits hits) {
+        if (words.isEmpty()) return true;
+        String best = null;
+        int bestCount = Integer.MAX_VALUE;
+        for (String w : words) {
+            int count = 0;
+            for (Set<Long> ids : prefixRange(w).values()) count += ids.size();
+            if (count < bestCount) {
+                best = w;
+                bestCount = count;
+            }
+        }
+        if (bestCount == 0) return true;
+        if (bestCount > TOKEN_SORT_LIMIT) {
+            return numbers.collect(numbers.root, hits, id -> hasAllWords(id, words));
+        }
+        Set<Long> candidates = new HashSet<>();
+        for (Set<Long> ids : prefixRange(best).values()) candidates.addAll(ids);
+        List<Long> ordered = new ArrayList<>(candidates.size());
+        for (Long id : candidates) {
+            if (hasAllWords(id, words)) ordered.add(id);
+        }
+        ordered.sort(Comparator.comparing((Long id) -> normalizeKey(docs.get(id).transformerNo())).thenComparing(id -> id));
+        return hits.offer(ordered);
+    }
+
+    private SortedMap<String, Set<Long>> prefixRange(String w) {
+        return tokens.subMap(w, w + Character.MAX_VALUE);
+    }
+
+    private boolean hasAllWords(long id, List<String> words) {
+        String[] toks = tokensByDoc.get(id);
+        if (toks == null) return false;
+        for (String w : words) {
+            boolean found = false;
+            for (String t : toks) {
+                if (t.startsWith(w)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /** Ordered, de-duplicated, filtered hits; stops accepting once it holds {@code cap}. */
+    private final class Hits {
+        final List<Long> ids = new ArrayList<>();
+        final Set<Long> seen = new HashSet<>();
+        final int cap;
+        final Filter filter;
+
+        Hits(int cap, Filter filter) {
+            this.cap = cap;
+            this.filter = filter;
+        }
+
+        /** false once full, so callers can stop walking */
+        boolean offer(long id) {
+            if (ids.size() >= cap) return false;
+            Doc d = docs.get(id);
+            if (d != null && filter.test(d) && seen.add(id)) ids.add(id);
+            return ids.size() < cap;
+        }
+
+        boolean offer(Collection<Long> more) {
+            for (Long id : more) {
+                if (!offer(id)) return false;
+            }
+            return ids.size() < cap;
+        }
+    }
+
+    // -------- normalization --------
+
+    static String normalizeKey(String s) {
+        if (s == null) return "";
+        StringBuilder b = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c)) b.append(Character.toLowerCase(c));
+        }
+        return b.toString();
+    }
+
+    static List<String> tokenize(String s) {
+        if (s == null || s.isBlank()) return List.of();
+        List<String> out = new ArrayList<>();
+        for (String part : s.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!part.isEmpty()) out.add(part);
+        }
+        return out;
+    }
+
+    /** Row count, version total and highest id of live transformers: moves on any create, edit, delete or restore. */
+    private List<Object> fingerprint() {
+        return Arrays.asList(repo.searchIndexFingerprint().get(0));
+    }
+
+    // -------- trie --------
+
+    /** Character trie with sorted child arrays, so a depth-first walk yields keys in order. */
+    private static final class Trie {
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_KIDS = new Node[0];
+        private static final long[] NO_IDS = new long[0];
+
+        private static final class Node {
+            char[] labels = NO_LABELS;
+            Node[] kids = NO_KIDS;
+            long[] ids = NO_IDS; // transformers whose key ends here (normally one)
+
+            Node child(char c) {
+                int i = Arrays.binarySearch(labels, c);
+                return i >= 0 ? kids[i] : null;
+            }
+
+            Node childOrCreate(char c) {
+                int i = Arrays.binarySearch(labels, c);
+                if (i >= 0) return kids[i];
+                int at = -i - 1;
+                Node n = new Node();
+                char[] l = new char[labels.length + 1];
+                Node[] k = new Node[kids.length + 1];
+                System.arraycopy(labels, 0, l, 0, at);
+                System.arraycopy(kids, 0, k, 0, at);
+                l[at] = c;
+                k[at] = n;
+                System.arraycopy(labels, at, l, at + 1, labels.length - at);
+                System.arraycopy(kids, at, k, at + 1, kids.length - at);
+                labels = l;
+                kids = k;
+                return n;
+            }
+
+            void removeChild(char c) {
+                int i = Arrays.binarySearch(labels, c);
+                if (i < 0) return;
+                char[] l = new char[labels.length - 1];
+                Node[] k = new Node[kids.length - 1];
+                System.arraycopy(labels, 0, l, 0, i);
+                System.arraycopy(kids, 0, k, 0, i);
+                System.arraycopy(labels, i + 1, l, i, labels.length - i - 1);
+                System.arraycopy(kids, i + 1, k, i, kids.length - i - 1);
+                labels = l.length == 0 ? NO_LABELS : l;
+                kids = k.length == 0 ? NO_KIDS : k;
+            }
+
+            boolean isEmpty() {
+                return ids.length == 0 && kids.length == 0;
+            }
+        }
+
+        private Node root = new Node();
+
+        void clear() {
+            root = new Node();
+        }
+
+        void add(String key, long id) {
+            if (key.isEmpty()) return;
+            Node n = root;
+            for (int i = 0; i < key.length(); i++) n = n.childOrCreate(key.charAt(i));
+            for (long existing : n.ids) {
+                if (existing == id) return;
+            }
+            n.ids = Arrays.copyOf(n.ids, n.ids.length + 1);
+            n.ids[n.ids.length - 1] = id;
+        }
+
+        void remove(String key, long id) {
+            if (!key.isEmpty()) remove(root, key, 0, id);
+        }
+
+        /** Returns true when {@code n} became empty and can be unlinked by its parent. */
+        private boolean remove(Node n, String key, int depth, long id) {
+            if (depth == key.length()) {
+                int at = -1;
+                for (int i = 0; i < n.ids.length; i++) {
+                    if (n.ids[i] == id) at = i;
+                }
+                if (at >= 0) {
+                    long[] ids = new long[n.ids.length - 1];
+                    System.arraycopy(n.ids, 0, ids, 0, at);
+                    System.arraycopy(n.ids, at + 1, ids, at, n.ids.length - at - 1);
+                    n.ids = ids.length == 0 ? NO_IDS : ids;
+                }
+                return n.isEmpty();
+            }
+            char c = key.charAt(depth);
+            Node child = n.child(c);
+            if (child != null && remove(child, key, depth + 1, id)) n.removeChild(c);
+            return n != root && n.isEmpty();
+        }
+
+        Node find(String prefix) {
+            Node n = root;
+            for (int i = 0; i < prefix.length() && n != null; i++) n = n.child(prefix.charAt(i));
+            return n;
+        }
+
+        List<Long> exact(String key) {
+            Node n = find(key);
+            if (n == null || n.ids.length == 0) return List.of();
+            List<Long> out = new ArrayList<>(n.ids.length);
+            for (long id : n.ids) out.add(id);
+            return out;
+        }
+
+        /** Depth-first (i.e. key order) over the subtree; false once the sink is full. */
+        boolean collect(Node n, Hits out) {
+            return collect(n, out, id -> true);
+        }
+
+        boolean collect(Node n, Hits out, LongPredicate accept) {
+            if (n == null) return true;
+            for (long id : n.ids) {
+                if (accept.test(id) && !out.offer(id)) return false;
+            }
+            for (Node kid : n.kids) {
+                if (!collect(kid, out, accept)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Keys within {@code maxEdits} Levenshtein edits of {@code key}: one DP row per trie level,
+         * pruning any branch whose row minimum already exceeds the budget. Adds {id, distance} pairs.
+         */
+        void fuzzy(String key, int maxEdits, List<long[]> out) {
+            int len = key.length();
+            int[][] rows = new int[len + maxEdits + 2][len + 1]; // one DP row per depth, reused across branches
+            for (int j = 0; j <= len; j++) rows[0][j] = j;
+            fuzzy(root, key, rows, 0, maxEdits, out);
+        }
+
+        private void fuzzy(Node n, String key, int[][] rows, int depth, int maxEdits, List<long[]> out) {
+            if (depth + 1 >= rows.length) return; // longer than key + maxEdits: cannot match
+            int len = key.length();
+            int[] prev = rows[depth];
+            int[] row = rows[depth + 1];
+            for (int i = 0; i < n.kids.length; i++) {
+                char c = n.labels[i];
+                row[0] = prev[0] + 1;
+                int min = row[0];
+                for (int j = 1; j <= len; j++) {
+                    int cost = key.charAt(j - 1) == c ? 0 : 1;
+                    row[j] = Math.min(Math.min(row[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                    if (row[j] < min) min = row[j];
+                }
+                Node kid = n.kids[i];
+                if (row[len] <= maxEdits) {
+                    for (long id : kid.ids) out.add(new long[]{id, row[len]});
+                }
+                if (min <= maxEdits) fuzzy(kid, key, rows, depth + 1, maxEdits, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.AnomalyCounts;
+import com.example.sti.dto.TransformerOverviewRow;
+import com.example.sti.entity.TransformerSummary;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.BulkImportedEvent;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerSummaryRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Keeps transformer_summaries (last inspection, inspection count, open anomalies by severity)
+ * current from change events. Listeners run synchronously inside the publisher's transaction,
+ * so a summary never commits without the change it reflects. Updates are deltas; only moving
+ * lastInspectedAt backwards (edit/delete of the newest inspection) costs a MAX() lookup.
+ * Rows missing at startup (existing data, rows written by seeders) are backfilled.
+ */
+@Service
+public class TransformerSummaryService {
+
+    private final TransformerSummaryRepository summaries;
+    private final InspectionRepository inspections;
+    private final InspectionAnnotationRepository annotations;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public TransformerSummaryService(TransformerSummaryRepository summaries,
+                                     InspectionRepository inspections,
+                                     InspectionAnnotationRepository annotations) {
+        this.summaries = summaries;
+        this.inspections = inspections;
+        this.annotations = annotations;
+    }
+
+    /** One page of the overview plus the cursor for the next one (null on the last page). */
+    public record Page(List<TransformerOverviewRow> items, String nextCursor) {}
+
+    @Transactional(readOnly = true)
+    public Page overview(int limit, String cursor) {
+        PageRequest fetch = PageRequest.ofSize(limit + 1); // one extra row tells us whether another page exists
+        List<TransformerOverviewRow> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = summaries.findOverview(fetch);
+        } else {
+            List<String> after = decodeCursor(cursor);
+            rows = summaries.findOverviewAfter(after.get(0), Long.parseLong(after.get(1)), fetch);
+        }
+        String next = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            TransformerOverviewRow last = rows.get(limit - 1);
+            next = encodeCursor(last.transformerNo != null ? last.transformerNo : "", last.id);
+        }
+        return new Page(rows, next);
+    }
+
+    // -------- event listeners --------
+
+    @EventListener
+    @Transactional
+    public void onTransformerChanged(TransformerChangedEvent e) {
+        if (e.transformerId() == null) return;
+        if (e.change() == ChangeType.CREATED && !summaries.existsById(e.transformerId())) {
+            recompute(e.transformerId()); // a restored transformer comes back with its history
+        } else if (e.change() == ChangeType.DELETED) {
+            summaries.findById(e.transformerId()).ifPresent(summaries::delete);
+        }
+    }
+
+    @EventListener
+    @Transactional
+    public void onInspectionChanged(InspectionChangedEvent e) {
+        Long tid = e.transformerId();
+        if (tid == null) return;
+        Instant now = Instant.now();
+        switch (e.change()) {
+            case CREATED -> {
+                if (summaries.addInspections(tid, 1, now) == 0) {
+                    recompute(tid);
+                    return;
+                }
+                if (e.inspectedAt() != null) summaries.advanceLastInspected(tid, e.inspectedAt(), now);
+            }
+            case UPDATED -> {
+                if (Objects.equals(e.previousInspectedAt(), e.inspectedAt())) return;
+                if (e.previousInspectedAt() == null
+                        || (e.inspectedAt() != null && e.inspectedAt().isAfter(e.previousInspectedAt()))) {
+                    if (summaries.advanceLastInspected(tid, e.inspectedAt(), now) == 0 && !summaries.existsById(tid)) {
+                        recompute(tid);
+                    }
+                } else {
+                    // moved back in time: it may have been the newest one
+                    refreshLastInspected(tid, now);
+                }
+            }
+            case DELETED -> {
+                if (summaries.addInspections(tid, -1, now) == 0) {
+                    recompute(tid);
+                    return;
+                }
+                refreshLastInspected(tid, now);
+            }
+        }
+    }
+
+    @EventListener
+    @Transactional
+    public void onAnnotationsChanged(AnnotationsChangedEvent e) {
+        if (e.transformerId() == null) return;
+        AnomalyCounts before = e.before() != null ? e.before() : AnomalyCounts.NONE;
+        AnomalyCounts after = e.after() != null ? e.after() : AnomalyCounts.NONE;
+        AnomalyCounts delta = after.minus(before);
+        if (delta.isZero()) return;
+        if (summaries.addAnomalies(e.transformerId(), delta.critical(), delta.potential(), Instant.now()) == 0) {
+            recompute(e.transformerId());
+        }
+    }
+
+    /**
+     * Imported chunks are applied with two set-based statements rather than replayed row by row.
+     * Imported inspections carry no annotations, so anomaly counts are unaffected.
+     */
+    @EventListener
+    @Transactional
+    public void onBulkImported(BulkImportedEvent e) {
+        if (e.touchedTransformerIds().isEmpty()) return;
+        Instant now = Instant.now();
+        summaries.insertMissing(e.touchedTransformerIds(), now);
+        if (!e.createdInspectionIds().isEmpty()) summaries.recountInspections(e.touchedTransformerIds(), now);
+    }
+
+    /** Open anomaly counts of one inspection as currently stored (for "before" snapshots). */
+    @Transactional(readOnly = true)
+    public AnomalyCounts currentAnomalies(Long inspectionId) {
+        List<Object[]> rows = annotations.countOpenAnomalies(inspectionId);
+        if (rows.isEmpty()) return AnomalyCounts.NONE;
+        return AnomalyCounts.fromCriticalAndTotal(rows.get(0)[0], rows.get(0)[1]);
+    }
+
+    // -------- full recompute / backfill --------
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillMissing() {
+        List<Long> missing = summaries.findTransformerIdsWithoutSummary();
+        if (missing.isEmpty()) return;
+        for (int from = 0; from < missing.size(); from += 500) {
+            recompute(missing.subList(from, Math.min(missing.size(), from + 500)));
+        }
+        System.out.println("Transformer summaries backfilled for " + missing.size() + " transformers");
+    }
+
+    /** Recount one transformer from scratch (creates the row if needed). */
+    @Transactional
+    public void recompute(Long transformerId) {
+        recompute(List.of(transformerId));
+    }
+
+    private void recompute(List<Long> transformerIds) {
+        Map<Long, TransformerSummary> byId = new HashMap<>();
+        summaries.findAllById(transformerIds).forEach(s -> byId.put(s.getTransformerId(), s));
+        Instant now = Instant.now();
+        for (Long id : transformerIds) {
+            TransformerSummary s = byId.computeIfAbsent(id, TransformerSummary::new);
+            s.setInspectionCount(0);
+            s.setLastInspectedAt(null);
+            s.setCriticalAnomalies(0);
+            s.setPotentialAnomalies(0);
+            s.setUpdatedAt(now);
+        }
+        for (Object[] r : inspections.summarizeByTransformer(transformerIds)) {
+            TransformerSummary s = byId.get((Long) r[0]);
+            s.setInspectionCount(((Number) r[1]).intValue());
+            s.setLastInspectedAt((Instant) r[2]);
+        }
+        for (Object[] r : annotations.countOpenAnomaliesByTransformer(transformerIds)) {
+            AnomalyCounts c = AnomalyCounts.fromCriticalAndTotal(r[1], r[2]);
+            TransformerSummary s = byId.get((Long) r[0]);
+            s.setCriticalAnomalies(c.critical());
+            s.setPotentialAnomalies(c.potential());
+        }
+        summaries.saveAll(byId.values());
+    }
+
+    private void refreshLastInspected(Long transformerId, Instant now) {
+        summaries.setLastInspected(transformerId, inspections.findLastInspectedAt(transformerId), now);
+    }
+
+    // -------- cursor --------
+
+    private String encodeCursor(String transformerNo, Long id) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mapper.writeValueAsBytes(List.of(transformerNo, String.valueOf(id))));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    private List<String> decodeCursor(String cursor) {
+        try {
+            List<String> parts = mapper.readValue(Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII)),
+                    new TypeReference<List<String>>() {});
+            if (parts.size() != 2) throw new IllegalArgumentException();
+            Long.parseLong(parts.get(1));
+            return parts;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.sti.storage;
+
+import java.time.Instant;
+
+/** Metadata of a stored blob (what HEAD returns). */
+public record BlobInfo(String key, long size, Instant lastModified, String contentType, String etag) {}
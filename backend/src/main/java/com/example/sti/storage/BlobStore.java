@@ -0,0 +1,55 @@
+package com.example.sti.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend for media (baseline/thermal images, inspection assets).
+ * Keys are '/'-separated paths relative to the media root, e.g.
+ *   baseline/AZ-0001.jpg, inspections/AZ-0001/42.png, assets/42/photo.jpg
+ * get/getRange throw {@link java.nio.file.NoSuchFileException} for missing keys.
+ */
+public interface BlobStore {
+
+    /** Store (overwrite) a blob. {@code length} may be -1 when unknown. */
+    BlobInfo put(String key, InputStream in, long length, String contentType) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    /** Read {@code length} bytes starting at {@code offset} (clamped to the blob size). */
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    Optional<BlobInfo> head(String key) throws IOException;
+
+    /** @return true if something was deleted */
+    boolean delete(String key) throws IOException;
+
+    /** All blobs whose key starts with {@code prefix}. Close the stream when done. */
+    Stream<BlobInfo> list(String prefix) throws IOException;
+
+    /** Immediate sub-folders of {@code prefix} (which ends with '/'), as prefixes ending with '/'. Close the stream when done. */
+    Stream<String> listFolders(String prefix) throws IOException;
+
+    /** Root directory when the blobs live on the local filesystem (lets callers serve/watch files directly). */
+    default Optional<Path> localRoot() {
+        return Optional.empty();
+    }
+
+    /** Guess a MIME type from the key's extension. */
+    static String contentTypeFor(String key) {
+        String k = key == null ? "" : key.toLowerCase(Locale.ROOT);
+        if (k.endsWith(".png")) return "image/png";
+        if (k.endsWith(".jpg") || k.endsWith(".jpeg")) return "image/jpeg";
+        if (k.endsWith(".webp")) return "image/webp";
+        if (k.endsWith(".gif")) return "image/gif";
+        if (k.endsWith(".bmp")) return "image/bmp";
+        if (k.endsWith(".tif") || k.endsWith(".tiff")) return "image/tiff";
+        if (k.endsWith(".heic")) return "image/heic";
+        if (k.endsWith(".heif")) return "image/heif";
+        return "application/octet-stream";
+    }
+}
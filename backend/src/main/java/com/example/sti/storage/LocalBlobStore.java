@@ -0,0 +1,177 @@
+package com.example.sti.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Blobs as plain files under a root directory (the historical ./media layout).
+ * Writes go to a temp file in the target directory and are moved into place, so readers
+ * never see a half-written image; deletes prune directories left empty.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public LocalBlobStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public BlobInfo put(String key, InputStream in, long length, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return info(key, target, Files.readAttributes(target, BasicFileAttributes.class));
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        SeekableByteChannel ch = Files.newByteChannel(resolve(key), StandardOpenOption.READ);
+        try {
+            ch.position(offset);
+            long remaining = Math.max(0, Math.min(length, ch.size() - offset));
+            return new BoundedInputStream(Channels.newInputStream(ch), remaining);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<BlobInfo> head(String key) throws IOException {
+        Path p = resolve(key);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+            return attrs.isRegularFile() ? Optional.of(info(key, p, attrs)) : Optional.empty();
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        Path p = resolve(key);
+        boolean deleted = Files.deleteIfExists(p);
+        pruneEmptyParents(p.getParent());
+        return deleted;
+    }
+
+    @Override
+    public Stream<BlobInfo> list(String prefix) throws IOException {
+        // Walk the deepest directory fully covered by the prefix, then filter on the full prefix
+        String p = prefix == null ? "" : prefix;
+        int slash = p.lastIndexOf('/');
+        Path start = slash < 0 ? root : resolve(p.substring(0, slash));
+        if (!Files.isDirectory(start)) return Stream.empty();
+        return Files.walk(start)
+                .filter(Files::isRegularFile)
+                .filter(f -> !f.getFileName().toString().startsWith(".upload-"))
+                .map(f -> {
+                    String key = keyOf(f);
+                    try {
+                        return info(key, f, Files.readAttributes(f, BasicFileAttributes.class));
+                    } catch (IOException e) {
+                        return null; // vanished while walking
+                    }
+                })
+                .filter(i -> i != null && i.key().startsWith(p));
+    }
+
+    @Override
+    public Stream<String> listFolders(String prefix) throws IOException {
+        Path dir = prefix == null || prefix.isEmpty() ? root : resolve(prefix.substring(0, prefix.length() - 1));
+        if (!Files.isDirectory(dir)) return Stream.empty();
+        return Files.list(dir).filter(Files::isDirectory).map(d -> keyOf(d) + "/");
+    }
+
+    @Override
+    public Optional<Path> localRoot() {
+        return Optional.of(root);
+    }
+
+    /** Key for a file under the root, e.g. "inspections/AZ-1/5.jpg". */
+    public String keyOf(Path file) {
+        return root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    // -------- helpers --------
+
+    private Path resolve(String key) throws IOException {
+        Path p = root.resolve(key).normalize();
+        if (!p.startsWith(root) || p.equals(root)) {
+            throw new IOException("Key escapes the media root: " + key);
+        }
+        return p;
+    }
+
+    private void pruneEmptyParents(Path dir) {
+        while (dir != null && dir.startsWith(root) && !dir.equals(root)) {
+            try {
+                Files.delete(dir); // fails with DirectoryNotEmptyException when something is left
+            } catch (IOException e) {
+                return;
+            }
+            dir = dir.getParent();
+        }
+    }
+
+    private static BlobInfo info(String key, Path p, BasicFileAttributes attrs) {
+        return new BlobInfo(key, attrs.size(), attrs.lastModifiedTime().toInstant(),
+                BlobStore.contentTypeFor(key),
+                Long.toHexString(attrs.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attrs.size()));
+    }
+
+    /** Stops after {@code limit} bytes and closes the underlying stream. */
+    static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = in.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
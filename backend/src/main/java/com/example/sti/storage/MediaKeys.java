@@ -0,0 +1,35 @@
+package com.example.sti.storage;
+
+/**
+ * Conversions between DB path columns and blob keys.
+ * Thermal paths are stored as "media/inspections/{no}/{id}.{ext}", baselines as "baseline/{no}.{ext}";
+ * keys never carry the "media/" prefix or a leading slash.
+ */
+public final class MediaKeys {
+
+    private MediaKeys() {}
+
+    /** "media/inspections/AZ-1/5.jpg", "/media/baseline/AZ-1.png", "baseline/AZ-1.png" -> key. */
+    public static String fromDbPath(String path) {
+        if (path == null) return null;
+        String p = path.trim().replace('\\', '/');
+        while (p.startsWith("/")) p = p.substring(1);
+        if (p.startsWith("media/")) p = p.substring("media/".length());
+        return p.isEmpty() ? null : p;
+    }
+
+    /** Key -> public URL under /media/**. */
+    public static String publicUrl(String key) {
+        return "/media/" + key;
+    }
+
+    /** Key -> value stored in inspections.thermal_image_path (kept in its historical "media/..." form). */
+    public static String thermalDbPath(String key) {
+        return "media/" + key;
+    }
+
+    /** True for old ImageAsset rows that stored an absolute filesystem path instead of a key. */
+    public static boolean isLegacyAbsolute(String path) {
+        return path != null && (path.startsWith("/") || path.matches("^[A-Za-z]:[\\\\/].*"));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.sti.storage;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Blobs in an S3-compatible bucket (AWS S3, MinIO, Ceph RGW ...), optionally under a key prefix.
+ * Small blobs are a single PUT; anything reaching {@code partSize} is streamed as a multipart
+ * upload holding at most one part in memory. The client (and its connection pool) is shared.
+ */
+public class S3BlobStore implements BlobStore {
+
+    /** S3 rejects multipart parts smaller than 5 MiB (except the last). */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+    private final int partSize;
+
+    public S3BlobStore(S3Client s3, String bucket, String prefix, int partSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.prefix = normalizePrefix(prefix);
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+    }
+
+    @Override
+    public BlobInfo put(String key, InputStream in, long length, String contentType) throws IOException {
+        String ct = contentType != null ? contentType : BlobStore.contentTypeFor(key);
+        byte[] first = in.readNBytes(partSize);
+        try {
+            if (first.length < partSize) {
+                PutObjectResponse r = s3.putObject(PutObjectRequest.builder()
+                                .bucket(bucket).key(objectKey(key)).contentType(ct).build(),
+                        RequestBody.fromBytes(first));
+                return new BlobInfo(key, first.length, java.time.Instant.now(), ct, stripQuotes(r.eTag()));
+            }
+            return multipart(key, ct, first, in);
+        } catch (S3Exception e) {
+            throw new IOException("S3 put failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    private BlobInfo multipart(String key, String ct, byte[] first, InputStream in) throws IOException {
+        String objectKey = objectKey(key);
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(objectKey).contentType(ct).build()).uploadId();
+        List<CompletedPart> parts = new ArrayList<>();
+        long total = 0;
+        try {
+            byte[] chunk = first;
+            int partNo = 1;
+            while (chunk.length > 0) {
+                UploadPartResponse r = s3.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket).key(objectKey).uploadId(uploadId).partNumber(partNo).build(),
+                        RequestBody.fromBytes(chunk));
+                parts.add(CompletedPart.builder().partNumber(partNo).eTag(r.eTag()).build());
+                total += chunk.length;
+                partNo++;
+                chunk = in.readNBytes(partSize);
+            }
+            CompleteMultipartUploadResponse done = s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(objectKey).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+            return new BlobInfo(key, total, java.time.Instant.now(), ct, stripQuotes(done.eTag()));
+        } catch (IOException | RuntimeException e) {
+            try {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket).key(objectKey).uploadId(uploadId).build());
+            } catch (RuntimeException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e instanceof IOException io ? io : new IOException("S3 multipart upload failed for " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return open(key, GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        if (length <= 0) return InputStream.nullInputStream();
+        String range = "bytes=" + offset + "-" + (offset + length - 1);
+        return open(key, GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).range(range).build());
+    }
+
+    private InputStream open(String key, GetObjectRequest req) throws IOException {
+        try {
+            return s3.getObject(req);
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) return InputStream.nullInputStream(); // range past the end
+            throw new IOException("S3 get failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<BlobInfo> head(String key) throws IOException {
+        try {
+            HeadObjectResponse r = s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+            return Optional.of(new BlobInfo(key, r.contentLength(), r.lastModified(),
+                    r.contentType() != null ? r.contentType() : BlobStore.contentTypeFor(key), stripQuotes(r.eTag())));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return Optional.empty();
+            throw new IOException("S3 head failed for " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // S3 DELETE is idempotent and does not say whether the object existed
+        boolean existed = head(key).isPresent();
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("S3 delete failed for " + key + ": " + e.getMessage(), e);
+        }
+        return existed;
+    }
+
+    @Override
+    public Stream<BlobInfo> list(String keyPrefix) throws IOException {
+        try {
+            return s3.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                            .bucket(bucket).prefix(objectKey(keyPrefix == null ? "" : keyPrefix)).build())
+                    .contents().stream()
+                    .map(o -> new BlobInfo(o.key().substring(prefix.length()), o.size(), o.lastModified(),
+                            BlobStore.contentTypeFor(o.key()), stripQuotes(o.eTag())));
+        } catch (S3Exception e) {
+            throw new IOException("S3 list failed for " + keyPrefix + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Stream<String> listFolders(String keyPrefix) throws IOException {
+        try {
+            return s3.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                            .bucket(bucket).prefix(objectKey(keyPrefix == null ? "" : keyPrefix)).delimiter("/").build())
+                    .commonPrefixes().stream()
+                    .map(p -> p.prefix().substring(prefix.length()));
+        } catch (S3Exception e) {
+            throw new IOException("S3 list failed for " + keyPrefix + ": " + e.getMessage(), e);
+        }
+    }
+
+    // -------- helpers --------
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+
+    private static String normalizePrefix(String p) {
+        if (p == null || p.isBlank()) return "";
+        String s = p.trim();
+        while (s.startsWith("/")) s = s.substring(1);
+        return s.endsWith("/") ? s : s + "/";
+    }
+
+    private static String stripQuotes(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+}
@@ -0,0 +1,57 @@
+-- Schema as the entities defined it before this series (what ddl-auto: update produced).
+-- Databases that already have these tables are baselined at this version and start from V2,
+-- so nothing added after the original entities may go here.
+
+CREATE TABLE transformers (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    transformer_no       VARCHAR(255) UNIQUE,
+    pole_no              VARCHAR(255),
+    capacity             VARCHAR(255),
+    region               VARCHAR(255),
+    type                 VARCHAR(255),
+    location_details     VARCHAR(2000),
+    starred              BOOLEAN NOT NULL,
+    created_at           TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    uploader_name        VARCHAR(255),
+    baseline_image_path  VARCHAR(500),
+    baseline_uploaded_at TIMESTAMP(6) WITH TIME ZONE
+);
+
+CREATE TABLE inspections (
+    id                    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    transformer_id        BIGINT NOT NULL,
+    inspected_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    maintenance_at        TIMESTAMP(6) WITH TIME ZONE,
+    status                VARCHAR(255) NOT NULL CHECK (status IN ('IN_PROGRESS', 'COMPLETED', 'NEEDS_REVIEW')),
+    notes                 VARCHAR(2000),
+    starred               BOOLEAN NOT NULL,
+    thermal_uploader_name VARCHAR(255),
+    weather_condition     VARCHAR(50),
+    thermal_image_path    VARCHAR(500),
+    CONSTRAINT fk_inspections_transformer FOREIGN KEY (transformer_id) REFERENCES transformers (id)
+);
+
+CREATE TABLE inspection_annotations (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    inspection_id   BIGINT NOT NULL,
+    annotation_data JSONB NOT NULL,
+    annotation_type VARCHAR(50) NOT NULL,
+    class_name      VARCHAR(100),
+    confidence      NUMERIC(5, 4),
+    bounding_box    JSONB,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    created_by      VARCHAR(255),
+    notes           TEXT,
+    CONSTRAINT fk_inspection_annotations_inspection FOREIGN KEY (inspection_id) REFERENCES inspections (id)
+);
+
+CREATE TABLE image_assets (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    inspection_id BIGINT NOT NULL,
+    filename      VARCHAR(255) NOT NULL,
+    path          VARCHAR(255) NOT NULL,
+    captured_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    meta_json     TEXT,
+    CONSTRAINT fk_image_assets_inspection FOREIGN KEY (inspection_id) REFERENCES inspections (id)
+);
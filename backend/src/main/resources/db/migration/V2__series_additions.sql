@@ -0,0 +1,32 @@
+-- Columns, tables and indexes the entities gained after the baseline (optimistic locking, soft delete,
+-- transformer summaries, the media delete outbox, the inspection table's keyset index).
+-- A database baselined at V1 may already have some of them from ddl-auto: update, hence IF NOT EXISTS.
+
+ALTER TABLE transformers ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE transformers ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE inspections ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE inspections ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE inspection_annotations ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS transformer_summaries (
+    transformer_id      BIGINT PRIMARY KEY,
+    inspection_count    INTEGER NOT NULL,
+    last_inspected_at   TIMESTAMP(6) WITH TIME ZONE,
+    critical_anomalies  INTEGER NOT NULL,
+    potential_anomalies INTEGER NOT NULL,
+    updated_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS media_garbage (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    blob_key    VARCHAR(1000) NOT NULL,
+    enqueued_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    not_before  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    attempts    INTEGER NOT NULL,
+    last_error  VARCHAR(1000)
+);
+
+CREATE INDEX IF NOT EXISTS idx_inspections_inspected_at_id ON inspections (inspected_at, id);
+CREATE INDEX IF NOT EXISTS idx_inspections_deleted_at ON inspections (deleted_at);
+CREATE INDEX IF NOT EXISTS idx_transformers_deleted_at ON transformers (deleted_at);
+CREATE INDEX IF NOT EXISTS idx_media_garbage_due ON media_garbage (not_before);
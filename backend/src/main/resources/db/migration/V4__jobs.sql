@@ -0,0 +1,28 @@
+-- Persistent work queue shared by all backend nodes (analysis, dataset export, media GC).
+-- Workers claim rows with SELECT ... FOR UPDATE SKIP LOCKED, hold them under a lease they renew
+-- with heartbeats, and retry failures with backoff; an idempotency key makes an enqueue repeatable.
+
+CREATE TABLE jobs (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type            VARCHAR(50) NOT NULL,
+    payload         JSONB,
+    priority        INTEGER NOT NULL,
+    status          VARCHAR(20) NOT NULL CHECK (status IN ('QUEUED', 'RUNNING', 'SUCCEEDED', 'FAILED')),
+    idempotency_key VARCHAR(200) UNIQUE,
+    attempts        INTEGER NOT NULL,
+    max_attempts    INTEGER NOT NULL,
+    run_after       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    locked_by       VARCHAR(100),
+    lease_until     TIMESTAMP(6) WITH TIME ZONE,
+    heartbeat_at    TIMESTAMP(6) WITH TIME ZONE,
+    result          JSONB,
+    last_error      VARCHAR(2000),
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    started_at      TIMESTAMP(6) WITH TIME ZONE,
+    finished_at     TIMESTAMP(6) WITH TIME ZONE
+);
+
+-- claim: next due QUEUED rows by priority; also finds RUNNING rows whose lease ran out
+CREATE INDEX idx_jobs_ready ON jobs (status, priority DESC, run_after, id);
+-- retention cleanup of finished jobs
+CREATE INDEX idx_jobs_finished ON jobs (finished_at);
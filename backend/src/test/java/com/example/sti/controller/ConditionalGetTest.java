@@ -0,0 +1,100 @@
+package com.example.sti.controller;
+
+import com.example.sti.entity.Inspection;
+import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.repo.TransformerSummaryRepository;
+import com.example.sti.service.EntityTagService;
+import com.example.sti.service.JsonStreamService;
+import com.example.sti.service.TransformerDataService;
+import com.example.sti.service.TransformerDeletionService;
+import com.example.sti.service.TransformerSearchIndex;
+import com.example.sti.service.TransformerSummaryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** A matching If-None-Match is answered 304 after the tag lookup alone; the data queries never run. */
+class ConditionalGetTest {
+
+    private static final String TAG = "W/\"v.3.9.12\"";
+
+    private final EntityTagService tags = mock(EntityTagService.class);
+
+    @Test
+    void transformerListIsNotStreamedForAMatchingTag() throws Exception {
+        TransformerRepository repo = mock(TransformerRepository.class);
+        JsonStreamService streams = mock(JsonStreamService.class);
+        when(tags.transformers()).thenReturn(TAG);
+        when(streams.stream(any(), any(), anyBoolean(), any())).thenReturn(ResponseEntity.ok().eTag(TAG).build());
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new TransformerController(repo, mock(TransformerDeletionService.class),
+                mock(TransformerSearchIndex.class), mock(TransformerSummaryService.class),
+                mock(TransformerSummaryRepository.class), mock(ApplicationEventPublisher.class), streams, tags)).build();
+
+        mvc.perform(get("/api/transformers").header(HttpHeaders.IF_NONE_MATCH, TAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, TAG));
+        verifyNoInteractions(repo, streams);
+
+        mvc.perform(get("/api/transformers").header(HttpHeaders.IF_NONE_MATCH, "W/\"v.2.8.11\""))
+                .andExpect(status().isOk());
+        verify(streams).stream(any(), any(), eq(false), eq(TAG));
+    }
+
+    @Test
+    void transformerDataIsNotBuiltForAMatchingTag() throws Exception {
+        TransformerDataService data = mock(TransformerDataService.class);
+        when(data.currentTag("AZ-1")).thenReturn(TAG);
+        when(data.getTagged("AZ-1", TAG)).thenReturn(new TransformerDataService.Tagged(TAG, Map.of("transformer", Map.of())));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new TransformerDataController(data)).build();
+
+        mvc.perform(get("/api/get-transformer-data").param("id", "AZ-1").header(HttpHeaders.IF_NONE_MATCH, TAG))
+                .andExpect(status().isNotModified());
+        verify(data, never()).getTagged(any(), any());
+        verify(data, never()).getTransformerData(any());
+
+        mvc.perform(get("/api/get-transformer-data").param("id", "AZ-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, TAG));
+        verify(data).getTagged("AZ-1", TAG);
+    }
+
+    @Test
+    void annotationsAreNotLoadedForAMatchingTag() throws Exception {
+        InspectionRepository inspections = mock(InspectionRepository.class);
+        InspectionAnnotationRepository annotations = mock(InspectionAnnotationRepository.class);
+        when(tags.annotations(7L)).thenReturn(Optional.of(TAG));
+        when(tags.annotations(8L)).thenReturn(Optional.empty());
+        AiAnalysisController controller = new AiAnalysisController();
+        ReflectionTestUtils.setField(controller, "tags", tags);
+        ReflectionTestUtils.setField(controller, "inspectionRepository", inspections);
+        ReflectionTestUtils.setField(controller, "annotationRepository", annotations);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        mvc.perform(get("/api/get-annotations/7").header(HttpHeaders.IF_NONE_MATCH, TAG))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/get-annotations/8")).andExpect(status().isNotFound());
+        verifyNoInteractions(inspections, annotations);
+
+        when(inspections.findById(7L)).thenReturn(Optional.of(new Inspection()));
+        when(annotations.findByInspectionIdOrderByCreatedAtDesc(7L)).thenReturn(List.of());
+        mvc.perform(get("/api/get-annotations/7").header(HttpHeaders.IF_NONE_MATCH, "W/\"v.2.8.11\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, TAG));
+    }
+}
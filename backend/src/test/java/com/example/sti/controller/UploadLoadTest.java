@@ -0,0 +1,109 @@
+package com.example.sti.controller;
+
+import com.example.sti.StiBackendApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 1,000 concurrent thermal uploads against the whole app (H2, local blob store), once on
+ * platform request threads and once with spring.threads.virtual.enabled; prints both throughputs.
+ * Needs STI_LOAD_TEST=true.
+ */
+@EnabledIfEnvironmentVariable(named = "STI_LOAD_TEST", matches = "true|1")
+class UploadLoadTest {
+
+    private static final int UPLOADS = 1000;
+    private static final int INSPECTIONS = 1000;
+    private static final String BOUNDARY = "sti-load-test";
+
+    @TempDir
+    Path media;
+
+    private ConfigurableApplicationContext start(boolean virtual, String db) {
+        return new SpringApplicationBuilder(StiBackendApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--storage.local.media-base=" + media.resolve(db),
+                "--media.index.watch=false",
+                "--jobs.worker.enabled=false",
+                "--purge.enabled=false",
+                // the whole burst queues for the pool; measure throughput rather than shed load with 503s
+                "--datasource.limiter.acquire-timeout=PT60S");
+    }
+
+    private static byte[] multipart(byte[] image) {
+        String head = "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"t.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        String tail = "\r\n--" + BOUNDARY + "--\r\n";
+        byte[] body = new byte[head.length() + image.length + tail.length()];
+        System.arraycopy(head.getBytes(StandardCharsets.US_ASCII), 0, body, 0, head.length());
+        System.arraycopy(image, 0, body, head.length(), image.length);
+        System.arraycopy(tail.getBytes(StandardCharsets.US_ASCII), 0, body, head.length() + image.length, tail.length());
+        return body;
+    }
+
+    /** Returns uploads per second; every upload must answer 200. */
+    private double run(boolean virtual) throws Exception {
+        try (ConfigurableApplicationContext app = start(virtual, virtual ? "loadvirtual" : "loadplatform")) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            JdbcTemplate jdbc = new JdbcTemplate(app.getBean(javax.sql.DataSource.class));
+            jdbc.update("INSERT INTO transformers (transformer_no, starred, created_at) VALUES ('LOAD-1', false, CURRENT_TIMESTAMP)");
+            Long transformerId = jdbc.queryForObject("SELECT id FROM transformers WHERE transformer_no = 'LOAD-1'", Long.class);
+            for (int i = 0; i < INSPECTIONS; i++) {
+                jdbc.update("INSERT INTO inspections (transformer_id, inspected_at, status, starred) "
+                        + "VALUES (?, CURRENT_TIMESTAMP, 'IN_PROGRESS', false)", transformerId);
+            }
+            List<Long> ids = jdbc.queryForList("SELECT id FROM inspections", Long.class);
+
+            byte[] body = multipart(new byte[64 * 1024]);
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+            List<CompletableFuture<HttpResponse<String>>> calls = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int i = 0; i < UPLOADS; i++) {
+                URI uri = URI.create("http://localhost:" + port + "/api/upload-thermal-image?transformer_id=LOAD-1&inspection_no="
+                        + ids.get(i % ids.size()));
+                calls.add(client.sendAsync(HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                                .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            Map<Integer, Integer> statuses = new TreeMap<>();
+            for (CompletableFuture<HttpResponse<String>> call : calls) statuses.merge(call.get().statusCode(), 1, Integer::sum);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            assertEquals(Map.of(200, UPLOADS), statuses);
+            return UPLOADS / seconds;
+        }
+    }
+
+    @Test
+    void thousandConcurrentUploads() throws Exception {
+        double platform = run(false);
+        double virtual = run(true);
+        System.out.printf("%d concurrent uploads: platform threads %.0f/s, virtual threads %.0f/s (Java %s)%n",
+                UPLOADS, platform, virtual, Runtime.version().feature());
+    }
+}
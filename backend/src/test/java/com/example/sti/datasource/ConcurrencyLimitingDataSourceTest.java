@@ -0,0 +1,54 @@
+package com.example.sti.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitingDataSourceTest {
+
+    private final ConcurrencyLimitingDataSource ds = new ConcurrencyLimitingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1", "sa", ""), 1, Duration.ofMillis(200));
+
+    private static Throwable fromOtherThread(ConcurrencyLimitingDataSource ds) throws Exception {
+        try {
+            CompletableFuture.supplyAsync(() -> {
+                try (Connection c = ds.getConnection()) {
+                    return c.isValid(1);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(5, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause().getCause();
+        }
+    }
+
+    @Test
+    void otherThreadsQueueThenGiveUpWhileThePermitIsHeld() throws Exception {
+        try (Connection held = ds.getConnection()) {
+            assertInstanceOf(SQLTransientConnectionException.class, fromOtherThread(ds));
+        }
+        assertNull(fromOtherThread(ds)); // released on close
+        assertEquals(1L, ds.stats().get("rejected"));
+    }
+
+    @Test
+    void nestedConnectionsOnOneThreadShareItsPermit() throws Exception {
+        Connection outer = ds.getConnection();
+        try (Connection inner = ds.getConnection()) {
+            assertTrue(inner.isValid(1));
+        }
+        outer.close();
+        outer.close(); // a second close must not hand out an extra permit
+        assertEquals(0, ds.stats().get("inUse"));
+    }
+}
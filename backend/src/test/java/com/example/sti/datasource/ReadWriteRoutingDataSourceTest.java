@@ -0,0 +1,79 @@
+package com.example.sti.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Two local H2 databases stand in for the primary and a replica; each answers with its own name. */
+class ReadWriteRoutingDataSourceTest {
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    private static DataSource database(String name) {
+        DataSource ds = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate t = new JdbcTemplate(ds);
+        t.execute("CREATE TABLE IF NOT EXISTS whoami (name VARCHAR(20))");
+        t.execute("DELETE FROM whoami");
+        t.update("INSERT INTO whoami VALUES (?)", name);
+        return ds;
+    }
+
+    @BeforeEach
+    void setUp() {
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                database("primary"), List.of(database("replica")), Duration.ofMillis(300)));
+        jdbc = new JdbcTemplate(routing);
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(routing);
+        readOnly = new TransactionTemplate(tm);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(tm);
+        ReadYourWrites.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.clear();
+    }
+
+    private String whoami(TransactionTemplate tx) {
+        return tx.execute(s -> jdbc.queryForObject("SELECT name FROM whoami", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertEquals("replica", whoami(readOnly));
+        assertEquals("primary", jdbc.queryForObject("SELECT name FROM whoami", String.class)); // no transaction
+    }
+
+    @Test
+    void readsFollowAWriteToThePrimaryForTheWindow() throws InterruptedException {
+        assertEquals("primary", whoami(readWrite));
+        assertEquals("primary", whoami(readOnly));
+        Thread.sleep(400);
+        assertEquals("replica", whoami(readOnly));
+    }
+
+    @Test
+    void markTravelsToOtherThreads() throws Exception {
+        ReadYourWrites.pinUntil(System.currentTimeMillis() + 10_000);
+        Long until = ReadYourWrites.current();
+        String[] seen = new String[1];
+        Thread t = new Thread(() -> seen[0] = ReadYourWrites.callWith(until, () -> whoami(readOnly)));
+        t.start();
+        t.join();
+        assertEquals("primary", seen[0]);
+    }
+}
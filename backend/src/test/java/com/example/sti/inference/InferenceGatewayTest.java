@@ -0,0 +1,87 @@
+package com.example.sti.inference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InferenceGatewayTest {
+
+    private InferenceGateway gateway;
+
+    @AfterEach
+    void shutdown() {
+        if (gateway != null) gateway.shutdown();
+    }
+
+    private static InferenceRejectedException rejected(Runnable admit) {
+        return assertThrows(InferenceRejectedException.class, admit::run);
+    }
+
+    private void fail(String caller) {
+        assertThrows(IOException.class, () -> gateway.run(gateway.admit(caller), () -> {
+            throw new IOException("model crashed");
+        }));
+    }
+
+    @Test
+    void breakerOpensAfterConsecutiveFailuresAndClosesAfterOneGoodProbe() throws Exception {
+        gateway = new InferenceGateway(2, 8, Duration.ofSeconds(5), 3, Duration.ofMillis(300), 100, 6000, false);
+        for (int i = 0; i < 3; i++) fail(null);
+
+        InferenceRejectedException open = rejected(() -> gateway.admit(null));
+        assertEquals(503, open.getStatus());
+        assertEquals(InferenceGateway.CIRCUIT_OPEN, open.getReason());
+
+        Thread.sleep(400);
+        InferenceGateway.Ticket probe = gateway.admit(null);
+        assertEquals(InferenceGateway.CIRCUIT_OPEN, rejected(() -> gateway.admit(null)).getReason()); // one probe at a time
+        assertEquals("ok", gateway.run(probe, () -> "ok"));
+
+        assertEquals("ok", gateway.run(gateway.admit(null), () -> "ok"));
+        assertEquals("CLOSED", gateway.stats().get("breaker").toString());
+    }
+
+    @Test
+    void rateLimitsEachCallerSeparately() throws Exception {
+        gateway = new InferenceGateway(2, 8, Duration.ofSeconds(5), 5, Duration.ofSeconds(30), 2, 1, false);
+        for (int i = 0; i < 2; i++) gateway.run(gateway.admit("uploader:alice"), () -> "ok");
+
+        InferenceRejectedException limited = rejected(() -> gateway.admit("uploader:alice"));
+        assertEquals(429, limited.getStatus());
+        assertTrue(limited.getRetryAfterSeconds() >= 1);
+        assertEquals("ok", gateway.run(gateway.admit("uploader:bob"), () -> "ok"));
+    }
+
+    @Test
+    void turnsAwayRequestsBeyondSlotsAndQueueAndFreesPlacesOfAbandonedOnes() throws Exception {
+        gateway = new InferenceGateway(1, 1, Duration.ofSeconds(5), 5, Duration.ofSeconds(30), 100, 6000, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InferenceGateway.Ticket running = gateway.admit(null);
+        Future<String> first = gateway.executor().submit(() -> gateway.run(running, () -> {
+            started.countDown();
+            release.await();
+            return "ok";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        InferenceGateway.Ticket queued = gateway.admit(null);
+        InferenceRejectedException busy = rejected(() -> gateway.admit(null));
+        assertEquals(503, busy.getStatus());
+        assertEquals(InferenceGateway.BUSY, busy.getReason());
+
+        queued.abandon(); // the client went away before its inference started
+        InferenceGateway.Ticket next = gateway.admit(null);
+        release.countDown();
+        assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", gateway.run(next, () -> "ok"));
+        assertEquals(0, gateway.stats().get("queued"));
+    }
+}
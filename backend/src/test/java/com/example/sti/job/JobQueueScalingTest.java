@@ -0,0 +1,146 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Job;
+import com.example.sti.entity.JobStatus;
+import com.example.sti.repo.JobRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several independent app instances (own context, pool and worker each) share one Postgres queue:
+ * every job runs exactly once, every node takes part, and three nodes drain the queue close to
+ * three times as fast as one. Needs STI_TEST_PG_URL (plus STI_TEST_PG_USER/PASSWORD).
+ */
+@EnabledIfEnvironmentVariable(named = "STI_TEST_PG_URL", matches = ".+")
+class JobQueueScalingTest {
+
+    private static final String SCHEMA = "sti_jobs_check";
+    private static final int JOBS = 120;
+    private static final int JOB_MILLIS = 100;
+
+    private static final String URL = System.getenv("STI_TEST_PG_URL");
+    private static final String USER = Objects.requireNonNullElse(System.getenv("STI_TEST_PG_USER"), "sti");
+    private static final String PASSWORD = Objects.requireNonNullElse(System.getenv("STI_TEST_PG_PASSWORD"), "sti");
+
+    /** job id -> nodes that ran it */
+    private static final ConcurrentMap<Long, List<String>> runs = new ConcurrentHashMap<>();
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EnableScheduling
+    @EntityScan(basePackageClasses = Job.class)
+    @EnableJpaRepositories(basePackageClasses = JobRepository.class)
+    @Import({JobQueue.class, JobWorker.class, SleepHandler.class})
+    static class Node {}
+
+    @Component
+    static class SleepHandler implements JobHandler {
+        private final JobWorker worker;
+
+        SleepHandler(@org.springframework.context.annotation.Lazy JobWorker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public Set<String> types() {
+            return Set.of("sleep");
+        }
+
+        @Override
+        public Map<String, Object> run(Job job) throws Exception {
+            runs.computeIfAbsent(job.getId(), k -> new ArrayList<>()).add(worker.node());
+            Thread.sleep(JOB_MILLIS);
+            return Map.of();
+        }
+    }
+
+    @BeforeAll
+    static void migrate() {
+        Flyway flyway = Flyway.configure().dataSource(new DriverManagerDataSource(URL, USER, PASSWORD))
+                .locations("classpath:db/migration", "classpath:db/vendor/postgresql")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false")).schemas(SCHEMA).cleanDisabled(false).load();
+        flyway.clean();
+        flyway.migrate();
+    }
+
+    private static final AtomicInteger nodeIds = new AtomicInteger();
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(Node.class).web(WebApplicationType.NONE).run(
+                "--spring.datasource.url=" + URL + (URL.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA,
+                "--spring.datasource.username=" + USER,
+                "--spring.datasource.password=" + PASSWORD,
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.show-sql=false",
+                "--jobs.poll-interval=PT0.05S",
+                "--jobs.worker.concurrency=4",
+                "--jobs.node-id=node-" + nodeIds.incrementAndGet());
+    }
+
+    /** Start the nodes, then time how long they take to drain {@link #JOBS} jobs. */
+    private static long drainMillis(int nodes) throws InterruptedException {
+        runs.clear();
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        try {
+            for (int i = 0; i < nodes; i++) contexts.add(startNode());
+            // workers are idle until now; enqueue everything from one node in a single transaction
+            JobRepository repo = contexts.get(0).getBean(JobRepository.class);
+            repo.deleteAllInBatch();
+            JobQueue queue = contexts.get(0).getBean(JobQueue.class);
+            long started = System.nanoTime();
+            new TransactionTemplate(contexts.get(0).getBean(PlatformTransactionManager.class)).executeWithoutResult(s -> {
+                for (int i = 0; i < JOBS; i++) queue.enqueue("sleep", Map.of("n", i));
+            });
+            while (repo.countByTypeAndStatus().stream()
+                    .filter(r -> r[1] == JobStatus.SUCCEEDED).mapToLong(r -> (Long) r[2]).sum() < JOBS) {
+                Thread.sleep(20);
+                assertTrue(System.nanoTime() - started < 60_000_000_000L, "queue did not drain");
+            }
+            return (System.nanoTime() - started) / 1_000_000;
+        } finally {
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    @Test
+    void throughputGrowsWithNodesAndEveryJobRunsOnce() throws InterruptedException {
+        long one = drainMillis(1);
+        long three = drainMillis(3);
+
+        assertEquals(JOBS, runs.size());
+        assertTrue(runs.values().stream().allMatch(n -> n.size() == 1), "a job ran twice: " + runs);
+        Set<String> nodes = new HashSet<>();
+        runs.values().forEach(nodes::addAll);
+        assertEquals(3, nodes.size());
+
+        System.out.println("Drained " + JOBS + " jobs: 1 node " + one + " ms, 3 nodes " + three + " ms");
+        assertTrue(one >= 2.2 * three, "3 nodes took " + three + " ms vs " + one + " ms for 1");
+    }
+}
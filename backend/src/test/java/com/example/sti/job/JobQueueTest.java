@@ -0,0 +1,117 @@
+package com.example.sti.job;
+
+import com.example.sti.entity.Job;
+import com.example.sti.entity.JobStatus;
+import com.example.sti.repo.JobRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Claiming, retries and leases of the shared job queue. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:jobs;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "jobs.max-attempts=2",
+        "jobs.retry-backoff=PT10M"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(JobQueue.class)
+class JobQueueTest {
+
+    private static final Set<String> TYPES = Set.of("test");
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    @Autowired private JobQueue queue;
+    @Autowired private JobRepository jobs;
+    @Autowired private EntityManager em;
+
+    private Job reload(Job job) {
+        em.flush();
+        em.clear();
+        return jobs.findById(job.getId()).orElseThrow();
+    }
+
+    @Test
+    void enqueueWithTheSameKeyReturnsTheSameJob() {
+        Job first = queue.enqueue("test", Map.of("n", 1), JobQueue.PRIORITY_DEFAULT, "k-1");
+        Job again = queue.enqueue("test", Map.of("n", 2), JobQueue.PRIORITY_DEFAULT, "k-1");
+
+        assertEquals(first.getId(), again.getId());
+        assertEquals(1L, jobs.count());
+    }
+
+    @Test
+    void everyNodeSchedulingTheSameSlotYieldsOneJob() {
+        queue.enqueueOncePerSlot(TombstonePurgeJobHandler.PURGE, Duration.ofHours(1));
+        queue.enqueueOncePerSlot(TombstonePurgeJobHandler.PURGE, Duration.ofHours(1));
+
+        assertEquals(1L, jobs.count());
+        assertEquals(JobQueue.PRIORITY_BACKGROUND, jobs.findAll().get(0).getPriority());
+    }
+
+    @Test
+    void claimTakesDueJobsByPriorityAndOnlyOnce() {
+        Job low = queue.enqueue("test", Map.of(), JobQueue.PRIORITY_BACKGROUND, null);
+        Job high = queue.enqueue("test", Map.of(), JobQueue.PRIORITY_INTERACTIVE, null);
+        Job later = queue.enqueue("test", Map.of(), JobQueue.PRIORITY_INTERACTIVE, null);
+        later.setRunAfter(Instant.now().plusSeconds(3600));
+        queue.enqueue("other", Map.of(), JobQueue.PRIORITY_INTERACTIVE, null);
+        em.flush();
+
+        List<Job> first = queue.claim(TYPES, "node-a", 1, LEASE);
+        assertEquals(List.of(high.getId()), first.stream().map(Job::getId).toList());
+        assertEquals(JobStatus.RUNNING, first.get(0).getStatus());
+        assertEquals("node-a", first.get(0).getLockedBy());
+        assertEquals(1, first.get(0).getAttempts());
+
+        List<Job> rest = queue.claim(TYPES, "node-b", 10, LEASE);
+        assertEquals(List.of(low.getId()), rest.stream().map(Job::getId).toList());
+        assertTrue(queue.claim(TYPES, "node-c", 10, LEASE).isEmpty());
+    }
+
+    @Test
+    void failedAttemptsBackOffThenFail() {
+        Job job = queue.enqueue("test", Map.of(), JobQueue.PRIORITY_DEFAULT, null);
+        Job claimed = queue.claim(TYPES, "node-a", 1, LEASE).get(0);
+
+        assertTrue(queue.retryOrFail(claimed, "node-a", "boom"));
+        Job queued = reload(job);
+        assertEquals(JobStatus.QUEUED, queued.getStatus());
+        assertTrue(queued.getRunAfter().isAfter(Instant.now().plusSeconds(500)));
+        assertTrue(queue.claim(TYPES, "node-a", 1, LEASE).isEmpty()); // not due yet
+
+        queued.setRunAfter(Instant.now());
+        jobs.saveAndFlush(queued);
+        Job second = queue.claim(TYPES, "node-a", 1, LEASE).get(0);
+        assertEquals(2, second.getAttempts());
+        assertTrue(queue.retryOrFail(second, "node-a", "boom again"));
+
+        Job failed = reload(job);
+        assertEquals(JobStatus.FAILED, failed.getStatus());
+        assertEquals("boom again", failed.getLastError());
+        assertNotNull(failed.getFinishedAt());
+    }
+
+    @Test
+    void expiredLeaseGoesBackToTheQueueAndTheOldHolderCannotSettle() {
+        Job job = queue.enqueue("test", Map.of(), JobQueue.PRIORITY_DEFAULT, null);
+        Job stale = queue.claim(TYPES, "node-a", 1, Duration.ofSeconds(-1)).get(0);
+
+        assertArrayEquals(new int[]{1, 0}, queue.reapExpiredLeases());
+        assertEquals(JobStatus.QUEUED, reload(job).getStatus());
+
+        Job retaken = queue.claim(TYPES, "node-b", 1, LEASE).get(0);
+        assertFalse(queue.succeed(stale, "node-a", Map.of("from", "a")));
+        assertTrue(queue.succeed(retaken, "node-b", Map.of("from", "b")));
+        assertEquals(Map.of("from", "b"), reload(job).getResult());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.sti.process;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class ProcessSupervisorTest {
+
+    private final ProcessSupervisor supervisor = new ProcessSupervisor(4, true);
+
+    @TempDir
+    Path dir;
+
+    private ProcessSupervisor.Spec sh(String script, Duration timeout) {
+        return new ProcessSupervisor.Spec(List.of("sh", "-c", script), dir.toFile(), timeout, 4096, Duration.ofMillis(500));
+    }
+
+    /** The pid the script's background child wrote, once it exists. */
+    private long childPid() throws Exception {
+        Path pid = dir.resolve("child.pid");
+        for (int i = 0; i < 250 && (!Files.exists(pid) || Files.size(pid) == 0); i++) Thread.sleep(20);
+        return Long.parseLong(Files.readString(pid).trim());
+    }
+
+    private static void assertDies(long pid) throws InterruptedException {
+        for (int i = 0; i < 100 && ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false); i++) Thread.sleep(20);
+        assertFalse(ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false), "child " + pid + " survived");
+    }
+
+    @Test
+    void drainsAChattyStderrWhileKeepingOnlyTheTail() throws Exception {
+        // 1 MB on stderr first would fill the pipe and hang a reader that waits for stdout to end
+        ProcessSupervisor.Result r = supervisor.run(sh(
+                "head -c 1048576 /dev/zero | tr '\\0' x >&2; echo '[{\"class\":\"ok\"}]'; echo tail >&2",
+                Duration.ofSeconds(20)));
+
+        assertEquals(0, r.exitCode());
+        assertEquals("[{\"class\":\"ok\"}]\n", r.stdout());
+        assertTrue(r.stderr().endsWith("xxxtail\n"));
+        assertEquals(4096, r.stderr().length());
+        assertEquals(1048576 + 5 - 4096, r.stderrDropped());
+    }
+
+    @Test
+    void killsTheProcessTreeOnTimeout() throws Exception {
+        assertThrows(ProcessTimeoutException.class, () ->
+                supervisor.run(sh("sleep 30 & echo $! > child.pid; wait", Duration.ofMillis(500))));
+        assertDies(childPid());
+    }
+
+    @Test
+    void interruptingTheCallerKillsTheProcessTree() throws Exception {
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Long> child = CompletableFuture.supplyAsync(() -> {
+            try {
+                long pid = childPid();
+                caller.interrupt(); // what Spring does to an async request's thread when the client goes away
+                return pid;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(InterruptedException.class, () ->
+                supervisor.run(sh("sleep 30 & echo $! > child.pid; wait", Duration.ofSeconds(30))));
+        Thread.interrupted();
+        assertDies(child.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void aCallerBeyondMaxRunningWaitsForASlot() throws Exception {
+        ProcessSupervisor one = new ProcessSupervisor(1, false); // two platform drain threads
+        try {
+            CompletableFuture<ProcessSupervisor.Result> first = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return one.run(sh("touch first.started; sleep 1; touch first.done; echo first", Duration.ofSeconds(10)));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Path started = dir.resolve("first.started");
+            for (int i = 0; i < 250 && !Files.exists(started); i++) Thread.sleep(20);
+
+            ProcessSupervisor.Result second = one.run(sh("test -f first.done || echo overlapped; echo second",
+                    Duration.ofSeconds(10)));
+            assertEquals("first\n", first.get(5, TimeUnit.SECONDS).stdout());
+            assertEquals("second\n", second.stdout()); // it only started once the first had finished
+        } finally {
+            one.shutdown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.sti.repo;
+
+import com.example.sti.dto.InspectionTableQuery;
+import com.example.sti.dto.InspectionTableRow;
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.InspectionStatus;
+import com.example.sti.entity.Transformer;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** The inspection table must be one SQL statement however many rows/transformers it spans. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:inspectiontable;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class InspectionTableQueryCountTest {
+
+    private static final int TRANSFORMERS = 5;
+    private static final int PER_TRANSFORMER = 8;
+
+    @Autowired private EntityManager em;
+    @Autowired private InspectionRepository inspections;
+
+    private Statistics stats;
+
+    @BeforeEach
+    void seed() {
+        Instant t0 = Instant.parse("2025-01-01T00:00:00Z");
+        for (int t = 0; t < TRANSFORMERS; t++) {
+            Transformer tr = new Transformer();
+            tr.setTransformerNo("AZ-" + t);
+            tr.setRegion("Nugegoda");
+            tr.setCreatedAt(t0);
+            em.persist(tr);
+            for (int n = 0; n < PER_TRANSFORMER; n++) {
+                Inspection i = new Inspection();
+                i.setTransformer(tr);
+                i.setInspectedAt(t0.plusSeconds(3600L * (t * PER_TRANSFORMER + n)));
+                i.setStatus(n % 2 == 0 ? InspectionStatus.COMPLETED : InspectionStatus.NEEDS_REVIEW);
+                i.setStarred(n % 3 == 0);
+                em.persist(i);
+            }
+        }
+        em.flush();
+        em.clear(); // nothing cached: every transformer would have to be loaded again
+
+        stats = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void fullTableIsOneQuery() {
+        List<InspectionTableRow> rows = inspections.findTableRows();
+
+        assertEquals(TRANSFORMERS * PER_TRANSFORMER, rows.size());
+        assertTrue(rows.stream().allMatch(r -> r.transformerNo != null && r.transformerNo.startsWith("AZ-")));
+        assertEquals("Completed", rows.get(rows.size() - 1).status);
+        assertEquals(1, stats.getPrepareStatementCount());
+        assertEquals(0, stats.getEntityLoadCount());
+    }
+
+    @Test
+    void keysetPageIsOneQuery() {
+        InspectionTableQuery q = new InspectionTableQuery();
+        q.sort = InspectionTableQuery.SortField.TRANSFORMER_NO;
+        q.starredFirst = true;
+        q.limit = 25;
+
+        List<InspectionTableRow> rows = inspections.findTablePage(q);
+
+        assertEquals(25, rows.size());
+        assertTrue(rows.get(0).starred);
+        assertEquals(1, stats.getPrepareStatementCount());
+        assertEquals(0, stats.getEntityLoadCount());
+    }
+}
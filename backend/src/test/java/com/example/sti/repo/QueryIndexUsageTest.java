@@ -0,0 +1,104 @@
+package com.example.sti.repo;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plan regression for the hot queries: the migrations are applied to a scratch schema on a real
+ * Postgres, filled with a fleet-sized history and analyzed, and each query must be answered from
+ * its composite index. Ordered queries are planned for their first page (the list streams read
+ * through a cursor, which the planner optimizes for fast start) and must not sort.
+ * Needs STI_TEST_PG_URL (plus STI_TEST_PG_USER/PASSWORD).
+ */
+@EnabledIfEnvironmentVariable(named = "STI_TEST_PG_URL", matches = ".+")
+class QueryIndexUsageTest {
+
+    private static final String SCHEMA = "sti_plan_check";
+
+    private static SingleConnectionDataSource ds;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void migrateAndSeed() {
+        ds = new SingleConnectionDataSource(System.getenv("STI_TEST_PG_URL"),
+                Objects.requireNonNullElse(System.getenv("STI_TEST_PG_USER"), "sti"),
+                Objects.requireNonNullElse(System.getenv("STI_TEST_PG_PASSWORD"), "sti"), true);
+        Flyway flyway = Flyway.configure().dataSource(ds).locations("classpath:db/migration", "classpath:db/vendor/postgresql")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false")).schemas(SCHEMA).cleanDisabled(false).load();
+        flyway.clean();
+        flyway.migrate();
+
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("SET search_path TO " + SCHEMA);
+        // 200 transformers x 50 inspections x 30 annotations (10 per type) and 2 assets per inspection
+        jdbc.execute("INSERT INTO transformers (transformer_no, starred, created_at) "
+                + "SELECT 'T-' || n, false, now() FROM generate_series(1, 200) n");
+        jdbc.execute("INSERT INTO inspections (transformer_id, inspected_at, status, starred) "
+                + "SELECT t.id, now() - n * interval '1 day', 'COMPLETED', false "
+                + "FROM transformers t, generate_series(1, 50) n");
+        jdbc.execute("INSERT INTO inspection_annotations (inspection_id, annotation_data, annotation_type, class_name, created_at, updated_at) "
+                + "SELECT i.id, '{}'::jsonb, (ARRAY['Detected by AI', 'Edited', 'Manual'])[1 + n % 3], 'Faulty_red', "
+                + "now() - n * interval '1 minute', now() FROM inspections i, generate_series(1, 30) n");
+        jdbc.execute("INSERT INTO image_assets (inspection_id, filename, path, captured_at) "
+                + "SELECT i.id, n || '.png', 'media/' || i.id || '/' || n || '.png', now() FROM inspections i, generate_series(1, 2) n");
+        jdbc.execute("ANALYZE");
+    }
+
+    @AfterAll
+    static void dropSchema() {
+        if (jdbc != null) jdbc.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        if (ds != null) ds.destroy();
+    }
+
+    private static String plan(String sql) {
+        return String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+    private static void assertUsesIndex(String index, String sql) {
+        String plan = plan(sql);
+        assertTrue(plan.contains(index), () -> "expected " + index + " in\n" + plan);
+    }
+
+    private static void assertReadsInOrder(String index, String sql) {
+        String plan = plan(sql + " LIMIT 10");
+        assertTrue(plan.contains(index), () -> "expected " + index + " in\n" + plan);
+        assertFalse(plan.contains("Sort"), () -> "expected no sort in\n" + plan);
+    }
+
+    @Test
+    void inspectionsOfTransformerNewestFirst() {
+        assertReadsInOrder("idx_inspections_transformer_inspected",
+                "SELECT * FROM inspections WHERE transformer_id = 17 AND deleted_at IS NULL ORDER BY inspected_at DESC");
+        assertUsesIndex("idx_inspections_transformer_inspected",
+                "SELECT max(inspected_at) FROM inspections WHERE transformer_id = 17 AND deleted_at IS NULL");
+    }
+
+    @Test
+    void annotationsOfInspectionNewestFirst() {
+        assertReadsInOrder("idx_annotations_inspection_created",
+                "SELECT * FROM inspection_annotations WHERE inspection_id = 4242 ORDER BY created_at DESC");
+    }
+
+    @Test
+    void annotationsOfInspectionByType() {
+        assertUsesIndex("idx_annotations_inspection_type",
+                "SELECT count(*) FROM inspection_annotations WHERE inspection_id = 4242 AND annotation_type = 'Edited'");
+    }
+
+    @Test
+    void assetsOfInspections() {
+        assertUsesIndex("idx_image_assets_inspection_id",
+                "SELECT path FROM image_assets WHERE inspection_id IN (11, 12, 13)");
+    }
+}
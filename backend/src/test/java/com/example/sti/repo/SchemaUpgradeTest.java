@@ -0,0 +1,58 @@
+package com.example.sti.repo;
+
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.Transformer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A database that ddl-auto built before migrations existed is baselined at V1, migrated to the
+ * current version and then passes Hibernate's ddl-auto: validate (the context would not start
+ * otherwise), keeping its rows.
+ */
+@DataJpaTest(properties = "spring.datasource.url=" + SchemaUpgradeTest.URL)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaUpgradeTest {
+
+    static final String URL = "jdbc:h2:mem:preflyway;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired private TransformerRepository transformers;
+    @Autowired private InspectionRepository inspections;
+    @Autowired private JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void createPreFlywaySchema() {
+        // runs before the Spring context (and so Flyway) starts; same credentials as application.yml
+        new ResourceDatabasePopulator(new ClassPathResource("db/pre-flyway-schema.sql"))
+                .execute(new DriverManagerDataSource(URL, "sti", "sti"));
+    }
+
+    @Test
+    void baselinesAtV1AndAppliesTheRest() {
+        List<String> applied = jdbc.queryForList("SELECT \"version\" || ':' || \"type\" FROM \"flyway_schema_history\" "
+                + "WHERE \"success\" AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"", String.class);
+        assertEquals("1:BASELINE", applied.get(0));
+        assertEquals(List.of("2:SQL", "3:SQL", "4:SQL"), applied.subList(1, 4), applied::toString);
+    }
+
+    @Test
+    void existingRowsSurviveWithTheNewColumnsFilled() {
+        Transformer old = transformers.findByTransformerNo("AZ-OLD").orElseThrow();
+        assertEquals(0, old.getVersion());
+        assertNull(old.getDeletedAt());
+        List<Inspection> history = inspections.findAll();
+        assertEquals(1, history.size());
+        assertEquals(0, history.get(0).getVersion());
+    }
+}
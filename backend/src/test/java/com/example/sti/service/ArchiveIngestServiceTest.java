@@ -0,0 +1,115 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.Transformer;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ArchiveIngestServiceTest {
+
+    private final InspectionRepository inspections = mock(InspectionRepository.class);
+    private final ThermalImageService thermal = mock(ThermalImageService.class);
+    private final PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final MediaIndexService mediaIndex = mock(MediaIndexService.class);
+    private final Inspection inspection = new Inspection();
+
+    private static byte[] zip(String... nameThenContent) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < nameThenContent.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(nameThenContent[i]));
+                zip.write(nameThenContent[i + 1].getBytes());
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** A service whose inspection AZ-1/7 exists at validation time. */
+    private ArchiveIngestService service() throws Exception {
+        Transformer t = new Transformer();
+        t.setTransformerNo("AZ-1");
+        ReflectionTestUtils.setField(inspection, "id", 7L);
+        inspection.setTransformer(t);
+        when(inspections.findAllWithTransformerByIdIn(any())).thenReturn(List.of(inspection));
+        when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(thermal.writeThermalFile(any(), any(), any(), any(), anyLong())).thenReturn("media/inspections/AZ-1/7.jpg");
+
+        ArchiveIngestService s = new ArchiveIngestService(inspections, mock(TransformerRepository.class), thermal,
+                mock(BaselineService.class), blobStore, mediaIndex, txManager, 4, true);
+        ReflectionTestUtils.setField(s, "batchSize", 200);
+        ReflectionTestUtils.setField(s, "maxBuffered", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(s, "maxEntrySize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(s, "maxEntries", 100);
+        return s;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void validatesReadOnlyAndWritesOnlyTheLastEntryForAnImage() throws Exception {
+        ArchiveIngestService s = service();
+        when(inspections.findAllById(any())).thenReturn(List.of(inspection));
+
+        Map<String, Object> out = s.ingest(new ByteArrayInputStream(zip("AZ-1/7.jpg", "old", "inspections/AZ-1/7.jpg", "new")),
+                "alice", null);
+
+        List<Map<String, Object>> items = (List<Map<String, Object>>) out.get("items");
+        assertEquals("superseded", items.get(0).get("reason"));
+        assertEquals("stored", items.get(1).get("status"));
+        ArgumentCaptor<InputStream> written = ArgumentCaptor.forClass(InputStream.class);
+        verify(thermal).writeThermalFile(eq("AZ-1"), eq("7"), eq("jpg"), written.capture(), eq(3L));
+        assertEquals("new", new String(written.getValue().readAllBytes()));
+
+        ArgumentCaptor<TransactionDefinition> txs = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(txManager, times(2)).getTransaction(txs.capture());
+        assertTrue(txs.getAllValues().get(0).isReadOnly());
+        assertFalse(txs.getAllValues().get(1).isReadOnly());
+        s.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putsTheOldImageBackWhenTheInspectionWasDeletedDuringTheWrite() throws Exception {
+        ArchiveIngestService s = service();
+        String key = "inspections/AZ-1/7.jpg";
+        when(blobStore.head(key)).thenReturn(Optional.of(new BlobInfo(key, 3, Instant.now(), "image/jpeg", null)));
+        when(blobStore.get(key)).thenAnswer(a -> new ByteArrayInputStream("old".getBytes()));
+        when(inspections.findAllById(any())).thenReturn(List.of()); // soft-deleted after validation
+
+        Map<String, Object> out = s.ingest(new ByteArrayInputStream(zip("AZ-1/7.jpg", "new")), "alice", null);
+
+        Map<String, Object> row = ((List<Map<String, Object>>) out.get("items")).get(0);
+        assertEquals("skipped", row.get("status"));
+        assertEquals("inspection-deleted", row.get("reason"));
+        ArgumentCaptor<InputStream> restored = ArgumentCaptor.forClass(InputStream.class);
+        verify(blobStore).put(eq(key), restored.capture(), eq(3L), eq("image/jpeg"));
+        assertEquals("old", new String(restored.getValue().readAllBytes()));
+        verify(mediaIndex).recordWrite(any());
+        assertEquals(0, out.get("stored"));
+        s.shutdown();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.sti.service;
+
+import com.example.sti.event.BulkImportedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Chunked CSV/NDJSON import: validation, per-row errors and chunks that commit on their own. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkimport;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "import.bulk.chunk-size=3",
+        "import.bulk.max-errors=2"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BulkImportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // chunks commit in their own transactions
+@RecordApplicationEvents
+class BulkImportServiceTest {
+
+    @Autowired private BulkImportService importer;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private ApplicationEvents events;
+
+    @AfterEach
+    void clean() {
+        jdbc.update("DELETE FROM inspections");
+        jdbc.update("DELETE FROM transformers");
+    }
+
+    private Map<String, Object> run(BulkImportService.Kind kind, String body, boolean ndjson) throws Exception {
+        return importer.importRows(kind, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ndjson);
+    }
+
+    private List<String> numbers() {
+        return jdbc.queryForList("SELECT transformer_no FROM transformers WHERE deleted_at IS NULL ORDER BY transformer_no", String.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> errors(Map<String, Object> report) {
+        return (List<Map<String, Object>>) report.get("errors");
+    }
+
+    @Test
+    void csvHeadersAreNormalizedAndQuotedFieldsMaySpanLines() throws Exception {
+        Map<String, Object> report = run(BulkImportService.Kind.TRANSFORMERS,
+                "﻿Transformer_No,Pole No,REGION,locationDetails\n"
+                        + "AZ-1,P-1,North,\"Main St, \"\"yard\"\"\nbehind the gate\"\n"
+                        + "AZ-2,P-2,South,\n", false);
+
+        assertEquals(2L, report.get("imported"), report::toString);
+        assertEquals(List.of("AZ-1", "AZ-2"), numbers());
+        assertEquals("Main St, \"yard\"\nbehind the gate",
+                jdbc.queryForObject("SELECT location_details FROM transformers WHERE transformer_no = 'AZ-1'", String.class));
+        assertEquals("P-2", jdbc.queryForObject("SELECT pole_no FROM transformers WHERE transformer_no = 'AZ-2'", String.class));
+    }
+
+    @Test
+    void anUnterminatedQuoteIsRejected() throws Exception {
+        Map<String, Object> report = run(BulkImportService.Kind.TRANSFORMERS,
+                "transformerNo,region\nAZ-1,North\nAZ-2,\"South\nAZ-3,East\n", false);
+
+        assertEquals(1L, report.get("imported"));
+        assertEquals(Map.of("line", 3L, "error", "unterminated quoted field"), errors(report).get(0));
+    }
+
+    @Test
+    void rejectsDuplicatesInTheBodyAndNumbersTakenByLiveOrDeletedTransformers() throws Exception {
+        jdbc.update("INSERT INTO transformers (transformer_no, starred, created_at, version) VALUES ('AZ-LIVE', false, now(), 0)");
+        jdbc.update("INSERT INTO transformers (transformer_no, starred, created_at, version, deleted_at) "
+                + "VALUES ('AZ-GONE', false, now(), 0, now())");
+
+        Map<String, Object> report = run(BulkImportService.Kind.TRANSFORMERS,
+                "{\"transformer_no\":\"AZ-1\"}\n{\"transformerNo\":\"AZ-1\"}\n{\"transformerNo\":\"AZ-LIVE\"}\n"
+                        + "{\"transformerNo\":\"AZ-GONE\"}\nnot json\n", true);
+
+        assertEquals(5L, report.get("rows"));
+        assertEquals(1L, report.get("imported"));
+        assertEquals(4L, report.get("failed"));
+        assertEquals(List.of("AZ-1", "AZ-LIVE"), numbers());
+        assertEquals(Map.of("line", 2L, "transformerNo", "AZ-1", "error", "duplicate transformerNo in this import"), errors(report).get(0));
+        assertEquals("TransformerNo already exists", errors(report).get(1).get("error"));
+        assertEquals(true, report.get("errorsTruncated")); // max-errors=2
+    }
+
+    @Test
+    void inspectionsNeedAKnownTransformerAndValidValues() throws Exception {
+        run(BulkImportService.Kind.TRANSFORMERS, "transformerNo\nAZ-1\n", false);
+
+        Map<String, Object> report = run(BulkImportService.Kind.INSPECTIONS,
+                "transformerNo,inspectedAt,status,notes\n"
+                        + "AZ-1,2025-03-10,Completed,\"two\nlines\"\n"
+                        + "AZ-9,2025-03-10,,\n", false);
+
+        assertEquals(1L, report.get("imported"));
+        assertEquals(Map.of("line", 4L, "transformerNo", "AZ-9", "error", "unknown transformerNo"), errors(report).get(0));
+        assertEquals("two\nlines", jdbc.queryForObject("SELECT notes FROM inspections", String.class));
+        assertEquals("COMPLETED", jdbc.queryForObject("SELECT status FROM inspections", String.class));
+    }
+
+    @Test
+    void eachChunkCommitsOnItsOwnAndAFailedChunkKeepsTheEarlierOnes() throws Exception {
+        // rows 4-6 form the second chunk; the DB refuses one of them after validation passed
+        jdbc.execute("ALTER TABLE transformers ADD CONSTRAINT test_no_boom CHECK (pole_no IS NULL OR pole_no <> 'BOOM')");
+        try {
+            String rows = IntStream.rangeClosed(1, 7)
+                    .mapToObj(n -> "AZ-" + n + "," + (n == 5 ? "BOOM" : "P-" + n))
+                    .collect(Collectors.joining("\n"));
+            Map<String, Object> report = run(BulkImportService.Kind.TRANSFORMERS, "transformerNo,poleNo\n" + rows + "\n", false);
+
+            assertEquals(7L, report.get("rows"));
+            assertEquals(4L, report.get("imported"));
+            assertEquals(3L, report.get("failed"));
+            assertEquals(List.of("AZ-1", "AZ-2", "AZ-3", "AZ-7"), numbers());
+            assertTrue(errors(report).get(0).get("error").toString().startsWith("insert failed"));
+            assertEquals(2, events.stream(BulkImportedEvent.class).count()); // one per committed chunk
+        } finally {
+            jdbc.execute("ALTER TABLE transformers DROP CONSTRAINT test_no_boom");
+        }
+    }
+}
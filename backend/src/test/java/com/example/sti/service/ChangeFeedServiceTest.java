@@ -0,0 +1,133 @@
+package com.example.sti.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedServiceTest {
+
+    private final ChangeFeedService feed = new ChangeFeedService(1, false);
+
+    /** Records "name data" of every event written (or "ping"); the first write waits for {@link #release}. */
+    private static final class Client extends SseEmitter {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+        final CountDownLatch firstWrite = new CountDownLatch(1);
+
+        Client(boolean blockFirstWrite) {
+            release = new CountDownLatch(blockFirstWrite ? 1 : 0);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            List<Object> parts = builder.build().stream().map(d -> d.getData()).toList();
+            String head = String.valueOf(parts.get(0));
+            firstWrite.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            received.add(head.startsWith(":") ? "ping"
+                    : head.replaceAll("(?s).*event:([^\n]*)\n.*", "$1") + " " + (parts.size() > 1 ? parts.get(1) : ""));
+        }
+
+        List<String> names() {
+            return received.stream().map(r -> r.split(" ", 2)[0]).toList();
+        }
+    }
+
+    private ChangeFeedService configure(int maxPending, Duration writeTimeout) {
+        ReflectionTestUtils.setField(feed, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(feed, "maxPending", maxPending);
+        ReflectionTestUtils.setField(feed, "writeTimeout", writeTimeout);
+        return feed;
+    }
+
+    private static void await(Runnable check) throws InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                check.run();
+                return;
+            } catch (AssertionError e) {
+                if (i > 100) throw e;
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        feed.shutdown();
+    }
+
+    @Test
+    void burstsToOneInspectionReachASlowClientOnceWithTheLatestData() throws Exception {
+        configure(256, Duration.ofSeconds(10));
+        Client client = new Client(true);
+        feed.subscribe(client, null, null);
+        assertTrue(client.firstWrite.await(5, TimeUnit.SECONDS)); // "ready" is stuck in the socket
+
+        for (int n = 1; n <= 3; n++) feed.publish("annotations.saved", 1L, null, 7L, Map.of("criticalAnomalies", n));
+        feed.publish("annotations.saved", 1L, null, 8L, null);
+        client.release.countDown();
+
+        await(() -> assertEquals(List.of("ready", "annotations.saved", "annotations.saved"), client.names()));
+        assertTrue(client.received.get(1).contains("inspectionId=7") && client.received.get(1).contains("criticalAnomalies=3"),
+                client.received.get(1));
+        assertTrue(client.received.get(2).contains("inspectionId=8"), client.received.get(2));
+    }
+
+    @Test
+    void aClientThatFallsTooFarBehindIsResetAndDropped() throws Exception {
+        configure(2, Duration.ofSeconds(10));
+        Client client = new Client(true);
+        feed.subscribe(client, null, null);
+        assertTrue(client.firstWrite.await(5, TimeUnit.SECONDS));
+
+        for (long id = 1; id <= 5; id++) feed.publish("inspection.updated", 1L, null, id, null);
+        feed.publish("inspection.updated", 1L, null, 99L, null); // after the reset: never queued
+        client.release.countDown();
+
+        await(() -> assertEquals(List.of("ready", "reset"), client.names()));
+        assertEquals(0, feed.stats().get("subscribers"));
+        assertEquals(1L, feed.stats().get("dropped"));
+    }
+
+    @Test
+    void heartbeatDropsAClientStuckInAWriteAndStillPingsTheOthers() throws Exception {
+        ChangeFeedService feed = new ChangeFeedService(1, true); // one virtual thread per busy subscriber
+        ReflectionTestUtils.setField(feed, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(feed, "maxPending", 256);
+        ReflectionTestUtils.setField(feed, "writeTimeout", Duration.ofMillis(100));
+        try {
+            Client stuck = new Client(true);
+            Client healthy = new Client(false);
+            feed.subscribe(stuck, null, null);
+            feed.subscribe(healthy, null, null);
+            assertTrue(stuck.firstWrite.await(5, TimeUnit.SECONDS));
+            await(() -> assertEquals(List.of("ready"), healthy.names()));
+
+            Thread.sleep(200);
+            feed.heartbeat();
+
+            await(() -> assertEquals(List.of("ready", "ping"), healthy.names()));
+            assertEquals(1, feed.stats().get("subscribers"));
+            assertEquals(1L, feed.stats().get("dropped"));
+            stuck.release.countDown();
+        } finally {
+            feed.shutdown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.InspectionAnnotation;
+import com.example.sti.entity.Transformer;
+import com.example.sti.repo.TransformerRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Every kind of write moves the tag of the resource it changes. */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:etags;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EntityTagService.class)
+class EntityTagServiceTest {
+
+    @Autowired private EntityTagService tags;
+    @Autowired private EntityManager em;
+    @Autowired private TransformerRepository transformers;
+
+    /** The tag before the write under test. */
+    private String last;
+
+    private void assertChanged(Supplier<Optional<String>> tag, String after) {
+        em.flush();
+        em.clear();
+        String now = tag.get().orElseThrow();
+        assertNotEquals(last, now, after + " left the tag unchanged");
+        last = now;
+    }
+
+    private Transformer transformer(String no) {
+        Transformer t = new Transformer();
+        t.setTransformerNo(no);
+        em.persist(t);
+        return t;
+    }
+
+    private Inspection inspection(Transformer t) {
+        Inspection i = new Inspection();
+        i.setTransformer(t);
+        em.persist(i);
+        return i;
+    }
+
+    private InspectionAnnotation annotation(Inspection i) {
+        InspectionAnnotation a = new InspectionAnnotation();
+        a.setInspection(i);
+        a.setAnnotationData(Map.of("class", "Faulty_red"));
+        em.persist(a);
+        return a;
+    }
+
+    @Test
+    void transformerListTagMovesOnInsertUpdateSoftDeleteAndDelete() {
+        Supplier<Optional<String>> list = () -> Optional.of(tags.transformers());
+        Transformer a = transformer("AZ-1");
+        Long b = transformer("AZ-2").getId();
+        assertChanged(list, "insert");
+
+        em.find(Transformer.class, a.getId()).setRegion("Kandy");
+        assertChanged(list, "update");
+
+        transformers.softDeleteById(b, Instant.now());
+        assertChanged(list, "soft delete");
+
+        em.remove(em.find(Transformer.class, a.getId()));
+        assertChanged(list, "delete");
+    }
+
+    @Test
+    void transformerDataTagMovesWithItsInspections() {
+        Long id = transformer("AZ-1").getId();
+        Supplier<Optional<String>> data = () -> tags.transformerData(id);
+        assertChanged(data, "create");
+
+        Long inspectionId = inspection(em.find(Transformer.class, id)).getId();
+        assertChanged(data, "inspection insert");
+
+        em.find(Inspection.class, inspectionId).setNotes("oil leak");
+        assertChanged(data, "inspection update");
+
+        em.find(Inspection.class, inspectionId).setDeletedAt(Instant.now());
+        assertChanged(data, "inspection soft delete");
+
+        em.find(Transformer.class, id).setRegion("Kandy");
+        assertChanged(data, "transformer update");
+
+        assertTrue(tags.transformerData(id + 1000).isEmpty());
+    }
+
+    @Test
+    void annotationSetTagMovesOnInsertUpdateAndDelete() {
+        Long inspectionId = inspection(transformer("AZ-1")).getId();
+        Supplier<Optional<String>> set = () -> tags.annotations(inspectionId);
+        assertChanged(set, "empty set");
+
+        Long a = annotation(em.find(Inspection.class, inspectionId)).getId();
+        Long b = annotation(em.find(Inspection.class, inspectionId)).getId();
+        assertChanged(set, "insert");
+
+        em.find(InspectionAnnotation.class, a).setAnnotationData(Map.of("class", "Normal"));
+        assertChanged(set, "update");
+
+        em.remove(em.find(InspectionAnnotation.class, b));
+        assertChanged(set, "delete");
+
+        assertTrue(tags.annotations(inspectionId + 1000).isEmpty());
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.AnomalyCounts;
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.InspectionAnnotation;
+import com.example.sti.entity.InspectionStatus;
+import com.example.sti.entity.Transformer;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.InspectionAnnotationRepository;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Incrementally maintained rollups must always equal a rebuild from scratch. */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:rollups;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FleetRollupServiceTest {
+
+    private static final Instant MARCH = Instant.parse("2025-03-10T08:00:00Z");
+    private static final Instant APRIL = Instant.parse("2025-04-10T08:00:00Z");
+
+    @Autowired private EntityManager em;
+    @Autowired private InspectionRepository inspections;
+    @Autowired private InspectionAnnotationRepository annotations;
+    @Autowired private TransformerRepository transformers;
+
+    private FleetRollupService service() {
+        return new FleetRollupService(inspections, annotations, transformers, "UTC");
+    }
+
+    private Transformer transformer(String no, String region) {
+        Transformer t = new Transformer();
+        t.setTransformerNo(no);
+        t.setRegion(region);
+        em.persist(t);
+        return t;
+    }
+
+    private Inspection inspection(Transformer t, Instant at, InspectionStatus status) {
+        Inspection i = new Inspection();
+        i.setTransformer(t);
+        i.setInspectedAt(at);
+        i.setStatus(status);
+        em.persist(i);
+        return i;
+    }
+
+    private InspectionAnnotation annotate(Inspection i, String cls, String type) {
+        InspectionAnnotation a = new InspectionAnnotation();
+        a.setInspection(i);
+        a.setAnnotationData(Map.of("class", cls, "annotationType", type));
+        em.persist(a);
+        return a;
+    }
+
+    private void assertMatchesRebuild(FleetRollupService incremental) {
+        em.flush();
+        FleetRollupService rebuilt = service();
+        rebuilt.rebuild();
+        assertEquals(rebuilt.aggregates(null, null, null, null), incremental.aggregates(null, null, null, null));
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        Transformer north = transformer("AZ-1", "North");
+        Transformer south = transformer("AZ-2", "South");
+        Inspection a = inspection(north, MARCH, InspectionStatus.COMPLETED);
+        Inspection b = inspection(north, APRIL, InspectionStatus.IN_PROGRESS);
+        Inspection c = inspection(south, APRIL, InspectionStatus.COMPLETED);
+        annotate(a, "Faulty_red", "Detected by AI");
+        annotate(a, "Potential_yellow", "Manual");
+        annotate(c, "Faulty_red", "Edited");
+        em.flush();
+
+        FleetRollupService rollups = service();
+        rollups.rebuild();
+
+        // new inspection
+        Inspection d = inspection(south, MARCH, InspectionStatus.NEEDS_REVIEW);
+        em.flush();
+        rollups.onInspectionChanged(new InspectionChangedEvent(south.getId(), d.getId(), ChangeType.CREATED, null, MARCH));
+        assertMatchesRebuild(rollups);
+
+        // status change and move to another month
+        b.setStatus(InspectionStatus.COMPLETED);
+        b.setInspectedAt(MARCH);
+        em.flush();
+        rollups.onInspectionChanged(new InspectionChangedEvent(north.getId(), b.getId(), ChangeType.UPDATED, APRIL, MARCH));
+        assertMatchesRebuild(rollups);
+
+        // annotations saved / one marked deleted
+        annotate(b, "Potential_yellow", "Detected by AI");
+        annotate(a, "Faulty_red", "Deleted");
+        em.flush();
+        rollups.onAnnotationsChanged(new AnnotationsChangedEvent(north.getId(), b.getId(), AnomalyCounts.NONE, AnomalyCounts.NONE));
+        rollups.onAnnotationsChanged(new AnnotationsChangedEvent(north.getId(), a.getId(), AnomalyCounts.NONE, AnomalyCounts.NONE));
+        assertMatchesRebuild(rollups);
+
+        // region change moves every inspection of the transformer
+        north.setRegion("East");
+        em.flush();
+        rollups.onTransformerChanged(new TransformerChangedEvent(north.getId(), "AZ-1", ChangeType.UPDATED));
+        assertMatchesRebuild(rollups);
+
+        // inspection deleted with its annotations
+        annotations.deleteByInspectionId(c.getId());
+        inspections.delete(em.find(Inspection.class, c.getId()));
+        em.flush();
+        rollups.onInspectionChanged(new InspectionChangedEvent(south.getId(), c.getId(), ChangeType.DELETED, APRIL, null));
+        assertMatchesRebuild(rollups);
+    }
+
+    @Test
+    void writesFromAnotherNodeArePickedUpBySync() {
+        Transformer north = transformer("AZ-1", "North");
+        Inspection a = inspection(north, MARCH, InspectionStatus.COMPLETED);
+        em.flush();
+        FleetRollupService rollups = service();
+        rollups.rebuild();
+
+        // no events reach this node for these
+        inspection(north, APRIL, InspectionStatus.IN_PROGRESS);
+        annotate(a, "Faulty_red", "Detected by AI");
+        north.setRegion("East");
+        em.flush();
+        assertNotEquals(rebuilt().aggregates(null, null, null, null), rollups.aggregates(null, null, null, null));
+
+        rollups.syncWithDatabase();
+        assertMatchesRebuild(rollups);
+    }
+
+    private FleetRollupService rebuilt() {
+        FleetRollupService r = service();
+        r.rebuild();
+        return r;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aggregatesByStatusClassRegionAndMonth() {
+        Transformer north = transformer("AZ-1", "North");
+        Transformer south = transformer("AZ-2", "South");
+        Inspection a = inspection(north, MARCH, InspectionStatus.COMPLETED);
+        inspection(north, APRIL, InspectionStatus.IN_PROGRESS);
+        Inspection c = inspection(south, APRIL, InspectionStatus.COMPLETED);
+        annotate(a, "Faulty_red", "Detected by AI");
+        annotate(a, "Faulty_red", "Deleted");
+        annotate(c, "Faulty_red", "Manual");
+        annotate(c, "Potential_yellow", "Edited");
+        em.flush();
+
+        FleetRollupService rollups = service();
+        rollups.rebuild();
+
+        Map<String, Object> all = rollups.aggregates(null, null, null, null);
+        Map<String, Long> byStatus = (Map<String, Long>) all.get("inspectionsByStatus");
+        assertEquals(2L, byStatus.get("COMPLETED"));
+        assertEquals(1L, byStatus.get("IN_PROGRESS"));
+        assertEquals(0L, byStatus.get("NEEDS_REVIEW"));
+        assertEquals(List.of(
+                Map.of("className", "Faulty_red", "severity", "critical", "count", 2L),
+                Map.of("className", "Potential_yellow", "severity", "potential", "count", 1L)),
+                all.get("anomaliesByClass"));
+        List<Map<String, Object>> trend = (List<Map<String, Object>>) all.get("trend");
+        assertEquals(List.of("2025-03", "2025-04"), trend.stream().map(m -> m.get("month")).toList());
+        assertEquals(2L, trend.get(1).get("inspections"));
+
+        Map<String, Object> southApril = rollups.aggregates("south", null, YearMonth.of(2025, 4), YearMonth.of(2025, 4));
+        assertEquals(1L, ((Map<String, Long>) southApril.get("inspectionsByStatus")).get("COMPLETED"));
+        Map<String, Object> northOnly = rollups.aggregates(null, north.getId(), null, YearMonth.of(2025, 3));
+        assertEquals(1L, ((Map<String, Long>) northOnly.get("inspectionsByStatus")).get("COMPLETED"));
+        assertEquals(0L, ((Map<String, Long>) northOnly.get("inspectionsByStatus")).get("IN_PROGRESS"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.MediaGarbage;
+import com.example.sti.entity.Transformer;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.MediaGarbageRepository;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/** The media outbox: what the sweeper deletes, leaves alone and retries, and what reconcile enqueues. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:mediagc;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "media.gc.max-deletes-per-second=0",
+        "media.gc.retry-backoff=PT1M",
+        "media.gc.orphan-grace=PT1H"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MediaGarbageService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // enqueue and sweep commit like they do in production
+class MediaGarbageServiceTest {
+
+    private static final Instant LONG_AGO = Instant.now().minus(Duration.ofDays(1));
+
+    @Autowired private MediaGarbageService gc;
+    @Autowired private MediaGarbageRepository garbage;
+    @Autowired private TransformerRepository transformers;
+    @Autowired private InspectionRepository inspections;
+    @Autowired private JdbcTemplate jdbc;
+
+    @MockitoBean private BlobStore blobStore;
+    @MockitoBean private MediaIndexService mediaIndex;
+
+    @AfterEach
+    void clean() {
+        jdbc.update("DELETE FROM media_garbage");
+        jdbc.update("DELETE FROM inspections");
+        jdbc.update("DELETE FROM transformers");
+    }
+
+    /** An inspection of AZ-1 whose thermal image is stored under inspections/AZ-1/{id}.jpg; returns that key. */
+    private String inspectionWithImage() {
+        Transformer t = transformers.findByTransformerNo("AZ-1").orElseGet(() -> {
+            Transformer n = new Transformer();
+            n.setTransformerNo("AZ-1");
+            return transformers.save(n);
+        });
+        Inspection i = new Inspection();
+        i.setTransformer(t);
+        i = inspections.save(i);
+        String key = "inspections/AZ-1/" + i.getId() + ".jpg";
+        i.setThermalImagePath("media/" + key);
+        inspections.save(i);
+        return key;
+    }
+
+    private void stored(String key, Instant lastModified) throws IOException {
+        when(blobStore.head(key)).thenReturn(Optional.of(blob(key, lastModified)));
+    }
+
+    private static BlobInfo blob(String key, Instant lastModified) {
+        return new BlobInfo(key, 3, lastModified, "image/jpeg", null);
+    }
+
+    @Test
+    void sweepDeletesOnlyBlobsNobodyReferencedOrRewroteSinceTheyWereEnqueued() throws Exception {
+        String reused = inspectionWithImage(); // enqueued, then pointed at again
+        String rewritten = "inspections/AZ-1/9001.jpg";
+        String dead = "inspections/AZ-1/9002.jpg";
+        stored(reused, LONG_AGO);
+        stored(dead, LONG_AGO);
+        gc.enqueue(List.of("media/" + reused, "media/" + rewritten, "media/" + dead));
+        stored(rewritten, Instant.now().plusSeconds(60)); // a new upload landed on the same key afterwards
+        clearInvocations(mediaIndex); // enqueue already dropped all three from the index
+
+        assertEquals(3, gc.sweep());
+
+        verify(blobStore).delete(dead);
+        verify(blobStore, never()).delete(reused);
+        verify(blobStore, never()).delete(rewritten);
+        verify(mediaIndex).recordDelete(dead);
+        assertEquals(0, garbage.count());
+    }
+
+    @Test
+    void aFailedDeleteIsRetriedWithGrowingBackoff() throws Exception {
+        String key = "inspections/AZ-1/9001.jpg";
+        stored(key, LONG_AGO);
+        doThrow(new IOException("disk busy")).when(blobStore).delete(key);
+        gc.enqueue(List.of(key));
+
+        assertEquals(0, gc.sweep());
+        MediaGarbage first = garbage.findAll().get(0);
+        assertEquals(1, first.getAttempts());
+        assertEquals("IOException: disk busy", first.getLastError());
+        assertTrue(first.getNotBefore().isAfter(Instant.now().plusSeconds(50)));
+        assertEquals(0, gc.sweep()); // not due yet
+        verify(blobStore, times(1)).delete(key);
+
+        jdbc.update("UPDATE media_garbage SET not_before = ?", Timestamp.from(Instant.now().minusSeconds(1)));
+        gc.sweep();
+        MediaGarbage second = garbage.findAll().get(0);
+        assertEquals(2, second.getAttempts());
+        assertTrue(second.getNotBefore().isAfter(Instant.now().plusSeconds(110))); // 1m, then 2m
+    }
+
+    @Test
+    void reconcileEnqueuesOldOrphansButNotFreshUploadsOrReferencedBlobs() throws Exception {
+        String referenced = inspectionWithImage();
+        String orphan = "inspections/AZ-1/9001.jpg";
+        String fresh = "inspections/AZ-1/9002.jpg"; // uploaded, row not linked yet
+        when(blobStore.list("inspections/")).thenAnswer(a -> Stream.of(
+                blob(referenced, LONG_AGO), blob(orphan, LONG_AGO), blob(fresh, Instant.now())));
+        when(blobStore.list("baseline/")).thenAnswer(a -> Stream.empty());
+        when(blobStore.list("assets/")).thenAnswer(a -> Stream.empty());
+
+        assertEquals(1, gc.reconcile());
+        assertEquals(List.of(orphan), garbage.findAllKeys());
+    }
+
+    @Test
+    void reconcileEnqueuesNothingWhenAListingFailsPartway() throws Exception {
+        String orphan = "inspections/AZ-1/9001.jpg";
+        when(blobStore.list("inspections/")).thenAnswer(a -> Stream.concat(
+                Stream.of(blob(orphan, LONG_AGO)),
+                Stream.<BlobInfo>generate(() -> { throw new UncheckedIOException(new IOException("listing cut off")); }).limit(1)));
+        when(blobStore.list("baseline/")).thenAnswer(a -> Stream.empty());
+        when(blobStore.list("assets/")).thenAnswer(a -> Stream.empty());
+
+        assertEquals(0, gc.reconcile());
+        assertEquals(0, garbage.count());
+
+        // a prefix that cannot be listed at all aborts the run too
+        when(blobStore.list("inspections/")).thenAnswer(a -> Stream.of(blob(orphan, LONG_AGO)));
+        when(blobStore.list("assets/")).thenThrow(new IOException("bucket unavailable"));
+        assertEquals(0, gc.reconcile());
+        assertEquals(0, garbage.count());
+        verify(blobStore, never()).delete(any());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.sti.service;
+
+import com.example.sti.storage.BlobInfo;
+import com.example.sti.storage.BlobStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MediaIndexServiceTest {
+
+    private static BlobInfo blob(String key) {
+        return new BlobInfo(key, 3, Instant.now(), "image/jpeg", null);
+    }
+
+    @Test
+    void rebuildSwapsInAFullIndexAndKeepsUpdatesMadeDuringTheWalk() throws Exception {
+        BlobStore store = mock(BlobStore.class);
+        MediaIndexService index = new MediaIndexService(store);
+        ReflectionTestUtils.setField(index, "rebuildParallelism", 4);
+        when(store.listFolders("inspections/")).thenAnswer(a -> Stream.of("inspections/AZ-1/", "inspections/AZ-2/"));
+        when(store.list("baseline/")).thenAnswer(a -> Stream.of(blob("baseline/AZ-1.jpg")));
+        when(store.list("inspections/AZ-2/")).thenAnswer(a -> Stream.of(blob("inspections/AZ-2/9.jpg")));
+        when(store.list("inspections/AZ-1/")).thenAnswer(a -> Stream.of(blob("inspections/AZ-1/7.jpg")));
+        index.rebuild();
+        assertEquals(3, index.size());
+
+        AtomicBoolean oldIndexServed = new AtomicBoolean();
+        when(store.list("inspections/AZ-1/")).thenAnswer(a -> {
+            // a write and a delete land while this folder is being listed (the listing predates the delete)
+            index.recordWrite(blob("inspections/AZ-1/8.jpg"));
+            index.recordDelete("inspections/AZ-1/7.jpg");
+            oldIndexServed.set(index.findThermal("AZ-2", "9").isPresent()); // lookups keep using the old index
+            return Stream.of(blob("inspections/AZ-1/7.jpg"));
+        });
+        index.rebuild();
+
+        assertTrue(oldIndexServed.get());
+        assertTrue(index.findThermal("AZ-1", "8").isPresent());
+        assertTrue(index.findThermal("AZ-1", "7").isEmpty());
+        assertTrue(index.findThermal("AZ-2", "9").isPresent());
+        assertEquals(List.of("baseline/AZ-1.jpg"), index.findBaseline("AZ-1").map(MediaIndexService.MediaEntry::key).stream().toList());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void aFailedListingKeepsTheCurrentIndex() throws Exception {
+        BlobStore store = mock(BlobStore.class);
+        MediaIndexService index = new MediaIndexService(store);
+        ReflectionTestUtils.setField(index, "rebuildParallelism", 4);
+        ReflectionTestUtils.setField(index, "virtualThreads", true);
+        when(store.listFolders("inspections/")).thenAnswer(a -> Stream.of("inspections/AZ-1/"));
+        when(store.list("baseline/")).thenAnswer(a -> Stream.of(blob("baseline/AZ-1.jpg")));
+        when(store.list("inspections/AZ-1/")).thenAnswer(a -> Stream.of(blob("inspections/AZ-1/7.jpg")));
+        index.rebuild();
+
+        when(store.list("baseline/")).thenThrow(new IOException("S3 list failed: throttled"));
+        when(store.list("inspections/AZ-1/")).thenAnswer(a -> Stream.empty());
+        index.rebuild();
+
+        assertTrue(index.findBaseline("AZ-1").isPresent());
+        assertTrue(index.findThermal("AZ-1", "7").isPresent());
+        assertEquals(2, index.size());
+    }
+}
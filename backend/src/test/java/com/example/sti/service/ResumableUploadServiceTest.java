@@ -0,0 +1,97 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.ResumableUploadReq;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ResumableUploadServiceTest {
+
+    @TempDir
+    Path staging;
+
+    private final ThermalImageService thermal = mock(ThermalImageService.class);
+    private final byte[] image = new byte[300_000];
+    private String sha256;
+
+    @BeforeEach
+    void image() throws Exception {
+        Arrays.fill(image, (byte) 7);
+        image[0] = 1;
+        sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+    }
+
+    /** A fresh service on the same staging dir, as after a restart or on another node. */
+    private ResumableUploadService node() {
+        ResumableUploadService s = new ResumableUploadService(thermal, mock(BaselineService.class));
+        ReflectionTestUtils.setField(s, "stagingDir", staging.toString());
+        ReflectionTestUtils.setField(s, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(s, "maxSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(s, "maxChunkSize", DataSize.ofKilobytes(128));
+        return s;
+    }
+
+    private ResumableUploadService.Upload create(ResumableUploadService s) throws IOException {
+        ResumableUploadReq req = new ResumableUploadReq();
+        req.kind = "thermal";
+        req.transformerNo = "AZ-1";
+        req.inspectionId = "7";
+        req.filename = "t.jpg";
+        req.length = image.length;
+        req.sha256 = sha256;
+        return s.create(req);
+    }
+
+    private static InputStream slice(byte[] b, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(b, from, to));
+    }
+
+    @Test
+    void retriedFinalizeStillVerifiesTheWholeFile() throws Exception {
+        ResumableUploadService s = node();
+        String id = create(s).getId();
+        for (int off = 0; off < image.length; off += 100_000) s.append(id, off, slice(image, off, off + 100_000), null);
+
+        when(thermal.saveThermalImage(any(), any(), any(), any(), any(), any(), anyLong()))
+                .thenThrow(new IOException("blob store down"))
+                .thenReturn(new ThermalImageService.ThermalUpload("p", "/media/p", Instant.now()));
+        assertThrows(IOException.class, () -> s.complete(id));
+
+        Map<String, Object> out = s.complete(id);
+        assertEquals(sha256, out.get("sha256"));
+        assertTrue(s.find(id).isEmpty());
+    }
+
+    @Test
+    void uploadContinuesOnAnotherNodeWithTheSameStagingDir() throws Exception {
+        String id = create(node()).getId();
+        node().append(id, 0, slice(image, 0, 100_000), null);
+
+        ResumableUploadService other = node();
+        assertEquals(100_000, other.find(id).orElseThrow().getOffset());
+        other.append(id, 100_000, slice(image, 100_000, 200_000), null);
+        node().append(id, 200_000, slice(image, 200_000, image.length), null);
+
+        when(thermal.saveThermalImage(any(), any(), any(), any(), any(), any(), anyLong()))
+                .thenReturn(new ThermalImageService.ThermalUpload("p", "/media/p", Instant.now()));
+        assertEquals(sha256, other.complete(id).get("sha256"));
+        assertTrue(node().find(id).isEmpty());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.AnomalyCounts;
+import com.example.sti.entity.Transformer;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.BulkImportedEvent;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.InspectionRepository;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.repo.TransformerSummaryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/** The page-data cache: which writes evict what, aliases after a rename, tag checks and the stats. */
+class TransformerDataServiceTest {
+
+    private final TransformerRepository transformers = mock(TransformerRepository.class);
+    private final InspectionRepository inspections = mock(InspectionRepository.class);
+    private final EntityTagService tags = mock(EntityTagService.class);
+    private final Transformer az1 = transformer(1L, "AZ-1");
+    private final Transformer az2 = transformer(2L, "AZ-2");
+    private final AtomicReference<String> az1Tag = new AtomicReference<>("W/\"transformer-1.v1\"");
+
+    private static Transformer transformer(Long id, String no) {
+        Transformer t = new Transformer();
+        ReflectionTestUtils.setField(t, "id", id);
+        t.setTransformerNo(no);
+        return t;
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (Transformer t : List.of(az1, az2)) {
+            when(transformers.findByTransformerNo(t.getTransformerNo())).thenReturn(Optional.of(t));
+            when(transformers.findById(t.getId())).thenReturn(Optional.of(t));
+        }
+        when(inspections.findByTransformerOrderByInspectedAtDesc(any())).thenReturn(List.of());
+        when(tags.transformerData(1L)).thenAnswer(a -> Optional.of(az1Tag.get()));
+        when(tags.transformerData(2L)).thenReturn(Optional.of("W/\"transformer-2.v1\""));
+    }
+
+    private TransformerDataService service(long maxSize) {
+        return new TransformerDataService(transformers, inspections, mock(TransformerSummaryRepository.class), tags,
+                maxSize, Duration.ofMinutes(10));
+    }
+
+    /** How many times the blob of {@code t} was built from the DB. */
+    private long builds(Transformer t) {
+        return mockingDetails(inspections).getInvocations().stream()
+                .filter(i -> i.getMethod().getName().equals("findByTransformerOrderByInspectedAtDesc"))
+                .filter(i -> i.getArgument(0) == t)
+                .count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> stats(TransformerDataService s, String cache) {
+        return (Map<String, Object>) s.cacheStats().get(cache);
+    }
+
+    @Test
+    void everyWritePathEvictsOnlyTheTransformerItTouched() {
+        TransformerDataService s = service(100);
+        s.getTransformerData("AZ-1");
+        s.getTransformerData("AZ-2");
+
+        List<Object> writes = List.of(
+                new InspectionChangedEvent(1L, 10L, ChangeType.UPDATED, null, null),
+                new AnnotationsChangedEvent(1L, 10L, AnomalyCounts.NONE, AnomalyCounts.NONE),
+                new TransformerChangedEvent(1L, "AZ-1", ChangeType.UPDATED),
+                new BulkImportedEvent(List.of(), List.of(11L), List.of(1L)));
+        long expected = 1;
+        for (Object write : writes) {
+            switch (write) {
+                case InspectionChangedEvent e -> s.onInspectionChanged(e);
+                case AnnotationsChangedEvent e -> s.onAnnotationsChanged(e);
+                case TransformerChangedEvent e -> s.onTransformerChanged(e);
+                case BulkImportedEvent e -> s.onBulkImported(e);
+                default -> fail(write.toString());
+            }
+            s.getTransformerData("AZ-1");
+            s.getTransformerData("AZ-2");
+            assertEquals(++expected, builds(az1), write::toString);
+            assertEquals(1, builds(az2), write::toString);
+        }
+    }
+
+    @Test
+    void aRenameDropsTheOldNumber() {
+        TransformerDataService s = service(100);
+        s.getTransformerData("AZ-1");
+
+        az1.setTransformerNo("AZ-9");
+        when(transformers.findByTransformerNo("AZ-1")).thenReturn(Optional.empty());
+        when(transformers.findByTransformerNo("AZ-9")).thenReturn(Optional.of(az1));
+        s.onTransformerChanged(new TransformerChangedEvent(1L, "AZ-9", ChangeType.UPDATED));
+
+        assertThrows(RuntimeException.class, () -> s.getTransformerData("AZ-1"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> page = (Map<String, Object>) s.getTransformerData("AZ-9").get("transformer");
+        assertEquals("AZ-9", page.get("transformerNo"));
+        assertEquals(page, s.getTransformerData("1").get("transformer")); // the id keeps working
+    }
+
+    @Test
+    void aBlobCachedAtAnOlderTagIsRebuiltBeforeItIsServed() {
+        TransformerDataService s = service(100);
+        assertEquals("W/\"transformer-1.v1\"", s.getTagged("AZ-1", s.currentTag("AZ-1")).tag());
+
+        az1Tag.set("W/\"transformer-1.v2\""); // committed, but its invalidation has not run yet
+        String current = s.currentTag("AZ-1");
+        assertEquals(current, s.getTagged("AZ-1", current).tag());
+        assertEquals(2, builds(az1));
+
+        s.getTagged("AZ-1", current);
+        assertEquals(2, builds(az1)); // now matches: served from the cache
+    }
+
+    @Test
+    void statsCountHitsMissesEvictionsAndInvalidations() {
+        TransformerDataService s = service(1);
+        s.getTransformerData("AZ-1");
+        s.getTransformerData("AZ-1");
+        assertEquals(1L, stats(s, "data").get("hits"));
+        assertEquals(1L, stats(s, "data").get("misses"));
+        assertEquals(1L, stats(s, "aliases").get("hits"));
+
+        s.onInspectionChanged(new InspectionChangedEvent(1L, 10L, ChangeType.CREATED, null, null));
+        assertEquals(1L, s.cacheStats().get("invalidations"));
+
+        s.getTransformerData("AZ-1");
+        s.getTransformerData("AZ-2"); // over max-size 1
+        ((Cache<?, ?>) ReflectionTestUtils.getField(s, "data")).cleanUp();
+        assertEquals(1L, stats(s, "data").get("evictions"));
+        assertEquals(1L, stats(s, "data").get("size"));
+    }
+}
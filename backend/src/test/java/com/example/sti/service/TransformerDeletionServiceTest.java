@@ -0,0 +1,136 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.ImageAsset;
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.InspectionAnnotation;
+import com.example.sti.entity.Transformer;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Deleting a transformer is a soft delete whose cost does not grow with its history; restore
+ * brings back exactly what was deleted with it, and the purger removes the rest for good.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:deletion;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "purge.batch-pause=PT0S"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TransformerDeletionService.class, TransformerSearchIndex.class, TombstonePurgeService.class})
+class TransformerDeletionServiceTest {
+
+    @Autowired private EntityManager em;
+    @Autowired private TransformerDeletionService deletion;
+    @Autowired private TombstonePurgeService purger;
+
+    @MockitoBean private MediaGarbageService mediaGarbage;
+
+    private Transformer seed(String no, int inspections) {
+        Transformer t = new Transformer();
+        t.setTransformerNo(no);
+        em.persist(t);
+        for (int n = 0; n < inspections; n++) {
+            Inspection i = new Inspection();
+            i.setTransformer(t);
+            em.persist(i);
+
+            InspectionAnnotation a = new InspectionAnnotation();
+            a.setInspection(i);
+            a.setAnnotationData(Map.of("class", "Faulty_red", "annotationType", "Detected by AI"));
+            em.persist(a);
+
+            ImageAsset asset = new ImageAsset();
+            asset.setInspection(i);
+            asset.setFilename(n + ".png");
+            asset.setPath("media/inspections/" + no + "/" + n + ".png");
+            em.persist(asset);
+        }
+        em.flush();
+        em.clear();
+        return em.find(Transformer.class, t.getId());
+    }
+
+    private long statementsToDelete(Transformer t, Statistics stats) {
+        stats.clear();
+        deletion.delete(t);
+        em.flush();
+        assertEquals(0, stats.getEntityLoadCount());
+        assertEquals(0, stats.getCollectionLoadCount());
+        return stats.getPrepareStatementCount();
+    }
+
+    private long rows(String table) {
+        return ((Number) em.createNativeQuery("SELECT COUNT(*) FROM " + table).getSingleResult()).longValue();
+    }
+
+    @Test
+    void softDeleteCostDoesNotGrowWithHistory() {
+        Statistics stats = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Transformer small = seed("AZ-1", 1);
+        Transformer large = seed("AZ-2", 40);
+
+        long forSmall = statementsToDelete(small, stats);
+        long forLarge = statementsToDelete(large, stats);
+        em.clear();
+
+        assertEquals(forSmall, forLarge);
+        assertNull(em.find(Transformer.class, large.getId()));
+        assertEquals(0L, em.createQuery("SELECT COUNT(i) FROM Inspection i", Long.class).getSingleResult());
+        assertEquals(41, rows("inspections")); // still there until purged
+        assertEquals(41, rows("inspection_annotations"));
+    }
+
+    @Test
+    void restoreBringsBackOnlyWhatWasDeletedWithTheTransformer() {
+        Transformer t = seed("AZ-3", 3);
+        Inspection earlier = em.createQuery("SELECT i FROM Inspection i WHERE i.transformer.id = :id ORDER BY i.id", Inspection.class)
+                .setParameter("id", t.getId()).setMaxResults(1).getSingleResult();
+        earlier.setDeletedAt(Instant.now().minusSeconds(60));
+        em.flush();
+        em.clear();
+
+        deletion.delete(em.find(Transformer.class, t.getId()));
+        em.flush();
+        em.clear();
+        assertTrue(deletion.restore("AZ-3").isPresent());
+
+        assertNotNull(em.find(Transformer.class, t.getId()));
+        assertEquals(2L, em.createQuery("SELECT COUNT(i) FROM Inspection i", Long.class).getSingleResult());
+        assertNull(em.find(Inspection.class, earlier.getId()));
+        assertTrue(deletion.restore("AZ-3").isEmpty());
+    }
+
+    @Test
+    void purgeRemovesTombstonesPastTheCutoffWithTheirMedia() {
+        Transformer t = seed("AZ-4", 5);
+        seed("AZ-5", 2); // live, must survive
+        deletion.delete(t);
+        em.flush();
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        assertEquals(Map.of("inspections", 0, "transformers", 0), purger.purge(Instant.now().minusSeconds(3600)));
+        assertEquals(Map.of("inspections", 5, "transformers", 1), purger.purge(Instant.now().plusSeconds(1)));
+
+        assertEquals(1, rows("transformers"));
+        assertEquals(2, rows("inspections"));
+        assertEquals(2, rows("inspection_annotations"));
+        assertEquals(2, rows("image_assets"));
+        verify(mediaGarbage).enqueue(argThat(paths -> paths.size() == 5));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.sti.service;
+
+import com.example.sti.entity.Transformer;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.TransformerChangedEvent;
+import com.example.sti.repo.TransformerRepository;
+import com.example.sti.service.TransformerSearchIndex.Doc;
+import com.example.sti.service.TransformerSearchIndex.Filter;
+import com.example.sti.service.TransformerSearchIndex.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransformerSearchIndexTest {
+
+    private TransformerSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TransformerSearchIndex(null);
+        index.put(new Doc(1L, "AZ-1234", "EN-122-A", "Nugegoda", "Bulk", "100", "Near the bus stand", false));
+        index.put(new Doc(2L, "AZ-1235", "EN-122-B", "Nugegoda", "Distribution", "200", null, true));
+        index.put(new Doc(3L, "AZ-12", "EN-900", "Maharagama", "Bulk", "50", "High level road", false));
+        index.put(new Doc(4L, "BX-5000", "AZ-1299", "Kandy", "Bulk", "50", "Temple road junction", false));
+    }
+
+    private static List<Long> ids(Result r) {
+        return r.items().stream().map(Doc::id).toList();
+    }
+
+    @Test
+    void exactBeatsPrefixAndIgnoresPunctuation() {
+        assertEquals(List.of(3L, 1L, 2L, 4L), ids(index.search("az12", Filter.NONE, 0, 10, false)));
+        assertEquals(List.of(1L), ids(index.search("AZ 1234", Filter.NONE, 0, 1, false)));
+    }
+
+    @Test
+    void poleNumbersAndLocationWords() {
+        assertEquals(List.of(1L, 2L), ids(index.search("en-122", Filter.NONE, 0, 10, false)));
+        assertEquals(List.of(3L, 4L), ids(index.search("road", Filter.NONE, 0, 10, false)));
+        assertEquals(List.of(4L), ids(index.search("temple ro", Filter.NONE, 0, 10, false)));
+        assertEquals(List.of(1L, 2L), ids(index.search("nuge", Filter.NONE, 0, 10, false)));
+    }
+
+    @Test
+    void fuzzyFindsTypos() {
+        assertTrue(ids(index.search("az1244", Filter.NONE, 0, 10, false)).isEmpty());
+        assertEquals(List.of(1L), ids(index.search("az1244", Filter.NONE, 0, 10, true)));
+        // 8+ characters allow two edits
+        assertEquals(List.of(2L), ids(index.search("az-1235xy", Filter.NONE, 0, 10, true)));
+        assertEquals(List.of(4L), ids(index.search("bx5001", Filter.NONE, 0, 10, true)));
+    }
+
+    @Test
+    void filtersAndPaging() {
+        assertEquals(List.of(2L), ids(index.search("az", new Filter(null, null, true), 0, 10, false)));
+        assertEquals(List.of(3L, 1L, 4L), ids(index.search("az", new Filter(null, "bulk", null), 0, 10, false)));
+
+        Result first = index.search("", Filter.NONE, 0, 3, false);
+        Result second = index.search("", Filter.NONE, 3, 3, false);
+        assertEquals(List.of(2L, 3L, 1L), ids(first)); // starred first, then by number
+        assertTrue(first.hasMore());
+        assertEquals(List.of(4L), ids(second));
+        assertFalse(second.hasMore());
+    }
+
+    @Test
+    void updatesAndRemovals() {
+        index.put(new Doc(1L, "CC-1", "EN-122-A", "Galle", "Bulk", "100", null, false));
+        assertEquals(List.of(3L, 2L, 4L), ids(index.search("az12", Filter.NONE, 0, 10, false)));
+        assertEquals(List.of(1L), ids(index.search("galle", Filter.NONE, 0, 10, false)));
+        assertEquals(List.of(2L), ids(index.search("nugegoda", Filter.NONE, 0, 10, false)));
+
+        index.remove(2L);
+        assertEquals(List.of(3L, 4L), ids(index.search("az12", Filter.NONE, 0, 10, false)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void followsCommittedEventsAndWritesFromOtherNodes() {
+        TransformerRepository repo = mock(TransformerRepository.class);
+        TransformerSearchIndex synced = new TransformerSearchIndex(repo);
+        Transformer a = transformer(1L, "AZ-1");
+        when(repo.searchIndexFingerprint()).thenReturn(List.<Object[]>of(new Object[]{1L, 0L, 1L}));
+        when(repo.findAll()).thenReturn(List.of(a));
+        synced.rebuild();
+
+        Transformer b = transformer(2L, "AZ-2");
+        when(repo.findById(2L)).thenReturn(Optional.of(b));
+        synced.onTransformerChanged(new TransformerChangedEvent(2L, "AZ-2", ChangeType.CREATED));
+        synced.onTransformerChanged(new TransformerChangedEvent(1L, "AZ-1", ChangeType.DELETED));
+        assertEquals(List.of(2L), ids(synced.search("", Filter.NONE, 0, 10, false)));
+
+        // another node added AZ-3: no event here, but the table fingerprint moved
+        when(repo.searchIndexFingerprint()).thenReturn(List.<Object[]>of(new Object[]{2L, 0L, 3L}));
+        when(repo.findAll()).thenReturn(List.of(b, transformer(3L, "AZ-3")));
+        synced.syncWithDatabase();
+        assertEquals(List.of(2L, 3L), ids(synced.search("", Filter.NONE, 0, 10, false)));
+
+        synced.syncWithDatabase(); // unchanged: no second rebuild
+        verify(repo, times(2)).findAll();
+    }
+
+    private static Transformer transformer(Long id, String no) {
+        Transformer t = new Transformer();
+        ReflectionTestUtils.setField(t, "id", id);
+        t.setTransformerNo(no);
+        return t;
+    }
+
+    private static TransformerSearchIndex bigIndex() {
+        TransformerSearchIndex big = new TransformerSearchIndex(null);
+        String[] regions = {"Nugegoda", "Maharagama", "Kandy", "Galle", "Matara", "Jaffna"};
+        for (long i = 0; i < 50_000; i++) {
+            big.put(new Doc(i, String.format("AZ-%05d", i), "EN-" + (i * 7 % 100_000), regions[(int) (i % regions.length)],
+                    "Bulk", "100", "Lane " + (i % 500), i % 10 == 0));
+        }
+        return big;
+    }
+
+    @Test
+    void largeIndexFindsExactNumbers() {
+        assertEquals("AZ-49999", bigIndex().search("az49999", Filter.NONE, 0, 1, true).items().get(0).transformerNo());
+    }
+
+    /** Wall-clock bound, so only with STI_LOAD_TEST=true (a busy build machine makes it flaky). */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "STI_LOAD_TEST", matches = "true|1")
+    void largeIndexAnswersFast() {
+        TransformerSearchIndex big = bigIndex();
+        String[] queries = {"az-123", "az-49999", "en-77", "kandy lane 4", "az-12345x", "az"};
+        for (int warm = 0; warm < 2_000; warm++) big.search(queries[warm % queries.length], Filter.NONE, 0, 20, true);
+
+        int runs = 6_000;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < runs; i++) big.search(queries[i % queries.length], Filter.NONE, 0, 20, true);
+        double avgMicros = (System.nanoTime() - t0) / 1_000.0 / runs;
+        assertTrue(avgMicros < 1_000, "average search took " + avgMicros + " us");
+    }
+}
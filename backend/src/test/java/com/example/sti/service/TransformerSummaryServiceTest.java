@@ -0,0 +1,164 @@
+package com.example.sti.service;
+
+import com.example.sti.dto.AnomalyCounts;
+import com.example.sti.dto.TransformerOverviewRow;
+import com.example.sti.entity.Inspection;
+import com.example.sti.entity.InspectionAnnotation;
+import com.example.sti.entity.Transformer;
+import com.example.sti.entity.TransformerSummary;
+import com.example.sti.event.AnnotationsChangedEvent;
+import com.example.sti.event.ChangeType;
+import com.example.sti.event.InspectionChangedEvent;
+import com.example.sti.repo.TransformerSummaryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Delta maintenance must always agree with a full recount. */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:summaries;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TransformerSummaryService.class)
+class TransformerSummaryServiceTest {
+
+    private static final Instant T0 = Instant.parse("2025-03-01T08:00:00Z");
+
+    @Autowired private EntityManager em;
+    @Autowired private TransformerSummaryService service;
+    @Autowired private TransformerSummaryRepository summaries;
+    @Autowired private ApplicationEventPublisher events;
+
+    private Transformer transformer(String no) {
+        Transformer t = new Transformer();
+        t.setTransformerNo(no);
+        em.persist(t);
+        return t;
+    }
+
+    private Inspection inspection(Transformer t, Instant at) {
+        Inspection i = new Inspection();
+        i.setTransformer(t);
+        i.setInspectedAt(at);
+        em.persist(i);
+        return i;
+    }
+
+    private List<InspectionAnnotation> annotate(Inspection i, String... classAndType) {
+        List<InspectionAnnotation> out = new ArrayList<>();
+        for (String ct : classAndType) {
+            String[] p = ct.split(":");
+            InspectionAnnotation a = new InspectionAnnotation();
+            a.setInspection(i);
+            a.setAnnotationData(Map.of("class", p[0], "annotationType", p[1]));
+            em.persist(a);
+            out.add(a);
+        }
+        return out;
+    }
+
+    private TransformerSummary summary(Transformer t) {
+        em.flush();
+        em.clear();
+        return summaries.findById(t.getId()).orElseThrow();
+    }
+
+    private void assertMatchesRecount(Transformer t) {
+        TransformerSummary incremental = summary(t);
+        int count = incremental.getInspectionCount();
+        Instant last = incremental.getLastInspectedAt();
+        int critical = incremental.getCriticalAnomalies();
+        int potential = incremental.getPotentialAnomalies();
+
+        service.recompute(t.getId());
+        TransformerSummary recount = summary(t);
+        assertEquals(recount.getInspectionCount(), count, "inspection count");
+        assertEquals(recount.getLastInspectedAt(), last, "last inspected");
+        assertEquals(recount.getCriticalAnomalies(), critical, "critical");
+        assertEquals(recount.getPotentialAnomalies(), potential, "potential");
+    }
+
+    @Test
+    void backfillThenDeltasAgreeWithRecount() {
+        Transformer t = transformer("AZ-1");
+        Transformer empty = transformer("AZ-2");
+        Inspection first = inspection(t, T0);
+        annotate(first, "point_overload_red:Detected by AI", "loose_joint_yellow:Edited", "loose_joint_red:Deleted");
+        em.flush();
+
+        service.backfillMissing();
+        TransformerSummary s = summary(t);
+        assertEquals(1, s.getInspectionCount());
+        assertEquals(T0, s.getLastInspectedAt());
+        assertEquals(1, s.getCriticalAnomalies());
+        assertEquals(1, s.getPotentialAnomalies());
+        assertEquals(0, summary(empty).getInspectionCount());
+
+        // newer inspection with anomalies
+        t = em.find(Transformer.class, t.getId());
+        Inspection second = inspection(t, T0.plusSeconds(3600));
+        events.publishEvent(new InspectionChangedEvent(t.getId(), second.getId(), ChangeType.CREATED, null, second.getInspectedAt()));
+        List<InspectionAnnotation> anns = annotate(second, "loose_joint_red:Manual", "point_overload_red:Detected by AI");
+        em.flush();
+        events.publishEvent(new AnnotationsChangedEvent(t.getId(), second.getId(), AnomalyCounts.NONE, AnomalyCounts.of(anns)));
+        assertEquals(3, summary(t).getCriticalAnomalies());
+        assertMatchesRecount(t);
+
+        // move the newest inspection before the first one: last inspected falls back
+        second = em.find(Inspection.class, second.getId());
+        Instant previous = second.getInspectedAt();
+        second.setInspectedAt(T0.minusSeconds(60));
+        em.flush();
+        events.publishEvent(new InspectionChangedEvent(t.getId(), second.getId(), ChangeType.UPDATED, previous, second.getInspectedAt()));
+        assertEquals(T0, summary(t).getLastInspectedAt());
+        assertMatchesRecount(t);
+
+        // delete the first inspection (and its annotations)
+        first = em.find(Inspection.class, first.getId());
+        AnomalyCounts before = service.currentAnomalies(first.getId());
+        em.createQuery("DELETE FROM InspectionAnnotation a WHERE a.inspection.id = :id").setParameter("id", first.getId()).executeUpdate();
+        events.publishEvent(new AnnotationsChangedEvent(t.getId(), first.getId(), before, AnomalyCounts.NONE));
+        em.remove(first);
+        events.publishEvent(new InspectionChangedEvent(t.getId(), first.getId(), ChangeType.DELETED, T0, null));
+        s = summary(t);
+        assertEquals(1, s.getInspectionCount());
+        assertEquals(T0.minusSeconds(60), s.getLastInspectedAt());
+        assertEquals(2, s.getCriticalAnomalies());
+        assertEquals(0, s.getPotentialAnomalies());
+        assertMatchesRecount(t);
+    }
+
+    @Test
+    void overviewPagesWithAggregates() {
+        for (int n = 0; n < 5; n++) {
+            Transformer t = transformer("TX-" + n);
+            for (int k = 0; k <= n; k++) inspection(t, T0.plusSeconds(k));
+        }
+        em.flush();
+        service.backfillMissing();
+        em.flush();
+        em.clear();
+
+        List<TransformerOverviewRow> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransformerSummaryService.Page page = service.overview(2, cursor);
+            all.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of("TX-0", "TX-1", "TX-2", "TX-3", "TX-4"), all.stream().map(r -> r.transformerNo).toList());
+        assertEquals(4, all.get(3).inspectionCount);
+        assertEquals(T0.plusSeconds(3), all.get(3).lastInspectedAt);
+        assertThrows(IllegalArgumentException.class, () -> service.overview(2, "not-a-cursor"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.sti.storage;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Same contract against both backends. The S3 case needs a MinIO-style endpoint:
+ *   STI_TEST_S3_ENDPOINT=http://localhost:9000 STI_TEST_S3_BUCKET=sti-test
+ *   (STI_TEST_S3_ACCESS_KEY / STI_TEST_S3_SECRET_KEY default to minioadmin)
+ */
+class BlobStoreTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void localStore() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(tmp.resolve("media"));
+        exercise(store, 64 * 1024);
+
+        // deleting the last file in a folder prunes the folder, but never the root
+        assertFalse(Files.exists(tmp.resolve("media/inspections/AZ-1")));
+        assertTrue(Files.isDirectory(tmp.resolve("media")));
+        assertThrows(java.io.IOException.class, () -> store.get("../outside.txt"));
+    }
+
+    @Test
+    void s3Store() throws Exception {
+        String endpoint = System.getenv("STI_TEST_S3_ENDPOINT");
+        Assumptions.assumeTrue(endpoint != null && !endpoint.isBlank(), "STI_TEST_S3_ENDPOINT not set");
+        String bucket = System.getenv().getOrDefault("STI_TEST_S3_BUCKET", "sti-test");
+        try (S3Client s3 = S3Client.builder()
+                .endpointOverride(URI.create(endpoint))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(
+                        System.getenv().getOrDefault("STI_TEST_S3_ACCESS_KEY", "minioadmin"),
+                        System.getenv().getOrDefault("STI_TEST_S3_SECRET_KEY", "minioadmin"))))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .build()) {
+            try {
+                s3.createBucket(b -> b.bucket(bucket));
+            } catch (software.amazon.awssdk.services.s3.model.S3Exception alreadyThere) { /* reuse */ }
+
+            // 11 MB with 5 MB parts -> three-part multipart upload
+            exercise(new S3BlobStore(s3, bucket, "test-" + UUID.randomUUID(), S3BlobStore.MIN_PART_SIZE), 11 * 1024 * 1024);
+        }
+    }
+
+    private static void exercise(BlobStore store, int size) throws Exception {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        String key = "inspections/AZ-1/7.png";
+
+        BlobInfo put = store.put(key, new ByteArrayInputStream(data), data.length, "image/png");
+        assertEquals(size, put.size());
+        assertEquals(size, store.head(key).orElseThrow().size());
+
+        try (InputStream in = store.get(key)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        try (InputStream in = store.getRange(key, 100, 50)) {
+            byte[] expected = new byte[50];
+            System.arraycopy(data, 100, expected, 0, 50);
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+        // range running past the end is clamped
+        try (InputStream in = store.getRange(key, size - 10, 100)) {
+            assertEquals(10, in.readAllBytes().length);
+        }
+
+        store.put("baseline/AZ-1.jpg", new ByteArrayInputStream(new byte[] {1, 2, 3}), 3, "image/jpeg");
+        try (Stream<BlobInfo> s = store.list("inspections/")) {
+            assertEquals(List.of(key), s.map(BlobInfo::key).toList());
+        }
+        try (Stream<String> s = store.listFolders("inspections/")) {
+            assertEquals(List.of("inspections/AZ-1/"), s.toList());
+        }
+
+        assertTrue(store.delete(key));
+        assertFalse(store.delete(key));
+        assertTrue(store.head(key).isEmpty());
+        assertThrows(NoSuchFileException.class, () -> store.get(key).close());
+        assertTrue(store.delete("baseline/AZ-1.jpg"));
+    }
+}
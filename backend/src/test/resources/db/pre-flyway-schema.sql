@@ -0,0 +1,13 @@
+-- What ddl-auto: update created from the entities before the schema moved to Flyway: no version or
+-- deleted_at columns, no summaries or media outbox tables, no indexes beyond keys.
+create table transformers (starred boolean not null, baseline_uploaded_at timestamp(6) with time zone, created_at timestamp(6) with time zone not null, id bigint generated by default as identity, baseline_image_path varchar(500), location_details varchar(2000), capacity varchar(255), pole_no varchar(255), region varchar(255), transformer_no varchar(255) unique, type varchar(255), uploader_name varchar(255), primary key (id));
+create table inspections (starred boolean not null, id bigint generated by default as identity, inspected_at timestamp(6) with time zone not null, maintenance_at timestamp(6) with time zone, transformer_id bigint not null, weather_condition varchar(50), thermal_image_path varchar(500), notes varchar(2000), status varchar(255) not null check (status in ('IN_PROGRESS','COMPLETED','NEEDS_REVIEW')), thermal_uploader_name varchar(255), primary key (id));
+create table inspection_annotations (confidence numeric(5,4), created_at timestamp(6) with time zone not null, id bigint generated by default as identity, inspection_id bigint not null, updated_at timestamp(6) with time zone not null, annotation_type varchar(50) not null, class_name varchar(100), created_by varchar(255), notes TEXT, annotation_data jsonb not null, bounding_box jsonb, primary key (id));
+create table image_assets (captured_at timestamp(6) with time zone not null, id bigint generated by default as identity, inspection_id bigint not null, filename varchar(255) not null, meta_json TEXT, path varchar(255) not null, primary key (id));
+alter table if exists inspections add constraint FKinspectionstransformer foreign key (transformer_id) references transformers;
+alter table if exists inspection_annotations add constraint FKannotationsinspection foreign key (inspection_id) references inspections;
+alter table if exists image_assets add constraint FKimageassetsinspection foreign key (inspection_id) references inspections;
+
+insert into transformers (transformer_no, starred, created_at) values ('AZ-OLD', false, CURRENT_TIMESTAMP);
+insert into inspections (transformer_id, inspected_at, status, starred)
+    select id, CURRENT_TIMESTAMP, 'COMPLETED', false from transformers where transformer_no = 'AZ-OLD';
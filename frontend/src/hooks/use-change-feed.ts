@@ -0,0 +1,62 @@
+import * as React from "react"
+
+const API_BASE = import.meta.env.VITE_API_URL || "http://localhost:8080"
+
+export type ChangeFeedEvent = {
+  type: string
+  transformerId?: number
+  transformerNo?: string
+  inspectionId?: number
+  at: string
+  [key: string]: unknown
+}
+
+const EVENT_TYPES = [
+  "inspection.created",
+  "inspection.updated",
+  "inspection.deleted",
+  "thermal.uploaded",
+  "annotations.saved",
+  "analysis.finished",
+  "transformer.created",
+  "transformer.updated",
+  "transformer.deleted",
+  "reset",
+]
+
+/**
+ * Subscribe to the server's change feed (/api/changes) for one transformer, or globally when
+ * transformerNo is empty. Returns whether the stream is currently open, so callers can skip
+ * their own refetch after an edit and let the pushed event drive it.
+ */
+export function useChangeFeed(
+  transformerNo: string | null | undefined,
+  onEvent: (e: ChangeFeedEvent) => void,
+  enabled = true
+) {
+  const handler = React.useRef(onEvent)
+  handler.current = onEvent
+  const [connected, setConnected] = React.useState(false)
+
+  React.useEffect(() => {
+    if (!enabled || typeof EventSource === "undefined") return
+    const qs = transformerNo ? `?transformerNo=${encodeURIComponent(transformerNo)}` : ""
+    const source = new EventSource(`${API_BASE}/api/changes${qs}`)
+    const listener = (msg: MessageEvent) => {
+      try {
+        handler.current(JSON.parse(msg.data))
+      } catch {
+        // ignore malformed events
+      }
+    }
+    source.addEventListener("ready", () => setConnected(true))
+    source.onerror = () => setConnected(false) // EventSource retries on its own
+    EVENT_TYPES.forEach(t => source.addEventListener(t, listener as EventListener))
+    return () => {
+      source.close()
+      setConnected(false)
+    }
+  }, [transformerNo, enabled])
+
+  return connected
+}
@@ -37,9 +37,26 @@ type Row = {
   type: string;
   starred: boolean;
   locationDetails?: string;
+  lastInspectedAt?: string | null;
+  criticalAnomalies?: number;
+  potentialAnomalies?: number;
 };
 
 const initialRows: Row[] = [];
+const PAGE_SIZE = 50;
+
+const toRow = (x: any, i: number): Row => ({
+  id: String(x.transformerNo ?? x.id ?? `T-${i + 1}`),
+  poleNo: x.poleNo ?? "-",
+  capacity: x.capacity ?? "-",
+  region: x.region ?? "Unknown",
+  type: x.type ?? "-",
+  starred: Boolean(x.starred),
+  locationDetails: x.locationDetails ?? "",
+  lastInspectedAt: x.lastInspectedAt ?? null,
+  criticalAnomalies: Number(x.criticalAnomalies ?? 0),
+  potentialAnomalies: Number(x.potentialAnomalies ?? 0),
+});
 
 export default function Dashboard() {
   const [rows, setRows] = useState<Row[]>(initialRows);
@@ -47,6 +64,8 @@ export default function Dashboard() {
   const [selectedRegion, setSelectedRegion] = useState("all");
   const [selectedType, setSelectedType] = useState("all");
   const [showStarredOnly, setShowStarredOnly] = useState(false);
+  const [hasMore, setHasMore] = useState(false);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [isAddDialogOpen, setIsAddDialogOpen] = useState(false);
 
   // Edit dialog
@@ -82,33 +101,58 @@ export default function Dashboard() {
     }
   }, [location.state, navigate, toast, location.pathname]);
 
-  // Load table
+  // Search runs on the server, so wait for typing to pause
+  const [debouncedSearch, setDebouncedSearch] = useState("");
+  useEffect(() => {
+    const h = setTimeout(() => setDebouncedSearch(searchTerm.trim()), 250);
+    return () => clearTimeout(h);
+  }, [searchTerm]);
+
+  // One page of ranked matches from the transformer search index (blank query = browse, starred first)
+  const fetchPage = async (offset: number, signal?: AbortSignal) => {
+    const params = new URLSearchParams({ limit: String(PAGE_SIZE), offset: String(offset) });
+    if (debouncedSearch) params.set("q", debouncedSearch);
+    if (selectedRegion !== "all") params.set("region", selectedRegion);
+    if (selectedType !== "all") params.set("type", selectedType);
+    if (showStarredOnly) params.set("starred", "true");
+    const res = await fetch(`${API_BASE}/api/transformers/search?${params}`, { signal });
+    const ct = res.headers.get("content-type") || "";
+    if (!res.ok) throw new Error(`HTTP ${res.status} ${res.statusText}`);
+    if (!ct.includes("application/json")) throw new Error("Non-JSON response");
+    const body = await res.json();
+    return { rows: (body?.items ?? []).map((x: any, i: number) => toRow(x, offset + i)), hasMore: Boolean(body?.hasMore) };
+  };
+
+  // Load table, and again whenever the search or a filter changes
   useEffect(() => {
     const ctl = new AbortController();
-    fetch(`${API_BASE}/api/transformers`, { signal: ctl.signal })
-      .then(async (res) => {
-        const ct = res.headers.get("content-type") || "";
-        if (!res.ok) throw new Error(`HTTP ${res.status} ${res.statusText}`);
-        if (!ct.includes("application/json")) throw new Error("Non-JSON response");
-        const body = await res.json();
-        const list = Array.isArray(body) ? body : body?.content ?? [];
-        const mapped: Row[] = list.map((x: any, i: number) => ({
-          id: String(x.transformerNo ?? x.id ?? `T-${i + 1}`),
-          poleNo: x.poleNo ?? "-",
-          capacity: x.capacity ?? "-",
-          region: x.region ?? "Unknown",
-          type: x.type ?? "-",
-          starred: Boolean(x.starred),
-          locationDetails: x.locationDetails ?? "",
-        }));
-        if (mapped.length) setRows(mapped);
+    fetchPage(0, ctl.signal)
+      .then((page) => {
+        setRows(page.rows);
+        setHasMore(page.hasMore);
       })
       .catch((e) => {
+        if (ctl.signal.aborted) return;
         console.error(e);
         toast({ title: "API error", description: String(e.message || e), variant: "destructive" });
       });
     return () => ctl.abort();
-  }, [toast]);
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [toast, debouncedSearch, selectedRegion, selectedType, showStarredOnly]);
+
+  const loadMore = async () => {
+    if (!hasMore || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchPage(rows.length);
+      setRows((prev) => [...prev, ...page.rows]);
+      setHasMore(page.hasMore);
+    } catch (e: any) {
+      toast({ title: "API error", description: String(e?.message || e), variant: "destructive" });
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   const toggleStar = async (id: string) => {
     // Optimistically update UI first
@@ -145,19 +189,8 @@ export default function Dashboard() {
     }
   };
 
-  const filtered = rows.filter((r) => {
-    const s = searchTerm.toLowerCase();
-    const okSearch = r.id.toLowerCase().includes(s) || r.poleNo.toLowerCase().includes(s);
-    const okRegion = selectedRegion === "all" || r.region === selectedRegion;
-    const okType = selectedType === "all" || r.type === selectedType;
-    const okStarred = !showStarredOnly || r.starred;
-    return okSearch && okRegion && okType && okStarred;
-  }).sort((a, b) => {
-    // Sort starred transformers to the top
-    if (a.starred && !b.starred) return -1;
-    if (!a.starred && b.starred) return 1;
-    return 0; // Keep original order for items with same star status
-  });
+  // Matching, filtering and ranking happen server-side
+  const filtered = rows;
 
   const handleView = (id: string) => navigate(`/transformer/${encodeURIComponent(id)}`);
 
@@ -415,7 +448,7 @@ export default function Dashboard() {
                   <div>Pole No.</div>
                   <div>Region</div>
                   <div>Type</div>
-                  <div></div>
+                  <div>Last Inspection</div>
                   <div></div>
                 </div>
               </div>
@@ -432,7 +465,11 @@ export default function Dashboard() {
                     <div className="text-muted-foreground">{r.poleNo}</div>
                     <div className="text-muted-foreground">{r.region}</div>
                     <div className="text-muted-foreground">{r.type}</div>
-                    <div></div>
+                    <div className="flex items-center gap-2 text-muted-foreground">
+                      <span>{r.lastInspectedAt ? new Date(r.lastInspectedAt).toLocaleDateString() : "-"}</span>
+                      {!!r.criticalAnomalies && <Badge variant="destructive">{r.criticalAnomalies} critical</Badge>}
+                      {!!r.potentialAnomalies && <Badge variant="secondary">{r.potentialAnomalies} potential</Badge>}
+                    </div>
 
                     <div className="flex items-center gap-2">
                       <Button variant="outline" size="sm" className="gap-1" onClick={() => openEdit(r)}>
@@ -443,6 +480,13 @@ export default function Dashboard() {
                   </div>
                 ))}
               </div>
+              {hasMore && (
+                <div className="flex justify-center border-t px-6 py-3">
+                  <Button variant="outline" size="sm" onClick={loadMore} disabled={loadingMore}>
+                    {loadingMore ? "Loading…" : "Load more"}
+                  </Button>
+                </div>
+              )}
             </CardContent>
           </Card>
 
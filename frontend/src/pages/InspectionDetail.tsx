@@ -1,4 +1,4 @@
-import { useState, useRef, useEffect, useCallback } from "react";
+import { useState, useRef, useEffect, useCallback, useMemo } from "react";
 import { useParams, useNavigate } from "react-router-dom";
 import { ArrowLeft, Upload, CheckCircle, Eye, AlertTriangle, ZoomIn, ZoomOut, RotateCcw, Settings, Plus, Minus, Bot, Edit3, X, Check, Zap, ScanSearch, UserRoundPen } from "lucide-react";
 import { Button } from "@/components/ui/button";
@@ -57,6 +57,18 @@ const InspectionDetail = () => {
   const { id, inspectionId } = useParams();
   const navigate = useNavigate();
 
+  // One round-trip for the whole page: inspection, transformer, image URLs and annotations.
+  // The loaders below all await this shared request.
+  const viewRequest = useMemo(() => {
+    if (!inspectionId) return null;
+    const p = fetch(`${API_BASE}/api/inspections/${encodeURIComponent(inspectionId)}/view`).then(res => {
+      if (!res.ok) throw new Error(`HTTP ${res.status}`);
+      return res.json();
+    });
+    p.catch(() => {}); // each consumer handles the failure itself
+    return p;
+  }, [inspectionId]);
+
   // Get current user from localStorage (fallback if backend user endpoint not available)
   const currentUserObj = JSON.parse(localStorage.getItem("user") || '{}');
   const currentUser = currentUserObj.name || currentUserObj.username || "Unknown User";
@@ -398,21 +410,14 @@ const InspectionDetail = () => {
       setCurrentError(null);
 
       try {
-        const qs = new URLSearchParams({
-          inspectionId,
-          ...(id ? { transformerNo: id } : {}),
-        }).toString();
-
-        const res = await fetch(`${API_BASE}/api/get-inspection?${qs}`);
-        if (!res.ok) throw new Error(`HTTP ${res.status}`);
-        const data = await res.json();
+        const data = await viewRequest;
 
-        const baselineSrc = absolutize(data?.baselineImage);
-        const currentSrc  = absolutize(data?.currentImage);
+        const baselineSrc = absolutize(data?.baseline?.url);
+        const currentSrc  = absolutize(data?.current?.url);
 
-        // timestamps (if your API returns these)
-        if (data?.baselineTimestamp) setBaselineTakenAt(new Date(data.baselineTimestamp));
-        if (data?.currentTimestamp)  setCurrentTakenAt(new Date(data.currentTimestamp));
+        // timestamps
+        if (data?.baseline?.lastModified) setBaselineTakenAt(new Date(data.baseline.lastModified));
+        if (data?.current?.lastModified)  setCurrentTakenAt(new Date(data.current.lastModified));
 
         // existence flags (used for redirect decision)
         const _hasBaseline = Boolean(baselineSrc);
@@ -488,25 +493,22 @@ const InspectionDetail = () => {
 
     run();
     return () => { aborted = true; };
-  }, [id, inspectionId]);
+  }, [id, inspectionId, viewRequest]);
 
   // Fetch transformer data
   useEffect(() => {
     const fetchTransformerData = async () => {
-      if (!id) return;
+      if (!id || !viewRequest) return;
       try {
-        const res = await fetch(`${API_BASE}/api/get-transformer-data?id=${encodeURIComponent(id)}`);
-        if (res.ok) {
-          const data = await res.json();
-          const tf = data?.transformer;
-          if (tf) {
-            setTransformerData({
-              transformerNo: tf.transformerNo || id,
-              poleNo: tf.poleNo || "—",
-              region: tf.region || "—",
-              inspectedBy: "Agent1", // Hardcoded as requested in TransformerDetail
-            });
-          }
+        const data = await viewRequest;
+        const tf = data?.transformer;
+        if (tf) {
+          setTransformerData({
+            transformerNo: tf.transformerNo || id,
+            poleNo: tf.poleNo || "—",
+            region: tf.region || "—",
+            inspectedBy: "Agent1", // Hardcoded as requested in TransformerDetail
+          });
         }
       } catch (error) {
         console.error("Failed to fetch transformer data:", error);
@@ -520,7 +522,7 @@ const InspectionDetail = () => {
       }
     };
     fetchTransformerData();
-  }, [id]);
+  }, [id, viewRequest]);
 
   // 🔁 Redirect to /thermal-upload when there is NO current image
   useEffect(() => {
@@ -533,51 +535,47 @@ const InspectionDetail = () => {
   // Load anomaly detection results
   useEffect(() => {
     const loadAnnotations = async () => {
-      if (!id || !inspectionId) return;
+      if (!id || !inspectionId || !viewRequest) return;
 
       try {
         console.log('Loading annotations for inspection:', inspectionId);
 
-        // First, try to load from backend
-        const response = await fetch(`${API_BASE}/api/get-annotations/${inspectionId}`);
-
-        if (response.ok) {
-          const data = await response.json();
-          console.log('Loaded annotations from backend:', data);
-
-          if (data.success && data.detections && data.detections.length > 0) {
-            // Ensure all detections have annotationType and creator metadata
-            const detectionsWithAnnotationTypeRaw = data.detections.map((detection: any) => ({
-              ...detection,
-              annotationType: detection.annotationType || 'Detected by AI',
-              createdBy: detection.createdBy || (detection.annotationType === 'Manual' ? (currentUser || 'User') : 'AI'),
-              createdAt: detection.createdAt || new Date().toISOString()
-            }));
+        // First, try to load from backend (annotations section of the page view)
+        const data = (await viewRequest)?.annotations;
+        console.log('Loaded annotations from backend:', data);
 
-            const detectionsWithAnnotationType = normalizeDetectionsWithLabels(detectionsWithAnnotationTypeRaw);
+        if (data?.detections && data.detections.length > 0) {
+          // Ensure all detections have annotationType and creator metadata
+          const detectionsWithAnnotationTypeRaw = data.detections.map((detection: any) => ({
+            ...detection,
+            annotationType: detection.annotationType || 'Detected by AI',
+            createdBy: detection.createdBy || (detection.annotationType === 'Manual' ? (currentUser || 'User') : 'AI'),
+            createdAt: detection.createdAt || new Date().toISOString()
+          }));
 
-            setAnomalyResults(detectionsWithAnnotationType);
-            setAnomalyDetectionRun(true);
+          const detectionsWithAnnotationType = normalizeDetectionsWithLabels(detectionsWithAnnotationTypeRaw);
 
-            // Also update localStorage for offline access
-            const resultsKey = `anomaly_results_${id}_${inspectionId}`;
-            const storageData = {
-              detections: detectionsWithAnnotationType,
-              analysisDate: new Date().toISOString(),
-              transformerId: id,
-              inspectionId: inspectionId,
-              imageAnalyzed: true,
-              loadedFromBackend: true,
-              statistics: data.statistics
-            };
-            localStorage.setItem(resultsKey, JSON.stringify(storageData));
+          setAnomalyResults(detectionsWithAnnotationType);
+          setAnomalyDetectionRun(true);
 
-            // Reset image dimensions and render info when loading new results
-            setCurrentImageDimensions(null);
-            setImageRenderInfo(null);
-            imageInitialized.current = false;
-            return;
-          }
+          // Also update localStorage for offline access
+          const resultsKey = `anomaly_results_${id}_${inspectionId}`;
+          const storageData = {
+            detections: detectionsWithAnnotationType,
+            analysisDate: new Date().toISOString(),
+            transformerId: id,
+            inspectionId: inspectionId,
+            imageAnalyzed: true,
+            loadedFromBackend: true,
+            statistics: data.statistics
+          };
+          localStorage.setItem(resultsKey, JSON.stringify(storageData));
+
+          // Reset image dimensions and render info when loading new results
+          setCurrentImageDimensions(null);
+          setImageRenderInfo(null);
+          imageInitialized.current = false;
+          return;
         }
 
         // Fallback to localStorage if backend doesn't have data
@@ -649,7 +647,7 @@ const InspectionDetail = () => {
     };
 
     loadAnnotations();
-  }, [id, inspectionId]);
+  }, [id, inspectionId, viewRequest]);
 
   // Final cleanup on unmount only
   useEffect(() => {
@@ -1,4 +1,4 @@
-import { useEffect, useMemo, useState } from "react";
+import { useEffect, useState } from "react";
 import { Plus, Search, Star, Filter, ChevronDown, Pencil, Trash2 } from "lucide-react";
 import { Button } from "@/components/ui/button";
 import { Input } from "@/components/ui/input";
@@ -13,6 +13,22 @@ import { useNavigate } from "react-router-dom";
 import { useToast } from "@/hooks/use-toast";
 
 const API_BASE = import.meta.env.VITE_API_URL || "http://localhost:8080";
+const PAGE_SIZE = 50;
+
+// Display status -> backend enum for the status filter
+const STATUS_PARAM: Record<string, string> = {
+  "In Progress": "IN_PROGRESS",
+  "Completed": "COMPLETED",
+  "Needs Review": "NEEDS_REVIEW",
+};
+
+type InspectionPage = {
+  items: InspectionRow[];
+  nextCursor: string | null;
+  hasMore: boolean;
+  total?: number | null;
+  totalExact?: boolean;
+};
 
 type InspectionRow = {
   transformerNo: string;
@@ -45,10 +61,14 @@ const Inspections = () => {
   const navigate = useNavigate();
   const { toast } = useToast();
 
-  // Data state
+  // Data state (one or more server pages, already filtered/sorted by the backend)
   const [inspections, setInspections] = useState<InspectionRow[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [total, setTotal] = useState<{ value: number; exact: boolean } | null>(null);
+  const [transformerOptions, setTransformerOptions] = useState<string[]>([]);
 
   // UI state
   const [searchTerm, setSearchTerm] = useState("");
@@ -72,11 +92,29 @@ const Inspections = () => {
   const [editMaintDateStr, setEditMaintDateStr] = useState("");
   const [editMaintTimeStr, setEditMaintTimeStr] = useState("");
 
-  // Build unique transformer numbers for dropdown
-  const transformerOptions = useMemo(
-    () => Array.from(new Set(inspections.map(r => r.transformerNo))).sort(),
-    [inspections]
-  );
+  // Search is sent to the server, so wait for typing to pause
+  const [debouncedSearch, setDebouncedSearch] = useState("");
+  useEffect(() => {
+    const h = setTimeout(() => setDebouncedSearch(searchTerm.trim()), 300);
+    return () => clearTimeout(h);
+  }, [searchTerm]);
+
+  // Transformer numbers for the "new inspection" dropdown
+  useEffect(() => {
+    (async () => {
+      try {
+        const res = await fetch(`${API_BASE}/api/transformers`);
+        if (!res.ok) return;
+        const list: { transformerNo?: string }[] = await res.json();
+        setTransformerOptions(
+          Array.from(new Set(list.map(t => t.transformerNo).filter((n): n is string => !!n)))
+            .sort((a, b) => a.localeCompare(b, undefined, { numeric: true }))
+        );
+      } catch {
+        /* dropdown stays empty */
+      }
+    })();
+  }, []);
 
   // When dialog opens and no selection yet, default to first transformer if available
   useEffect(() => {
@@ -85,15 +123,40 @@ const Inspections = () => {
     }
   }, [isAddDialogOpen, tNo, transformerOptions]);
 
-  // Fetcher extracted so we can reuse after creating an inspection
+  // One page of the server-filtered table: starred first, then by transformer number
+  const fetchPage = async (cursor: string | null): Promise<InspectionPage> => {
+    const params = new URLSearchParams({
+      limit: String(PAGE_SIZE),
+      sort: "transformerNo",
+      order: sortDirection,
+      starredFirst: "true",
+    });
+    if (debouncedSearch) params.set("q", debouncedSearch);
+    if (selectedFilter !== "all") params.set("status", STATUS_PARAM[selectedFilter] ?? selectedFilter);
+    if (showStarredOnly) params.set("starred", "true");
+    if (cursor) params.set("cursor", cursor);
+    else params.set("includeTotal", "true");
+    const res = await fetch(`${API_BASE}/api/inspection-table?${params}`);
+    if (!res.ok) throw new Error(`HTTP ${res.status}`);
+    return res.json();
+  };
+
+  // Fetcher extracted so we can reuse after creating an inspection (reloads the first page)
   const fetchInspections = async () => {
     setLoading(true);
     setError(null);
     try {
-      const res = await fetch(`${API_BASE}/api/get-inspection-table`);
-      if (!res.ok) throw new Error(`HTTP ${res.status}`);
-      const data: InspectionRow[] = await res.json();
-      setInspections(data);
+      if (selectedFilter === "Pending") {
+        // every stored inspection has a status, so nothing is ever "Pending" server-side
+        setInspections([]);
+        setNextCursor(null);
+        setTotal({ value: 0, exact: true });
+        return;
+      }
+      const page = await fetchPage(null);
+      setInspections(page.items);
+      setNextCursor(page.hasMore ? page.nextCursor : null);
+      setTotal(page.total != null ? { value: page.total, exact: !!page.totalExact } : null);
     } catch (e: any) {
       setError(e?.message || "Failed to load inspections");
     } finally {
@@ -101,18 +164,25 @@ const Inspections = () => {
     }
   };
 
-  // Initial load
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchPage(nextCursor);
+      setInspections(prev => [...prev, ...page.items]);
+      setNextCursor(page.hasMore ? page.nextCursor : null);
+    } catch (e: any) {
+      setError(e?.message || "Failed to load inspections");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
+  // Initial load, and again whenever a filter or the order changes
   useEffect(() => {
-    let cancelled = false;
-    (async () => {
-      try {
-        await fetchInspections();
-      } catch {
-        /* handled in fetchInspections */
-      }
-    })();
-    return () => { cancelled = true; };
-  }, []);
+    fetchInspections();
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [debouncedSearch, selectedFilter, sortDirection, showStarredOnly]);
 
   // Toggle star with backend persistence
   const toggleStar = async (transformerNo: string, inspectionNo: string) => {
@@ -380,27 +450,8 @@ const Inspections = () => {
     }
   };
 
-  // Derived filtered + sorted rows
-  const filteredInspections = useMemo(() => {
-    const term = searchTerm.trim().toLowerCase();
-    let rows = inspections.filter(row => {
-      const matchesSearch =
-        row.transformerNo.toLowerCase().includes(term) ||
-        row.inspectionNo.toLowerCase().includes(term);
-      const matchesFilter = selectedFilter === "all" || row.status === selectedFilter;
-      const matchesStarFilter = !showStarredOnly || row.starred;
-      return matchesSearch && matchesFilter && matchesStarFilter;
-    });
-    rows.sort((a, b) => {
-      // Sort starred inspections to the top first
-      if (a.starred && !b.starred) return -1;
-      if (!a.starred && b.starred) return 1;
-      // Then sort by transformer number
-      const cmp = a.transformerNo.localeCompare(b.transformerNo, undefined, { numeric: true });
-      return sortDirection === "asc" ? cmp : -cmp;
-    });
-    return rows;
-  }, [inspections, searchTerm, selectedFilter, sortDirection, showStarredOnly]);
+  // Rows come back filtered and sorted (starred first, then transformer number) from the server
+  const filteredInspections = inspections;
 
   // Navigate to details using transformerNo + numeric id from padded string
   const goToView = (row: InspectionRow) => {
@@ -711,18 +762,20 @@ const Inspections = () => {
           </Card>
         )}
 
-        {/* Pagination placeholder (static) */}
-        <div className="mt-6 flex items-center justify-center gap-2">
-          <Button variant="outline" size="sm">&lt;</Button>
-          {[1, 2, 3, 4, 5, 6].map((page) => (
-            <Button key={page} variant={page === 1 ? "default" : "outline"} size="sm" className="h-8 w-8">
-              {page}
-            </Button>
-          ))}
-          <span className="px-2 text-sm text-muted-foreground">...</span>
-          <Button variant="outline" size="sm" className="h-8 w-8">56</Button>
-          <Button variant="outline" size="sm">&gt;</Button>
-        </div>
+        {/* Pagination: keyset pages appended on demand */}
+        {!loading && !error && (
+          <div className="mt-6 flex items-center justify-center gap-4">
+            <span className="text-sm text-muted-foreground">
+              Showing {inspections.length}
+              {total ? ` of ${total.exact ? "" : "~"}${total.value}` : ""} inspections
+            </span>
+            {nextCursor && (
+              <Button variant="outline" size="sm" onClick={loadMore} disabled={loadingMore}>
+                {loadingMore ? "Loading…" : "Load more"}
+              </Button>
+            )}
+          </div>
+        )}
         </div>
       </div>
     </Layout>
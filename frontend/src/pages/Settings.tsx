@@ -17,10 +17,18 @@ export default function Settings() {
   const handleExportJson = async () => {
     setExporting(true);
     try {
-      // 1) Fetch all inspections from the table
-      const tableRes = await fetch(`${API_BASE}/api/get-inspection-table`);
-      if (!tableRes.ok) throw new Error(`HTTP ${tableRes.status}`);
-      const table: any[] = await tableRes.json();
+      // 1) Walk the paged inspection table to collect every inspection id
+      const table: any[] = [];
+      let cursor: string | null = null;
+      do {
+        const params = new URLSearchParams({ limit: "200", sort: "id", order: "asc" });
+        if (cursor) params.set("cursor", cursor);
+        const tableRes = await fetch(`${API_BASE}/api/inspection-table?${params}`);
+        if (!tableRes.ok) throw new Error(`HTTP ${tableRes.status}`);
+        const page = await tableRes.json();
+        table.push(...(page.items || []));
+        cursor = page.hasMore ? page.nextCursor : null;
+      } while (cursor);
       const ids: number[] = table
         .map(r => parseInt(r.inspectionNo, 10))
         .filter(n => Number.isFinite(n));
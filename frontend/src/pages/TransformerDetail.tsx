@@ -1,4 +1,4 @@
-import { useEffect, useMemo, useState } from "react";
+import { useEffect, useMemo, useRef, useState } from "react";
 import { useParams, useNavigate } from "react-router-dom";
 import { Plus, Star, ArrowLeft, Pencil, Trash2, Image } from "lucide-react";
 import { Button } from "@/components/ui/button";
@@ -23,6 +23,7 @@ import { Input } from "@/components/ui/input";
 import { Textarea } from "@/components/ui/textarea";
 import Layout from "@/components/Layout";
 import { useToast } from "@/hooks/use-toast";
+import { useChangeFeed } from "@/hooks/use-change-feed";
 
 const API_BASE = import.meta.env.VITE_API_URL || "http://localhost:8080";
 
@@ -128,9 +129,9 @@ const TransformerDetail = () => {
     return { dateStr, timeStr };
   }
 
-  async function loadTransformerDetail(idOrNo: string) {
+  async function loadTransformerDetail(idOrNo: string, silent = false) {
     const url = `${API_BASE}/api/get-transformer-data?id=${encodeURIComponent(idOrNo)}`;
-    setLoading(true);
+    if (!silent) setLoading(true);
     try {
       const res = await fetch(url);
       const contentType = res.headers.get("content-type") || "";
@@ -214,6 +215,16 @@ const TransformerDetail = () => {
     if (tNo) loadTransformerDetail(tNo);
   }, [tNo]);
 
+  // Changes by anyone (including our own edits) are pushed; bursts collapse into one quiet reload
+  const feedReload = useRef<number | null>(null);
+  const feedConnected = useChangeFeed(tNo, () => {
+    if (feedReload.current) window.clearTimeout(feedReload.current);
+    feedReload.current = window.setTimeout(() => loadTransformerDetail(tNo, true), 250);
+  }, Boolean(tNo));
+  useEffect(() => () => {
+    if (feedReload.current) window.clearTimeout(feedReload.current);
+  }, []);
+
   const prettyStatus = (raw: string) => {
     switch ((raw || "").toUpperCase()) {
       case "IN_PROGRESS":
@@ -372,8 +383,8 @@ const TransformerDetail = () => {
         notes: "",
       });
       
-      // Reload data
-      await loadTransformerDetail(tNo);
+      // Reload data (the change feed does it when connected)
+      if (!feedConnected) await loadTransformerDetail(tNo);
     } catch (e: any) {
       console.error("[update inspection] error:", e);
       toast({
@@ -418,8 +429,8 @@ const TransformerDetail = () => {
         notes: "",
       });
       
-      // Reload data
-      await loadTransformerDetail(tNo);
+      // Reload data (the change feed does it when connected)
+      if (!feedConnected) await loadTransformerDetail(tNo);
     } catch (e: any) {
       console.error("Delete inspection error:", e);
       toast({
@@ -452,8 +463,8 @@ const TransformerDetail = () => {
 
       toast({ title: "Thermal image deleted successfully" });
       
-      // Reload data to reflect changes
-      await loadTransformerDetail(tNo);
+      // Reload data to reflect changes (the change feed does it when connected)
+      if (!feedConnected) await loadTransformerDetail(tNo);
     } catch (e: any) {
       console.error("Delete thermal image error:", e);
       toast({
@@ -511,7 +522,7 @@ const handleConfirmNewInspection = async () => {
     setBranch("");
     setDateStr("");
     setTimeStr("");
-    await loadTransformerDetail(tNo);
+    if (!feedConnected) await loadTransformerDetail(tNo);
   } catch (e: any) {
     console.error("[create inspection] payload:", payload, "error:", e);
     toast({